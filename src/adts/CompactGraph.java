@@ -0,0 +1,855 @@
+package adts;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * Undirected graph storing its edges in parallel primitive arrays rather than
+ * as one object per edge. Each edge is identified by an integer id, the index
+ * of its slot in the arrays, and slots of removed edges are reused by later
+ * insertions. No array of weights is kept until an edge is given a weight
+ * other than the default.
+ *
+ * Edges returned by this graph are lightweight handles created on demand. A
+ * handle stays valid until its edge is removed; handles of removed edges are
+ * rejected even if their slot has since been reused. Handles of the same edge
+ * are equal but not necessarily identical, so they must be compared with
+ * equals rather than ==.
+ *
+ * Snapshots are copies of the edge arrays, packed so that edges are numbered
+ * from 0 in order of id, rather than persistent structures shared with the
+ * graph, which would cost more per edge than the graph itself.
+ */
+public class CompactGraph<V, E> implements Graph<V, E> {
+
+	// Endpoint value marking a free edge slot
+	private static final int FREE = -1;
+	// Initial capacity of vertex incidence arrays
+	private static final int INITIAL_DEGREE_CAPACITY = 4;
+
+	// Vertices of graph, each at its position
+	private ArrayList<Vertex<V, E>> vertices;
+	// Vertex storing each element
+	private VertexIndex<V, E> vertexIndex;
+	// Read-only view of vertex sequence
+	private List<Vertex<V, E>> vertexView;
+	// Ids of edges incident on each vertex, indexed by vertex position
+	private int[][] adjacency;
+	// Number of edges incident on each vertex, indexed by vertex position
+	private int[] degrees;
+
+	// Origin vertex position of each edge slot, FREE for a free slot
+	private int[] origins;
+	// Destination vertex position of each edge slot; for a free slot, the next free slot
+	private int[] destinations;
+	// Position of each edge in incidence arrays of its origin and destination
+	private int[] originSlots;
+	private int[] destSlots;
+	// Element stored by each edge
+	private Object[] elements;
+	// Weight of each edge, null while every edge has the default weight
+	private double[] weights;
+	// Number of times each slot has been freed, used to reject stale handles
+	private int[] generations;
+	// Number of slots ever used, free or not
+	private int edgeSlots;
+	// First free slot, or FREE if there is none
+	private int freeHead;
+	// Number of edges of graph
+	private int numEdges;
+
+	/**
+	 * Creates empty compact graph, having no edges or vertices.
+	 */
+	public CompactGraph() {
+		this(16, 16);
+	}
+
+	/**
+	 * Creates empty compact graph with room for the given numbers of vertices and
+	 * edges before its arrays must grow.
+	 *
+	 * @param vertexCapacity
+	 *            initial number of vertices that can be held
+	 * @param edgeCapacity
+	 *            initial number of edges that can be held
+	 */
+	public CompactGraph(int vertexCapacity, int edgeCapacity) {
+		vertexCapacity = Math.max(vertexCapacity, 1);
+		edgeCapacity = Math.max(edgeCapacity, 1);
+		vertices = new ArrayList<>(vertexCapacity);
+		vertexView = Collections.unmodifiableList(vertices);
+		vertexIndex = new VertexIndex<>();
+		adjacency = new int[vertexCapacity][];
+		degrees = new int[vertexCapacity];
+		origins = new int[edgeCapacity];
+		destinations = new int[edgeCapacity];
+		originSlots = new int[edgeCapacity];
+		destSlots = new int[edgeCapacity];
+		elements = new Object[edgeCapacity];
+		generations = new int[edgeCapacity];
+		freeHead = FREE;
+	}
+
+	@Override
+	public int numVertices() {
+		return vertices.size();
+	}
+
+	@Override
+	public List<Vertex<V, E>> vertices() {
+		return vertexView;
+	}
+
+	@Override
+	public int numEdges() {
+		return numEdges;
+	}
+
+	@Override
+	public Iterable<Edge<V, E>> edges() {
+		return new Iterable<Edge<V, E>>() {
+			@Override
+			public Iterator<Edge<V, E>> iterator() {
+				return new Iterator<Edge<V, E>>() {
+					// Next slot holding an edge
+					private int next = advance(0);
+
+					private int advance(int slot) {
+						while (slot < edgeSlots && origins[slot] == FREE) {
+							slot++;
+						}
+						return slot;
+					}
+
+					@Override
+					public boolean hasNext() {
+						return next < edgeSlots;
+					}
+
+					@Override
+					public Edge<V, E> next() {
+						if (next >= edgeSlots) {
+							throw new NoSuchElementException();
+						}
+						Edge<V, E> edge = new EdgeHandle(next);
+						next = advance(next + 1);
+						return edge;
+					}
+				};
+			}
+		};
+	}
+
+	/**
+	 * Returns the number of edge slots in use or free. Every edge id is less than
+	 * this number.
+	 *
+	 * @return number of edge slots
+	 */
+	public int edgeSlots() {
+		return edgeSlots;
+	}
+
+	/**
+	 * Returns true if the slot with the given id holds an edge.
+	 *
+	 * @param id
+	 *            id of edge slot
+	 * @return true if slot holds an edge; otherwise false
+	 */
+	public boolean containsEdge(int id) {
+		return id >= 0 && id < edgeSlots && origins[id] != FREE;
+	}
+
+	/**
+	 * Returns the id of the given edge, or -1 if it is not an edge of this graph.
+	 *
+	 * @param edge
+	 *            edge whose id will be returned
+	 * @return id of edge if present; otherwise -1
+	 */
+	public int edgeId(Edge<V, E> edge) {
+		if (edge instanceof CompactGraph.EdgeHandle) {
+			EdgeHandle handle = (EdgeHandle) edge;
+			if (handle.graph() == this && handle.isValid()) {
+				return handle.id;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns a handle for the edge with the given id.
+	 *
+	 * @param id
+	 *            id of edge
+	 * @return handle for edge with given id
+	 * @throws NoSuchElementException
+	 *             if no edge has the given id
+	 */
+	public Edge<V, E> edge(int id) {
+		if (!containsEdge(id)) {
+			throw new NoSuchElementException("No edge with id " + id);
+		}
+		return new EdgeHandle(id);
+	}
+
+	/**
+	 * Returns the position of the origin vertex of the edge with the given id.
+	 *
+	 * @param id
+	 *            id of edge
+	 * @return position of origin vertex in vertex sequence
+	 */
+	public int originOf(int id) {
+		return origins[id];
+	}
+
+	/**
+	 * Returns the position of the destination vertex of the edge with the given
+	 * id.
+	 *
+	 * @param id
+	 *            id of edge
+	 * @return position of destination vertex in vertex sequence
+	 */
+	public int destinationOf(int id) {
+		return destinations[id];
+	}
+
+	/**
+	 * Returns the element of the edge with the given id.
+	 *
+	 * @param id
+	 *            id of edge
+	 * @return element of edge
+	 */
+	@SuppressWarnings("unchecked")
+	public E elementOf(int id) {
+		return (E) elements[id];
+	}
+
+	/**
+	 * Returns the weight of the edge with the given id.
+	 *
+	 * @param id
+	 *            id of edge
+	 * @return weight of edge
+	 */
+	public double weightOf(int id) {
+		return weights == null ? DEFAULT_WEIGHT : weights[id];
+	}
+
+	@Override
+	public double weight(Edge<V, E> edge) {
+		return weightOf(checkedId(edge));
+	}
+
+	@Override
+	public void setWeight(Edge<V, E> edge, double weight) {
+		storeWeight(checkedId(edge), weight);
+	}
+
+	/**
+	 * Stores the given weight for the edge with the given id, allocating the
+	 * weight array once an edge is first given a weight other than the default.
+	 */
+	private void storeWeight(int id, double weight) {
+		if (weights == null) {
+			if (weight == DEFAULT_WEIGHT) {
+				return;
+			}
+			weights = new double[origins.length];
+			Arrays.fill(weights, DEFAULT_WEIGHT);
+		}
+		weights[id] = weight;
+	}
+
+	/**
+	 * Returns the id of the given edge, checking that it is an edge of this graph.
+	 */
+	private int checkedId(Edge<V, E> edge) {
+		int id = edgeId(edge);
+		if (id < 0) {
+			throw new IllegalArgumentException(edge + " is not an edge of this graph");
+		}
+		return id;
+	}
+
+	@Override
+	public Edge<V, E> getEdge(Vertex<V, E> origin, Vertex<V, E> destination) {
+		int searched = origin.position();
+		int other = destination.position();
+		// Search incidence array of vertex with smaller degree
+		if (degrees[other] < degrees[searched]) {
+			searched = destination.position();
+			other = origin.position();
+		}
+		int[] incident = adjacency[searched];
+		for (int i = 0; i < degrees[searched]; i++) {
+			int id = incident[i];
+			if (origins[id] == other || destinations[id] == other) {
+				return new EdgeHandle(id);
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public Vertex<V, E> getVertex(V element) {
+		return vertexIndex.get(element);
+	}
+
+	@Override
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public Vertex<V, E>[] endVertices(Edge<V, E> edge) {
+		int id = validate(edge);
+		return new Vertex[] { vertices.get(origins[id]), vertices.get(destinations[id]) };
+	}
+
+	@Override
+	public Vertex<V, E> opposite(Vertex<V, E> vertex, Edge<V, E> edge) throws NoSuchElementException {
+		int id = validate(edge);
+		int position = vertex.position();
+		if (origins[id] == position && vertices.get(position) == vertex) {
+			return vertices.get(destinations[id]);
+		} else if (destinations[id] == position && vertices.get(position) == vertex) {
+			return vertices.get(origins[id]);
+		}
+		throw new NoSuchElementException();
+	}
+
+	@Override
+	public int outDegree(Vertex<V, E> vertex) {
+		return degrees[vertex.position()];
+	}
+
+	@Override
+	public int inDegree(Vertex<V, E> vertex) {
+		return degrees[vertex.position()];
+	}
+
+	@Override
+	public List<Edge<V, E>> outgoingEdges(Vertex<V, E> vertex) {
+		return vertex.incidentEdges();
+	}
+
+	@Override
+	public List<Edge<V, E>> incomingEdges(Vertex<V, E> vertex) {
+		return vertex.incidentEdges();
+	}
+
+	@Override
+	public void forEachIncident(Vertex<V, E> vertex, Consumer<? super Edge<V, E>> action) {
+		int position = vertex.position();
+		int[] incident = adjacency[position];
+		for (int i = 0; i < degrees[position]; i++) {
+			action.accept(new EdgeHandle(incident[i]));
+		}
+	}
+
+	@Override
+	public Vertex<V, E> insertVertex(V element) {
+		int position = vertices.size();
+		if (position == degrees.length) {
+			int capacity = grow(degrees.length);
+			adjacency = Arrays.copyOf(adjacency, capacity);
+			degrees = Arrays.copyOf(degrees, capacity);
+		}
+		Vertex<V, E> vertex = new CompactVertex(element, position);
+		vertices.add(vertex);
+		vertexIndex.add(vertex);
+		return vertex;
+	}
+
+	@Override
+	public Edge<V, E> insertEdge(Vertex<V, E> origin, Vertex<V, E> destination, E element, double weight) {
+		int originPosition = validate(origin);
+		int destPosition = validate(destination);
+		int id = allocateSlot();
+		origins[id] = originPosition;
+		destinations[id] = destPosition;
+		elements[id] = element;
+		storeWeight(id, weight);
+		// A self-loop occupies two consecutive positions of the same array
+		originSlots[id] = append(originPosition, id);
+		destSlots[id] = append(destPosition, id);
+		numEdges++;
+		return new EdgeHandle(id);
+	}
+
+	@Override
+	public Vertex<V, E> removeVertex(Vertex<V, E> vertex) {
+		int position = vertex.position();
+		if (position < 0 || position >= vertices.size() || vertices.get(position) != vertex) {
+			return null;
+		}
+		while (degrees[position] > 0) {
+			removeEdge(adjacency[position][degrees[position] - 1]);
+		}
+		// Move last vertex into position of removed vertex
+		int lastPosition = vertices.size() - 1;
+		Vertex<V, E> last = vertices.remove(lastPosition);
+		if (last != vertex) {
+			vertices.set(position, last);
+			int[] incident = adjacency[lastPosition];
+			for (int i = 0; i < degrees[lastPosition]; i++) {
+				int id = incident[i];
+				if (origins[id] == lastPosition) {
+					origins[id] = position;
+				}
+				if (destinations[id] == lastPosition) {
+					destinations[id] = position;
+				}
+			}
+			adjacency[position] = incident;
+			degrees[position] = degrees[lastPosition];
+			last.setPosition(position);
+		}
+		adjacency[lastPosition] = null;
+		degrees[lastPosition] = 0;
+		vertex.setPosition(-1);
+		vertexIndex.remove(vertex, vertices);
+		return vertex;
+	}
+
+	@Override
+	public Edge<V, E> removeEdge(Edge<V, E> edge) {
+		int id = edgeId(edge);
+		if (id < 0) {
+			return null;
+		}
+		removeEdge(id);
+		return edge;
+	}
+
+	/**
+	 * Removes the edge with the given id, freeing its slot for reuse.
+	 *
+	 * @param id
+	 *            id of edge to be removed
+	 * @return true if the edge was present; otherwise false
+	 */
+	public boolean removeEdge(int id) {
+		if (!containsEdge(id)) {
+			return false;
+		}
+		detach(origins[id], originSlots[id]);
+		// Origin slot is gone, so a self-loop's destination slot may have moved into it
+		originSlots[id] = -1;
+		detach(destinations[id], destSlots[id]);
+		elements[id] = null;
+		origins[id] = FREE;
+		destinations[id] = freeHead;
+		generations[id]++;
+		freeHead = id;
+		numEdges--;
+		return true;
+	}
+
+	/**
+	 * Returns a string representation of the graph. The first element of each line
+	 * is a vertex. The following elements are the edges incident on that vertex.
+	 *
+	 * @return string representation of graph
+	 */
+	public String toString() {
+		StringBuilder output = new StringBuilder();
+		for (int i = 0; i < vertices.size(); i++) {
+			Vertex<V, E> vertex = vertices.get(i);
+			output.append(vertex.toString()).append(": ").append(vertex.incidentEdges().toString());
+			if (i < vertices.size() - 1) {
+				output.append(System.lineSeparator());
+			}
+		}
+		return output.toString();
+	}
+
+	@Override
+	public void clearEdges() {
+		for (int id = 0; id < edgeSlots; id++) {
+			if (origins[id] != FREE) {
+				generations[id]++;
+			}
+		}
+		Arrays.fill(elements, 0, edgeSlots, null);
+		Arrays.fill(degrees, 0, vertices.size(), 0);
+		weights = null;
+		edgeSlots = 0;
+		freeHead = FREE;
+		numEdges = 0;
+	}
+
+	@Override
+	public void clear() {
+		clearEdges();
+		for (Vertex<V, E> vertex : vertices) {
+			adjacency[vertex.position()] = null;
+			vertex.setPosition(-1);
+		}
+		vertices.clear();
+		vertexIndex.clear();
+	}
+
+	/**
+	 * Returns an immutable snapshot of the graph, copying its vertex elements and
+	 * edge arrays in time linear in its size. Edges of the snapshot are numbered
+	 * in order of id, skipping free slots, so their positions are not their ids.
+	 */
+	@Override
+	public GraphSnapshot<V, E> snapshot() {
+		List<V> vertexElements = new ArrayList<>(vertices.size());
+		for (Vertex<V, E> vertex : vertices) {
+			vertexElements.add(vertex.element());
+		}
+		int[] edgeOrigins = new int[numEdges];
+		int[] edgeDestinations = new int[numEdges];
+		Object[] edgeElements = new Object[numEdges];
+		double[] edgeWeights = weights == null ? null : new double[numEdges];
+		int position = 0;
+		for (int id = 0; id < edgeSlots; id++) {
+			if (origins[id] != FREE) {
+				edgeOrigins[position] = origins[id];
+				edgeDestinations[position] = destinations[id];
+				edgeElements[position] = elements[id];
+				if (edgeWeights != null) {
+					edgeWeights[position] = weights[id];
+				}
+				position++;
+			}
+		}
+		List<GraphSnapshot.EdgeRecord<E>> edgeRecords = new AbstractList<GraphSnapshot.EdgeRecord<E>>() {
+			@Override
+			@SuppressWarnings("unchecked")
+			public GraphSnapshot.EdgeRecord<E> get(int index) {
+				return new GraphSnapshot.EdgeRecord<>(edgeOrigins[index], edgeDestinations[index],
+						(E) edgeElements[index], edgeWeights == null ? DEFAULT_WEIGHT : edgeWeights[index]);
+			}
+
+			@Override
+			public int size() {
+				return edgeOrigins.length;
+			}
+		};
+		return new GraphSnapshot<>(Collections.unmodifiableList(vertexElements), edgeRecords);
+	}
+
+	/**
+	 * Returns id of a free edge slot, growing the edge arrays if none is left.
+	 */
+	private int allocateSlot() {
+		if (freeHead != FREE) {
+			int id = freeHead;
+			freeHead = destinations[id];
+			return id;
+		}
+		if (edgeSlots == origins.length) {
+			resizeEdges(grow(origins.length));
+		}
+		return edgeSlots++;
+	}
+
+	@Override
+	public void ensureEdgeCapacity(int minCapacity) {
+		// Free slots are reused before new ones, so minCapacity slots always suffice
+		if (minCapacity > origins.length) {
+			resizeEdges(minCapacity);
+		}
+	}
+
+	/**
+	 * Shrinks the edge arrays to the slots in use and the incidence array of each
+	 * vertex to its degree, releasing the room left for growth. Intended for when
+	 * a graph has been built and few further edges are expected, as the next
+	 * insertion grows the arrays again.
+	 */
+	public void trimToSize() {
+		if (edgeSlots < origins.length) {
+			resizeEdges(Math.max(edgeSlots, 1));
+		}
+		for (int position = 0; position < vertices.size(); position++) {
+			int[] incident = adjacency[position];
+			if (incident != null && incident.length > degrees[position]) {
+				adjacency[position] = degrees[position] == 0 ? null : Arrays.copyOf(incident, degrees[position]);
+			}
+		}
+		vertices.trimToSize();
+		if (vertices.size() < degrees.length) {
+			int capacity = Math.max(vertices.size(), 1);
+			adjacency = Arrays.copyOf(adjacency, capacity);
+			degrees = Arrays.copyOf(degrees, capacity);
+		}
+	}
+
+	/**
+	 * Resizes the edge arrays to hold the given number of slots.
+	 */
+	private void resizeEdges(int capacity) {
+		origins = Arrays.copyOf(origins, capacity);
+		destinations = Arrays.copyOf(destinations, capacity);
+		originSlots = Arrays.copyOf(originSlots, capacity);
+		destSlots = Arrays.copyOf(destSlots, capacity);
+		elements = Arrays.copyOf(elements, capacity);
+		if (weights != null) {
+			weights = Arrays.copyOf(weights, capacity);
+		}
+		generations = Arrays.copyOf(generations, capacity);
+	}
+
+	/**
+	 * Returns the capacity an array of the given length grows to, by half its
+	 * length as with ArrayList.
+	 */
+	private static int grow(int length) {
+		return length + Math.max(length >> 1, 1);
+	}
+
+	/**
+	 * Appends the given edge id to incidence array of vertex at the given position,
+	 * returning its position in that array.
+	 */
+	private int append(int vertex, int id) {
+		int[] incident = adjacency[vertex];
+		int degree = degrees[vertex];
+		if (incident == null) {
+			incident = adjacency[vertex] = new int[INITIAL_DEGREE_CAPACITY];
+		} else if (degree == incident.length) {
+			incident = adjacency[vertex] = Arrays.copyOf(incident, grow(degree));
+		}
+		incident[degree] = id;
+		degrees[vertex] = degree + 1;
+		return degree;
+	}
+
+	/**
+	 * Removes the entry at the given position of incidence array of vertex at the
+	 * given position, moving the last entry into its place.
+	 */
+	private void detach(int vertex, int slot) {
+		int[] incident = adjacency[vertex];
+		int last = --degrees[vertex];
+		if (slot != last) {
+			int moved = incident[last];
+			incident[slot] = moved;
+			if (origins[moved] == vertex && originSlots[moved] == last) {
+				originSlots[moved] = slot;
+			} else {
+				destSlots[moved] = slot;
+			}
+		}
+	}
+
+	/**
+	 * Ensures the incidence array of vertex at the given position can hold the
+	 * given number of edges.
+	 */
+	private void ensureDegreeCapacity(int vertex, int minCapacity) {
+		int[] incident = adjacency[vertex];
+		if (incident == null) {
+			adjacency[vertex] = new int[Math.max(minCapacity, INITIAL_DEGREE_CAPACITY)];
+		} else if (incident.length < minCapacity) {
+			adjacency[vertex] = Arrays.copyOf(incident, minCapacity);
+		}
+	}
+
+	/**
+	 * Returns position of the given vertex, checking that it belongs to this
+	 * graph.
+	 */
+	private int validate(Vertex<V, E> vertex) {
+		int position = vertex.position();
+		if (position < 0 || position >= vertices.size() || vertices.get(position) != vertex) {
+			throw new IllegalArgumentException(vertex + " is not a vertex of this graph");
+		}
+		return position;
+	}
+
+	/**
+	 * Returns id of the given edge, checking that it belongs to this graph.
+	 */
+	private int validate(Edge<V, E> edge) {
+		int id = edgeId(edge);
+		if (id < 0) {
+			throw new NoSuchElementException(edge + " is not an edge of this graph");
+		}
+		return id;
+	}
+
+	/**
+	 * Vertex whose incident edges are held in the arrays of the graph, rather than
+	 * in an incidence sequence of its own.
+	 */
+	private final class CompactVertex extends Vertex<V, E> {
+
+		// Read-only view of incident edges, created when first needed
+		private List<Edge<V, E>> incidentView;
+
+		CompactVertex(V element, int position) {
+			super(element, position);
+		}
+
+		@Override
+		public List<Edge<V, E>> incidentEdges() {
+			if (incidentView == null) {
+				incidentView = new IncidenceView();
+			}
+			return incidentView;
+		}
+
+		@Override
+		public void addEdge(Edge<V, E> edge) {
+			throw new UnsupportedOperationException("Edges of a compact graph are inserted through the graph");
+		}
+
+		@Override
+		public boolean removeEdge(Edge<V, E> edge) {
+			throw new UnsupportedOperationException("Edges of a compact graph are removed through the graph");
+		}
+
+		@Override
+		public void clearEdges() {
+			throw new UnsupportedOperationException("Edges of a compact graph are removed through the graph");
+		}
+
+		@Override
+		public void ensureCapacity(int minCapacity) {
+			if (position() >= 0) {
+				ensureDegreeCapacity(position(), minCapacity);
+			}
+		}
+
+		@Override
+		public int degree() {
+			return position() < 0 ? 0 : degrees[position()];
+		}
+
+		/**
+		 * List of handles for the edges in incidence array of this vertex.
+		 */
+		private final class IncidenceView extends AbstractList<Edge<V, E>> {
+
+			@Override
+			public Edge<V, E> get(int index) {
+				if (index < 0 || index >= size()) {
+					throw new IndexOutOfBoundsException("Index: " + index);
+				}
+				return new EdgeHandle(adjacency[position()][index]);
+			}
+
+			@Override
+			public int size() {
+				return degree();
+			}
+		}
+	}
+
+	/**
+	 * Handle for the edge held in a slot of the graph arrays. The handle records
+	 * the generation of its slot so that it can detect removal of its edge.
+	 */
+	private final class EdgeHandle extends Edge<V, E> {
+
+		// Id of edge slot
+		private final int id;
+		// Generation of slot when handle was created
+		private final int generation;
+
+		EdgeHandle(int id) {
+			super(null, null, null, -1, -1);
+			this.id = id;
+			this.generation = generations[id];
+		}
+
+		CompactGraph<V, E> graph() {
+			return CompactGraph.this;
+		}
+
+		boolean isValid() {
+			return id < edgeSlots && generations[id] == generation && origins[id] != FREE;
+		}
+
+		private void checkValid() {
+			if (!isValid()) {
+				throw new IllegalStateException("Edge " + id + " has been removed");
+			}
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public E element() {
+			checkValid();
+			return (E) elements[id];
+		}
+
+		@Override
+		public List<Vertex<V, E>> endpoints() {
+			return Arrays.asList(endpoint(0), endpoint(1));
+		}
+
+		@Override
+		public Vertex<V, E> endpoint(int index) {
+			checkValid();
+			switch (index) {
+			case 0:
+				return vertices.get(origins[id]);
+			case 1:
+				return vertices.get(destinations[id]);
+			default:
+				throw new IndexOutOfBoundsException("Endpoint index: " + index);
+			}
+		}
+
+		@Override
+		public int[] incidentPositions() {
+			return new int[] { incidentPosition(0), incidentPosition(1) };
+		}
+
+		@Override
+		public int incidentPosition(int index) {
+			checkValid();
+			switch (index) {
+			case 0:
+				return originSlots[id];
+			case 1:
+				return destSlots[id];
+			default:
+				throw new IndexOutOfBoundsException("Endpoint index: " + index);
+			}
+		}
+
+		@Override
+		public boolean removeVertex(Vertex<V, E> vertex) {
+			throw new UnsupportedOperationException("Vertices of a compact graph are removed through the graph");
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public boolean equals(Object other) {
+			if (!(other instanceof CompactGraph.EdgeHandle)) {
+				return false;
+			}
+			EdgeHandle handle = (EdgeHandle) other;
+			return handle.graph() == CompactGraph.this && handle.id == id && handle.generation == generation;
+		}
+
+		@Override
+		public int hashCode() {
+			return id * 31 + generation;
+		}
+
+		@Override
+		public String toString() {
+			if (!isValid()) {
+				return "Edge[removed " + id + "]";
+			}
+			return "Edge[" + elements[id] + ", " + endpoint(0).toString() + ", " + endpoint(1).toString() + "]";
+		}
+	}
+}
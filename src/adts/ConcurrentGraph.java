@@ -0,0 +1,389 @@
+package adts;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Thread-safe graph wrapping another, unsynchronized graph. Mutations take an
+ * exclusive write lock; queries take a shared read lock, and counts are read
+ * optimistically without locking unless a write intervenes.
+ *
+ * Unlike other graphs, vertices(), edges() and the incidence accessors return
+ * read-only snapshots copied under the read lock, so iteration is consistent
+ * and never fails while other threads modify the graph. Analytics needing
+ * several queries against one consistent state should run them through
+ * {@link #read(Function)}, which also avoids copying. Vertices and edges must
+ * be queried through this graph rather than through their own methods, which
+ * are not synchronized.
+ */
+public class ConcurrentGraph<V, E> implements Graph<V, E> {
+
+	// Unsynchronized graph holding vertices and edges
+	private final Graph<V, E> graph;
+	// Lock guarding every access to graph
+	private final StampedLock lock;
+
+	/**
+	 * Creates thread-safe graph backed by an empty undirected graph.
+	 */
+	public ConcurrentGraph() {
+		this(new UndirectedGraph<>());
+	}
+
+	/**
+	 * Creates thread-safe graph backed by the given graph, which must not be
+	 * accessed directly afterwards except within {@link #read(Function)} or
+	 * {@link #write(Function)}.
+	 *
+	 * @param graph
+	 *            graph to be wrapped
+	 */
+	public ConcurrentGraph(Graph<V, E> graph) {
+		this.graph = graph;
+		lock = new StampedLock();
+	}
+
+	/**
+	 * Applies the given function to the wrapped graph under the read lock,
+	 * returning its result. The function sees one consistent state of the graph
+	 * and must not modify it.
+	 *
+	 * @param query
+	 *            function applied to wrapped graph
+	 * @return result of function
+	 */
+	public <T> T read(Function<? super Graph<V, E>, T> query) {
+		long stamp = lock.readLock();
+		try {
+			return query.apply(graph);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Applies the given function to the wrapped graph under the write lock,
+	 * returning its result, so that several modifications appear to other threads
+	 * as one.
+	 *
+	 * @param update
+	 *            function applied to wrapped graph
+	 * @return result of function
+	 */
+	public <T> T write(Function<? super Graph<V, E>, T> update) {
+		long stamp = lock.writeLock();
+		try {
+			return update.apply(graph);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	@Override
+	public boolean isDirected() {
+		return graph.isDirected();
+	}
+
+	@Override
+	public int numVertices() {
+		long stamp = lock.tryOptimisticRead();
+		int count = graph.numVertices();
+		if (!lock.validate(stamp)) {
+			stamp = lock.readLock();
+			try {
+				count = graph.numVertices();
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		return count;
+	}
+
+	@Override
+	public List<Vertex<V, E>> vertices() {
+		long stamp = lock.readLock();
+		try {
+			return snapshot(graph.vertices(), graph.numVertices());
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	@Override
+	public int numEdges() {
+		long stamp = lock.tryOptimisticRead();
+		int count = graph.numEdges();
+		if (!lock.validate(stamp)) {
+			stamp = lock.readLock();
+			try {
+				count = graph.numEdges();
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		return count;
+	}
+
+	@Override
+	public List<Edge<V, E>> edges() {
+		long stamp = lock.readLock();
+		try {
+			return snapshot(graph.edges(), graph.numEdges());
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	@Override
+	public Edge<V, E> getEdge(Vertex<V, E> origin, Vertex<V, E> destination) {
+		long stamp = lock.readLock();
+		try {
+			return graph.getEdge(origin, destination);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	@Override
+	public Vertex<V, E> getVertex(V element) {
+		long stamp = lock.readLock();
+		try {
+			return graph.getVertex(element);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	@Override
+	public Vertex<V, E>[] endVertices(Edge<V, E> edge) {
+		long stamp = lock.readLock();
+		try {
+			return graph.endVertices(edge);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	@Override
+	public Vertex<V, E> opposite(Vertex<V, E> vertex, Edge<V, E> edge) throws NoSuchElementException {
+		long stamp = lock.readLock();
+		try {
+			return graph.opposite(vertex, edge);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	@Override
+	public int outDegree(Vertex<V, E> vertex) {
+		long stamp = lock.readLock();
+		try {
+			return graph.outDegree(vertex);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	@Override
+	public int inDegree(Vertex<V, E> vertex) {
+		long stamp = lock.readLock();
+		try {
+			return graph.inDegree(vertex);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	@Override
+	public List<Edge<V, E>> outgoingEdges(Vertex<V, E> vertex) {
+		long stamp = lock.readLock();
+		try {
+			return snapshot(graph.outgoingEdges(vertex), graph.outDegree(vertex));
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	@Override
+	public List<Edge<V, E>> incomingEdges(Vertex<V, E> vertex) {
+		long stamp = lock.readLock();
+		try {
+			return snapshot(graph.incomingEdges(vertex), graph.inDegree(vertex));
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	@Override
+	public List<Edge<V, E>> incidentEdges(Vertex<V, E> vertex) {
+		long stamp = lock.readLock();
+		try {
+			return snapshot(graph.incidentEdges(vertex), graph.outDegree(vertex));
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Performs the given action for each edge incident on the given vertex while
+	 * holding the read lock. The action must not modify the graph, and should be
+	 * brief since writers wait for it.
+	 */
+	@Override
+	public void forEachIncident(Vertex<V, E> vertex, Consumer<? super Edge<V, E>> action) {
+		long stamp = lock.readLock();
+		try {
+			graph.forEachIncident(vertex, action);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	@Override
+	public Vertex<V, E> insertVertex(V element) {
+		long stamp = lock.writeLock();
+		try {
+			return graph.insertVertex(element);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	@Override
+	public Edge<V, E> insertEdge(Vertex<V, E> origin, Vertex<V, E> destination, E element, double weight) {
+		long stamp = lock.writeLock();
+		try {
+			return graph.insertEdge(origin, destination, element, weight);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	@Override
+	public double weight(Edge<V, E> edge) {
+		long stamp = lock.readLock();
+		try {
+			return graph.weight(edge);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	@Override
+	public void setWeight(Edge<V, E> edge, double weight) {
+		long stamp = lock.writeLock();
+		try {
+			graph.setWeight(edge, weight);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	@Override
+	public Vertex<V, E> removeVertex(Vertex<V, E> vertex) {
+		long stamp = lock.writeLock();
+		try {
+			return graph.removeVertex(vertex);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	@Override
+	public Edge<V, E> removeEdge(Edge<V, E> edge) {
+		long stamp = lock.writeLock();
+		try {
+			return graph.removeEdge(edge);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	@Override
+	public void clearEdges() {
+		long stamp = lock.writeLock();
+		try {
+			graph.clearEdges();
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	@Override
+	public void ensureEdgeCapacity(int minCapacity) {
+		long stamp = lock.writeLock();
+		try {
+			graph.ensureEdgeCapacity(minCapacity);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	@Override
+	public void clear() {
+		long stamp = lock.writeLock();
+		try {
+			graph.clear();
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Returns an immutable snapshot of the wrapped graph, which can be read
+	 * without locking while other threads modify the graph.
+	 */
+	@Override
+	public GraphSnapshot<V, E> snapshot() {
+		// Taking a snapshot changes which nodes the wrapped graph may modify in place
+		long stamp = lock.writeLock();
+		try {
+			return graph.snapshot();
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Traverses the graph depth-first as it stands when the traversal begins,
+	 * holding the read lock throughout.
+	 */
+	@Override
+	public void depthFirstTraversal(Vertex<V, E> u, Set<Vertex<V, E>> known, Map<Vertex<V, E>, Edge<V, E>> forest,
+			Map<Vertex<V, E>, List<Edge<V, E>>> back) {
+		long stamp = lock.readLock();
+		try {
+			graph.depthFirstTraversal(u, known, forest, back);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	public String toString() {
+		long stamp = lock.readLock();
+		try {
+			return graph.toString();
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Returns a read-only copy of the given iterable, which holds the given number
+	 * of items.
+	 */
+	private static <T> List<T> snapshot(Iterable<T> items, int size) {
+		List<T> copy = new ArrayList<>(size);
+		for (T item : items) {
+			copy.add(item);
+		}
+		return Collections.unmodifiableList(copy);
+	}
+}
@@ -0,0 +1,324 @@
+package adts;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Growable sequence supporting constant-time snapshots through structural
+ * sharing. Items are held in a tree of 32-slot nodes, with the last items of
+ * the sequence in a separate tail node.
+ *
+ * Every node records the owner that may modify it in place. Taking a snapshot
+ * gives the vector a new owner, so the nodes reachable from the snapshot are
+ * never modified again; a later write copies only the nodes on the path to the
+ * item written, O(log n) extra work. Between snapshots, writes modify nodes in
+ * place and allocate nothing.
+ */
+public class CopyOnWriteVector<T> {
+
+	// Number of bits of index consumed at each level of tree
+	private static final int BITS = 5;
+	// Number of slots of each node
+	private static final int WIDTH = 1 << BITS;
+	private static final int MASK = WIDTH - 1;
+
+	// Token identifying nodes that may be modified in place
+	private Object owner;
+	// Number of items of vector
+	private int size;
+	// Number of index bits consumed above the leaves of tree
+	private int shift;
+	// Root of tree holding all items but those of tail
+	private Node root;
+	// Leaf node holding the last items of vector
+	private Node tail;
+
+	/**
+	 * Creates empty vector.
+	 */
+	public CopyOnWriteVector() {
+		clear();
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the item at the given index.
+	 *
+	 * @param index
+	 *            index of item
+	 * @return item at index
+	 * @throws IndexOutOfBoundsException
+	 *             if index is out of range
+	 */
+	@SuppressWarnings("unchecked")
+	public T get(int index) {
+		checkIndex(index, size);
+		return (T) leafFor(root, tail, shift, size, index).slots[index & MASK];
+	}
+
+	/**
+	 * Replaces the item at the given index.
+	 *
+	 * @param index
+	 *            index of item
+	 * @param item
+	 *            new item
+	 * @throws IndexOutOfBoundsException
+	 *             if index is out of range
+	 */
+	public void set(int index, T item) {
+		checkIndex(index, size);
+		if (index >= tailOffset(size)) {
+			tail = editable(tail);
+			tail.slots[index & MASK] = item;
+			return;
+		}
+		root = editable(root);
+		Node node = root;
+		for (int level = shift; level > 0; level -= BITS) {
+			int slot = (index >>> level) & MASK;
+			Node child = editable((Node) node.slots[slot]);
+			node.slots[slot] = child;
+			node = child;
+		}
+		node.slots[index & MASK] = item;
+	}
+
+	/**
+	 * Appends the given item to the end of vector.
+	 *
+	 * @param item
+	 *            item to be appended
+	 */
+	public void add(T item) {
+		if (size - tailOffset(size) < WIDTH) {
+			tail = editable(tail);
+			tail.slots[size & MASK] = item;
+			size++;
+			return;
+		}
+		// Tail is full, push it into tree and start a new tail
+		Node full = tail;
+		if ((size >>> BITS) > (1 << shift)) {
+			// Tree is full, grow a new root
+			Node grown = new Node(owner);
+			grown.slots[0] = root;
+			grown.slots[1] = path(shift, full);
+			root = grown;
+			shift += BITS;
+		} else {
+			root = pushTail(shift, editable(root), full);
+		}
+		tail = new Node(owner);
+		tail.slots[0] = item;
+		size++;
+	}
+
+	/**
+	 * Removes and returns the last item of vector.
+	 *
+	 * @return removed item
+	 * @throws IndexOutOfBoundsException
+	 *             if vector is empty
+	 */
+	@SuppressWarnings("unchecked")
+	public T removeLast() {
+		checkIndex(size - 1, size);
+		int last = size - 1;
+		if (size - tailOffset(size) > 1 || size == 1) {
+			tail = editable(tail);
+			T item = (T) tail.slots[last & MASK];
+			tail.slots[last & MASK] = null;
+			size--;
+			return item;
+		}
+		// Tail holds only the last item, the leaf before it becomes the new tail
+		T item = (T) tail.slots[0];
+		Node leaf = leafFor(root, tail, shift, size, last - 1);
+		root = popTail(shift, editable(root), last - 1);
+		if (root == null) {
+			root = new Node(owner);
+		}
+		if (shift > BITS && root.slots[1] == null) {
+			root = (Node) root.slots[0];
+			shift -= BITS;
+		}
+		tail = leaf;
+		size--;
+		return item;
+	}
+
+	/**
+	 * Removes all items of vector, leaving existing snapshots unchanged.
+	 */
+	public void clear() {
+		owner = new Object();
+		size = 0;
+		shift = BITS;
+		root = new Node(owner);
+		tail = new Node(owner);
+	}
+
+	/**
+	 * Returns an immutable list holding the current items of vector, in constant
+	 * time. Later changes to the vector do not affect the list.
+	 *
+	 * @return read-only list of current items
+	 */
+	public List<T> snapshot() {
+		// Nodes owned by the old token are now shared with the snapshot
+		owner = new Object();
+		return new Snapshot<>(root, tail, shift, size);
+	}
+
+	private static int tailOffset(int size) {
+		return size < WIDTH ? 0 : ((size - 1) >>> BITS) << BITS;
+	}
+
+	private static void checkIndex(int index, int size) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+
+	/**
+	 * Returns the leaf node holding the item at the given index.
+	 */
+	private static Node leafFor(Node root, Node tail, int shift, int size, int index) {
+		if (index >= tailOffset(size)) {
+			return tail;
+		}
+		Node node = root;
+		for (int level = shift; level > 0; level -= BITS) {
+			node = (Node) node.slots[(index >>> level) & MASK];
+		}
+		return node;
+	}
+
+	/**
+	 * Returns the given node if it may be modified in place, or a copy that may.
+	 */
+	private Node editable(Node node) {
+		if (node.owner == owner) {
+			return node;
+		}
+		Node copy = new Node(owner);
+		System.arraycopy(node.slots, 0, copy.slots, 0, WIDTH);
+		return copy;
+	}
+
+	/**
+	 * Returns a chain of new nodes leading from the given level down to the given
+	 * leaf.
+	 */
+	private Node path(int level, Node leaf) {
+		if (level == 0) {
+			return leaf;
+		}
+		Node node = new Node(owner);
+		node.slots[0] = path(level - BITS, leaf);
+		return node;
+	}
+
+	/**
+	 * Inserts the given full leaf into the editable node at the given level as
+	 * the leaf holding the items just before the current tail.
+	 */
+	private Node pushTail(int level, Node parent, Node leaf) {
+		int slot = ((size - 1) >>> level) & MASK;
+		if (level == BITS) {
+			parent.slots[slot] = leaf;
+		} else {
+			Node child = (Node) parent.slots[slot];
+			parent.slots[slot] = child == null ? path(level - BITS, leaf)
+					: pushTail(level - BITS, editable(child), leaf);
+		}
+		return parent;
+	}
+
+	/**
+	 * Removes the leaf holding the item at the given index from the editable node
+	 * at the given level, returning the node or null if it is left empty.
+	 */
+	private Node popTail(int level, Node parent, int index) {
+		int slot = (index >>> level) & MASK;
+		if (level > BITS) {
+			Node child = popTail(level - BITS, editable((Node) parent.slots[slot]), index);
+			if (child == null && slot == 0) {
+				return null;
+			}
+			parent.slots[slot] = child;
+			return parent;
+		} else if (slot == 0) {
+			return null;
+		}
+		parent.slots[slot] = null;
+		return parent;
+	}
+
+	/**
+	 * Node of tree, holding child nodes or, at the leaves, items.
+	 */
+	private static final class Node {
+
+		// Token of vector that may modify this node in place
+		private final Object owner;
+		// Child nodes or items
+		private final Object[] slots;
+
+		Node(Object owner) {
+			this.owner = owner;
+			slots = new Object[WIDTH];
+		}
+	}
+
+	/**
+	 * Immutable list sharing the nodes of a vector at the time it was taken.
+	 */
+	private static final class Snapshot<T> extends AbstractList<T> implements RandomAccess {
+
+		private final Node root;
+		private final Node tail;
+		private final int shift;
+		private final int size;
+
+		Snapshot(Node root, Node tail, int shift, int size) {
+			this.root = root;
+			this.tail = tail;
+			this.shift = shift;
+			this.size = size;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public T get(int index) {
+			checkIndex(index, size);
+			return (T) leafFor(root, tail, shift, size, index).slots[index & MASK];
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public Object[] toArray() {
+			Object[] items = new Object[size];
+			for (int i = 0; i < size; i += WIDTH) {
+				Node leaf = leafFor(root, tail, shift, size, i);
+				System.arraycopy(leaf.slots, 0, items, i, Math.min(WIDTH, size - i));
+			}
+			return items;
+		}
+
+		@Override
+		public String toString() {
+			return Arrays.toString(toArray());
+		}
+	}
+}
@@ -0,0 +1,685 @@
+package adts;
+
+import java.util.Arrays;
+
+/**
+ * Delaunay triangulation of a fixed set of points, numbered from 0, from which
+ * the Euclidean minimum spanning tree and relative neighbourhood graph of the
+ * points are derived. Both are subgraphs of the triangulation, which has fewer
+ * than three edges per point, so neither needs every pair of points to be
+ * considered.
+ *
+ * The triangulation is built in O(n log n) time by a sweep: points are added in
+ * order of distance from a seed triangle, each joined to the edges of the
+ * convex hull visible from it, and triangles that fail the Delaunay condition
+ * are flipped as they are made. Triangles are held in flat arrays of half-edges
+ * in the manner of the Delaunator library; half-edge e runs from point
+ * triangles[e] to the next point of its triangle, and halfedges[e] is the
+ * opposite half-edge in the adjacent triangle, or -1 on the hull.
+ *
+ * Duplicate points are ignored, and if every point lies on one line there are
+ * no triangles and the points are joined in order along the line. Clockwise
+ * and counterclockwise are as seen on screen, where y increases downwards.
+ */
+public class DelaunayTriangulation {
+
+	// Half-edges examined for flipping after each flip, bounded as the stack only
+	// overflows on extremely degenerate input
+	private static final int EDGE_STACK_SIZE = 512;
+	// Sorted ranges no longer than this are sorted by insertion
+	private static final int INSERTION_SORT_THRESHOLD = 20;
+
+	// Coordinates of each point
+	private final double[] xs;
+	private final double[] ys;
+	// Point at the start of each half-edge, three per triangle
+	private int[] triangles;
+	// Opposite half-edge of each half-edge, or -1 if it lies on the hull
+	private int[] halfedges;
+	// Number of half-edges made so far
+	private int length;
+	// Points of the convex hull, counterclockwise, or of the line through all
+	// points, in order along it
+	private int[] hull;
+
+	// Working state of the sweep. Hull as a doubly linked list of points, with the
+	// half-edge leaving each point along the hull; removed points link to
+	// themselves
+	private int[] hullPrev;
+	private int[] hullNext;
+	private int[] hullTri;
+	// Hull points hashed by angle around the seed circumcentre, for finding an
+	// edge visible from each new point quickly
+	private int[] hullHash;
+	private int hullStart;
+	private double centreX;
+	private double centreY;
+	private int[] edgeStack;
+
+	/**
+	 * Triangulates the points with the given coordinates.
+	 *
+	 * @param xs
+	 *            x-coordinate of each point
+	 * @param ys
+	 *            y-coordinate of each point
+	 */
+	public DelaunayTriangulation(double[] xs, double[] ys) {
+		if (xs.length != ys.length) {
+			throw new IllegalArgumentException("Point coordinates differ in number: " + xs.length + ", " + ys.length);
+		}
+		this.xs = xs;
+		this.ys = ys;
+		int n = xs.length;
+		int maxTriangles = Math.max(2 * n - 5, 0);
+		triangles = new int[maxTriangles * 3];
+		halfedges = new int[maxTriangles * 3];
+		triangulate();
+		triangles = Arrays.copyOf(triangles, length);
+		halfedges = Arrays.copyOf(halfedges, length);
+		hullPrev = hullNext = hullTri = hullHash = edgeStack = null;
+	}
+
+	/**
+	 * Returns the number of points triangulated.
+	 *
+	 * @return number of points
+	 */
+	public int size() {
+		return xs.length;
+	}
+
+	/**
+	 * Returns the points of each triangle, three per triangle, counterclockwise.
+	 *
+	 * @return points of triangles
+	 */
+	public int[] triangles() {
+		return triangles.clone();
+	}
+
+	/**
+	 * Returns the points of the convex hull, counterclockwise, or if all points
+	 * lie on one line, the points in order along it.
+	 *
+	 * @return points of hull
+	 */
+	public int[] hull() {
+		return hull.clone();
+	}
+
+	/**
+	 * Returns the edges of the triangulation, each once, as pairs of points. The
+	 * points of edge k are at indices 2k and 2k + 1.
+	 *
+	 * @return points of edges, in pairs
+	 */
+	public int[] edges() {
+		if (length == 0) {
+			// Collinear points are joined along their line
+			int[] edges = new int[2 * Math.max(hull.length - 1, 0)];
+			for (int i = 0; i + 1 < hull.length; i++) {
+				edges[2 * i] = hull[i];
+				edges[2 * i + 1] = hull[i + 1];
+			}
+			return edges;
+		}
+		int count = 0;
+		for (int e = 0; e < length; e++) {
+			if (e > halfedges[e]) {
+				count++;
+			}
+		}
+		int[] edges = new int[2 * count];
+		int k = 0;
+		// Each inner edge is taken from the greater of its half-edges
+		for (int e = 0; e < length; e++) {
+			if (e > halfedges[e]) {
+				edges[k++] = triangles[e];
+				edges[k++] = triangles[next(e)];
+			}
+		}
+		return edges;
+	}
+
+	/**
+	 * Returns the edges of the Euclidean minimum spanning tree of the points, as
+	 * pairs of points like those of edges(). The tree is found by Kruskal's
+	 * algorithm over the edges of the triangulation, so takes O(n log n) time.
+	 * Duplicate points are left out of the tree.
+	 *
+	 * @return points of edges of tree, in pairs
+	 */
+	public int[] minimumSpanningTree() {
+		int[] edges = edges();
+		int m = edges.length / 2;
+		int[] order = new int[m];
+		double[] lengths = new double[m];
+		for (int k = 0; k < m; k++) {
+			order[k] = k;
+			lengths[k] = distance(edges[2 * k], edges[2 * k + 1]);
+		}
+		quicksort(order, lengths, 0, m - 1);
+		// Union-find forest of points, with path halving
+		int[] parent = new int[xs.length];
+		for (int i = 0; i < parent.length; i++) {
+			parent[i] = i;
+		}
+		int[] tree = new int[2 * Math.max(xs.length - 1, 0)];
+		int count = 0;
+		for (int k = 0; k < m && count < tree.length; k++) {
+			int p = edges[2 * order[k]];
+			int q = edges[2 * order[k] + 1];
+			int rootP = find(parent, p);
+			int rootQ = find(parent, q);
+			if (rootP != rootQ) {
+				parent[rootP] = rootQ;
+				tree[count++] = p;
+				tree[count++] = q;
+			}
+		}
+		return count == tree.length ? tree : Arrays.copyOf(tree, count);
+	}
+
+	/**
+	 * Returns the edges of the relative neighbourhood graph of the points, as
+	 * pairs of points like those of edges(). Two points are relative neighbours
+	 * if no third point is nearer to both of them than they are to each other.
+	 * Every such pair is an edge of the triangulation, and the points of the
+	 * triangulation within any circle are joined by its edges within the circle,
+	 * so each edge is checked by searching the triangulation outwards from one
+	 * end for a point nearer to both, visiting only points near the edge.
+	 *
+	 * @return points of edges of relative neighbourhood graph, in pairs
+	 */
+	public int[] relativeNeighbourhoodGraph() {
+		int[] edges = edges();
+		int n = xs.length;
+		// Neighbours of point i in the triangulation are at indices start[i] to
+		// start[i + 1] of neighbours
+		int[] start = new int[n + 1];
+		for (int end : edges) {
+			start[end + 1]++;
+		}
+		for (int i = 0; i < n; i++) {
+			start[i + 1] += start[i];
+		}
+		int[] neighbours = new int[edges.length];
+		int[] filled = Arrays.copyOf(start, n);
+		for (int k = 0; k < edges.length; k += 2) {
+			neighbours[filled[edges[k]]++] = edges[k + 1];
+			neighbours[filled[edges[k + 1]]++] = edges[k];
+		}
+		// Points visited by the search from each edge, marked with the edge's
+		// number, and the queue of the search
+		int[] visited = new int[n];
+		Arrays.fill(visited, -1);
+		int[] queue = new int[n];
+		int[] graph = new int[edges.length];
+		int count = 0;
+		for (int k = 0; k < edges.length; k += 2) {
+			int p = edges[k];
+			int q = edges[k + 1];
+			// Distances are squared throughout
+			double length = distance(p, q);
+			// Search outwards from p through the triangulation for a point in the lune,
+			// among the points of the circle about the middle of the edge through the
+			// corners of the lune
+			double middleX = (xs[p] + xs[q]) / 2;
+			double middleY = (ys[p] + ys[q]) / 2;
+			double radius = 0.75 * length;
+			boolean empty = true;
+			int head = 0;
+			int tail = 0;
+			queue[tail++] = p;
+			visited[p] = k;
+			while (head < tail && empty) {
+				int i = queue[head++];
+				for (int j = start[i]; j < start[i + 1]; j++) {
+					int r = neighbours[j];
+					if (visited[r] != k && distance(middleX, middleY, xs[r], ys[r]) <= radius) {
+						if (r != q && distance(p, r) < length && distance(q, r) < length) {
+							empty = false;
+							break;
+						}
+						visited[r] = k;
+						queue[tail++] = r;
+					}
+				}
+			}
+			if (empty) {
+				graph[count++] = p;
+				graph[count++] = q;
+			}
+		}
+		return Arrays.copyOf(graph, count);
+	}
+
+	/**
+	 * Build the triangulation by sweeping outwards from a seed triangle near the
+	 * centre of the points.
+	 */
+	private void triangulate() {
+		int n = xs.length;
+		int[] ids = new int[n];
+		double[] distances = new double[n];
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < n; i++) {
+			minX = Math.min(minX, xs[i]);
+			minY = Math.min(minY, ys[i]);
+			maxX = Math.max(maxX, xs[i]);
+			maxY = Math.max(maxY, ys[i]);
+			ids[i] = i;
+		}
+		double middleX = (minX + maxX) / 2;
+		double middleY = (minY + maxY) / 2;
+
+		// Seed triangle from the point nearest the middle, the point nearest that,
+		// and the point making the smallest circumcircle with them
+		int i0 = -1;
+		int i1 = -1;
+		int i2 = -1;
+		double minDistance = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < n; i++) {
+			double d = distance(middleX, middleY, xs[i], ys[i]);
+			if (d < minDistance) {
+				i0 = i;
+				minDistance = d;
+			}
+		}
+		minDistance = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < n; i++) {
+			double d = i == i0 ? 0 : distance(xs[i0], ys[i0], xs[i], ys[i]);
+			if (d < minDistance && d > 0) {
+				i1 = i;
+				minDistance = d;
+			}
+		}
+		double minRadius = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < n && i1 >= 0; i++) {
+			if (i != i0 && i != i1) {
+				double r = circumradius(xs[i0], ys[i0], xs[i1], ys[i1], xs[i], ys[i]);
+				if (r < minRadius) {
+					i2 = i;
+					minRadius = r;
+				}
+			}
+		}
+
+		if (minRadius == Double.POSITIVE_INFINITY) {
+			// All points on one line: order them along it, dropping duplicates
+			for (int i = 0; i < n; i++) {
+				double dx = xs[i] - xs[0];
+				distances[i] = dx != 0 ? dx : ys[i] - ys[0];
+			}
+			quicksort(ids, distances, 0, n - 1);
+			hull = new int[n];
+			int count = 0;
+			double previous = Double.NEGATIVE_INFINITY;
+			for (int id : ids) {
+				if (distances[id] > previous) {
+					hull[count++] = id;
+					previous = distances[id];
+				}
+			}
+			hull = Arrays.copyOf(hull, count);
+			return;
+		}
+
+		// Seed triangle counterclockwise
+		if (orient(xs[i0], ys[i0], xs[i1], ys[i1], xs[i2], ys[i2])) {
+			int i = i1;
+			i1 = i2;
+			i2 = i;
+		}
+		double ax = xs[i0];
+		double ay = ys[i0];
+		double dx = xs[i1] - ax;
+		double dy = ys[i1] - ay;
+		double ex = xs[i2] - ax;
+		double ey = ys[i2] - ay;
+		double bl = dx * dx + dy * dy;
+		double cl = ex * ex + ey * ey;
+		double d = 0.5 / (dx * ey - dy * ex);
+		centreX = ax + (ey * bl - dy * cl) * d;
+		centreY = ay + (dx * cl - ex * bl) * d;
+
+		for (int i = 0; i < n; i++) {
+			distances[i] = distance(xs[i], ys[i], centreX, centreY);
+		}
+		quicksort(ids, distances, 0, n - 1);
+
+		// Seed triangle as the starting hull
+		int hashSize = (int) Math.ceil(Math.sqrt(n));
+		hullPrev = new int[n];
+		hullNext = new int[n];
+		hullTri = new int[n];
+		hullHash = new int[hashSize];
+		edgeStack = new int[EDGE_STACK_SIZE];
+		hullStart = i0;
+		int hullSize = 3;
+		hullNext[i0] = hullPrev[i2] = i1;
+		hullNext[i1] = hullPrev[i0] = i2;
+		hullNext[i2] = hullPrev[i1] = i0;
+		hullTri[i0] = 0;
+		hullTri[i1] = 1;
+		hullTri[i2] = 2;
+		Arrays.fill(hullHash, -1);
+		hullHash[hashKey(xs[i0], ys[i0])] = i0;
+		hullHash[hashKey(xs[i1], ys[i1])] = i1;
+		hullHash[hashKey(xs[i2], ys[i2])] = i2;
+		addTriangle(i0, i1, i2, -1, -1, -1);
+
+		double previousX = Double.NaN;
+		double previousY = Double.NaN;
+		for (int k = 0; k < n; k++) {
+			int i = ids[k];
+			double x = xs[i];
+			double y = ys[i];
+			// Duplicates are adjacent in order of distance, so skipped here
+			if (x == previousX && y == previousY) {
+				continue;
+			}
+			previousX = x;
+			previousY = y;
+			if (i == i0 || i == i1 || i == i2) {
+				continue;
+			}
+
+			// Find a hull edge visible from the point, starting from a hull point
+			// near it in angle
+			int start = 0;
+			for (int j = 0, key = hashKey(x, y); j < hashSize; j++) {
+				start = hullHash[(key + j) % hashSize];
+				if (start != -1 && start != hullNext[start]) {
+					break;
+				}
+			}
+			start = hullPrev[start];
+			int e = start;
+			int q;
+			while (!orient(x, y, xs[e], ys[e], xs[q = hullNext[e]], ys[q])) {
+				e = q;
+				if (e == start) {
+					e = -1;
+					break;
+				}
+			}
+			if (e == -1) {
+				// Point on or inside the hull through rounding error; leave it out
+				continue;
+			}
+
+			// Join the point to the visible edge, then to further visible edges
+			// forwards and backwards along the hull, flipping triangles as needed
+			int t = addTriangle(e, i, hullNext[e], -1, -1, hullTri[e]);
+			hullTri[i] = legalize(t + 2);
+			hullTri[e] = t;
+			hullSize++;
+
+			int next = hullNext[e];
+			while (orient(x, y, xs[next], ys[next], xs[q = hullNext[next]], ys[q])) {
+				t = addTriangle(next, i, q, hullTri[i], -1, hullTri[next]);
+				hullTri[i] = legalize(t + 2);
+				hullNext[next] = next;
+				hullSize--;
+				next = q;
+			}
+			if (e == start) {
+				while (orient(x, y, xs[q = hullPrev[e]], ys[q], xs[e], ys[e])) {
+					t = addTriangle(q, i, e, -1, hullTri[e], hullTri[q]);
+					legalize(t + 2);
+					hullTri[q] = t;
+					hullNext[e] = e;
+					hullSize--;
+					e = q;
+				}
+			}
+
+			hullStart = hullPrev[i] = e;
+			hullNext[e] = hullPrev[next] = i;
+			hullNext[i] = next;
+			hullHash[hashKey(x, y)] = i;
+			hullHash[hashKey(xs[e], ys[e])] = e;
+		}
+
+		hull = new int[hullSize];
+		for (int i = 0, e = hullStart; i < hullSize; i++) {
+			hull[i] = e;
+			e = hullNext[e];
+		}
+	}
+
+	/**
+	 * Flip the triangles on either side of the given half-edge if they fail the
+	 * Delaunay condition, and so on for the edges this exposes, returning the
+	 * half-edge that ends at the new point.
+	 */
+	private int legalize(int a) {
+		int stacked = 0;
+		int ar;
+		while (true) {
+			int b = halfedges[a];
+			int a0 = a - a % 3;
+			ar = a0 + (a + 2) % 3;
+			if (b == -1) {
+				// Hull edge, so nothing to flip
+				if (stacked == 0) {
+					break;
+				}
+				a = edgeStack[--stacked];
+				continue;
+			}
+			int b0 = b - b % 3;
+			int al = a0 + (a + 1) % 3;
+			int bl = b0 + (b + 2) % 3;
+			int p0 = triangles[ar];
+			int pr = triangles[a];
+			int pl = triangles[al];
+			int p1 = triangles[bl];
+			if (inCircle(xs[p0], ys[p0], xs[pr], ys[pr], xs[pl], ys[pl], xs[p1], ys[p1])) {
+				triangles[a] = p1;
+				triangles[b] = p0;
+				int hbl = halfedges[bl];
+				if (hbl == -1) {
+					// Flipped edge on the hull; move the hull reference to it
+					int e = hullStart;
+					do {
+						if (hullTri[e] == bl) {
+							hullTri[e] = a;
+							break;
+						}
+						e = hullPrev[e];
+					} while (e != hullStart);
+				}
+				link(a, hbl);
+				link(b, halfedges[ar]);
+				link(ar, bl);
+				if (stacked < edgeStack.length) {
+					edgeStack[stacked++] = b0 + (b + 1) % 3;
+				}
+			} else {
+				if (stacked == 0) {
+					break;
+				}
+				a = edgeStack[--stacked];
+			}
+		}
+		return ar;
+	}
+
+	/**
+	 * Make the given half-edges opposite each other.
+	 */
+	private void link(int a, int b) {
+		halfedges[a] = b;
+		if (b != -1) {
+			halfedges[b] = a;
+		}
+	}
+
+	/**
+	 * Add the triangle of the given points, whose half-edges are opposite the
+	 * given half-edges, returning its first half-edge.
+	 */
+	private int addTriangle(int i0, int i1, int i2, int a, int b, int c) {
+		int t = length;
+		triangles[t] = i0;
+		triangles[t + 1] = i1;
+		triangles[t + 2] = i2;
+		link(t, a);
+		link(t + 1, b);
+		link(t + 2, c);
+		length += 3;
+		return t;
+	}
+
+	/**
+	 * Returns the slot of the hull hash for the given location, by its angle
+	 * around the seed circumcentre.
+	 */
+	private int hashKey(double x, double y) {
+		double dx = x - centreX;
+		double dy = y - centreY;
+		// Increases monotonically with the angle, without trigonometry
+		double p = dx / (Math.abs(dx) + Math.abs(dy));
+		double angle = (dy > 0 ? 3 - p : 1 + p) / 4;
+		return (int) Math.floor(angle * hullHash.length) % hullHash.length;
+	}
+
+	/**
+	 * Returns the half-edge following the given one in its triangle.
+	 */
+	private static int next(int e) {
+		return e % 3 == 2 ? e - 2 : e + 1;
+	}
+
+	/**
+	 * Returns the squared distance between the given points.
+	 */
+	private double distance(int p, int q) {
+		return distance(xs[p], ys[p], xs[q], ys[q]);
+	}
+
+	private static double distance(double ax, double ay, double bx, double by) {
+		double dx = ax - bx;
+		double dy = ay - by;
+		return dx * dx + dy * dy;
+	}
+
+	/**
+	 * Returns true if the points p, q and r turn clockwise.
+	 */
+	private static boolean orient(double px, double py, double qx, double qy, double rx, double ry) {
+		return (qy - py) * (rx - qx) - (qx - px) * (ry - qy) < 0;
+	}
+
+	/**
+	 * Returns true if point p lies inside the circle through points a, b and c.
+	 */
+	private static boolean inCircle(double ax, double ay, double bx, double by, double cx, double cy, double px,
+			double py) {
+		double dx = ax - px;
+		double dy = ay - py;
+		double ex = bx - px;
+		double ey = by - py;
+		double fx = cx - px;
+		double fy = cy - py;
+		double ap = dx * dx + dy * dy;
+		double bp = ex * ex + ey * ey;
+		double cp = fx * fx + fy * fy;
+		return dx * (ey * cp - bp * fy) - dy * (ex * cp - bp * fx) + ap * (ex * fy - ey * fx) < 0;
+	}
+
+	/**
+	 * Returns the squared radius of the circle through the given points, or
+	 * infinity or NaN if they lie on one line.
+	 */
+	private static double circumradius(double ax, double ay, double bx, double by, double cx, double cy) {
+		double dx = bx - ax;
+		double dy = by - ay;
+		double ex = cx - ax;
+		double ey = cy - ay;
+		double bl = dx * dx + dy * dy;
+		double cl = ex * ex + ey * ey;
+		double d = 0.5 / (dx * ey - dy * ex);
+		double x = (ey * bl - dy * cl) * d;
+		double y = (dx * cl - ex * bl) * d;
+		return x * x + y * y;
+	}
+
+	/**
+	 * Sort the given range of ids by the keys they index.
+	 */
+	private static void quicksort(int[] ids, double[] keys, int left, int right) {
+		while (right - left > INSERTION_SORT_THRESHOLD) {
+			int median = (left + right) >>> 1;
+			int i = left + 1;
+			int j = right;
+			swap(ids, median, i);
+			if (keys[ids[left]] > keys[ids[right]]) {
+				swap(ids, left, right);
+			}
+			if (keys[ids[i]] > keys[ids[right]]) {
+				swap(ids, i, right);
+			}
+			if (keys[ids[left]] > keys[ids[i]]) {
+				swap(ids, left, i);
+			}
+			int pivot = ids[i];
+			double pivotKey = keys[pivot];
+			while (true) {
+				do {
+					i++;
+				} while (keys[ids[i]] < pivotKey);
+				do {
+					j--;
+				} while (keys[ids[j]] > pivotKey);
+				if (j < i) {
+					break;
+				}
+				swap(ids, i, j);
+			}
+			ids[left + 1] = ids[j];
+			ids[j] = pivot;
+			// Recurse into the smaller part, so the stack stays shallow
+			if (right - i + 1 >= j - left) {
+				quicksort(ids, keys, left, j - 1);
+				left = i;
+			} else {
+				quicksort(ids, keys, i, right);
+				right = j - 1;
+			}
+		}
+		for (int i = left + 1; i <= right; i++) {
+			int id = ids[i];
+			double key = keys[id];
+			int j = i - 1;
+			for (; j >= left && keys[ids[j]] > key; j--) {
+				ids[j + 1] = ids[j];
+			}
+			ids[j + 1] = id;
+		}
+	}
+
+	private static void swap(int[] ids, int i, int j) {
+		int id = ids[i];
+		ids[i] = ids[j];
+		ids[j] = id;
+	}
+
+	/**
+	 * Returns the root of the tree of the given forest containing the given
+	 * point, halving the path to it.
+	 */
+	private static int find(int[] parent, int p) {
+		while (parent[p] != p) {
+			parent[p] = parent[parent[p]];
+			p = parent[p];
+		}
+		return p;
+	}
+}
@@ -0,0 +1,458 @@
+package adts;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * Directed graph keeping separate outgoing and incoming incidence sequences for
+ * each vertex, so degrees are read directly and outgoingEdges and
+ * incomingEdges return views without copying. Each edge records its position
+ * in the outgoing sequence of its origin and the incoming sequence of its
+ * destination, so removal takes constant time.
+ */
+public class DirectedGraph<V, E> implements Graph<V, E> {
+
+	// Initial capacity of edge weight array
+	private static final int INITIAL_EDGE_CAPACITY = 10;
+
+	// Vertices of graph, each at its position
+	private ArrayList<Vertex<V, E>> vertices;
+	// Edges of graph, each at its position
+	private ArrayList<Edge<V, E>> edges;
+	// Weight of each edge, indexed by edge position
+	private double[] weights;
+	// Vertex storing each element
+	private VertexIndex<V, E> vertexIndex;
+	// Read-only views of vertex and edge sequences
+	private List<Vertex<V, E>> vertexView;
+	private List<Edge<V, E>> edgeView;
+	// Persistent copies of vertex and edge sequences shared with snapshots, null
+	// until the first snapshot is taken
+	private CopyOnWriteVector<V> vertexCopy;
+	private CopyOnWriteVector<GraphSnapshot.EdgeRecord<E>> edgeCopy;
+
+	/**
+	 * Creates empty directed graph, having no edges or vertices.
+	 */
+	public DirectedGraph() {
+		vertices = new ArrayList<>();
+		edges = new ArrayList<>();
+		vertexIndex = new VertexIndex<>();
+		weights = new double[INITIAL_EDGE_CAPACITY];
+		vertexView = Collections.unmodifiableList(vertices);
+		edgeView = Collections.unmodifiableList(edges);
+	}
+
+	@Override
+	public boolean isDirected() {
+		return true;
+	}
+
+	@Override
+	public int numVertices() {
+		return vertices.size();
+	}
+
+	@Override
+	public List<Vertex<V, E>> vertices() {
+		return vertexView;
+	}
+
+	@Override
+	public int numEdges() {
+		return edges.size();
+	}
+
+	@Override
+	public List<Edge<V, E>> edges() {
+		return edgeView;
+	}
+
+	/**
+	 * Returns the edge from the given origin to the given destination, if one
+	 * exists; otherwise null. Edges in the opposite direction are not returned.
+	 */
+	@Override
+	public Edge<V, E> getEdge(Vertex<V, E> origin, Vertex<V, E> destination) {
+		List<Edge<V, E>> outgoing = directed(origin).outgoing();
+		List<Edge<V, E>> incoming = directed(destination).incoming();
+		// Search shorter of the two sequences
+		if (incoming.size() < outgoing.size()) {
+			for (int i = 0; i < incoming.size(); i++) {
+				if (incoming.get(i).endpoint(0) == origin) {
+					return incoming.get(i);
+				}
+			}
+		} else {
+			for (int i = 0; i < outgoing.size(); i++) {
+				if (outgoing.get(i).endpoint(1) == destination) {
+					return outgoing.get(i);
+				}
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public Vertex<V, E> getVertex(V element) {
+		return vertexIndex.get(element);
+	}
+
+	@Override
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public Vertex<V, E>[] endVertices(Edge<V, E> edge) {
+		return new Vertex[] { edge.endpoint(0), edge.endpoint(1) };
+	}
+
+	@Override
+	public Vertex<V, E> opposite(Vertex<V, E> vertex, Edge<V, E> edge) throws NoSuchElementException {
+		if (edge.endpoint(0) == vertex) {
+			return edge.endpoint(1);
+		} else if (edge.endpoint(1) == vertex) {
+			return edge.endpoint(0);
+		}
+		throw new NoSuchElementException();
+	}
+
+	@Override
+	public int outDegree(Vertex<V, E> vertex) {
+		return directed(vertex).outgoing().size();
+	}
+
+	@Override
+	public int inDegree(Vertex<V, E> vertex) {
+		return directed(vertex).incoming().size();
+	}
+
+	@Override
+	public List<Edge<V, E>> outgoingEdges(Vertex<V, E> vertex) {
+		return directed(vertex).outgoing();
+	}
+
+	@Override
+	public List<Edge<V, E>> incomingEdges(Vertex<V, E> vertex) {
+		return directed(vertex).incoming();
+	}
+
+	/**
+	 * Returns a read-only view of the outgoing followed by the incoming edges of
+	 * the given vertex, in which a self-loop appears twice.
+	 */
+	@Override
+	public List<Edge<V, E>> incidentEdges(Vertex<V, E> vertex) {
+		return directed(vertex).incidentEdges();
+	}
+
+	/**
+	 * Performs the given action for each outgoing and then each incoming edge of
+	 * the given vertex.
+	 */
+	@Override
+	public void forEachIncident(Vertex<V, E> vertex, Consumer<? super Edge<V, E>> action) {
+		List<Edge<V, E>> incident = vertex.incidentEdges();
+		for (int i = 0; i < incident.size(); i++) {
+			action.accept(incident.get(i));
+		}
+	}
+
+	@Override
+	public Vertex<V, E> insertVertex(V element) {
+		Vertex<V, E> vertex = new DirectedVertex(element, vertices.size());
+		vertices.add(vertex);
+		vertexIndex.add(vertex);
+		if (vertexCopy != null) {
+			vertexCopy.add(element);
+		}
+		return vertex;
+	}
+
+	@Override
+	public Edge<V, E> insertEdge(Vertex<V, E> origin, Vertex<V, E> destination, E element, double weight) {
+		DirectedVertex from = directed(origin);
+		DirectedVertex to = directed(destination);
+		Edge<V, E> edge = new Edge<>(element, origin, destination, from.outgoing().size(), to.incoming().size());
+		from.outgoing.add(edge);
+		to.incoming.add(edge);
+		edge.setPosition(edges.size());
+		if (edges.size() == weights.length) {
+			weights = Arrays.copyOf(weights, weights.length + (weights.length >> 1));
+		}
+		weights[edges.size()] = weight;
+		edges.add(edge);
+		if (edgeCopy != null) {
+			edgeCopy.add(record(edge));
+		}
+		return edge;
+	}
+
+	@Override
+	public Vertex<V, E> removeVertex(Vertex<V, E> vertex) {
+		int position = vertex.position();
+		if (position < 0 || position >= vertices.size() || vertices.get(position) != vertex) {
+			return null;
+		}
+		DirectedVertex removed = directed(vertex);
+		while (!removed.outgoing().isEmpty()) {
+			removeEdge(removed.outgoing.get(removed.outgoing.size() - 1));
+		}
+		while (!removed.incoming().isEmpty()) {
+			removeEdge(removed.incoming.get(removed.incoming.size() - 1));
+		}
+		// Move last vertex into position of removed vertex
+		Vertex<V, E> last = vertices.remove(vertices.size() - 1);
+		if (last != vertex) {
+			vertices.set(position, last);
+			last.setPosition(position);
+		}
+		vertex.setPosition(-1);
+		vertexIndex.remove(vertex, vertices);
+		if (vertexCopy != null) {
+			vertexCopy.removeLast();
+			if (last != vertex) {
+				vertexCopy.set(position, last.element());
+				// Edges of moved vertex now refer to its new position
+				List<Edge<V, E>> moved = last.incidentEdges();
+				for (int i = 0; i < moved.size(); i++) {
+					edgeCopy.set(moved.get(i).position(), record(moved.get(i)));
+				}
+			}
+		}
+		return vertex;
+	}
+
+	@Override
+	public Edge<V, E> removeEdge(Edge<V, E> edge) {
+		int position = edge.position();
+		if (position < 0 || position >= edges.size() || edges.get(position) != edge) {
+			return null;
+		}
+		detach(directed(edge.endpoint(0)).outgoing, edge, 0);
+		detach(directed(edge.endpoint(1)).incoming, edge, 1);
+		// Move last edge into position of removed edge
+		Edge<V, E> last = edges.remove(edges.size() - 1);
+		if (last != edge) {
+			edges.set(position, last);
+			last.setPosition(position);
+			weights[position] = weights[edges.size()];
+		}
+		edge.setPosition(-1);
+		if (edgeCopy != null) {
+			GraphSnapshot.EdgeRecord<E> moved = edgeCopy.removeLast();
+			if (last != edge) {
+				edgeCopy.set(position, moved);
+			}
+		}
+		return edge;
+	}
+
+	@Override
+	public double weight(Edge<V, E> edge) {
+		return weights[positionOf(edge)];
+	}
+
+	@Override
+	public void setWeight(Edge<V, E> edge, double weight) {
+		int position = positionOf(edge);
+		weights[position] = weight;
+		if (edgeCopy != null) {
+			edgeCopy.set(position, record(edge));
+		}
+	}
+
+	/**
+	 * Returns the position of the given edge, checking that it is an edge of this
+	 * graph.
+	 */
+	private int positionOf(Edge<V, E> edge) {
+		int position = edge.position();
+		if (position < 0 || position >= edges.size() || edges.get(position) != edge) {
+			throw new IllegalArgumentException(edge + " is not an edge of this graph");
+		}
+		return position;
+	}
+
+	/**
+	 * Removes the given edge from the given sequence, in which its position is
+	 * recorded at the given endpoint index, moving the last edge into its place.
+	 */
+	private static <V, E> void detach(ArrayList<Edge<V, E>> sequence, Edge<V, E> edge, int index) {
+		int slot = edge.incidentPosition(index);
+		Edge<V, E> moved = sequence.remove(sequence.size() - 1);
+		if (moved != edge) {
+			sequence.set(slot, moved);
+			moved.setIncidentPosition(index, slot);
+		}
+		edge.setIncidentPosition(index, -1);
+	}
+
+	/**
+	 * Returns a string representation of the graph. The first element of each line
+	 * is a vertex. The following elements are the outgoing edges of that vertex.
+	 *
+	 * @return string representation of graph
+	 */
+	public String toString() {
+		StringBuilder output = new StringBuilder();
+		for (int i = 0; i < vertices.size(); i++) {
+			Vertex<V, E> vertex = vertices.get(i);
+			output.append(vertex.toString()).append(": ").append(outgoingEdges(vertex).toString());
+			if (i < vertices.size() - 1) {
+				output.append(System.lineSeparator());
+			}
+		}
+		return output.toString();
+	}
+
+	@Override
+	public void ensureEdgeCapacity(int minCapacity) {
+		edges.ensureCapacity(minCapacity);
+		if (minCapacity > weights.length) {
+			weights = Arrays.copyOf(weights, minCapacity);
+		}
+	}
+
+	@Override
+	public void clearEdges() {
+		for (Vertex<V, E> vertex : vertices) {
+			directed(vertex).outgoing.clear();
+			directed(vertex).incoming.clear();
+		}
+		for (Edge<V, E> edge : edges) {
+			edge.setPosition(-1);
+		}
+		edges.clear();
+		if (edgeCopy != null) {
+			edgeCopy.clear();
+		}
+	}
+
+	@Override
+	public void clear() {
+		for (Vertex<V, E> vertex : vertices) {
+			vertex.setPosition(-1);
+		}
+		clearEdges();
+		vertices.clear();
+		vertexIndex.clear();
+		if (vertexCopy != null) {
+			vertexCopy.clear();
+		}
+	}
+
+	/**
+	 * Returns an immutable snapshot of the graph in constant time, sharing
+	 * structure with the graph. The first snapshot starts keeping persistent
+	 * copies of the vertex and edge sequences, taking time linear in the size of
+	 * the graph; thereafter each change to the graph costs O(log n) extra. Each
+	 * edge is recorded from its origin to its destination.
+	 */
+	@Override
+	public GraphSnapshot<V, E> snapshot() {
+		if (vertexCopy == null) {
+			vertexCopy = new CopyOnWriteVector<>();
+			for (Vertex<V, E> vertex : vertices) {
+				vertexCopy.add(vertex.element());
+			}
+			edgeCopy = new CopyOnWriteVector<>();
+			for (Edge<V, E> edge : edges) {
+				edgeCopy.add(record(edge));
+			}
+		}
+		return new GraphSnapshot<>(vertexCopy.snapshot(), edgeCopy.snapshot());
+	}
+
+	private GraphSnapshot.EdgeRecord<E> record(Edge<V, E> edge) {
+		return new GraphSnapshot.EdgeRecord<>(edge.endpoint(0).position(), edge.endpoint(1).position(),
+				edge.element(), weights[edge.position()]);
+	}
+
+	/**
+	 * Returns the given vertex as a vertex of a directed graph.
+	 */
+	@SuppressWarnings("unchecked")
+	private DirectedVertex directed(Vertex<V, E> vertex) {
+		if (!(vertex instanceof DirectedGraph.DirectedVertex)) {
+			throw new IllegalArgumentException(vertex + " is not a vertex of a directed graph");
+		}
+		return (DirectedVertex) vertex;
+	}
+
+	/**
+	 * Vertex holding its outgoing and incoming edges in separate sequences. Its
+	 * incidence sequence lists the outgoing edges followed by the incoming edges,
+	 * so a self-loop appears in it twice.
+	 */
+	private final class DirectedVertex extends Vertex<V, E> {
+
+		// Edges of which this vertex is the origin
+		private final ArrayList<Edge<V, E>> outgoing;
+		// Edges of which this vertex is the destination
+		private final ArrayList<Edge<V, E>> incoming;
+		// Read-only views of outgoing, incoming and all incident edges
+		private final List<Edge<V, E>> outgoingView;
+		private final List<Edge<V, E>> incomingView;
+		private final List<Edge<V, E>> incidentView;
+
+		DirectedVertex(V element, int position) {
+			super(element, position);
+			outgoing = new ArrayList<>(0);
+			incoming = new ArrayList<>(0);
+			outgoingView = Collections.unmodifiableList(outgoing);
+			incomingView = Collections.unmodifiableList(incoming);
+			incidentView = new AbstractList<Edge<V, E>>() {
+				@Override
+				public Edge<V, E> get(int index) {
+					return index < outgoing.size() ? outgoing.get(index) : incoming.get(index - outgoing.size());
+				}
+
+				@Override
+				public int size() {
+					return outgoing.size() + incoming.size();
+				}
+			};
+		}
+
+		List<Edge<V, E>> outgoing() {
+			return outgoingView;
+		}
+
+		List<Edge<V, E>> incoming() {
+			return incomingView;
+		}
+
+		@Override
+		public List<Edge<V, E>> incidentEdges() {
+			return incidentView;
+		}
+
+		@Override
+		public void addEdge(Edge<V, E> edge) {
+			throw new UnsupportedOperationException("Edges of a directed graph are inserted through the graph");
+		}
+
+		@Override
+		public boolean removeEdge(Edge<V, E> edge) {
+			throw new UnsupportedOperationException("Edges of a directed graph are removed through the graph");
+		}
+
+		@Override
+		public void clearEdges() {
+			throw new UnsupportedOperationException("Edges of a directed graph are removed through the graph");
+		}
+
+		@Override
+		public void ensureCapacity(int minCapacity) {
+			outgoing.ensureCapacity(minCapacity);
+		}
+
+		@Override
+		public int degree() {
+			return outgoing.size() + incoming.size();
+		}
+	}
+}
@@ -1,16 +1,22 @@
 package adts;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class Edge<V, E> {
 
 	// Element stored by edge
 	private E element;
-	// End vertices of this edge, first vertex is origin and second destination
-	private List<Vertex<V, E>> endpoints;
-	// Position in incidence sequence of origin vertex
-	private int[] positions;
+	// Vertex of origin of this edge
+	private Vertex<V, E> origin;
+	// Vertex of destination of this edge
+	private Vertex<V, E> destination;
+	// Position in incidence sequence of origin vertex, negative if not present
+	private int originPosition;
+	// Position in incidence sequence of destination vertex, negative if not present
+	private int destPosition;
+	// Position in edge sequence of graph containing this edge
+	private int position;
 
 	/**
 	 * Creates new empty Edge, storing the given element and having the given origin
@@ -30,14 +36,11 @@ public class Edge<V, E> {
 	 */
 	public Edge(E element, Vertex<V, E> origin, Vertex<V, E> destination, int originPosition, int destPosition) {
 		this.element = element;
-
-		positions = new int[2];
-		positions[0] = originPosition;
-		positions[1] = destPosition;
-
-		endpoints = new ArrayList<Vertex<V, E>>();
-		endpoints.add(origin);
-		endpoints.add(destination);
+		this.origin = origin;
+		this.destination = destination;
+		this.originPosition = originPosition;
+		this.destPosition = destPosition;
+		position = -1;
 	}
 
 	/**
@@ -50,21 +53,65 @@ public class Edge<V, E> {
 	}
 
 	/**
-	 * Returns origin vertex of this edge.
+	 * Returns the end vertices of this edge, origin first and destination second.
+	 * Use {@link #endpoint(int)} in loops to avoid creating a list.
 	 * 
-	 * @return origin vertex of this edge
+	 * @return read-only list of origin and destination vertices of this edge
 	 */
 	public List<Vertex<V, E>> endpoints() {
-		return new ArrayList<Vertex<V, E>>(endpoints);
+		return Arrays.asList(origin, destination);
+	}
+
+	/**
+	 * Returns the origin vertex of this edge if the given index is 0, or the
+	 * destination vertex if it is 1.
+	 * 
+	 * @param index
+	 *            index of endpoint, 0 for origin and 1 for destination
+	 * @return endpoint with given index
+	 * @throws IndexOutOfBoundsException
+	 *             if index is not 0 or 1
+	 */
+	public Vertex<V, E> endpoint(int index) {
+		switch (index) {
+		case 0:
+			return origin;
+		case 1:
+			return destination;
+		default:
+			throw new IndexOutOfBoundsException("Endpoint index: " + index);
+		}
 	}
 
 	/**
-	 * Returns position in incidence sequence of origin vertex.
+	 * Returns positions in incidence sequences of origin and destination vertices.
+	 * Use {@link #incidentPosition(int)} in loops to avoid creating an array.
 	 * 
-	 * @return position in incidence sequence of origin vertex
+	 * @return positions in incidence sequences of origin and destination vertices
 	 */
 	public int[] incidentPositions() {
-		return positions.clone();
+		return new int[] { originPosition, destPosition };
+	}
+
+	/**
+	 * Returns position in incidence sequence of origin vertex if the given index is
+	 * 0, or of destination vertex if it is 1.
+	 * 
+	 * @param index
+	 *            index of endpoint, 0 for origin and 1 for destination
+	 * @return position in incidence sequence of endpoint with given index
+	 * @throws IndexOutOfBoundsException
+	 *             if index is not 0 or 1
+	 */
+	public int incidentPosition(int index) {
+		switch (index) {
+		case 0:
+			return originPosition;
+		case 1:
+			return destPosition;
+		default:
+			throw new IndexOutOfBoundsException("Endpoint index: " + index);
+		}
 	}
 
 	/**
@@ -74,11 +121,65 @@ public class Edge<V, E> {
 	 * @return true if vertex is endpoint of this edge ; otherwise false
 	 */
 	public boolean removeVertex(Vertex<V, E> vertex) {
-		return endpoints.remove(vertex);
+		if (origin == vertex) {
+			origin = null;
+			return true;
+		} else if (destination == vertex) {
+			destination = null;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns position of this edge in incidence sequence of the given endpoint,
+	 * or -1 if it is not present. For a self-loop, the position of the origin is
+	 * returned first.
+	 */
+	int positionIn(Vertex<V, E> vertex) {
+		if (origin == vertex && originPosition >= 0) {
+			return originPosition;
+		} else if (destination == vertex && destPosition >= 0) {
+			return destPosition;
+		}
+		return -1;
+	}
+
+	/**
+	 * Change the position of this edge in incidence sequence of the given endpoint
+	 * from the old to the new position. A new position of -1 marks this edge as
+	 * removed from that sequence.
+	 */
+	void movePosition(Vertex<V, E> vertex, int oldPosition, int newPosition) {
+		if (origin == vertex && originPosition == oldPosition) {
+			originPosition = newPosition;
+		} else if (destination == vertex && destPosition == oldPosition) {
+			destPosition = newPosition;
+		}
+	}
+
+	/**
+	 * Set position in incidence sequence of origin vertex if the given index is 0,
+	 * or of destination vertex if it is 1.
+	 */
+	void setIncidentPosition(int index, int position) {
+		if (index == 0) {
+			originPosition = position;
+		} else {
+			destPosition = position;
+		}
+	}
+
+	int position() {
+		return position;
+	}
+
+	void setPosition(int position) {
+		this.position = position;
 	}
 
 	public String toString() {
-		return "Edge[" + element.toString() + ", " + endpoints.get(0).toString() + ", " + endpoints.get(1).toString() + "]";
+		return "Edge[" + element.toString() + ", " + origin.toString() + ", " + destination.toString() + "]";
 	}
 
 }
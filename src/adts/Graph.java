@@ -1,9 +1,28 @@
 package adts;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface Graph<V, E> {
 
+	/**
+	 * Weight given to edges inserted without one.
+	 */
+	double DEFAULT_WEIGHT = 1.0;
+
+	/**
+	 * Returns true if edges of the graph are directed from origin to destination.
+	 * 
+	 * @return true if graph is directed; false if it is undirected
+	 */
+	default boolean isDirected() {
+		return false;
+	}
+
 	/**
 	 * Returns the number of vertices of the graph.
 	 * 
@@ -12,9 +31,11 @@ public interface Graph<V, E> {
 	int numVertices();
 
 	/**
-	 * Returns an iterable of vertices of the graph.
+	 * Returns a read-only view of the vertices of the graph. The view reflects
+	 * later changes to the graph, so callers modifying the graph while iterating
+	 * must copy it first.
 	 * 
-	 * @return the list of vertices of the graph
+	 * @return the vertices of the graph
 	 */
 	Iterable<Vertex<V, E>> vertices();
 
@@ -26,9 +47,11 @@ public interface Graph<V, E> {
 	int numEdges();
 
 	/**
-	 * Returns an iterable of edges of the graph.
+	 * Returns a read-only view of the edges of the graph. The view reflects later
+	 * changes to the graph, so callers modifying the graph while iterating must
+	 * copy it first.
 	 * 
-	 * @return a list of edges of the graph
+	 * @return the edges of the graph
 	 */
 	Iterable<Edge<V, E>> edges();
 
@@ -46,8 +69,9 @@ public interface Graph<V, E> {
 	Edge<V, E> getEdge(Vertex<V, E> origin, Vertex<V, E> destination);
 
 	/**
-	 * Returns the first vertex storing the given element if vertex is in graph;
-	 * otherwise null.
+	 * Returns a vertex storing the given element if one is in graph; otherwise
+	 * null. If several vertices store the element, which is returned is
+	 * unspecified.
 	 * 
 	 * @param element
 	 *            element of vertex to be retrieved
@@ -99,7 +123,7 @@ public interface Graph<V, E> {
 	int inDegree(Vertex<V, E> vertex);
 
 	/**
-	 * Returns an iterable of all outgoing edges from the given vertex.
+	 * Returns a read-only view of all outgoing edges from the given vertex.
 	 * 
 	 * @param vertex
 	 *            vertex whose outgoing edges will be returned
@@ -108,7 +132,7 @@ public interface Graph<V, E> {
 	Iterable<Edge<V, E>> outgoingEdges(Vertex<V, E> vertex);
 
 	/**
-	 * Returns an iterable of all incoming edges to the given vertex.
+	 * Returns a read-only view of all incoming edges to the given vertex.
 	 * 
 	 * @param vertex
 	 *            vertex whose incoming edges will be returned
@@ -116,6 +140,29 @@ public interface Graph<V, E> {
 	 */
 	Iterable<Edge<V, E>> incomingEdges(Vertex<V, E> vertex);
 
+	/**
+	 * Returns a read-only view of all edges incident on the given vertex, both
+	 * outgoing and incoming. For an undirected graph these are its outgoing edges.
+	 * 
+	 * @param vertex
+	 *            vertex whose incident edges will be returned
+	 * @return iterable of all edges incident on given vertex
+	 */
+	default Iterable<Edge<V, E>> incidentEdges(Vertex<V, E> vertex) {
+		return outgoingEdges(vertex);
+	}
+
+	/**
+	 * Performs the given action for each edge incident on the given vertex,
+	 * without creating an iterator. The action must not modify the graph.
+	 * 
+	 * @param vertex
+	 *            vertex whose incident edges will be visited
+	 * @param action
+	 *            action performed for each incident edge
+	 */
+	void forEachIncident(Vertex<V, E> vertex, Consumer<? super Edge<V, E>> action);
+
 	/**
 	 * Creates and returns a new Vertex storing the given element.
 	 * 
@@ -127,7 +174,7 @@ public interface Graph<V, E> {
 
 	/**
 	 * Creates and returns a new Edge storing the given element and having the given
-	 * origin and destination vertices.
+	 * origin and destination vertices and the default weight.
 	 * 
 	 * @param origin
 	 *            vertex of origin of new edge
@@ -138,7 +185,49 @@ public interface Graph<V, E> {
 	 * @return newly created edge storing the given element and having the given
 	 *         origin and destination vertices
 	 */
-	Edge<V, E> insertEdge(Vertex<V, E> origin, Vertex<V, E> destination, E element);
+	default Edge<V, E> insertEdge(Vertex<V, E> origin, Vertex<V, E> destination, E element) {
+		return insertEdge(origin, destination, element, DEFAULT_WEIGHT);
+	}
+
+	/**
+	 * Creates and returns a new Edge storing the given element and weight and
+	 * having the given origin and destination vertices.
+	 * 
+	 * @param origin
+	 *            vertex of origin of new edge
+	 * @param destination
+	 *            vertex of destination of new edge
+	 * @param element
+	 *            element to be stored in new edge
+	 * @param weight
+	 *            weight of new edge
+	 * @return newly created edge storing the given element and weight and having
+	 *         the given origin and destination vertices
+	 */
+	Edge<V, E> insertEdge(Vertex<V, E> origin, Vertex<V, E> destination, E element, double weight);
+
+	/**
+	 * Returns the weight of the given edge.
+	 * 
+	 * @param edge
+	 *            edge whose weight will be returned
+	 * @return weight of edge
+	 * @throws IllegalArgumentException
+	 *             if edge is not an edge of this graph
+	 */
+	double weight(Edge<V, E> edge);
+
+	/**
+	 * Change the weight of the given edge.
+	 * 
+	 * @param edge
+	 *            edge whose weight will be changed
+	 * @param weight
+	 *            new weight of edge
+	 * @throws IllegalArgumentException
+	 *             if edge is not an edge of this graph
+	 */
+	void setWeight(Edge<V, E> edge, double weight);
 
 	/**
 	 * Removes and returns the given vertex.
@@ -158,8 +247,67 @@ public interface Graph<V, E> {
 	 */
 	Edge<V, E> removeEdge(Edge<V, E> edge);
 
+	/**
+	 * Remove all edges of graph, leaving its vertices unconnected.
+	 */
+	void clearEdges();
+
+	/**
+	 * Increase the capacity of the graph, if necessary, so that it can hold at
+	 * least the given number of edges without growing its storage.
+	 * 
+	 * @param minCapacity
+	 *            minimum number of edges to be held
+	 */
+	default void ensureEdgeCapacity(int minCapacity) {
+	}
+
 	/**
 	 * Remove all vertices and edges of graph.
 	 */
 	void clear();
+
+	/**
+	 * Returns an immutable snapshot of the graph as it stands, which later changes
+	 * to the graph do not affect.
+	 * 
+	 * @return snapshot of graph
+	 * @throws UnsupportedOperationException
+	 *             if the graph does not support snapshots
+	 */
+	default GraphSnapshot<V, E> snapshot() {
+		throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support snapshots");
+	}
+
+	/**
+	 * Traverses graph depth-first and modifies given map to contain vertices
+	 * reachable from the given vertex and their discovery edges.
+	 * 
+	 * @param u
+	 *            vertex reached by traversal
+	 * @param known
+	 *            all vertices reached in traversal
+	 * @param forest
+	 *            vertices reachable from u and their discovery vertices
+	 * @param back
+	 *            vertices reachable from u and their back edges
+	 */
+	default void depthFirstTraversal(Vertex<V, E> u, Set<Vertex<V, E>> known, Map<Vertex<V, E>, Edge<V, E>> forest,
+			Map<Vertex<V, E>, List<Edge<V, E>>> back) {
+		known.add(u);
+		for (Edge<V, E> e : outgoingEdges(u)) {
+			Vertex<V, E> v = opposite(u, e);
+			if (!known.contains(v)) {
+				forest.put(v, e);
+				depthFirstTraversal(v, known, forest, back);
+			} else {
+				List<Edge<V, E>> backEdges = back.get(v);
+				if (backEdges == null) {
+					backEdges = new ArrayList<>();
+					back.put(v, backEdges);
+				}
+				backEdges.add(e);
+			}
+		}
+	}
 }
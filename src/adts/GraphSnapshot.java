@@ -0,0 +1,113 @@
+package adts;
+
+import java.util.List;
+
+/**
+ * Immutable view of a graph as it stood when the snapshot was taken. Vertices
+ * and edges are identified by their positions in the vertex and edge
+ * sequences of the graph at that time, and the snapshot is unaffected by later
+ * changes to the graph, so it can be read from any thread.
+ */
+public class GraphSnapshot<V, E> {
+
+	// Elements of vertices, each at its position
+	private final List<V> vertices;
+	// Endpoints and elements of edges, each at its position
+	private final List<EdgeRecord<E>> edges;
+
+	GraphSnapshot(List<V> vertices, List<EdgeRecord<E>> edges) {
+		this.vertices = vertices;
+		this.edges = edges;
+	}
+
+	public int numVertices() {
+		return vertices.size();
+	}
+
+	public int numEdges() {
+		return edges.size();
+	}
+
+	/**
+	 * Returns the elements of the vertices, each at the position of its vertex.
+	 *
+	 * @return read-only list of vertex elements
+	 */
+	public List<V> vertices() {
+		return vertices;
+	}
+
+	/**
+	 * Returns element of the vertex at the given position.
+	 *
+	 * @param vertex
+	 *            position of vertex
+	 * @return element of vertex
+	 */
+	public V vertex(int vertex) {
+		return vertices.get(vertex);
+	}
+
+	/**
+	 * Returns element of the edge at the given position.
+	 *
+	 * @param edge
+	 *            position of edge
+	 * @return element of edge
+	 */
+	public E edge(int edge) {
+		return edges.get(edge).element;
+	}
+
+	/**
+	 * Returns position of the origin vertex of the edge at the given position.
+	 *
+	 * @param edge
+	 *            position of edge
+	 * @return position of origin vertex
+	 */
+	public int origin(int edge) {
+		return edges.get(edge).origin;
+	}
+
+	/**
+	 * Returns position of the destination vertex of the edge at the given
+	 * position.
+	 *
+	 * @param edge
+	 *            position of edge
+	 * @return position of destination vertex
+	 */
+	public int destination(int edge) {
+		return edges.get(edge).destination;
+	}
+
+	/**
+	 * Returns weight of the edge at the given position.
+	 *
+	 * @param edge
+	 *            position of edge
+	 * @return weight of edge
+	 */
+	public double weight(int edge) {
+		return edges.get(edge).weight;
+	}
+
+	/**
+	 * Immutable endpoints, element and weight of an edge.
+	 */
+	static final class EdgeRecord<E> {
+
+		final int origin;
+		final int destination;
+		final E element;
+		final double weight;
+
+		EdgeRecord(int origin, int destination, E element, double weight) {
+			this.origin = origin;
+			this.destination = destination;
+			this.element = element;
+			this.weight = weight;
+		}
+	}
+}
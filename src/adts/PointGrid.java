@@ -0,0 +1,241 @@
+package adts;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable grid of square cells indexing a fixed set of points, numbered from
+ * 0, for finding the points within a distance of a point or nearest to it
+ * without visiting every point. Unlike SpatialGrid, the grid is built once, in
+ * linear time, by sorting the points into cells held in flat arrays, so the
+ * points of a cell lie together in memory. As the grid is never modified, it
+ * may be queried by many threads at once.
+ */
+public class PointGrid {
+
+	// Greatest number of cells per point, bounding memory however small the
+	// requested cell size
+	private static final int MAX_CELLS_PER_POINT = 4;
+
+	// Least x- and y-coordinates of the points, at the corner of the first cell
+	private final double minX;
+	private final double minY;
+	// Side length of each cell
+	private final double cellSize;
+	// Numbers of columns and rows of cells
+	private final int columns;
+	private final int rows;
+	// Points of cell c, numbered row by row, are at indices cellStart[c] to
+	// cellStart[c + 1] of points, xs and ys
+	private final int[] cellStart;
+	// Number and x- and y-coordinates of each point, sorted by cell
+	private final int[] points;
+	private final double[] xs;
+	private final double[] ys;
+	// Index in the sorted arrays of each point, by number
+	private final int[] indices;
+
+	/**
+	 * Creates grid of the points with the given coordinates, with cells of at
+	 * least the given side length. Cells are enlarged if there would otherwise be
+	 * many more cells than points.
+	 *
+	 * @param xs
+	 *            x-coordinate of each point
+	 * @param ys
+	 *            y-coordinate of each point
+	 * @param cellSize
+	 *            least side length of each cell
+	 */
+	public PointGrid(double[] xs, double[] ys, double cellSize) {
+		if (xs.length != ys.length) {
+			throw new IllegalArgumentException("Point coordinates differ in number: " + xs.length + ", " + ys.length);
+		}
+		if (!(cellSize > 0)) {
+			throw new IllegalArgumentException("Cell size must be positive: " + cellSize);
+		}
+		int n = xs.length;
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < n; i++) {
+			minX = Math.min(minX, xs[i]);
+			minY = Math.min(minY, ys[i]);
+			maxX = Math.max(maxX, xs[i]);
+			maxY = Math.max(maxY, ys[i]);
+		}
+		if (n == 0) {
+			minX = minY = maxX = maxY = 0;
+		}
+		double width = maxX - minX;
+		double height = maxY - minY;
+		double maxCells = (double) MAX_CELLS_PER_POINT * n + 1;
+		if ((Math.floor(width / cellSize) + 1) * (Math.floor(height / cellSize) + 1) > maxCells) {
+			// Enlarge cells to the size giving the greatest number of cells allowed
+			double area = Math.max(width, cellSize) * Math.max(height, cellSize);
+			cellSize = Math.max(cellSize, Math.sqrt(area / maxCells));
+			while ((Math.floor(width / cellSize) + 1) * (Math.floor(height / cellSize) + 1) > maxCells) {
+				cellSize *= 1.5;
+			}
+		}
+		this.minX = minX;
+		this.minY = minY;
+		this.cellSize = cellSize;
+		columns = (int) (width / cellSize) + 1;
+		rows = (int) (height / cellSize) + 1;
+
+		int[] cellOf = new int[n];
+		cellStart = new int[columns * rows + 1];
+		for (int i = 0; i < n; i++) {
+			cellOf[i] = row(ys[i]) * columns + column(xs[i]);
+			cellStart[cellOf[i] + 1]++;
+		}
+		for (int c = 0; c < columns * rows; c++) {
+			cellStart[c + 1] += cellStart[c];
+		}
+		points = new int[n];
+		this.xs = new double[n];
+		this.ys = new double[n];
+		indices = new int[n];
+		int[] filled = Arrays.copyOf(cellStart, columns * rows);
+		for (int i = 0; i < n; i++) {
+			int index = filled[cellOf[i]]++;
+			points[index] = i;
+			indices[i] = index;
+			this.xs[index] = xs[i];
+			this.ys[index] = ys[i];
+		}
+	}
+
+	/**
+	 * Returns the number of points of the grid.
+	 *
+	 * @return number of points
+	 */
+	public int size() {
+		return points.length;
+	}
+
+	/**
+	 * Performs the given action for the number of each point within the given
+	 * distance of the given location, in no particular order.
+	 *
+	 * @param x
+	 *            x-coordinate of location
+	 * @param y
+	 *            y-coordinate of location
+	 * @param radius
+	 *            greatest distance of points from location
+	 * @param action
+	 *            action performed for number of each point
+	 */
+	public void forEachWithin(double x, double y, double radius, IntConsumer action) {
+		if (points.length == 0 || !(radius >= 0)) {
+			return;
+		}
+		double radiusSquared = radius * radius;
+		int minColumn = column(x - radius);
+		int maxColumn = column(x + radius);
+		int maxRow = row(y + radius);
+		for (int row = row(y - radius); row <= maxRow; row++) {
+			// Cells of a row are consecutive, so their points are too
+			int end = cellStart[row * columns + maxColumn + 1];
+			for (int i = cellStart[row * columns + minColumn]; i < end; i++) {
+				double dx = xs[i] - x;
+				double dy = ys[i] - y;
+				if (dx * dx + dy * dy <= radiusSquared) {
+					action.accept(points[i]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the numbers of the given number of points nearest the given point,
+	 * other than the point itself, nearest first. Fewer are returned if there are
+	 * not enough other points. Rings of cells around the point are searched
+	 * outwards until no unsearched cell can hold a nearer point.
+	 *
+	 * @param point
+	 *            number of point
+	 * @param k
+	 *            number of nearest points
+	 * @return numbers of nearest points, nearest first
+	 */
+	public int[] nearest(int point, int k) {
+		if (point < 0 || point >= points.length) {
+			throw new IndexOutOfBoundsException("No point " + point);
+		}
+		k = Math.min(k, points.length - 1);
+		if (k <= 0) {
+			return new int[0];
+		}
+		// Index of given point in sorted arrays
+		int self = indices[point];
+		double x = xs[self];
+		double y = ys[self];
+		int column = column(x);
+		int row = row(y);
+		// Nearest points found so far and their squared distances, nearest first
+		int[] found = new int[k];
+		double[] distances = new double[k];
+		int count = 0;
+		int maxRing = Math.max(Math.max(column, columns - 1 - column), Math.max(row, rows - 1 - row));
+		for (int ring = 0; ring <= maxRing; ring++) {
+			for (int r = Math.max(0, row - ring); r <= Math.min(rows - 1, row + ring); r++) {
+				boolean edgeRow = r == row - ring || r == row + ring;
+				// Cells of the ring in this row: all of them in its first and last rows,
+				// otherwise only its leftmost and rightmost
+				int step = edgeRow ? 1 : 2 * ring;
+				for (int c = column - ring; c <= column + ring; c += Math.max(step, 1)) {
+					if (c < 0 || c >= columns) {
+						continue;
+					}
+					int cell = r * columns + c;
+					for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+						if (i == self) {
+							continue;
+						}
+						double dx = xs[i] - x;
+						double dy = ys[i] - y;
+						double distance = dx * dx + dy * dy;
+						if (count == k && distance >= distances[k - 1]) {
+							continue;
+						}
+						// Insert in order of distance, dropping the farthest if full
+						int j = count < k ? count++ : k - 1;
+						for (; j > 0 && distances[j - 1] > distance; j--) {
+							distances[j] = distances[j - 1];
+							found[j] = found[j - 1];
+						}
+						distances[j] = distance;
+						found[j] = points[i];
+					}
+				}
+			}
+			// Points of further rings lie at least ring cells from the point
+			double reach = ring * cellSize;
+			if (count == k && distances[k - 1] <= reach * reach) {
+				break;
+			}
+		}
+		return count == k ? found : Arrays.copyOf(found, count);
+	}
+
+	/**
+	 * Returns the column of the cell containing the given x-coordinate, clamped to
+	 * the grid.
+	 */
+	private int column(double x) {
+		return (int) Math.max(0, Math.min(columns - 1, Math.floor((x - minX) / cellSize)));
+	}
+
+	/**
+	 * Returns the row of the cell containing the given y-coordinate, clamped to the
+	 * grid.
+	 */
+	private int row(double y) {
+		return (int) Math.max(0, Math.min(rows - 1, Math.floor((y - minY) / cellSize)));
+	}
+}
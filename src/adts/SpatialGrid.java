@@ -0,0 +1,638 @@
+package adts;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Uniform grid of square cells indexing items by position in the plane, for
+ * finding the items near a point or within a rectangle without visiting every
+ * item. Only occupied cells are stored, so the plane is unbounded.
+ *
+ * A point item is held in the cell containing it. A segment item is held in
+ * every cell the segment passes through, so it may be visited once for each of
+ * those cells by a query. A segment crossing more than MAX_SEGMENT_CELLS cells
+ * is held instead by a coarser grid, with cells LEVEL_FACTOR times larger, or
+ * by a coarser grid still, so inserting or removing a segment visits a bounded
+ * number of cells however long it is, and queries search each level. An item
+ * must be removed with the same coordinates with which it was inserted.
+ */
+public class SpatialGrid<T> {
+
+	// Greatest number of cells of a grid through which a segment it holds passes
+	private static final int MAX_SEGMENT_CELLS = 16;
+	// Ratio of the cell size of each coarser grid to that of the next finer grid
+	private static final int LEVEL_FACTOR = 8;
+	// Greatest number of items of a cell removed by scanning them
+	private static final int MAX_SCANNED_ITEMS = 32;
+	// Segments inserted in bulk are counted per cell in an array covering their
+	// bounding box, unless it has more than this many cells per segment
+	private static final int MAX_BULK_CELLS_PER_SEGMENT = 4;
+
+	// Side length of each cell
+	private final double cellSize;
+	// Items of each occupied cell, keyed by packed cell coordinates
+	private final Map<Long, Cell> cells;
+	// Number of items inserted into this grid and not removed, counting a segment once
+	private int size;
+	// Grid holding segments too long for this grid, or null if there are none
+	private SpatialGrid<T> coarser;
+
+	/**
+	 * Action performed for each occupied cell visited by a query.
+	 */
+	public interface CellAction {
+		/**
+		 * @param cellX
+		 *            column of cell
+		 * @param cellY
+		 *            row of cell
+		 * @param size
+		 *            side length of cell, a cell spanning the x-coordinates from
+		 *            cellX * size to (cellX + 1) * size
+		 * @param items
+		 *            number of items held by cell
+		 */
+		void accept(int cellX, int cellY, double size, int items);
+	}
+
+	/**
+	 * Creates empty grid with cells of the given side length.
+	 *
+	 * @param cellSize
+	 *            side length of each cell
+	 */
+	public SpatialGrid(double cellSize) {
+		if (!(cellSize > 0)) {
+			throw new IllegalArgumentException("Cell size must be positive: " + cellSize);
+		}
+		this.cellSize = cellSize;
+		cells = new HashMap<>();
+	}
+
+	/**
+	 * Returns the side length of the cells of this grid, those of the grids
+	 * holding long segments being larger.
+	 *
+	 * @return side length of each cell
+	 */
+	public double cellSize() {
+		return cellSize;
+	}
+
+	/**
+	 * Returns the number of items of grid, counting each segment once.
+	 *
+	 * @return number of items
+	 */
+	public int size() {
+		return coarser == null ? size : size + coarser.size();
+	}
+
+	/**
+	 * Returns the number of occupied cells, including those of the grids holding
+	 * long segments.
+	 *
+	 * @return number of cells holding at least one item
+	 */
+	public int occupiedCells() {
+		return coarser == null ? cells.size() : cells.size() + coarser.occupiedCells();
+	}
+
+	/**
+	 * Returns the column or row of the cell containing the given x- or
+	 * y-coordinate.
+	 *
+	 * @param coordinate
+	 *            x- or y-coordinate
+	 * @return column or row of cell
+	 */
+	public int cellOf(double coordinate) {
+		return (int) Math.floor(coordinate / cellSize);
+	}
+
+	/**
+	 * Add the given item at the given point.
+	 *
+	 * @param item
+	 *            item to be added
+	 * @param x
+	 *            x-coordinate of item
+	 * @param y
+	 *            y-coordinate of item
+	 */
+	public void insertPoint(T item, double x, double y) {
+		add(cellOf(x), cellOf(y), item);
+		size++;
+	}
+
+	/**
+	 * Remove the given item, inserted at the given point.
+	 *
+	 * @param item
+	 *            item to be removed
+	 * @param x
+	 *            x-coordinate at which item was inserted
+	 * @param y
+	 *            y-coordinate at which item was inserted
+	 * @return true if item was present; otherwise false
+	 */
+	public boolean removePoint(T item, double x, double y) {
+		if (remove(cellOf(x), cellOf(y), item)) {
+			size--;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Move the given item, inserted at the given old point, to the given new
+	 * point, leaving the grid unchanged if both points lie in the same cell.
+	 * 
+	 * @param item
+	 *            item to be moved
+	 * @param oldX
+	 *            x-coordinate at which item was inserted
+	 * @param oldY
+	 *            y-coordinate at which item was inserted
+	 * @param newX
+	 *            x-coordinate to which item is moved
+	 * @param newY
+	 *            y-coordinate to which item is moved
+	 */
+	public void movePoint(T item, double oldX, double oldY, double newX, double newY) {
+		if (cellOf(oldX) == cellOf(newX) && cellOf(oldY) == cellOf(newY)) {
+			return;
+		}
+		removePoint(item, oldX, oldY);
+		insertPoint(item, newX, newY);
+	}
+
+	/**
+	 * Add the given item along the segment between the given points.
+	 *
+	 * @param item
+	 *            item to be added
+	 * @param x1
+	 *            x-coordinate of start of segment
+	 * @param y1
+	 *            y-coordinate of start of segment
+	 * @param x2
+	 *            x-coordinate of end of segment
+	 * @param y2
+	 *            y-coordinate of end of segment
+	 */
+	public void insertSegment(T item, double x1, double y1, double x2, double y2) {
+		if (crossings(x1, y1, x2, y2) > MAX_SEGMENT_CELLS) {
+			if (coarser == null) {
+				coarser = new SpatialGrid<>(cellSize * LEVEL_FACTOR);
+			}
+			coarser.insertSegment(item, x1, y1, x2, y2);
+			return;
+		}
+		traverse(item, x1, y1, x2, y2, true);
+		size++;
+	}
+
+	/**
+	 * Add the given items along the given segments at once, as when indexing many
+	 * segments together. The items are counted per cell first, so each cell is
+	 * looked up once and its array grown once, rather than for every item passing
+	 * through it. The result is the same as inserting each item in turn.
+	 *
+	 * @param items
+	 *            items to be added
+	 * @param segments
+	 *            start x, start y, end x and end y of the segment of each item in
+	 *            turn, four coordinates per item
+	 */
+	public void insertSegments(List<? extends T> items, double[] segments) {
+		if (segments.length != 4 * items.size()) {
+			throw new IllegalArgumentException(
+					"Expected " + 4 * items.size() + " segment coordinates but found " + segments.length);
+		}
+		// Indices of the segments held by this grid, the others being too long
+		int[] held = new int[items.size()];
+		int count = 0;
+		int minX = Integer.MAX_VALUE;
+		int minY = Integer.MAX_VALUE;
+		int maxX = Integer.MIN_VALUE;
+		int maxY = Integer.MIN_VALUE;
+		for (int i = 0; i < items.size(); i++) {
+			int startX = cellOf(segments[4 * i]);
+			int startY = cellOf(segments[4 * i + 1]);
+			int endX = cellOf(segments[4 * i + 2]);
+			int endY = cellOf(segments[4 * i + 3]);
+			if (Math.abs(endX - startX) + Math.abs(endY - startY) + 1 > MAX_SEGMENT_CELLS) {
+				continue;
+			}
+			held[count++] = i;
+			minX = Math.min(minX, Math.min(startX, endX));
+			minY = Math.min(minY, Math.min(startY, endY));
+			maxX = Math.max(maxX, Math.max(startX, endX));
+			maxY = Math.max(maxY, Math.max(startY, endY));
+		}
+		if (count < items.size()) {
+			List<T> longItems = new ArrayList<>(items.size() - count);
+			double[] longSegments = new double[4 * (items.size() - count)];
+			for (int i = 0, h = 0; i < items.size(); i++) {
+				if (h < count && held[h] == i) {
+					h++;
+				} else {
+					System.arraycopy(segments, 4 * i, longSegments, 4 * longItems.size(), 4);
+					longItems.add(items.get(i));
+				}
+			}
+			if (coarser == null) {
+				coarser = new SpatialGrid<>(cellSize * LEVEL_FACTOR);
+			}
+			coarser.insertSegments(longItems, longSegments);
+		}
+		if (count == 0) {
+			return;
+		}
+		long columns = (long) maxX - minX + 1;
+		long area = columns * ((long) maxY - minY + 1);
+		if (area > (long) MAX_BULK_CELLS_PER_SEGMENT * count) {
+			// Segments are spread too thinly for an array of their cells
+			for (int h = 0; h < count; h++) {
+				int i = held[h];
+				traverse(items.get(i), segments[4 * i], segments[4 * i + 1], segments[4 * i + 2],
+						segments[4 * i + 3], true);
+			}
+			size += count;
+			return;
+		}
+		int width = (int) columns;
+		int left = minX;
+		int bottom = minY;
+		// Number of segments passing through each cell of the bounding box
+		int[] counts = new int[(int) area];
+		for (int h = 0; h < count; h++) {
+			int i = held[h];
+			walk(segments[4 * i], segments[4 * i + 1], segments[4 * i + 2], segments[4 * i + 3], (cellX, cellY) -> {
+				counts[(cellY - bottom) * width + cellX - left]++;
+				return true;
+			});
+		}
+		Cell[] boxCells = new Cell[(int) area];
+		for (int c = 0; c < area; c++) {
+			if (counts[c] > 0) {
+				int cellX = left + c % width;
+				int cellY = bottom + c / width;
+				Cell cell = cells.get(key(cellX, cellY));
+				if (cell == null) {
+					cell = new Cell(cellX, cellY);
+					cells.put(key(cellX, cellY), cell);
+				}
+				cell.reserve(counts[c]);
+				boxCells[c] = cell;
+			}
+		}
+		for (int h = 0; h < count; h++) {
+			int i = held[h];
+			T item = items.get(i);
+			walk(segments[4 * i], segments[4 * i + 1], segments[4 * i + 2], segments[4 * i + 3], (cellX, cellY) -> {
+				boxCells[(cellY - bottom) * width + cellX - left].add(item);
+				return true;
+			});
+		}
+		size += count;
+	}
+
+	/**
+	 * Remove the given item, inserted along the segment between the given points.
+	 *
+	 * @param item
+	 *            item to be removed
+	 * @param x1
+	 *            x-coordinate of start of segment
+	 * @param y1
+	 *            y-coordinate of start of segment
+	 * @param x2
+	 *            x-coordinate of end of segment
+	 * @param y2
+	 *            y-coordinate of end of segment
+	 * @return true if item was present; otherwise false
+	 */
+	public boolean removeSegment(T item, double x1, double y1, double x2, double y2) {
+		if (crossings(x1, y1, x2, y2) > MAX_SEGMENT_CELLS) {
+			return coarser != null && coarser.removeSegment(item, x1, y1, x2, y2);
+		}
+		if (traverse(item, x1, y1, x2, y2, false)) {
+			size--;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Move the given item, inserted along the given old segment, to the given new
+	 * segment, leaving the grid unchanged if both segments lie within the same
+	 * cell.
+	 * 
+	 * @param item
+	 *            item to be moved
+	 * @param oldSegment
+	 *            start x, start y, end x and end y coordinates of the segment
+	 *            along which item was inserted
+	 * @param x1
+	 *            x-coordinate of start of new segment
+	 * @param y1
+	 *            y-coordinate of start of new segment
+	 * @param x2
+	 *            x-coordinate of end of new segment
+	 * @param y2
+	 *            y-coordinate of end of new segment
+	 */
+	public void moveSegment(T item, double[] oldSegment, double x1, double y1, double x2, double y2) {
+		int cellX = cellOf(x1);
+		int cellY = cellOf(y1);
+		if (cellOf(x2) == cellX && cellOf(y2) == cellY && cellOf(oldSegment[0]) == cellX
+				&& cellOf(oldSegment[1]) == cellY && cellOf(oldSegment[2]) == cellX
+				&& cellOf(oldSegment[3]) == cellY) {
+			return;
+		}
+		removeSegment(item, oldSegment[0], oldSegment[1], oldSegment[2], oldSegment[3]);
+		insertSegment(item, x1, y1, x2, y2);
+	}
+
+	/**
+	 * Remove all items of grid.
+	 */
+	public void clear() {
+		cells.clear();
+		size = 0;
+		coarser = null;
+	}
+
+	/**
+	 * Performs the given action for each item held by the cells overlapping the
+	 * given rectangle. Items near the rectangle but outside it may be visited, and
+	 * a segment is visited once for each such cell it passes through.
+	 *
+	 * @param minX
+	 *            least x-coordinate of rectangle
+	 * @param minY
+	 *            least y-coordinate of rectangle
+	 * @param maxX
+	 *            greatest x-coordinate of rectangle
+	 * @param maxY
+	 *            greatest y-coordinate of rectangle
+	 * @param action
+	 *            action performed for each item
+	 */
+	@SuppressWarnings("unchecked")
+	public void query(double minX, double minY, double maxX, double maxY, Consumer<? super T> action) {
+		forEachCell(minX, minY, maxX, maxY, cell -> {
+			for (int i = 0; i < cell.size; i++) {
+				action.accept((T) cell.items[i]);
+			}
+		});
+		if (coarser != null) {
+			coarser.query(minX, minY, maxX, maxY, action);
+		}
+	}
+
+	/**
+	 * Performs the given action for each occupied cell overlapping the given
+	 * rectangle, without visiting the items it holds, including the cells of the
+	 * grids holding long segments.
+	 *
+	 * @param minX
+	 *            least x-coordinate of rectangle
+	 * @param minY
+	 *            least y-coordinate of rectangle
+	 * @param maxX
+	 *            greatest x-coordinate of rectangle
+	 * @param maxY
+	 *            greatest y-coordinate of rectangle
+	 * @param action
+	 *            action performed for each occupied cell
+	 */
+	public void queryCells(double minX, double minY, double maxX, double maxY, CellAction action) {
+		forEachCell(minX, minY, maxX, maxY, cell -> action.accept(cell.x, cell.y, cellSize, cell.size));
+		if (coarser != null) {
+			coarser.queryCells(minX, minY, maxX, maxY, action);
+		}
+	}
+
+	/**
+	 * Performs the given action for each occupied cell overlapping the given
+	 * rectangle, looking up each cell of the rectangle or, if the rectangle spans
+	 * more cells than are occupied, scanning the occupied cells instead.
+	 */
+	private void forEachCell(double minX, double minY, double maxX, double maxY, Consumer<Cell> action) {
+		if (cells.isEmpty() || minX > maxX || minY > maxY) {
+			return;
+		}
+		int minCellX = cellOf(minX);
+		int minCellY = cellOf(minY);
+		int maxCellX = cellOf(maxX);
+		int maxCellY = cellOf(maxY);
+		double spanned = ((double) maxCellX - minCellX + 1) * ((double) maxCellY - minCellY + 1);
+		if (spanned > cells.size()) {
+			for (Cell cell : cells.values()) {
+				if (cell.x >= minCellX && cell.x <= maxCellX && cell.y >= minCellY && cell.y <= maxCellY) {
+					action.accept(cell);
+				}
+			}
+			return;
+		}
+		for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+			for (int cellY = minCellY; cellY <= maxCellY; cellY++) {
+				Cell cell = cells.get(key(cellX, cellY));
+				if (cell != null) {
+					action.accept(cell);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of cells of this grid through which the given segment
+	 * passes.
+	 */
+	private int crossings(double x1, double y1, double x2, double y2) {
+		return Math.abs(cellOf(x2) - cellOf(x1)) + Math.abs(cellOf(y2) - cellOf(y1)) + 1;
+	}
+
+	/**
+	 * Add or remove the given item in every cell the given segment passes through.
+	 * Returns true if the item was removed from at least one cell, or was added.
+	 */
+	private boolean traverse(T item, double x1, double y1, double x2, double y2, boolean insert) {
+		return walk(x1, y1, x2, y2, (cellX, cellY) -> visit(cellX, cellY, item, insert)) || insert;
+	}
+
+	/**
+	 * Performs the given step for every cell the given segment passes through,
+	 * stepping from cell to cell along the segment. Returns true if any step
+	 * returned true.
+	 */
+	private boolean walk(double x1, double y1, double x2, double y2, CellStep step) {
+		int cellX = cellOf(x1);
+		int cellY = cellOf(y1);
+		int endX = cellOf(x2);
+		int endY = cellOf(y2);
+		int stepX = Integer.signum(endX - cellX);
+		int stepY = Integer.signum(endY - cellY);
+		double dx = Math.abs(x2 - x1);
+		double dy = Math.abs(y2 - y1);
+		// Fraction of segment crossed before reaching next column and next row
+		double nextX = stepX == 0 ? Double.POSITIVE_INFINITY
+				: (stepX > 0 ? (cellX + 1) * cellSize - x1 : x1 - cellX * cellSize) / dx;
+		double nextY = stepY == 0 ? Double.POSITIVE_INFINITY
+				: (stepY > 0 ? (cellY + 1) * cellSize - y1 : y1 - cellY * cellSize) / dy;
+		// Fraction of segment spanning one column and one row
+		double deltaX = cellSize / dx;
+		double deltaY = cellSize / dy;
+		boolean found = step.visit(cellX, cellY);
+		while (cellX != endX || cellY != endY) {
+			// Rounding must not carry the walk past the last column or row
+			if (cellY == endY || (cellX != endX && nextX < nextY)) {
+				cellX += stepX;
+				nextX += deltaX;
+			} else {
+				cellY += stepY;
+				nextY += deltaY;
+			}
+			found |= step.visit(cellX, cellY);
+		}
+		return found;
+	}
+
+	private boolean visit(int cellX, int cellY, T item, boolean insert) {
+		if (insert) {
+			add(cellX, cellY, item);
+			return true;
+		}
+		return remove(cellX, cellY, item);
+	}
+
+	private void add(int cellX, int cellY, T item) {
+		long key = key(cellX, cellY);
+		Cell cell = cells.get(key);
+		if (cell == null) {
+			cell = new Cell(cellX, cellY);
+			cells.put(key, cell);
+		}
+		cell.add(item);
+	}
+
+	private boolean remove(int cellX, int cellY, T item) {
+		long key = key(cellX, cellY);
+		Cell cell = cells.get(key);
+		if (cell == null || !cell.remove(item)) {
+			return false;
+		}
+		if (cell.size == 0) {
+			cells.remove(key);
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the key of the cell with the given column and row. Packed
+	 * coordinates are multiplied by an odd constant, keeping keys distinct, since
+	 * the hash code of a long, the exclusive or of its halves, would otherwise be
+	 * shared by many nearby cells.
+	 */
+	private static long key(int cellX, int cellY) {
+		return (((long) cellX << 32) | (cellY & 0xffffffffL)) * 0x9E3779B97F4A7C15L;
+	}
+
+	/**
+	 * Step of a walk along a segment, visiting one cell it passes through.
+	 */
+	private interface CellStep {
+		boolean visit(int cellX, int cellY);
+	}
+
+	/**
+	 * Occupied cell, holding its items in an array. Once a cell holds more than
+	 * MAX_SCANNED_ITEMS items, as the cells of a coarse grid may, the index of each
+	 * item in the array is also kept so it may be removed without a scan.
+	 */
+	private static final class Cell {
+
+		// Column and row of cell
+		private final int x;
+		private final int y;
+		// Items of cell, in the first size slots
+		private Object[] items;
+		private int size;
+		// Index in items of each item, or null until an item is removed from the
+		// cell while it is crowded, so that cells filled in bulk and never changed
+		// keep no index; an item equal to one already held is not indexed, and is
+		// found by a scan
+		private Map<Object, Integer> positions;
+
+		Cell(int x, int y) {
+			this.x = x;
+			this.y = y;
+			items = new Object[2];
+		}
+
+		/**
+		 * Ensures the cell can hold the given number of further items without
+		 * growing its array.
+		 */
+		void reserve(int additional) {
+			if (items.length - size < additional) {
+				Object[] grown = new Object[size + additional];
+				System.arraycopy(items, 0, grown, 0, size);
+				items = grown;
+			}
+		}
+
+		void add(Object item) {
+			if (size == items.length) {
+				Object[] grown = new Object[size * 2];
+				System.arraycopy(items, 0, grown, 0, size);
+				items = grown;
+			}
+			if (positions != null) {
+				positions.putIfAbsent(item, size);
+			}
+			items[size++] = item;
+		}
+
+		/**
+		 * Removes an item equal to the given item, moving the last item into its
+		 * slot.
+		 */
+		boolean remove(Object item) {
+			if (positions == null && size > MAX_SCANNED_ITEMS) {
+				positions = new HashMap<>();
+				for (int i = size - 1; i >= 0; i--) {
+					positions.put(items[i], i);
+				}
+			}
+			Integer position = positions == null ? null : positions.remove(item);
+			int index = position == null ? indexOf(item) : position;
+			if (index < 0) {
+				return false;
+			}
+			Object last = items[--size];
+			items[index] = last;
+			items[size] = null;
+			if (positions != null && index != size && Integer.valueOf(size).equals(positions.get(last))) {
+				positions.put(last, index);
+			}
+			return true;
+		}
+
+		private int indexOf(Object item) {
+			for (int i = 0; i < size; i++) {
+				if (Objects.equals(items[i], item)) {
+					return i;
+				}
+			}
+			return -1;
+		}
+	}
+}
@@ -0,0 +1,276 @@
+package adts;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Numbers of triangles of a graph, in total and through each of its vertices,
+ * numbered from 0, with the clustering coefficients they give. Edge directions,
+ * repeated edges and loops are ignored, so a triangle is any three vertices
+ * each joined to the other two.
+ *
+ * Vertices are ranked by degree, and the triangles through each vertex are
+ * counted as the edges among its neighbours, each found from its lower ranked
+ * end by intersecting the sorted neighbours of that end ranked above it with
+ * the neighbours of the vertex. Ranking by degree keeps those lists short, so
+ * counting takes O(m^1.5) time, and vertices with many neighbours ranked above
+ * them hold those neighbours as bitsets instead, intersected a word at a time,
+ * so dense graphs are counted without visiting every triangle. Vertices are
+ * counted in parallel, each thread marking the neighbours of its vertex in its
+ * own bitset.
+ */
+public class TriangleCount {
+
+	// Neighbours ranked above a vertex are held as a bitset when there are more
+	// than this many of them per word of the bitset
+	private static final int DENSE_NEIGHBOURS_PER_WORD = 2;
+	// Vertices are counted in this many interleaved groups per processor, so
+	// threads finishing early take another group
+	private static final int GROUPS_PER_PROCESSOR = 4;
+
+	// Number of distinct neighbours of each vertex
+	private final int[] degrees;
+	// Number of triangles through each vertex
+	private final long[] triangles;
+	// Number of triangles of graph
+	private final long total;
+	// Number of paths of two edges, centred on any vertex
+	private final long triples;
+
+	/**
+	 * Counts the triangles of the graph of the given number of vertices with the
+	 * given edges.
+	 *
+	 * @param numVertices
+	 *            number of vertices
+	 * @param origins
+	 *            number of first vertex of each edge
+	 * @param destinations
+	 *            number of second vertex of each edge
+	 */
+	public TriangleCount(int numVertices, int[] origins, int[] destinations) {
+		if (origins.length != destinations.length) {
+			throw new IllegalArgumentException(
+					"Edge ends differ in number: " + origins.length + ", " + destinations.length);
+		}
+		int n = numVertices;
+		// Rank of each vertex, by number of edges and then by number
+		int[] edgeCounts = new int[n];
+		for (int e = 0; e < origins.length; e++) {
+			if (origins[e] != destinations[e]) {
+				edgeCounts[origins[e]]++;
+				edgeCounts[destinations[e]]++;
+			}
+		}
+		int[] rank = rank(edgeCounts);
+		int[] vertexOf = new int[n];
+		for (int v = 0; v < n; v++) {
+			vertexOf[rank[v]] = v;
+		}
+
+		// Neighbours of the vertex of rank r, by rank, sorted and without repeats,
+		// are at indices start[r] to start[r] + distinct[r] of ranked
+		int[] start = new int[n + 1];
+		for (int r = 0; r < n; r++) {
+			start[r + 1] = start[r] + edgeCounts[vertexOf[r]];
+		}
+		int[] ranked = new int[start[n]];
+		int[] filled = Arrays.copyOf(start, n);
+		for (int e = 0; e < origins.length; e++) {
+			if (origins[e] != destinations[e]) {
+				int origin = rank[origins[e]];
+				int destination = rank[destinations[e]];
+				ranked[filled[origin]++] = destination;
+				ranked[filled[destination]++] = origin;
+			}
+		}
+		int[] distinct = new int[n];
+		IntStream.range(0, n).parallel().forEach(r -> {
+			Arrays.sort(ranked, start[r], start[r + 1]);
+			int count = 0;
+			for (int i = start[r]; i < start[r + 1]; i++) {
+				if (i == start[r] || ranked[i] != ranked[i - 1]) {
+					ranked[start[r] + count++] = ranked[i];
+				}
+			}
+			distinct[r] = count;
+		});
+		degrees = new int[n];
+		for (int v = 0; v < n; v++) {
+			degrees[v] = distinct[rank[v]];
+		}
+
+		// Neighbours ranked above the vertex of rank r are at indices bounds[2r] to
+		// bounds[2r + 1] of ranked, together so both are read at once
+		int[] bounds = new int[2 * n];
+		IntStream.range(0, n).parallel().forEach(r -> {
+			int end = start[r] + distinct[r];
+			int above = Arrays.binarySearch(ranked, start[r], end, r);
+			bounds[2 * r] = above >= 0 ? above + 1 : -above - 1;
+			bounds[2 * r + 1] = end;
+		});
+
+		// Bitsets of the neighbours ranked above dense vertices, from the word
+		// holding rank r + 1, or null for other vertices
+		long[][] rows = new long[n][];
+		boolean[] dense = new boolean[1];
+		IntStream.range(0, n).parallel().forEach(r -> {
+			int count = bounds[2 * r + 1] - bounds[2 * r];
+			int firstWord = (r + 1) >>> 6;
+			int words = ((n - 1) >>> 6) - firstWord + 1;
+			if (count > DENSE_NEIGHBOURS_PER_WORD * words) {
+				long[] row = new long[words];
+				for (int i = bounds[2 * r]; i < bounds[2 * r + 1]; i++) {
+					row[(ranked[i] >>> 6) - firstWord] |= 1L << ranked[i];
+				}
+				rows[r] = row;
+				dense[0] = true;
+			}
+		});
+		boolean anyDense = dense[0];
+
+		triangles = new long[n];
+		int groups = Math.max(1, Math.min(n, GROUPS_PER_PROCESSOR * Runtime.getRuntime().availableProcessors()));
+		IntStream.range(0, groups).parallel().forEach(group -> {
+			// Neighbours, by rank, of the vertex being counted
+			long[] marked = new long[(n + 63) >>> 6];
+			for (int r = group; r < n; r += groups) {
+				int end = start[r] + distinct[r];
+				for (int i = start[r]; i < end; i++) {
+					marked[ranked[i] >>> 6] |= 1L << ranked[i];
+				}
+				long count = 0;
+				for (int i = start[r]; i < end; i++) {
+					int u = ranked[i];
+					long[] row = anyDense ? rows[u] : null;
+					if (row != null) {
+						int firstWord = (u + 1) >>> 6;
+						for (int w = 0; w < row.length; w++) {
+							count += Long.bitCount(row[w] & marked[firstWord + w]);
+						}
+					} else {
+						for (int j = bounds[2 * u]; j < bounds[2 * u + 1]; j++) {
+							count += (marked[ranked[j] >>> 6] >>> ranked[j]) & 1;
+						}
+					}
+				}
+				for (int i = start[r]; i < end; i++) {
+					marked[ranked[i] >>> 6] = 0;
+				}
+				triangles[vertexOf[r]] = count;
+			}
+		});
+
+		long sum = 0;
+		long paths = 0;
+		for (int v = 0; v < n; v++) {
+			sum += triangles[v];
+			paths += (long) degrees[v] * (degrees[v] - 1) / 2;
+		}
+		total = sum / 3;
+		triples = paths;
+	}
+
+	/**
+	 * Returns the number of vertices of the graph.
+	 *
+	 * @return number of vertices
+	 */
+	public int size() {
+		return degrees.length;
+	}
+
+	/**
+	 * Returns the number of triangles of the graph.
+	 *
+	 * @return number of triangles
+	 */
+	public long triangles() {
+		return total;
+	}
+
+	/**
+	 * Returns the number of triangles through the given vertex.
+	 *
+	 * @param vertex
+	 *            number of vertex
+	 * @return number of triangles through vertex
+	 */
+	public long triangles(int vertex) {
+		return triangles[vertex];
+	}
+
+	/**
+	 * Returns the number of distinct vertices joined to the given vertex.
+	 *
+	 * @param vertex
+	 *            number of vertex
+	 * @return number of neighbours of vertex
+	 */
+	public int degree(int vertex) {
+		return degrees[vertex];
+	}
+
+	/**
+	 * Returns the local clustering coefficient of the given vertex: the fraction
+	 * of pairs of its neighbours that are joined to each other, or 0 if it has
+	 * fewer than two neighbours.
+	 *
+	 * @param vertex
+	 *            number of vertex
+	 * @return local clustering coefficient of vertex, from 0 to 1
+	 */
+	public double localClustering(int vertex) {
+		long pairs = (long) degrees[vertex] * (degrees[vertex] - 1) / 2;
+		return pairs == 0 ? 0 : (double) triangles[vertex] / pairs;
+	}
+
+	/**
+	 * Returns the mean local clustering coefficient of all vertices, counting
+	 * those with fewer than two neighbours as 0, or 0 if there are no vertices.
+	 *
+	 * @return average clustering coefficient, from 0 to 1
+	 */
+	public double averageClustering() {
+		double sum = 0;
+		for (int v = 0; v < degrees.length; v++) {
+			sum += localClustering(v);
+		}
+		return degrees.length == 0 ? 0 : sum / degrees.length;
+	}
+
+	/**
+	 * Returns the global clustering coefficient, or transitivity, of the graph:
+	 * the fraction of paths of two edges whose ends are joined, or 0 if there are
+	 * no such paths.
+	 *
+	 * @return global clustering coefficient, from 0 to 1
+	 */
+	public double globalClustering() {
+		return triples == 0 ? 0 : 3.0 * total / triples;
+	}
+
+	/**
+	 * Returns the rank of each vertex in order of the given degrees, vertices of
+	 * equal degree in order of number. Repeated edges may make degrees too large,
+	 * which affects only how fast triangles are counted.
+	 */
+	private static int[] rank(int[] degrees) {
+		int maxDegree = 0;
+		for (int degree : degrees) {
+			maxDegree = Math.max(maxDegree, degree);
+		}
+		int[] first = new int[maxDegree + 2];
+		for (int degree : degrees) {
+			first[degree + 1]++;
+		}
+		for (int d = 0; d <= maxDegree; d++) {
+			first[d + 1] += first[d];
+		}
+		int[] rank = new int[degrees.length];
+		for (int v = 0; v < degrees.length; v++) {
+			rank[v] = first[degrees[v]]++;
+		}
+		return rank;
+	}
+}
@@ -1,69 +1,80 @@
 package adts;
 
 import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.function.Consumer;
 
 public class UndirectedGraph<V, E> implements Graph<V, E> {
 
-	// Vertices of graph
-	private LinkedList<Vertex<V, E>> vertices;
-	// Number of vertices of graph
-	private int numVertices;
-	// Number of edges of graph
-	private int numEdges;
+	// Initial capacity of edge weight array
+	private static final int INITIAL_EDGE_CAPACITY = 10;
+
+	// Vertices of graph, each at its position
+	private ArrayList<Vertex<V, E>> vertices;
+	// Edges of graph, each at its position
+	private ArrayList<Edge<V, E>> edges;
+	// Weight of each edge, indexed by edge position
+	private double[] weights;
+	// Vertex storing each element
+	private VertexIndex<V, E> vertexIndex;
+	// Read-only views of vertex and edge sequences
+	private List<Vertex<V, E>> vertexView;
+	private List<Edge<V, E>> edgeView;
+	// Persistent copies of vertex and edge sequences shared with snapshots, null
+	// until the first snapshot is taken
+	private CopyOnWriteVector<V> vertexCopy;
+	private CopyOnWriteVector<GraphSnapshot.EdgeRecord<E>> edgeCopy;
 
 	/**
 	 * Creates empty undirected graph, having no edges or vertices.
 	 */
 	public UndirectedGraph() {
-		numVertices = 0;
-		numEdges = 0;
-		vertices = new LinkedList<>();
+		vertices = new ArrayList<>();
+		edges = new ArrayList<>();
+		vertexIndex = new VertexIndex<>();
+		weights = new double[INITIAL_EDGE_CAPACITY];
+		vertexView = Collections.unmodifiableList(vertices);
+		edgeView = Collections.unmodifiableList(edges);
 	}
 
 	@Override
 	public int numVertices() {
-		return numVertices;
+		return vertices.size();
 	}
 
 	@Override
 	public List<Vertex<V, E>> vertices() {
-		return new ArrayList<Vertex<V, E>>(vertices);
+		return vertexView;
 	}
 
 	@Override
 	public int numEdges() {
-		return numEdges;
+		return edges.size();
 	}
 
 	@Override
 	public List<Edge<V, E>> edges() {
-		Set<Edge<V, E>> edges = new HashSet<Edge<V, E>>();
-		for (Vertex<V, E> vertex : vertices) {
-			for (Edge<V, E> edge : vertex.incidentEdges()) {
-				edges.add(edge);
-			}
-		}
-		return new ArrayList<Edge<V, E>>(edges);
+		return edgeView;
 	}
 
 	@Override
 	public Edge<V, E> getEdge(Vertex<V, E> origin, Vertex<V, E> destination) {
-		List<Vertex<V, E>> vertices = new ArrayList<>();
-		if (origin.degree() < destination.degree()) {
-			vertices.add(origin);
-			vertices.add(destination);
-		} else {
-			vertices.add(destination);
-			vertices.add(origin);
-		}
-		for (Edge<V, E> edge : vertices.get(0).incidentEdges()) {
-			if (edge.endpoints().get(0) == vertices.get(1) || edge.endpoints().get(1) == vertices.get(1)) {
+		// Search incidence sequence of vertex with smaller degree
+		Vertex<V, E> searched = origin;
+		Vertex<V, E> other = destination;
+		if (destination.degree() < origin.degree()) {
+			searched = destination;
+			other = origin;
+		}
+		List<Edge<V, E>> incident = searched.incidentEdges();
+		for (int i = 0; i < incident.size(); i++) {
+			Edge<V, E> edge = incident.get(i);
+			if (edge.endpoint(0) == other || edge.endpoint(1) == other) {
 				return edge;
 			}
 		}
@@ -72,26 +83,23 @@ public class UndirectedGraph<V, E> implements Graph<V, E> {
 	
 	@Override
 	public Vertex<V, E> getVertex(V element) {
-		for (Vertex<V, E> vertex: vertices) {
-			if (vertex.element().equals(element)) {
-				return vertex;
-			}
-		}
-		return null;
+		return vertexIndex.get(element);
 	}
 
 	@Override
+	@SuppressWarnings({ "unchecked", "rawtypes" })
 	public Vertex<V, E>[] endVertices(Edge<V, E> edge) {
-		return (Vertex<V, E>[]) edge.endpoints().toArray();
+		return new Vertex[] { edge.endpoint(0), edge.endpoint(1) };
 	}
 
 	@Override
 	public Vertex<V, E> opposite(Vertex<V, E> vertex, Edge<V, E> edge) throws NoSuchElementException {
-		if (!vertex.incidentEdges().contains(edge)) {
-			throw new NoSuchElementException();
+		if (edge.endpoint(0) == vertex) {
+			return edge.endpoint(1);
+		} else if (edge.endpoint(1) == vertex) {
+			return edge.endpoint(0);
 		}
-		int index = edge.endpoints().indexOf(vertex) ^ 1;
-		return edge.endpoints().get(index);
+		throw new NoSuchElementException();
 	}
 
 	@Override
@@ -114,78 +122,145 @@ public class UndirectedGraph<V, E> implements Graph<V, E> {
 		return vertex.incidentEdges();
 	}
 
+	@Override
+	public void forEachIncident(Vertex<V, E> vertex, Consumer<? super Edge<V, E>> action) {
+		List<Edge<V, E>> incident = vertex.incidentEdges();
+		for (int i = 0; i < incident.size(); i++) {
+			action.accept(incident.get(i));
+		}
+	}
+
 	@Override
 	public Vertex<V, E> insertVertex(V element) {
-		Vertex<V, E> vertex = new Vertex<>(element, numVertices);
+		Vertex<V, E> vertex = new Vertex<>(element, vertices.size());
 		vertices.add(vertex);
-		numVertices++;
+		vertexIndex.add(vertex);
+		if (vertexCopy != null) {
+			vertexCopy.add(element);
+		}
 		return vertex;
 	}
 
 	@Override
-	public Edge<V, E> insertEdge(Vertex<V, E> origin, Vertex<V, E> destination, E element) {
-		Edge<V, E> edge = new Edge<>(element, origin, destination, origin.degree(), destination.degree());
+	public Edge<V, E> insertEdge(Vertex<V, E> origin, Vertex<V, E> destination, E element, double weight) {
+		// A self-loop occupies two consecutive positions of the same sequence
+		int destPosition = origin == destination ? origin.degree() + 1 : destination.degree();
+		Edge<V, E> edge = new Edge<>(element, origin, destination, origin.degree(), destPosition);
 		origin.addEdge(edge);
 		destination.addEdge(edge);
-		numEdges++;
+		edge.setPosition(edges.size());
+		if (edges.size() == weights.length) {
+			weights = Arrays.copyOf(weights, weights.length + (weights.length >> 1));
+		}
+		weights[edges.size()] = weight;
+		edges.add(edge);
+		if (edgeCopy != null) {
+			edgeCopy.add(record(edge));
+		}
 		return edge;
 	}
 
 	@Override
 	public Vertex<V, E> removeVertex(Vertex<V, E> vertex) {
-		if (!vertices.contains(vertex)) {
+		int position = vertex.position();
+		if (position < 0 || position >= vertices.size() || vertices.get(position) != vertex) {
 			return null;
 		}
-		for (Edge<V, E> edge : vertex.incidentEdges()) {
-			edge.endpoints().get(0).removeEdge(edge);
-			edge.endpoints().get(1).removeEdge(edge);
-			numEdges--;
+		List<Edge<V, E>> incident = vertex.incidentEdges();
+		while (!incident.isEmpty()) {
+			removeEdge(incident.get(incident.size() - 1));
+		}
+		// Move last vertex into position of removed vertex
+		Vertex<V, E> last = vertices.remove(vertices.size() - 1);
+		if (last != vertex) {
+			vertices.set(position, last);
+			last.setPosition(position);
+		}
+		vertex.setPosition(-1);
+		vertexIndex.remove(vertex, vertices);
+		if (vertexCopy != null) {
+			vertexCopy.removeLast();
+			if (last != vertex) {
+				vertexCopy.set(position, last.element());
+				// Edges of moved vertex now refer to its new position
+				List<Edge<V, E>> moved = last.incidentEdges();
+				for (int i = 0; i < moved.size(); i++) {
+					edgeCopy.set(moved.get(i).position(), record(moved.get(i)));
+				}
+			}
 		}
-		vertices.remove(vertex);
-		numVertices--;
 		return vertex;
 	}
 
 	@Override
 	public Edge<V, E> removeEdge(Edge<V, E> edge) {
-		List<Vertex<V, E>> endpoints = edge.endpoints();
-		endpoints.get(0).removeEdge(edge);
-		endpoints.get(1).removeEdge(edge);
-		numEdges--;
+		int position = edge.position();
+		if (position < 0 || position >= edges.size() || edges.get(position) != edge) {
+			return null;
+		}
+		edge.endpoint(0).removeEdge(edge);
+		edge.endpoint(1).removeEdge(edge);
+		// Move last edge into position of removed edge
+		Edge<V, E> last = edges.remove(edges.size() - 1);
+		if (last != edge) {
+			edges.set(position, last);
+			last.setPosition(position);
+			weights[position] = weights[edges.size()];
+		}
+		edge.setPosition(-1);
+		if (edgeCopy != null) {
+			GraphSnapshot.EdgeRecord<E> moved = edgeCopy.removeLast();
+			if (last != edge) {
+				edgeCopy.set(position, moved);
+			}
+		}
 		return edge;
 	}
 
+	@Override
+	public double weight(Edge<V, E> edge) {
+		return weights[positionOf(edge)];
+	}
+
+	@Override
+	public void setWeight(Edge<V, E> edge, double weight) {
+		int position = positionOf(edge);
+		weights[position] = weight;
+		if (edgeCopy != null) {
+			edgeCopy.set(position, record(edge));
+		}
+	}
+
 	/**
-	 * Traverses graph depth-first and modifies given map to contain vertices
-	 * reachable from the given vertex and their discovery edges.
-	 * 
-	 * @param u
-	 *            vertex reached by traversal
-	 * @param known
-	 *            all vertices reached in traversal
-	 * @param forest
-	 *            vertices reachable from u and their discovery vertices
-	 * @param back
-	 *            vertices reachable from u and their back edges
+	 * Returns the position of the given edge, checking that it is an edge of this
+	 * graph.
 	 */
+	private int positionOf(Edge<V, E> edge) {
+		int position = edge.position();
+		if (position < 0 || position >= edges.size() || edges.get(position) != edge) {
+			throw new IllegalArgumentException(edge + " is not an edge of this graph");
+		}
+		return position;
+	}
+
+	@Override
 	public void depthFirstTraversal(Vertex<V, E> u, Set<Vertex<V, E>> known, Map<Vertex<V, E>, Edge<V, E>> forest,
 			Map<Vertex<V, E>, List<Edge<V, E>>> back) {
 		known.add(u);
-		for (Edge<V, E> e : this.outgoingEdges(u)) {
+		List<Edge<V, E>> outgoing = this.outgoingEdges(u);
+		for (int i = 0; i < outgoing.size(); i++) {
+			Edge<V, E> e = outgoing.get(i);
 			Vertex<V, E> v = this.opposite(u, e);
 			if (!known.contains(v)) {
 				forest.put(v, e);
 				this.depthFirstTraversal(v, known, forest, back);
 			} else {
-				if (back.containsKey(v)) {
-					List<Edge<V, E>> backEdges = back.get(v);
-					backEdges.add(e);
-					back.put(v, backEdges);
-				} else {
-					List<Edge<V, E>> backEdges = new ArrayList<>();
-					backEdges.add(e);
+				List<Edge<V, E>> backEdges = back.get(v);
+				if (backEdges == null) {
+					backEdges = new ArrayList<>();
 					back.put(v, backEdges);
 				}
+				backEdges.add(e);
 			}
 		}
 	}
@@ -197,20 +272,75 @@ public class UndirectedGraph<V, E> implements Graph<V, E> {
 	 * @return string representation of graph
 	 */
 	public String toString() {
-		String output = "";
-		for (Vertex<V, E> vertex : vertices) {
-			output += vertex.toString() + ": " + vertex.incidentEdges().toString();
-			if (vertices.indexOf(vertex) < vertices.size() - 1) {
-				output += System.lineSeparator();
+		StringBuilder output = new StringBuilder();
+		for (int i = 0; i < vertices.size(); i++) {
+			Vertex<V, E> vertex = vertices.get(i);
+			output.append(vertex.toString()).append(": ").append(vertex.incidentEdges().toString());
+			if (i < vertices.size() - 1) {
+				output.append(System.lineSeparator());
 			}
 		}
-		return output;
+		return output.toString();
+	}
+
+	@Override
+	public void ensureEdgeCapacity(int minCapacity) {
+		edges.ensureCapacity(minCapacity);
+		if (minCapacity > weights.length) {
+			weights = Arrays.copyOf(weights, minCapacity);
+		}
+	}
+
+	@Override
+	public void clearEdges() {
+		for (Vertex<V, E> vertex : vertices) {
+			vertex.clearEdges();
+		}
+		for (Edge<V, E> edge : edges) {
+			edge.setPosition(-1);
+		}
+		edges.clear();
+		if (edgeCopy != null) {
+			edgeCopy.clear();
+		}
 	}
 
 	@Override
 	public void clear() {
-		numVertices = 0;		
-		numEdges = 0;
+		for (Vertex<V, E> vertex : vertices) {
+			vertex.setPosition(-1);
+		}
+		clearEdges();
 		vertices.clear();
+		vertexIndex.clear();
+		if (vertexCopy != null) {
+			vertexCopy.clear();
+		}
+	}
+
+	/**
+	 * Returns an immutable snapshot of the graph in constant time, sharing
+	 * structure with the graph. The first snapshot starts keeping persistent
+	 * copies of the vertex and edge sequences, taking time linear in the size of
+	 * the graph; thereafter each change to the graph costs O(log n) extra.
+	 */
+	@Override
+	public GraphSnapshot<V, E> snapshot() {
+		if (vertexCopy == null) {
+			vertexCopy = new CopyOnWriteVector<>();
+			for (Vertex<V, E> vertex : vertices) {
+				vertexCopy.add(vertex.element());
+			}
+			edgeCopy = new CopyOnWriteVector<>();
+			for (Edge<V, E> edge : edges) {
+				edgeCopy.add(record(edge));
+			}
+		}
+		return new GraphSnapshot<>(vertexCopy.snapshot(), edgeCopy.snapshot());
+	}
+
+	private GraphSnapshot.EdgeRecord<E> record(Edge<V, E> edge) {
+		return new GraphSnapshot.EdgeRecord<>(edge.endpoint(0).position(), edge.endpoint(1).position(),
+				edge.element(), weights[edge.position()]);
 	}
 }
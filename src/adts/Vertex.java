@@ -1,18 +1,19 @@
 package adts;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class Vertex<V, E> {
 
 	// Element stored by vertex
 	private V element;
-	// Sequence of edges incident on vertex
-	private List<Edge<V, E>> incidentEdges;
+	// Sequence of edges incident on vertex, created when first needed
+	private ArrayList<Edge<V, E>> incidentEdges;
+	// Read-only view of incidence sequence, created when first needed
+	private List<Edge<V, E>> incidentView;
 	// Position in vertex sequence of graph containing this vertex
 	private int position;
-	// Number of edges incident on this vertex
-	private int degree;
 
 	/**
 	 * Creates new vertex storing the given element and having given position in
@@ -26,33 +27,97 @@ public class Vertex<V, E> {
 	public Vertex(V element, int position) {
 		this.element = element;
 		this.position = position;
-		incidentEdges = new ArrayList<Edge<V, E>>();
-		degree = 0;
 	}
 
 	public V element() {
 		return element;
 	}
 
-	public ArrayList<Edge<V, E>> incidentEdges() {
-		return new ArrayList<Edge<V, E>>(incidentEdges);
+	/**
+	 * Returns a read-only view of the edges incident on this vertex. The view
+	 * reflects later changes to the incidence sequence, so callers removing edges
+	 * while iterating must copy it first.
+	 * 
+	 * @return read-only view of incident edges
+	 */
+	public List<Edge<V, E>> incidentEdges() {
+		if (incidentView == null) {
+			incidentView = Collections.unmodifiableList(edgeList());
+		}
+		return incidentView;
+	}
+
+	private ArrayList<Edge<V, E>> edgeList() {
+		if (incidentEdges == null) {
+			incidentEdges = new ArrayList<Edge<V, E>>();
+		}
+		return incidentEdges;
 	}
 
 	public int position() {
 		return position;
 	}
+
+	void setPosition(int position) {
+		this.position = position;
+	}
 	
 	public void addEdge(Edge<V, E> edge) {
-		incidentEdges.add(edge);
-		degree++;
+		edgeList().add(edge);
 	}
 	
+	/**
+	 * Remove the given edge from the incidence sequence of this vertex, moving the
+	 * last edge of the sequence into its place.
+	 * 
+	 * @param edge
+	 *            edge to be removed
+	 * @return true if edge was incident on this vertex
+	 */
 	public boolean removeEdge(Edge<V, E> edge) {
-		return incidentEdges.remove(edge);
+		if (incidentEdges == null) {
+			return false;
+		}
+		int index = edge.positionIn(this);
+		if (index < 0 || index >= incidentEdges.size() || incidentEdges.get(index) != edge) {
+			// Edge created without a valid position, fall back to searching for it
+			index = incidentEdges.indexOf(edge);
+			if (index < 0) {
+				return false;
+			}
+		}
+		int last = incidentEdges.size() - 1;
+		Edge<V, E> moved = incidentEdges.remove(last);
+		edge.movePosition(this, index, -1);
+		if (index != last) {
+			incidentEdges.set(index, moved);
+			moved.movePosition(this, last, index);
+		}
+		return true;
+	}
+
+	/**
+	 * Remove all edges incident on this vertex.
+	 */
+	public void clearEdges() {
+		if (incidentEdges != null) {
+			incidentEdges.clear();
+		}
+	}
+
+	/**
+	 * Increase the capacity of the incidence sequence of this vertex, if
+	 * necessary, so that it can hold at least the given number of edges.
+	 * 
+	 * @param minCapacity
+	 *            minimum number of edges to be held
+	 */
+	public void ensureCapacity(int minCapacity) {
+		edgeList().ensureCapacity(minCapacity);
 	}
 	
 	public int degree() {
-		return degree;
+		return incidentEdges == null ? 0 : incidentEdges.size();
 	}
 	
 	public String toString() {
@@ -0,0 +1,71 @@
+package adts;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hash index from element to vertex, kept up to date by a graph as vertices are
+ * inserted and removed so that getVertex takes constant time.
+ *
+ * Each element maps to one of the vertices storing it. Vertices whose element
+ * was already indexed when they were inserted are only counted; removing the
+ * indexed vertex of such an element scans the graph for another, so lookups
+ * stay correct when elements repeat, at linear cost only in that case.
+ */
+class VertexIndex<V, E> {
+
+	// A vertex storing each element
+	private final Map<V, Vertex<V, E>> vertices;
+	// Number of vertices not indexed because their element was already present
+	private int duplicates;
+
+	VertexIndex() {
+		vertices = new HashMap<>();
+	}
+
+	/**
+	 * Returns a vertex storing the given element, or null if there is none.
+	 */
+	Vertex<V, E> get(V element) {
+		return vertices.get(element);
+	}
+
+	/**
+	 * Index the given newly inserted vertex.
+	 */
+	void add(Vertex<V, E> vertex) {
+		if (vertices.putIfAbsent(vertex.element(), vertex) != null) {
+			duplicates++;
+		}
+	}
+
+	/**
+	 * Remove the given vertex, which has already been removed from the given
+	 * vertex sequence, from the index.
+	 */
+	void remove(Vertex<V, E> vertex, List<Vertex<V, E>> remaining) {
+		V element = vertex.element();
+		if (vertices.get(element) != vertex) {
+			duplicates--;
+			return;
+		}
+		vertices.remove(element);
+		if (duplicates > 0) {
+			// Index another vertex storing the same element, if any remains
+			for (int i = 0; i < remaining.size(); i++) {
+				Vertex<V, E> other = remaining.get(i);
+				if (element == null ? other.element() == null : element.equals(other.element())) {
+					vertices.put(element, other);
+					duplicates--;
+					return;
+				}
+			}
+		}
+	}
+
+	void clear() {
+		vertices.clear();
+		duplicates = 0;
+	}
+}
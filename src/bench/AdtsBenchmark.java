@@ -0,0 +1,296 @@
+package bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import adts.CompactGraph;
+import adts.Edge;
+import adts.Graph;
+import adts.UndirectedGraph;
+import adts.Vertex;
+
+/**
+ * Benchmarks of the operations of the graph implementations over graphs of
+ * increasing size, shaped like the sample graphs in the data directory or
+ * generated at random.
+ * 
+ * Options (all optional):
+ * 
+ * --sizes 1000,100000,1000000 numbers of vertices
+ * 
+ * --shapes random,grid1,graph1 shapes, "all" for every sample graph
+ * 
+ * --graphs undirected,compact graph implementations
+ * 
+ * --data data directory containing sample graphs
+ * 
+ * --warmup 2 --iterations 5 untimed and timed iterations
+ * 
+ * --csv file write results as comma-separated values
+ */
+public class AdtsBenchmark {
+
+	// Number of lookups performed by each iteration of point query benchmarks
+	private static final int QUERIES = 100000;
+	// Number of vertices removed by each iteration of the vertex removal benchmark
+	private static final int VERTEX_REMOVALS = 100;
+	// Number of edges removed by each iteration of the edge removal benchmark
+	private static final int EDGE_REMOVALS = 10000;
+	// Mean degree of random graphs
+	private static final int RANDOM_DEGREE = 4;
+
+	private final BenchmarkRunner runner;
+
+	// Name of graph implementation under test
+	private String implementation;
+	// Graph and vertices under test, rebuilt by setup where a benchmark mutates it
+	private Graph<Integer, Integer> graph;
+	private List<Vertex<Integer, Integer>> vertices;
+	private List<Edge<Integer, Integer>> edges;
+
+	public AdtsBenchmark(BenchmarkRunner runner) {
+		this.runner = runner;
+	}
+
+	public static void main(String[] args) throws Exception {
+		BenchmarkOptions options = new BenchmarkOptions(args);
+		BenchmarkRunner runner = new BenchmarkRunner(options.getInt("warmup", 2), options.getInt("iterations", 5));
+		List<GraphShape> shapes = shapes(options.getList("shapes", "random,grid1,graph1"),
+				new File(options.get("data", "data")));
+		int[] sizes = options.getInts("sizes", "1000,100000,1000000");
+		String[] implementations = options.getList("graphs", "undirected,compact");
+		AdtsBenchmark benchmark = new AdtsBenchmark(runner);
+		BenchmarkRunner.runWithLargeStack(new Runnable() {
+			@Override
+			public void run() {
+				for (GraphShape base : shapes) {
+					for (int size : sizes) {
+						GraphShape shape = base.name().equals("random") ? GraphShape.random(size, RANDOM_DEGREE, size)
+								: base.tile(size);
+						for (String implementation : implementations) {
+							benchmark.runAll(implementation, shape);
+						}
+					}
+				}
+			}
+		});
+		String csv = options.get("csv", null);
+		if (csv != null) {
+			runner.writeCsv(csv);
+		}
+	}
+
+	/**
+	 * Returns the named base shapes, reading sample graphs from the given
+	 * directory.
+	 * 
+	 * @param names
+	 *            names of shapes, "random" for random graphs or "all" for every
+	 *            sample graph
+	 * @param dataDirectory
+	 *            directory containing sample graphs
+	 * @return base shapes to be benchmarked
+	 * @throws IOException
+	 */
+	static List<GraphShape> shapes(String[] names, File dataDirectory) throws IOException {
+		List<GraphShape> shapes = new ArrayList<>();
+		for (String name : names) {
+			if (name.equals("random")) {
+				shapes.add(GraphShape.random(1, 0, 0));
+			} else if (name.equals("all")) {
+				File[] files = dataDirectory.listFiles();
+				if (files != null) {
+					java.util.Arrays.sort(files);
+					for (File file : files) {
+						if (file.getName().endsWith(".txt")) {
+							shapes.add(GraphShape.load(file));
+						}
+					}
+				}
+			} else {
+				shapes.add(GraphShape.load(new File(dataDirectory, name + ".txt")));
+			}
+		}
+		return shapes;
+	}
+
+	/**
+	 * Returns a new empty graph of the named implementation.
+	 * 
+	 * @param implementation
+	 *            "undirected" or "compact"
+	 * @return empty graph
+	 */
+	static Graph<Integer, Integer> newGraph(String implementation) {
+		switch (implementation) {
+		case "undirected":
+			return new UndirectedGraph<>();
+		case "compact":
+			return new CompactGraph<>();
+		default:
+			throw new IllegalArgumentException("Unknown graph implementation: " + implementation);
+		}
+	}
+
+	/**
+	 * Run every benchmark against the given implementation and shape.
+	 * 
+	 * @param implementation
+	 *            name of graph implementation under test
+	 * @param shape
+	 *            shape of graph under test
+	 */
+	public void runAll(String implementation, GraphShape shape) {
+		this.implementation = implementation;
+		String params = implementation + " " + shape.name() + " n=" + shape.numVertices() + " m=" + shape.numEdges();
+		int n = shape.numVertices();
+		int m = shape.numEdges();
+		Random random = new Random(42);
+
+		runner.run("insertVertex", params, "op", () -> graph = newGraph(implementation), () -> {
+			for (int i = 0; i < n; i++) {
+				graph.insertVertex(i);
+			}
+			return n;
+		});
+
+		runner.run("insertEdge", params, "op", () -> buildVertices(shape), () -> {
+			for (int e = 0; e < m; e++) {
+				graph.insertEdge(vertices.get(shape.origin(e)), vertices.get(shape.destination(e)), e);
+			}
+			return m;
+		});
+
+		build(shape);
+		int[] elements = new int[QUERIES];
+		for (int i = 0; i < QUERIES; i++) {
+			elements[i] = random.nextInt(n);
+		}
+		runner.run("getVertex", params, "op", null, () -> {
+			int found = 0;
+			for (int element : elements) {
+				if (graph.getVertex(element) != null) {
+					found++;
+				}
+			}
+			return found;
+		});
+
+		if (m == 0) {
+			return;
+		}
+		int[] sample = new int[QUERIES];
+		for (int i = 0; i < QUERIES; i++) {
+			sample[i] = random.nextInt(m);
+		}
+		runner.run("getEdge", params, "op", null, () -> {
+			int found = 0;
+			for (int e : sample) {
+				if (graph.getEdge(vertices.get(shape.origin(e)), vertices.get(shape.destination(e))) != null) {
+					found++;
+				}
+			}
+			return found;
+		});
+
+		runner.run("opposite", params, "op", null, () -> {
+			long checksum = 0;
+			for (int e : sample) {
+				Edge<Integer, Integer> edge = edges.get(e);
+				checksum += graph.opposite(vertices.get(shape.origin(e)), edge).element();
+			}
+			return checksum >= 0 ? sample.length : 0;
+		});
+
+		runner.run("edges", params, "edge", null, () -> {
+			long count = 0;
+			for (Edge<Integer, Integer> edge : graph.edges()) {
+				if (edge != null) {
+					count++;
+				}
+			}
+			return count;
+		});
+
+		runner.run("depthFirstTraversal", params, "vertex", null, () -> {
+			Set<Vertex<Integer, Integer>> known = new HashSet<>();
+			Map<Vertex<Integer, Integer>, Edge<Integer, Integer>> forest = new HashMap<>();
+			Map<Vertex<Integer, Integer>, List<Edge<Integer, Integer>>> back = new HashMap<>();
+			for (Vertex<Integer, Integer> vertex : graph.vertices()) {
+				if (!known.contains(vertex)) {
+					graph.depthFirstTraversal(vertex, known, forest, back);
+				}
+			}
+			return known.size();
+		});
+
+		int[] removedVertices = distinct(random, n, Math.min(VERTEX_REMOVALS, n));
+		runner.run("removeVertex", params, "op", () -> build(shape), () -> {
+			for (int v : removedVertices) {
+				graph.removeVertex(vertices.get(v));
+			}
+			return removedVertices.length;
+		});
+
+		int[] removedEdges = distinct(random, m, Math.min(EDGE_REMOVALS, m));
+		runner.run("removeEdge", params, "op", () -> build(shape), () -> {
+			for (int e : removedEdges) {
+				graph.removeEdge(edges.get(e));
+			}
+			return removedEdges.length;
+		});
+
+		if (implementation.equals("undirected")) {
+			// Snapshot before every removal, so each removal copies the paths it changes
+			runner.run("snapshotRemoveEdge", params, "op", () -> {
+				build(shape);
+				graph.snapshot();
+			}, () -> {
+				for (int e : removedEdges) {
+					graph.snapshot();
+					graph.removeEdge(edges.get(e));
+				}
+				return removedEdges.length;
+			});
+		}
+	}
+
+	private void buildVertices(GraphShape shape) {
+		graph = newGraph(implementation);
+		vertices = new ArrayList<>(shape.numVertices());
+		for (int i = 0; i < shape.numVertices(); i++) {
+			vertices.add(graph.insertVertex(i));
+		}
+	}
+
+	private void build(GraphShape shape) {
+		buildVertices(shape);
+		edges = new ArrayList<>(shape.numEdges());
+		for (int e = 0; e < shape.numEdges(); e++) {
+			edges.add(graph.insertEdge(vertices.get(shape.origin(e)), vertices.get(shape.destination(e)), e));
+		}
+	}
+
+	/**
+	 * Returns the given number of distinct integers chosen at random from zero
+	 * (inclusive) to the given bound (exclusive).
+	 */
+	private static int[] distinct(Random random, int bound, int count) {
+		Set<Integer> chosen = new HashSet<>();
+		int[] values = new int[count];
+		for (int i = 0; i < count;) {
+			int value = random.nextInt(bound);
+			if (chosen.add(value)) {
+				values[i++] = value;
+			}
+		}
+		return values;
+	}
+}
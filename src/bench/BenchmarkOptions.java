@@ -0,0 +1,67 @@
+package bench;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class BenchmarkOptions {
+
+	// Option values by name, without leading dashes
+	private final Map<String, String> values;
+
+	/**
+	 * Creates options from command line arguments of the form --name value.
+	 * 
+	 * @param args
+	 *            command line arguments
+	 * @throws IllegalArgumentException
+	 *             if an argument is not of the expected form
+	 */
+	public BenchmarkOptions(String[] args) {
+		values = new HashMap<>();
+		for (int i = 0; i < args.length; i += 2) {
+			if (!args[i].startsWith("--") || i + 1 >= args.length) {
+				throw new IllegalArgumentException("Expected --name value but found " + args[i]);
+			}
+			values.put(args[i].substring(2), args[i + 1]);
+		}
+	}
+
+	public String get(String name, String defaultValue) {
+		return values.containsKey(name) ? values.get(name) : defaultValue;
+	}
+
+	public int getInt(String name, int defaultValue) {
+		return values.containsKey(name) ? Integer.parseInt(values.get(name)) : defaultValue;
+	}
+
+	/**
+	 * Returns comma-separated integers given for the named option.
+	 * 
+	 * @param name
+	 *            name of option
+	 * @param defaultValue
+	 *            comma-separated integers used if option was not given
+	 * @return integers given for option
+	 */
+	public int[] getInts(String name, String defaultValue) {
+		String[] parts = get(name, defaultValue).split(",");
+		int[] ints = new int[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			ints[i] = Integer.parseInt(parts[i].trim());
+		}
+		return ints;
+	}
+
+	/**
+	 * Returns comma-separated values given for the named option.
+	 * 
+	 * @param name
+	 *            name of option
+	 * @param defaultValue
+	 *            comma-separated values used if option was not given
+	 * @return values given for option
+	 */
+	public String[] getList(String name, String defaultValue) {
+		return get(name, defaultValue).split(",");
+	}
+}
@@ -0,0 +1,252 @@
+package bench;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class BenchmarkRunner {
+
+	/**
+	 * Untimed preparation performed before each iteration of a workload.
+	 */
+	public interface Setup {
+		void run() throws Exception;
+	}
+
+	/**
+	 * Timed body of a benchmark.
+	 */
+	public interface Workload {
+
+		/**
+		 * Perform one iteration of the benchmark.
+		 * 
+		 * @return number of units (operations, edges, bytes) processed
+		 */
+		long run() throws Exception;
+	}
+
+	// Number of untimed iterations performed before measurement
+	private final int warmupIterations;
+	// Number of timed iterations
+	private final int measuredIterations;
+	// Results of all benchmarks run so far
+	private final List<Result> results;
+	// Allocation counter of the current thread, or null if unsupported
+	private final com.sun.management.ThreadMXBean threads;
+
+	/**
+	 * Creates runner performing the given number of warmup and measured iterations
+	 * of each benchmark.
+	 * 
+	 * @param warmupIterations
+	 *            number of untimed iterations
+	 * @param measuredIterations
+	 *            number of timed iterations
+	 */
+	public BenchmarkRunner(int warmupIterations, int measuredIterations) {
+		this.warmupIterations = warmupIterations;
+		this.measuredIterations = measuredIterations;
+		results = new ArrayList<>();
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean
+				&& ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+			threads = (com.sun.management.ThreadMXBean) bean;
+			threads.setThreadAllocatedMemoryEnabled(true);
+		} else {
+			threads = null;
+		}
+	}
+
+	/**
+	 * Run the given workload, performing the given setup before each iteration,
+	 * and print its result.
+	 * 
+	 * @param name
+	 *            name of benchmark
+	 * @param params
+	 *            description of benchmark parameters (shape, size)
+	 * @param unit
+	 *            name of units returned by workload
+	 * @param setup
+	 *            untimed preparation, may be null
+	 * @param workload
+	 *            timed body
+	 * @return result of benchmark
+	 */
+	public Result run(String name, String params, String unit, Setup setup, Workload workload) {
+		try {
+			for (int i = 0; i < warmupIterations; i++) {
+				if (setup != null) {
+					setup.run();
+				}
+				workload.run();
+			}
+			long[] nanos = new long[measuredIterations];
+			double totalUnits = 0;
+			long totalBytes = 0;
+			for (int i = 0; i < measuredIterations; i++) {
+				if (setup != null) {
+					setup.run();
+				}
+				long bytesBefore = allocatedBytes();
+				long start = System.nanoTime();
+				totalUnits += workload.run();
+				nanos[i] = System.nanoTime() - start;
+				totalBytes += allocatedBytes() - bytesBefore;
+			}
+			Result result = new Result(name, params, unit, nanos, totalUnits, threads == null ? -1 : totalBytes);
+			results.add(result);
+			System.out.println(result);
+			return result;
+		} catch (Exception e) {
+			throw new IllegalStateException("Benchmark " + name + " [" + params + "] failed", e);
+		}
+	}
+
+	/**
+	 * Report the given result again in different units, where each measured
+	 * iteration processed the given quantity of those units. Used to express a
+	 * single measurement both as, for example, edges per second and megabytes per
+	 * second.
+	 * 
+	 * @param result
+	 *            measured result
+	 * @param unit
+	 *            name of new unit
+	 * @param unitsPerIteration
+	 *            quantity of new unit processed by each iteration
+	 * @return result expressed in new unit
+	 */
+	public Result derive(Result result, String unit, double unitsPerIteration) {
+		Result derived = new Result(result.name, result.params, unit, result.nanos,
+				unitsPerIteration * result.nanos.length, result.allocatedBytes);
+		results.add(derived);
+		System.out.println(derived);
+		return derived;
+	}
+
+	/**
+	 * Write all results gathered so far to the given file as comma-separated
+	 * values, one benchmark per line.
+	 * 
+	 * @param fileName
+	 *            name of file to be written
+	 * @throws IOException
+	 */
+	public void writeCsv(String fileName) throws IOException {
+		try (BufferedWriter bw = new BufferedWriter(new FileWriter(fileName))) {
+			bw.write("benchmark,params,unit,units_per_second,ns_per_unit,p50_ms,p90_ms,p99_ms,alloc_bytes_per_unit");
+			bw.newLine();
+			for (Result result : results) {
+				bw.write(result.toCsv());
+				bw.newLine();
+			}
+		}
+	}
+
+	private long allocatedBytes() {
+		return threads == null ? 0 : threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * Run the given task on a thread with a large stack, allowing recursive
+	 * traversals of graphs with millions of vertices, and wait for it to finish.
+	 * 
+	 * @param task
+	 *            task to be run
+	 * @throws InterruptedException
+	 */
+	public static void runWithLargeStack(Runnable task) throws InterruptedException {
+		Thread thread = new Thread(null, task, "benchmark", 1L << 30);
+		thread.start();
+		thread.join();
+	}
+
+	/**
+	 * Measurements of a single benchmark.
+	 */
+	public static class Result {
+
+		private final String name;
+		private final String params;
+		private final String unit;
+		// Duration of each measured iteration, sorted ascending
+		private final long[] nanos;
+		// Units processed over all measured iterations
+		private final double units;
+		// Bytes allocated over all measured iterations, negative if unknown
+		private final long allocatedBytes;
+
+		Result(String name, String params, String unit, long[] nanos, double units, long allocatedBytes) {
+			this.name = name;
+			this.params = params;
+			this.unit = unit;
+			this.nanos = nanos.clone();
+			Arrays.sort(this.nanos);
+			this.units = units;
+			this.allocatedBytes = allocatedBytes;
+		}
+
+		public String name() {
+			return name;
+		}
+
+		public String params() {
+			return params;
+		}
+
+		/**
+		 * Returns the mean number of units processed per second.
+		 * 
+		 * @return throughput in units per second
+		 */
+		public double unitsPerSecond() {
+			long total = 0;
+			for (long n : nanos) {
+				total += n;
+			}
+			return total == 0 ? 0 : units / (total / 1e9);
+		}
+
+		/**
+		 * Returns the duration of an iteration at the given quantile.
+		 * 
+		 * @param quantile
+		 *            fraction of iterations, between 0 and 1
+		 * @return duration in milliseconds
+		 */
+		public double iterationMillis(double quantile) {
+			int index = (int) Math.ceil(quantile * nanos.length) - 1;
+			return nanos[Math.max(0, Math.min(index, nanos.length - 1))] / 1e6;
+		}
+
+		/**
+		 * Returns the number of bytes allocated per unit processed.
+		 * 
+		 * @return bytes allocated per unit, or NaN if unknown
+		 */
+		public double allocatedBytesPerUnit() {
+			return allocatedBytes < 0 || units == 0 ? Double.NaN : allocatedBytes / units;
+		}
+
+		String toCsv() {
+			double perSecond = unitsPerSecond();
+			return String.format("%s,%s,%s,%.1f,%.1f,%.3f,%.3f,%.3f,%.1f", name, params, unit, perSecond,
+					perSecond == 0 ? 0 : 1e9 / perSecond, iterationMillis(0.5), iterationMillis(0.9),
+					iterationMillis(0.99), allocatedBytesPerUnit());
+		}
+
+		@Override
+		public String toString() {
+			double perSecond = unitsPerSecond();
+			return String.format("%-24s %-28s %14.1f %s/s %10.1f ns/%s  p50 %9.3f ms  p99 %9.3f ms  alloc %8.1f B/%s",
+					name, params, perSecond, unit, perSecond == 0 ? 0 : 1e9 / perSecond, unit, iterationMillis(0.5),
+					iterationMillis(0.99), allocatedBytesPerUnit(), unit);
+		}
+	}
+}
@@ -0,0 +1,288 @@
+package bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import adts.ConcurrentGraph;
+import adts.Edge;
+import adts.Graph;
+import adts.UndirectedGraph;
+import adts.Vertex;
+
+/**
+ * Multi-threaded stress check and throughput benchmark of ConcurrentGraph.
+ *
+ * The stress check runs writer threads inserting and removing vertices and
+ * edges against reader threads iterating snapshots and checking invariants of
+ * the graph under the read lock. It exits with status 1 if any reader observes
+ * an inconsistent graph or any thread fails.
+ *
+ * The throughput benchmark runs a mix of getEdge, outDegree and edge insertion
+ * and removal against the unsynchronized UndirectedGraph on one thread, and
+ * against ConcurrentGraph on increasing numbers of threads.
+ *
+ * Options (all optional):
+ *
+ * --stressSeconds 5 duration of stress check, 0 to skip it
+ *
+ * --size 10000 vertices of graphs under test
+ *
+ * --threads 1,2,4,8 thread counts of throughput benchmark
+ *
+ * --writePercent 10 percentage of operations modifying the graph
+ *
+ * --warmup 2 --iterations 5 untimed and timed iterations
+ *
+ * --csv file write results as comma-separated values
+ */
+public class ConcurrentBenchmark {
+
+	// Operations performed by each iteration of the throughput benchmark
+	private static final int OPERATIONS = 1000000;
+	// Mean degree of graphs under test
+	private static final int DEGREE = 4;
+
+	private final BenchmarkRunner runner;
+
+	public ConcurrentBenchmark(BenchmarkRunner runner) {
+		this.runner = runner;
+	}
+
+	public static void main(String[] args) throws Exception {
+		BenchmarkOptions options = new BenchmarkOptions(args);
+		BenchmarkRunner runner = new BenchmarkRunner(options.getInt("warmup", 2), options.getInt("iterations", 5));
+		int size = options.getInt("size", 10000);
+		ConcurrentBenchmark benchmark = new ConcurrentBenchmark(runner);
+		int stressSeconds = options.getInt("stressSeconds", 5);
+		if (stressSeconds > 0) {
+			long failures = benchmark.stress(size, stressSeconds);
+			System.out.println("stress " + (failures == 0 ? "passed" : "FAILED with " + failures + " errors"));
+			if (failures > 0) {
+				System.exit(1);
+			}
+		}
+		benchmark.runThroughput(GraphShape.random(size, DEGREE, size), options.getInts("threads", "1,2,4,8"),
+				options.getInt("writePercent", 10));
+		String csv = options.get("csv", null);
+		if (csv != null) {
+			runner.writeCsv(csv);
+		}
+	}
+
+	/**
+	 * Run writers and readers concurrently for the given number of seconds,
+	 * returning the number of inconsistencies and failures observed.
+	 *
+	 * @param size
+	 *            initial number of vertices
+	 * @param seconds
+	 *            duration of check
+	 * @return number of errors observed
+	 */
+	public long stress(int size, int seconds) throws InterruptedException {
+		// Wrapped graph, accessed directly only within read and write
+		UndirectedGraph<Integer, Integer> backing = new UndirectedGraph<>();
+		ConcurrentGraph<Integer, Integer> graph = new ConcurrentGraph<>(backing);
+		build(graph, GraphShape.random(size, DEGREE, size));
+		int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+		int writers = threads / 2;
+		AtomicBoolean stop = new AtomicBoolean();
+		AtomicLong errors = new AtomicLong();
+		AtomicLong reads = new AtomicLong();
+		AtomicLong writes = new AtomicLong();
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		for (int t = 0; t < threads; t++) {
+			Random random = new Random(t);
+			boolean writer = t < writers;
+			pool.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						while (!stop.get()) {
+							if (writer) {
+								mutate(graph, backing, random);
+								writes.incrementAndGet();
+							} else {
+								errors.addAndGet(check(graph, backing));
+								reads.incrementAndGet();
+							}
+						}
+					} catch (RuntimeException e) {
+						e.printStackTrace();
+						errors.incrementAndGet();
+					}
+				}
+			});
+		}
+		Thread.sleep(TimeUnit.SECONDS.toMillis(seconds));
+		stop.set(true);
+		pool.shutdown();
+		pool.awaitTermination(1, TimeUnit.MINUTES);
+		System.out.println("stress threads=" + threads + " writes=" + writes.get() + " reads=" + reads.get()
+				+ " final n=" + graph.numVertices() + " m=" + graph.numEdges());
+		return errors.get() + check(graph, backing);
+	}
+
+	/**
+	 * Apply one random modification to the graph: insert or remove a vertex or an
+	 * edge.
+	 */
+	private static void mutate(ConcurrentGraph<Integer, Integer> graph, UndirectedGraph<Integer, Integer> backing,
+			Random random) {
+		int choice = random.nextInt(10);
+		graph.write(g -> {
+			int n = g.numVertices();
+			List<Vertex<Integer, Integer>> vertices = backing.vertices();
+			if (choice == 0 || n < 2) {
+				g.insertVertex(random.nextInt());
+			} else if (choice == 1) {
+				g.removeVertex(vertices.get(random.nextInt(n)));
+			} else if (choice < 6) {
+				g.insertEdge(vertices.get(random.nextInt(n)), vertices.get(random.nextInt(n)), random.nextInt());
+			} else {
+				Vertex<Integer, Integer> vertex = vertices.get(random.nextInt(n));
+				if (g.outDegree(vertex) > 0) {
+					g.removeEdge(g.outgoingEdges(vertex).iterator().next());
+				}
+			}
+			return null;
+		});
+	}
+
+	/**
+	 * Returns the number of inconsistencies between snapshots and counts of the
+	 * graph, and between its vertices and edges as seen under the read lock.
+	 */
+	private static long check(ConcurrentGraph<Integer, Integer> graph, UndirectedGraph<Integer, Integer> backing) {
+		long errors = 0;
+		// Snapshots must be internally consistent whatever writers do meanwhile
+		List<Edge<Integer, Integer>> edges = graph.edges();
+		for (Edge<Integer, Integer> edge : edges) {
+			if (edge == null) {
+				errors++;
+			}
+		}
+		errors += graph.read(g -> {
+			long found = 0;
+			long degrees = 0;
+			int count = 0;
+			for (Vertex<Integer, Integer> vertex : g.vertices()) {
+				degrees += g.outDegree(vertex);
+				count++;
+			}
+			if (count != g.numVertices()) {
+				found++;
+			}
+			count = 0;
+			for (Edge<Integer, Integer> edge : g.edges()) {
+				Vertex<Integer, Integer>[] ends = g.endVertices(edge);
+				for (Vertex<Integer, Integer> end : ends) {
+					int position = end.position();
+					if (position < 0 || position >= g.numVertices()
+							|| backing.vertices().get(position) != end) {
+						found++;
+					}
+				}
+				count++;
+			}
+			if (count != g.numEdges() || degrees != 2L * g.numEdges()) {
+				found++;
+			}
+			return found;
+		});
+		return errors;
+	}
+
+	/**
+	 * Benchmark the operation mix against the unsynchronized graph and against
+	 * the concurrent graph on each of the given thread counts.
+	 *
+	 * @param shape
+	 *            shape of graph under test
+	 * @param threadCounts
+	 *            numbers of threads sharing the concurrent graph
+	 * @param writePercent
+	 *            percentage of operations modifying the graph
+	 */
+	public void runThroughput(GraphShape shape, int[] threadCounts, int writePercent) throws InterruptedException {
+		String params = "n=" + shape.numVertices() + " m=" + shape.numEdges() + " writes=" + writePercent + "%";
+		UndirectedGraph<Integer, Integer> plain = new UndirectedGraph<>();
+		List<Vertex<Integer, Integer>> plainVertices = build(plain, shape);
+		runner.run("unsynchronized", params + " threads=1", "op", null,
+				() -> mix(plain, plainVertices, new Random(1), OPERATIONS, writePercent));
+
+		ConcurrentGraph<Integer, Integer> concurrent = new ConcurrentGraph<>();
+		List<Vertex<Integer, Integer>> concurrentVertices = build(concurrent, shape);
+		for (int threads : threadCounts) {
+			ExecutorService pool = Executors.newFixedThreadPool(threads);
+			runner.run("concurrent", params + " threads=" + threads, "op", null, () -> {
+				List<Future<Long>> results = new ArrayList<>();
+				for (int t = 0; t < threads; t++) {
+					Random random = new Random(t);
+					results.add(pool.submit(() -> mix(concurrent, concurrentVertices, random, OPERATIONS / threads,
+							writePercent)));
+				}
+				long operations = 0;
+				for (Future<Long> result : results) {
+					try {
+						operations += result.get();
+					} catch (Exception e) {
+						throw new IllegalStateException(e);
+					}
+				}
+				return operations;
+			});
+			pool.shutdown();
+			pool.awaitTermination(1, TimeUnit.MINUTES);
+		}
+	}
+
+	/**
+	 * Performs the given number of operations on the graph, of which the given
+	 * percentage insert an edge and remove it again; the rest look up an edge or
+	 * the degree of a vertex. The vertex set is left unchanged.
+	 */
+	private static long mix(Graph<Integer, Integer> graph, List<Vertex<Integer, Integer>> vertices, Random random,
+			int operations, int writePercent) {
+		int n = vertices.size();
+		Edge<Integer, Integer> inserted = null;
+		long checksum = 0;
+		for (int i = 0; i < operations; i++) {
+			Vertex<Integer, Integer> u = vertices.get(random.nextInt(n));
+			if (random.nextInt(100) < writePercent) {
+				if (inserted == null) {
+					inserted = graph.insertEdge(u, vertices.get(random.nextInt(n)), i);
+				} else {
+					graph.removeEdge(inserted);
+					inserted = null;
+				}
+			} else if ((i & 1) == 0) {
+				checksum += graph.outDegree(u);
+			} else if (graph.getEdge(u, vertices.get(random.nextInt(n))) != null) {
+				checksum++;
+			}
+		}
+		if (inserted != null) {
+			graph.removeEdge(inserted);
+		}
+		return checksum >= 0 ? operations : 0;
+	}
+
+	private static List<Vertex<Integer, Integer>> build(Graph<Integer, Integer> graph, GraphShape shape) {
+		List<Vertex<Integer, Integer>> vertices = new ArrayList<>(shape.numVertices());
+		for (int i = 0; i < shape.numVertices(); i++) {
+			vertices.add(graph.insertVertex(i));
+		}
+		for (int e = 0; e < shape.numEdges(); e++) {
+			graph.insertEdge(vertices.get(shape.origin(e)), vertices.get(shape.destination(e)), e);
+		}
+		return vertices;
+	}
+}
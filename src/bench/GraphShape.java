@@ -0,0 +1,215 @@
+package bench;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class GraphShape {
+
+	// Name of shape, used to label benchmark results
+	private final String name;
+	// X, Y coordinates of each vertex
+	private final double[] xs;
+	private final double[] ys;
+	// Indices of origin and destination vertices of each edge
+	private final int[] origins;
+	private final int[] destinations;
+
+	/**
+	 * Creates shape having the given vertex coordinates and edges.
+	 * 
+	 * @param name
+	 *            name of shape
+	 * @param xs
+	 *            x-coordinate of each vertex
+	 * @param ys
+	 *            y-coordinate of each vertex
+	 * @param origins
+	 *            index of origin vertex of each edge
+	 * @param destinations
+	 *            index of destination vertex of each edge
+	 */
+	public GraphShape(String name, double[] xs, double[] ys, int[] origins, int[] destinations) {
+		this.name = name;
+		this.xs = xs;
+		this.ys = ys;
+		this.origins = origins;
+		this.destinations = destinations;
+	}
+
+	public String name() {
+		return name;
+	}
+
+	public int numVertices() {
+		return xs.length;
+	}
+
+	public int numEdges() {
+		return origins.length;
+	}
+
+	public double x(int vertex) {
+		return xs[vertex];
+	}
+
+	public double y(int vertex) {
+		return ys[vertex];
+	}
+
+	public int origin(int edge) {
+		return origins[edge];
+	}
+
+	public int destination(int edge) {
+		return destinations[edge];
+	}
+
+	/**
+	 * Returns shape read from a graph file in the format written by
+	 * GraphModel.saveGraphToFile.
+	 * 
+	 * @param file
+	 *            graph file to be read
+	 * @return shape of graph stored in file
+	 * @throws IOException
+	 */
+	public static GraphShape load(File file) throws IOException {
+		List<double[]> vertices = new ArrayList<>();
+		List<int[]> edges = new ArrayList<>();
+		int stage = 0;
+		try (BufferedReader br = new BufferedReader(new FileReader(file))) {
+			for (String line; (line = br.readLine()) != null;) {
+				if (line.equals("")) {
+					stage++;
+					continue;
+				}
+				String[] components = line.split(" ");
+				if (stage == 0) {
+					vertices.add(new double[] { Double.parseDouble(components[1]), Double.parseDouble(components[2]) });
+				} else {
+					edges.add(new int[] { (int) Double.parseDouble(components[1]),
+							(int) Double.parseDouble(components[2]) });
+				}
+			}
+		} catch (NumberFormatException e) {
+			throw new IOException("Error reading file " + file.getName());
+		}
+		double[] xs = new double[vertices.size()];
+		double[] ys = new double[vertices.size()];
+		for (int i = 0; i < xs.length; i++) {
+			xs[i] = vertices.get(i)[0];
+			ys[i] = vertices.get(i)[1];
+		}
+		int[] origins = new int[edges.size()];
+		int[] destinations = new int[edges.size()];
+		for (int i = 0; i < origins.length; i++) {
+			origins[i] = edges.get(i)[0];
+			destinations[i] = edges.get(i)[1];
+		}
+		String name = file.getName().replaceFirst("\\.txt$", "");
+		return new GraphShape(name, xs, ys, origins, destinations);
+	}
+
+	/**
+	 * Returns shape made of disjoint copies of this shape laid side by side, having
+	 * exactly the given number of vertices. Edges of the final, partial copy whose
+	 * endpoints fall outside the vertex count are omitted.
+	 * 
+	 * @param numVertices
+	 *            number of vertices of tiled shape
+	 * @return tiled shape
+	 */
+	public GraphShape tile(int numVertices) {
+		int n = xs.length;
+		double width = 0;
+		for (double x : xs) {
+			width = Math.max(width, x);
+		}
+		width += 100;
+		int copies = (numVertices + n - 1) / n;
+		double[] tiledXs = new double[numVertices];
+		double[] tiledYs = new double[numVertices];
+		for (int i = 0; i < numVertices; i++) {
+			tiledXs[i] = xs[i % n] + (i / n) * width;
+			tiledYs[i] = ys[i % n];
+		}
+		int[] tiledOrigins = new int[origins.length * copies];
+		int[] tiledDestinations = new int[origins.length * copies];
+		int m = 0;
+		for (int copy = 0; copy < copies; copy++) {
+			for (int e = 0; e < origins.length; e++) {
+				int origin = copy * n + origins[e];
+				int destination = copy * n + destinations[e];
+				if (origin < numVertices && destination < numVertices) {
+					tiledOrigins[m] = origin;
+					tiledDestinations[m] = destination;
+					m++;
+				}
+			}
+		}
+		return new GraphShape(name, tiledXs, tiledYs, java.util.Arrays.copyOf(tiledOrigins, m),
+				java.util.Arrays.copyOf(tiledDestinations, m));
+	}
+
+	/**
+	 * Returns shape of a random graph with the given number of vertices, placed
+	 * uniformly at random, and the given mean degree. Self-loops are excluded.
+	 * 
+	 * @param numVertices
+	 *            number of vertices
+	 * @param meanDegree
+	 *            mean number of edges incident on each vertex
+	 * @param seed
+	 *            seed of random number generator
+	 * @return shape of random graph
+	 */
+	public static GraphShape random(int numVertices, int meanDegree, long seed) {
+		Random random = new Random(seed);
+		double side = Math.sqrt(numVertices) * 100;
+		double[] xs = new double[numVertices];
+		double[] ys = new double[numVertices];
+		for (int i = 0; i < numVertices; i++) {
+			xs[i] = Math.floor(random.nextDouble() * side);
+			ys[i] = Math.floor(random.nextDouble() * side);
+		}
+		int m = numVertices < 2 ? 0 : (int) ((long) numVertices * meanDegree / 2);
+		int[] origins = new int[m];
+		int[] destinations = new int[m];
+		for (int e = 0; e < m; e++) {
+			origins[e] = random.nextInt(numVertices);
+			do {
+				destinations[e] = random.nextInt(numVertices);
+			} while (destinations[e] == origins[e]);
+		}
+		return new GraphShape("random", xs, ys, origins, destinations);
+	}
+
+	/**
+	 * Write this shape to the given file in the format read by
+	 * GraphModel.loadGraphFromFile.
+	 * 
+	 * @param file
+	 *            file to be written
+	 * @throws IOException
+	 */
+	public void write(File file) throws IOException {
+		try (BufferedWriter bw = new BufferedWriter(new FileWriter(file), 1 << 16)) {
+			for (int i = 0; i < xs.length; i++) {
+				bw.write("v" + i + " " + xs[i] + " " + ys[i]);
+				bw.newLine();
+			}
+			bw.newLine();
+			for (int e = 0; e < origins.length; e++) {
+				bw.write("NONE " + origins[e] + " " + destinations[e]);
+				bw.newLine();
+			}
+		}
+	}
+}
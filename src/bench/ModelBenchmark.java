@@ -0,0 +1,284 @@
+package bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import adts.CompactGraph;
+import gui.GraphGenerator;
+import gui.GraphModel;
+
+/**
+ * Benchmarks of GraphModel persistence and bulk operations over generated
+ * graph files of increasing size.
+ * 
+ * Options (all optional):
+ * 
+ * --sizes 1000,10000,100000 vertices of graphs loaded, saved and aligned
+ * 
+ * --completeSizes 250,500,1000,2000 vertices of graphs made complete, whose
+ * triangles are then counted
+ * 
+ * --triangleSizes 10000,100000,1000000 vertices of graphs of mean degree 10
+ * whose triangles are counted
+ * 
+ * --sequenceSizes 1000,10000,100000 vertices connected in sequence
+ * 
+ * --geometricSizes 10000,100000 vertices connected by their Delaunay
+ * triangulation, minimum spanning tree and relative neighbourhood graph
+ * 
+ * --generateEdges 100000,1000000 approximate edges of generated graphs
+ * 
+ * --footprintSizes 10000,100000 vertices of graphs of mean degree 10 loaded
+ * into standard and compact models, whose heap footprints are reported
+ * 
+ * --degree 4 mean degree of generated graphs
+ * 
+ * --warmup 2 --iterations 5 untimed and timed iterations
+ * 
+ * --csv file write results as comma-separated values
+ */
+public class ModelBenchmark {
+
+	private final BenchmarkRunner runner;
+	// Directory holding generated graph files
+	private final File directory;
+
+	// Model under test, rebuilt by setup where a benchmark mutates it
+	private GraphModel model;
+
+	public ModelBenchmark(BenchmarkRunner runner, File directory) {
+		this.runner = runner;
+		this.directory = directory;
+	}
+
+	public static void main(String[] args) throws Exception {
+		BenchmarkOptions options = new BenchmarkOptions(args);
+		BenchmarkRunner runner = new BenchmarkRunner(options.getInt("warmup", 2), options.getInt("iterations", 5));
+		File directory = java.nio.file.Files.createTempDirectory("graph-bench").toFile();
+		directory.deleteOnExit();
+		ModelBenchmark benchmark = new ModelBenchmark(runner, directory);
+		int degree = options.getInt("degree", 4);
+		for (int size : options.getInts("sizes", "1000,10000,100000")) {
+			benchmark.runPersistence(GraphShape.random(size, degree, size));
+		}
+		for (int size : options.getInts("completeSizes", "250,500,1000,2000")) {
+			benchmark.runConnectAll(GraphShape.random(size, 0, size));
+		}
+		for (int size : options.getInts("triangleSizes", "10000,100000,1000000")) {
+			benchmark.runCountTriangles(GraphShape.random(size, 10, size));
+		}
+		for (int size : options.getInts("sequenceSizes", "1000,10000,100000")) {
+			benchmark.runConnectInSequence(GraphShape.random(size, 0, size));
+		}
+		for (int size : options.getInts("geometricSizes", "10000,100000")) {
+			benchmark.runConnectGeometric(GraphShape.random(size, 0, size));
+		}
+		for (int edges : options.getInts("generateEdges", "100000,1000000")) {
+			benchmark.runGenerate(edges);
+		}
+		for (int size : options.getInts("footprintSizes", "10000,100000")) {
+			benchmark.runFootprint(GraphShape.random(size, 10, size));
+		}
+		String csv = options.get("csv", null);
+		if (csv != null) {
+			runner.writeCsv(csv);
+		}
+	}
+
+	/**
+	 * Run load, save and grid alignment benchmarks against the given shape.
+	 * 
+	 * @param shape
+	 *            shape of graph under test
+	 * @throws IOException
+	 */
+	public void runPersistence(GraphShape shape) throws IOException {
+		File source = write(shape);
+		File target = new File(directory, "saved-" + shape.numVertices() + ".txt");
+		target.deleteOnExit();
+		String params = params(shape);
+
+		model = new GraphModel();
+		BenchmarkRunner.Result load = runner.run("loadGraphFromFile", params, "edge", null, () -> {
+			model.loadGraphFromFile(source);
+			return model.getEdges().size();
+		});
+		runner.derive(load, "MB", source.length() / 1e6);
+
+		BenchmarkRunner.Result save = runner.run("saveGraphToFile", params, "edge", null, () -> {
+			model.saveGraphToFile(target);
+			return model.getEdges().size();
+		});
+		runner.derive(save, "MB", target.length() / 1e6);
+
+		runner.run("alignVerticesToGrid", params, "vertex", () -> load(source), () -> {
+			model.alignVerticesToGrid();
+			return shape.numVertices();
+		});
+	}
+
+	/**
+	 * Run benchmark connecting every vertex of the given shape to every other,
+	 * then counting the triangles of the complete graph.
+	 * 
+	 * @param shape
+	 *            shape of graph under test, whose edges are ignored
+	 * @throws IOException
+	 */
+	public void runConnectAll(GraphShape shape) throws IOException {
+		File source = write(shape);
+		runner.run("connectAllVertices", params(shape), "edge", () -> load(source), () -> {
+			model.connectAllVertices();
+			return model.getEdges().size();
+		});
+		runner.run("countTriangles", params(shape) + " complete", "edge", null, () -> {
+			model.countTriangles();
+			return model.getEdges().size();
+		});
+	}
+
+	/**
+	 * Run benchmark counting the triangles and clustering coefficients of the
+	 * given shape.
+	 * 
+	 * @param shape
+	 *            shape of graph under test
+	 * @throws IOException
+	 */
+	public void runCountTriangles(GraphShape shape) throws IOException {
+		load(write(shape));
+		runner.run("countTriangles", params(shape), "edge", null, () -> {
+			model.countTriangles();
+			return model.getEdges().size();
+		});
+	}
+
+	/**
+	 * Run benchmark connecting the vertices of the given shape in sequence.
+	 * 
+	 * @param shape
+	 *            shape of graph under test, whose edges are ignored
+	 * @throws IOException
+	 */
+	public void runConnectInSequence(GraphShape shape) throws IOException {
+		File source = write(shape);
+		List<ArrayList<ArrayList<Double>>> coords = new ArrayList<>(1);
+		runner.run("connectVerticesInSequence", params(shape), "edge", () -> {
+			load(source);
+			coords.clear();
+			ArrayList<ArrayList<Double>> vertices = new ArrayList<>();
+			for (List<Double> c : model.getVertices().keySet()) {
+				vertices.add((ArrayList<Double>) c);
+			}
+			coords.add(vertices);
+		}, () -> {
+			model.connectVerticesInSequence(coords.get(0));
+			return model.getEdges().size();
+		});
+	}
+
+	/**
+	 * Run benchmarks connecting the vertices of the given shape by their Delaunay
+	 * triangulation, Euclidean minimum spanning tree and relative neighbourhood
+	 * graph.
+	 * 
+	 * @param shape
+	 *            shape of graph under test, whose edges are ignored
+	 * @throws IOException
+	 */
+	public void runConnectGeometric(GraphShape shape) throws IOException {
+		File source = write(shape);
+		runner.run("connectDelaunayTriangulation", params(shape), "vertex", () -> load(source), () -> {
+			model.connectDelaunayTriangulation();
+			return model.getVertices().size();
+		});
+		runner.run("connectMinimumSpanningTree", params(shape), "vertex", () -> load(source), () -> {
+			model.connectMinimumSpanningTree();
+			return model.getVertices().size();
+		});
+		runner.run("connectRelativeNeighbours", params(shape), "vertex", () -> load(source), () -> {
+			model.connectRelativeNeighbours();
+			return model.getVertices().size();
+		});
+	}
+
+	/**
+	 * Run benchmarks generating graphs of about the given number of edges of each
+	 * kind, streamed to a file, and G(n, p) graphs built in a compact graph and in
+	 * a model.
+	 * 
+	 * @param edges
+	 *            approximate number of edges of each graph
+	 * @throws IOException
+	 */
+	public void runGenerate(int edges) throws IOException {
+		// Graphs of mean degree 10, or as near as each kind allows
+		int n = Math.max(2, edges / 5);
+		int side = (int) Math.ceil(Math.sqrt(edges / 2.0));
+		GraphGenerator[] generators = { GraphGenerator.grid(side, side), GraphGenerator.gnp(n, 10.0 / (n - 1), n),
+				GraphGenerator.barabasiAlbert(n, 5, n),
+				GraphGenerator.randomGeometric(n, Math.sqrt(10 / Math.PI) * GraphGenerator.SPACING, n),
+				GraphGenerator.complete((int) Math.ceil(Math.sqrt(2.0 * edges))) };
+		File target = new File(directory, "generated-" + edges + ".txt");
+		target.deleteOnExit();
+		for (GraphGenerator generator : generators) {
+			BenchmarkRunner.Result write = runner.run("generate.write", generator.name(), "edge", null, () -> {
+				generator.write(target);
+				return generator.expectedEdges();
+			});
+			runner.derive(write, "MB", target.length() / 1e6);
+		}
+		GraphGenerator gnp = generators[1];
+		runner.run("generate.compactGraph", gnp.name(), "edge", null, () -> {
+			CompactGraph<String, String> graph = new CompactGraph<>();
+			gnp.addTo(graph);
+			return graph.numEdges();
+		});
+		runner.run("generate.model", gnp.name(), "edge", null, () -> {
+			model = new GraphModel();
+			gnp.addTo(model);
+			return model.getEdges().size();
+		});
+	}
+
+	/**
+	 * Run benchmarks loading the given shape into a standard and into a compact
+	 * model, reporting the heap space each model takes per vertex and per edge.
+	 * 
+	 * @param shape
+	 *            shape of graph under test
+	 * @throws IOException
+	 */
+	public void runFootprint(GraphShape shape) throws IOException {
+		File source = write(shape);
+		for (boolean compact : new boolean[] { false, true }) {
+			String params = params(shape) + (compact ? " compact" : "");
+			runner.run("loadGraphFromFile", params, "edge", () -> model = new GraphModel(compact), () -> {
+				model.loadGraphFromFile(source);
+				return model.getEdges().size();
+			});
+			System.out.println("footprint " + params + ": " + model.footprint());
+			model = null;
+		}
+	}
+
+	private void load(File source) throws IOException {
+		model = new GraphModel();
+		model.loadGraphFromFile(source);
+	}
+
+	private File write(GraphShape shape) throws IOException {
+		File file = new File(directory, shape.name() + "-" + shape.numVertices() + "-" + shape.numEdges() + ".txt");
+		file.deleteOnExit();
+		if (!file.exists()) {
+			shape.write(file);
+		}
+		return file;
+	}
+
+	private static String params(GraphShape shape) {
+		return shape.name() + " n=" + shape.numVertices() + " m=" + shape.numEdges();
+	}
+}
@@ -0,0 +1,165 @@
+package bench;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import gui.GraphController;
+import gui.GraphModel;
+import gui.GraphView;
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.stage.Stage;
+
+/**
+ * Benchmarks of GraphView rendering, run headless with the Monocle glass
+ * platform and the software renderer so that no display is required. The
+ * Monocle jar (openjfx-monocle) must be on the classpath.
+ * 
+ * Measures full redraws, drag updates (a vertex move followed by a redraw, as
+ * performed for each mouse drag event), group drag updates (a move of up to
+ * GROUP_SIZE selected vertices followed by a redraw), zooming and panning
+ * across levels of detail and PNG snapshot export over random graphs of
+ * increasing size.
+ * 
+ * Options (all optional):
+ * 
+ * --sizes 100,1000,10000 numbers of vertices
+ * 
+ * --degree 4 mean degree of generated graphs
+ * 
+ * --warmup 3 --iterations 10 untimed and timed iterations
+ * 
+ * --budget 0 maximum p99 full redraw time in milliseconds, exits with status
+ * 1 if exceeded; zero disables the check
+ * 
+ * --csv file write results as comma-separated values
+ */
+public class ViewBenchmark extends Application {
+
+	// Number of vertex moves performed by each iteration of the drag benchmark
+	private static final int DRAG_STEPS = 20;
+	// Greatest number of vertices moved together by the group drag benchmark
+	private static final int GROUP_SIZE = 10000;
+	// Number of frames zooming out, then in, and panning performed by each
+	// iteration of the zoom benchmark, and zoom factor of each frame
+	private static final int ZOOM_STEPS = 20;
+	private static final double ZOOM_FACTOR = 0.8;
+
+	public static void main(String[] args) {
+		// Select headless toolkit before JavaFX initialises
+		System.setProperty("glass.platform", "Monocle");
+		System.setProperty("monocle.platform", "Headless");
+		System.setProperty("prism.order", "sw");
+		System.setProperty("prism.text", "t2k");
+		System.setProperty("java.awt.headless", "true");
+		launch(args);
+	}
+
+	@Override
+	public void start(Stage stage) {
+		int status;
+		try {
+			status = runAll(stage, new BenchmarkOptions(getParameters().getRaw().toArray(new String[0])));
+		} catch (Exception e) {
+			e.printStackTrace();
+			status = 2;
+		}
+		Platform.exit();
+		System.exit(status);
+	}
+
+	/**
+	 * Run every benchmark for each configured graph size.
+	 * 
+	 * @param stage
+	 *            stage displaying view under test
+	 * @param options
+	 *            benchmark options
+	 * @return exit status, non-zero if the redraw budget was exceeded
+	 * @throws Exception
+	 */
+	private int runAll(Stage stage, BenchmarkOptions options) throws Exception {
+		BenchmarkRunner runner = new BenchmarkRunner(options.getInt("warmup", 3), options.getInt("iterations", 10));
+		int degree = options.getInt("degree", 4);
+		int budget = options.getInt("budget", 0);
+		File directory = java.nio.file.Files.createTempDirectory("view-bench").toFile();
+		directory.deleteOnExit();
+		int status = 0;
+
+		for (int size : options.getInts("sizes", "100,1000,10000")) {
+			GraphShape shape = GraphShape.random(size, degree, size);
+			String params = shape.name() + " n=" + shape.numVertices() + " m=" + shape.numEdges();
+			File source = new File(directory, "graph-" + size + ".txt");
+			source.deleteOnExit();
+			shape.write(source);
+
+			GraphModel model = new GraphModel();
+			model.loadGraphFromFile(source);
+			GraphView view = new GraphView(model);
+			new GraphController(model, view);
+			stage.setScene(view.getScene());
+			stage.show();
+
+			BenchmarkRunner.Result redraw = runner.run("drawGraph", params, "frame", null, () -> {
+				view.drawGraph();
+				return 1;
+			});
+			if (budget > 0 && redraw.iterationMillis(0.99) > budget) {
+				System.out.println("Full redraw p99 exceeds budget of " + budget + " ms for " + params);
+				status = 1;
+			}
+
+			// Vertex dragged back and forth along the x-axis
+			List<Double> dragged = new ArrayList<>(model.getVertices().keySet().iterator().next());
+			runner.run("dragUpdate", params, "move", null, () -> {
+				for (int step = 0; step < DRAG_STEPS; step++) {
+					double offset = step % 2 == 0 ? 1 : -1;
+					model.moveVertex(dragged.get(0), dragged.get(1), dragged.get(0) + offset, dragged.get(1));
+					dragged.set(0, dragged.get(0) + offset);
+					view.drawGraph();
+				}
+				return DRAG_STEPS;
+			});
+
+			// Selected vertices dragged back and forth together along the x-axis
+			double[] bounds = model.getBounds();
+			int[] group = model.getVertexIdsIn(bounds[0], bounds[1], bounds[2], bounds[3]);
+			int[] selected = Arrays.copyOf(group, Math.min(GROUP_SIZE, group.length));
+			runner.run("groupDrag", params + " selected=" + selected.length, "move", null, () -> {
+				for (int step = 0; step < DRAG_STEPS; step++) {
+					model.moveVertices(selected, step % 2 == 0 ? 1 : -1, 0);
+					view.drawGraph();
+				}
+				return DRAG_STEPS;
+			});
+
+			// Zoom out from the centre of the canvas, panning, then back in
+			runner.run("zoomPan", params, "frame", null, () -> {
+				for (int step = 0; step < ZOOM_STEPS; step++) {
+					view.zoom(ZOOM_FACTOR, 300, 300);
+					view.pan(step % 2 == 0 ? 10 : -10, 0);
+				}
+				for (int step = 0; step < ZOOM_STEPS; step++) {
+					view.zoom(1 / ZOOM_FACTOR, 300, 300);
+				}
+				view.getViewport().reset();
+				return 3 * ZOOM_STEPS;
+			});
+			view.drawGraph();
+
+			File image = new File(directory, "graph-" + size + ".png");
+			image.deleteOnExit();
+			runner.run("saveGraphAsImage", params, "image", null, () -> {
+				view.saveGraphAsImage(image);
+				return 1;
+			});
+		}
+		String csv = options.get("csv", null);
+		if (csv != null) {
+			runner.writeCsv(csv);
+		}
+		return status;
+	}
+}
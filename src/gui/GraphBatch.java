@@ -0,0 +1,363 @@
+package gui;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import adts.TriangleCount;
+import metrics.Metrics;
+import metrics.Timer;
+
+/**
+ * Command-line entry point processing graph files without a display. Each file
+ * is loaded into its own model and put through the requested operations, and a
+ * line reporting the time taken by each operation is printed as soon as the
+ * file is done. Files are processed concurrently on a fixed number of threads,
+ * so no more than that many graphs are held in memory at once.
+ *
+ * Nothing here touches JavaFX, so the batch mode runs on hosts without one:
+ *
+ * <pre>
+ * java -cp bin gui.GraphBatch [options] file...
+ * </pre>
+ *
+ * Vertices are identified by their order in the file, counting from 0.
+ */
+public class GraphBatch {
+
+	// Usage printed when the arguments are invalid
+	private static final String USAGE = "Usage: java gui.GraphBatch [options] file...\n"
+			+ "  --threads n       number of files processed at once (default: number of processors)\n"
+			+ "  --compact         hold edges compactly, without coordinates or an index of their own\n"
+			+ "  --align           align vertices to grid\n"
+			+ "  --nearest k       connect each vertex to its k nearest vertices\n"
+			+ "  --within r        connect each pair of vertices within distance r\n"
+			+ "  --connect kind    connect vertices along their delaunay triangulation, minimum\n"
+			+ "                    spanning tree (mst) or relative neighbourhood graph (rng)\n"
+			+ "  --stats           report numbers of vertices, edges and triangles, connectivity,\n"
+			+ "                    completeness and clustering coefficients\n"
+			+ "  --path a b        report shortest distance from vertex a to vertex b\n"
+			+ "  --footprint       report estimated bytes of heap taken per vertex and per edge\n"
+			+ "  --save            write each graph in the save format to the output directory\n"
+			+ "  --export format   write each graph as a png, svg or pdf image to the output directory\n"
+			+ "  --scale s         pixels per unit of png images (default: 1)\n"
+			+ "  --out dir         output directory, required by --save and --export\n"
+			+ "  --metrics         print the model metrics once all files are done";
+
+	// Hold edges of each model compactly if true
+	private boolean compact;
+	// Operations performed on each file, in order
+	private boolean align;
+	private int nearest;
+	private double within = -1;
+	private String connect;
+	private boolean stats;
+	private int pathOrigin = -1;
+	private int pathDest = -1;
+	private boolean footprint;
+	private boolean save;
+	private String exportFormat;
+	private double scale = 1;
+	// Directory to which saved graphs and images are written
+	private File outputDirectory;
+	// Number of files processed at once
+	private int threads = Runtime.getRuntime().availableProcessors();
+	// Print metrics report once all files are done if true
+	private boolean printMetrics;
+	// Files to be processed
+	private final List<File> files = new ArrayList<>();
+
+	public static void main(String[] args) throws InterruptedException {
+		// PNG export draws with Java 2D, which must not look for a display
+		System.setProperty("java.awt.headless", "true");
+		GraphBatch batch;
+		try {
+			batch = new GraphBatch(args);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			System.exit(2);
+			return;
+		}
+		System.exit(batch.run() ? 0 : 1);
+	}
+
+	/**
+	 * Creates batch from command line arguments.
+	 *
+	 * @param args
+	 *            options followed by the files to be processed
+	 * @throws IllegalArgumentException
+	 *             if the arguments are invalid
+	 */
+	public GraphBatch(String[] args) {
+		int i = 0;
+		for (; i < args.length && args[i].startsWith("--"); i++) {
+			String option = args[i];
+			switch (option) {
+			case "--compact":
+				compact = true;
+				break;
+			case "--align":
+				align = true;
+				break;
+			case "--stats":
+				stats = true;
+				break;
+			case "--footprint":
+				footprint = true;
+				break;
+			case "--save":
+				save = true;
+				break;
+			case "--metrics":
+				printMetrics = true;
+				break;
+			case "--path":
+				pathOrigin = parseInt(args, ++i, option);
+				pathDest = parseInt(args, ++i, option);
+				break;
+			case "--nearest":
+				nearest = parseInt(args, ++i, option);
+				if (nearest <= 0) {
+					throw new IllegalArgumentException("Number of nearest vertices must be positive: " + nearest);
+				}
+				break;
+			case "--within":
+				try {
+					within = Double.parseDouble(value(args, ++i, option));
+				} catch (NumberFormatException e) {
+					throw new IllegalArgumentException("Expected number after --within but found " + args[i]);
+				}
+				if (!(within >= 0)) {
+					throw new IllegalArgumentException("Distance must not be negative: " + within);
+				}
+				break;
+			case "--connect":
+				connect = value(args, ++i, option).toLowerCase();
+				if (!connect.equals("delaunay") && !connect.equals("mst") && !connect.equals("rng")) {
+					throw new IllegalArgumentException("Unknown connection kind: " + connect);
+				}
+				break;
+			case "--threads":
+				threads = parseInt(args, ++i, option);
+				if (threads <= 0) {
+					throw new IllegalArgumentException("Number of threads must be positive: " + threads);
+				}
+				break;
+			case "--export":
+				exportFormat = value(args, ++i, option).toLowerCase();
+				if (!exportFormat.equals("png") && !exportFormat.equals("svg") && !exportFormat.equals("pdf")) {
+					throw new IllegalArgumentException("Unknown export format: " + exportFormat);
+				}
+				break;
+			case "--scale":
+				try {
+					scale = Double.parseDouble(value(args, ++i, option));
+				} catch (NumberFormatException e) {
+					throw new IllegalArgumentException("Expected number after --scale but found " + args[i]);
+				}
+				break;
+			case "--out":
+				outputDirectory = new File(value(args, ++i, option));
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown option " + option);
+			}
+		}
+		for (; i < args.length; i++) {
+			files.add(new File(args[i]));
+		}
+		if (files.isEmpty()) {
+			throw new IllegalArgumentException("No files given");
+		}
+		if ((save || exportFormat != null) && outputDirectory == null) {
+			throw new IllegalArgumentException("--save and --export require --out");
+		}
+		if (outputDirectory != null && !outputDirectory.isDirectory()) {
+			throw new IllegalArgumentException("Not a directory: " + outputDirectory);
+		}
+	}
+
+	/**
+	 * Process all files, printing a line for each as it is done followed by a
+	 * summary.
+	 *
+	 * @return true if every file was processed successfully
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for files to be processed
+	 */
+	public boolean run() throws InterruptedException {
+		long start = System.nanoTime();
+		ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, files.size()));
+		CompletionService<String> results = new ExecutorCompletionService<>(pool);
+		for (File file : files) {
+			results.submit(() -> process(file));
+		}
+		int failed = 0;
+		try {
+			for (int i = 0; i < files.size(); i++) {
+				try {
+					System.out.println(results.take().get());
+				} catch (ExecutionException e) {
+					System.out.println(e.getCause().getMessage());
+					failed++;
+				}
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+		System.out.println(String.format("Processed %d files in %.1f ms on %d threads, %d failed", files.size(),
+				Timer.toMillis(System.nanoTime() - start), Math.min(threads, files.size()), failed));
+		if (printMetrics) {
+			System.out.println(Metrics.report());
+		}
+		return failed == 0;
+	}
+
+	/**
+	 * Perform the requested operations on the given file, returning a line
+	 * reporting their results and timings.
+	 *
+	 * @throws BatchException
+	 *             if an operation fails, its message reporting the failure
+	 */
+	private String process(File file) throws BatchException {
+		StringBuilder report = new StringBuilder(file.getPath()).append(':');
+		long fileStart = System.nanoTime();
+		try {
+			GraphModel model = new GraphModel(compact);
+			long start = System.nanoTime();
+			model.loadGraphFromFile(file);
+			start = timed(report, "load", start);
+			if (align) {
+				model.alignVerticesToGrid();
+				start = timed(report, "align", start);
+			}
+			if (nearest > 0) {
+				report.append(" nearestAdded=").append(model.connectNearestNeighbours(nearest));
+				start = timed(report, "nearest", start);
+			}
+			if (within >= 0) {
+				report.append(" withinAdded=").append(model.connectWithinDistance(within));
+				start = timed(report, "within", start);
+			}
+			if (connect != null) {
+				int added;
+				switch (connect) {
+				case "delaunay":
+					added = model.connectDelaunayTriangulation();
+					break;
+				case "mst":
+					added = model.connectMinimumSpanningTree();
+					break;
+				default:
+					added = model.connectRelativeNeighbours();
+				}
+				report.append(' ').append(connect).append("Added=").append(added);
+				start = timed(report, connect, start);
+			}
+			if (stats) {
+				report.append(" vertices=").append(model.getVertices().size());
+				report.append(" edges=").append(model.getEdges().size());
+				report.append(" directed=").append(model.isDirected());
+				report.append(" connected=").append(model.graphIsConnected());
+				report.append(" complete=").append(model.graphIsComplete());
+				TriangleCount triangles = model.countTriangles();
+				report.append(" triangles=").append(triangles.triangles());
+				report.append(String.format(" clustering=%.4f transitivity=%.4f", triangles.averageClustering(),
+						triangles.globalClustering()));
+				start = timed(report, "stats", start);
+			}
+			if (pathOrigin >= 0) {
+				double distance = model.shortestDistance(pathOrigin, pathDest);
+				report.append(" distance(").append(pathOrigin).append(',').append(pathDest).append(")=")
+						.append(distance);
+				start = timed(report, "path", start);
+			}
+			if (footprint) {
+				ModelFootprint measured = model.footprint();
+				report.append(String.format(" bytesPerVertex=%.1f bytesPerEdge=%.1f heapMB=%.1f",
+						measured.bytesPerVertex(), measured.bytesPerEdge(), measured.totalBytes() / 1e6));
+				start = timed(report, "footprint", start);
+			}
+			String name = baseName(file);
+			if (save) {
+				model.saveGraphToFile(new File(outputDirectory, file.getName()));
+				start = timed(report, "save", start);
+			}
+			if (exportFormat != null) {
+				File image = new File(outputDirectory, name + "." + exportFormat);
+				switch (exportFormat) {
+				case "png":
+					new ImageExporter(model).exportPng(image, scale);
+					break;
+				case "svg":
+					new VectorExporter(model).exportSvg(image);
+					break;
+				default:
+					new VectorExporter(model).exportPdf(image);
+				}
+				start = timed(report, "export", start);
+			}
+		} catch (IOException | RuntimeException | StackOverflowError | OutOfMemoryError e) {
+			String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+			throw new BatchException(report + " FAILED " + message);
+		}
+		return report.append(String.format(" total %.1f ms", Timer.toMillis(System.nanoTime() - fileStart)))
+				.toString();
+	}
+
+	/**
+	 * Append the time elapsed since the given start to the given report, returning
+	 * the current time.
+	 */
+	private static long timed(StringBuilder report, String operation, long start) {
+		long end = System.nanoTime();
+		report.append(String.format(" %s %.1f ms", operation, Timer.toMillis(end - start)));
+		return end;
+	}
+
+	/**
+	 * Returns the name of the given file without its extension.
+	 */
+	private static String baseName(File file) {
+		String name = file.getName();
+		int dot = name.lastIndexOf('.');
+		return dot > 0 ? name.substring(0, dot) : name;
+	}
+
+	private static String value(String[] args, int index, String option) {
+		if (index >= args.length) {
+			throw new IllegalArgumentException("Expected value after " + option);
+		}
+		return args[index];
+	}
+
+	private static int parseInt(String[] args, int index, String option) {
+		String value = value(args, index, option);
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Expected integer after " + option + " but found " + value);
+		}
+	}
+
+	/**
+	 * Failure to process a file, its message reporting the failure.
+	 */
+	private static class BatchException extends Exception {
+
+		private static final long serialVersionUID = 1L;
+
+		BatchException(String message) {
+			super(message);
+		}
+	}
+}
@@ -3,24 +3,25 @@ package gui;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.IntStream;
 
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import javafx.scene.Node;
-import javafx.scene.canvas.Canvas;
 import javafx.scene.control.ContextMenu;
 import javafx.scene.control.MenuItem;
 import javafx.scene.control.RadioMenuItem;
 import javafx.scene.control.SeparatorMenuItem;
 import javafx.scene.input.MouseButton;
 import javafx.scene.input.MouseEvent;
-import javafx.scene.shape.Circle;
-import javafx.scene.shape.Line;
+import javafx.scene.input.ScrollEvent;
 import javafx.stage.Stage;
 import javafx.stage.WindowEvent;
+import metrics.Log;
 
 public class GraphController {
 
@@ -30,10 +31,10 @@ public class GraphController {
 	private GraphView view;
 	// True if mouse click is first of two
 	private boolean firstClick = false;
-	// x, y coordinates of circle of origin vertex for new edge
-	private List<Double> originCoords;
-	// Last x, y coordinates of vertex being dragged
-	private List<Double> lastCoords;
+	// Id of origin vertex for new edge
+	private int originVertex = -1;
+	// Id of vertex being dragged, or -1 if none is
+	private int draggedVertex = -1;
 	// True if canvas context menu is being shown
 	private boolean canvasContextShown = false;
 	// True if vertex context is being shown
@@ -47,230 +48,401 @@ public class GraphController {
 	private File currentFile = null;
 	// Stage of the graph gui
 	private Stage stage;
+	// Responses to mouse events on vertices, edges and the canvas, to which
+	// the mouse dispatcher routes each event
+	private VertexGestures vertexGestures;
+	private EdgeGestures edgeGestures;
+	private CanvasGestures canvasGestures;
+
+	// Change in natural logarithm of scale per pixel scrolled
+	private static final double ZOOM_RATE = 0.0025;
 
 	public GraphController(GraphModel model, GraphView view) {
 		this.model = model;
 		this.view = view;
 
-		originCoords = new ArrayList<>();
-		lastCoords = new ArrayList<>();
+		// Mark graph as modified whenever the model changes
+		model.addGraphListener(new GraphModel.GraphListener() {
+			@Override
+			public void graphChanged() {
+				view.modified = true;
+			}
+		});
 
 		view.addContextMenus(createCanvasContextMenu(), createVertexContextMenu(), createEdgeContextMenu());
-		view.addCanvasGestures(new CanvasGestures());
-		view.addGraphGestures(new VertexGestures(), new EdgeGestures());
-		view.drawGraph(null);
+		vertexGestures = new VertexGestures();
+		edgeGestures = new EdgeGestures();
+		canvasGestures = new CanvasGestures();
+		view.addMouseDispatcher(new MouseDispatcher());
+		view.drawGraph();
 	}
 
 	/**
-	 * Used to contain and assign mouse click, release and drag event handlers to
-	 * graph vertices.
+	 * Receives every mouse event of the graph area through one set of handlers on
+	 * the canvas, the vertex and edge nodes drawn over it being transparent to
+	 * the mouse. The vertex under the pointer when a button is pressed is found
+	 * through the model's vertex index, and the press and the drag and release
+	 * that follow are routed to the vertex gestures if there is one and to the
+	 * canvas gestures otherwise, so input does not depend on how the graph is
+	 * drawn.
 	 */
-	public class VertexGestures {
+	public class MouseDispatcher {
 
-		double orgSceneX, orgSceneY;
-		double orgTranslateX, orgTranslateY;
-		boolean dragged = false;
+		// Id of vertex under pointer when button was last pressed, or -1 if there
+		// was none
+		int pressedVertex = -1;
 
-		public void addGestures(Node node) {
-			node.setOnMousePressed(vertexOnMousePressedEventHandler);
-			node.setOnMouseDragged(vertexOnMouseDraggedEventHandler);
-			node.setOnMouseClicked(vertexOnMouseClickEventHandler);
+		public void addHandlers(Node node) {
+			node.setOnMousePressed(onMousePressedEventHandler);
+			node.setOnMouseDragged(onMouseDraggedEventHandler);
+			node.setOnMouseReleased(onMouseReleasedEventHandler);
 		}
 
-		EventHandler<MouseEvent> vertexOnMouseClickEventHandler = new EventHandler<MouseEvent>() {
+		public void addZoomHandler(Node node) {
+			node.setOnScroll(canvasGestures.canvasOnScrollEventHandler);
+		}
+
+		EventHandler<MouseEvent> onMousePressedEventHandler = new EventHandler<MouseEvent>() {
 
 			@Override
 			public void handle(MouseEvent event) {
-
-				if (event.getSource() instanceof Circle && !dragged) {
-					Circle c = ((Circle) (event.getSource()));
-					if (event.getButton().equals(MouseButton.PRIMARY)) {
-						if (canvasContextShown || vertexContextShown || edgeContextShown) {
-							hideContextMenus();
-							return;
-						}
-
-						double centreX = c.getCenterX();
-						double centreY = c.getCenterY();
-
-						System.out.println(centreX + ", " + centreY);
-
-						List<Double> destCoords = new ArrayList<>();
-						destCoords.add(centreX);
-						destCoords.add(centreY);
-
-						// Connect last added vertex to selected vertex if draw mode is enabled
-						if (drawMode) {
-							List<Double> lastAdded = model.getLastAddedCoords();
-							if (lastAdded != null) {
-								firstClick = false;
-								model.addEdge(lastAdded, destCoords, "");
-							}
-							view.drawGraph(null);
-							model.clearLastAdded();
-							return;
-						}
-						
-						if (firstClick) {
-							// Connect selected vertex to previously selected vertex
-							firstClick = false;
-							model.addEdge(originCoords, destCoords, "");
-							view.modified = true;
-							view.drawGraph(null);
-						} else {
-							// Set initially selected vertex
-							firstClick = true;
-							originCoords.clear();
-							originCoords.add(centreX);
-							originCoords.add(centreY);
-						}
-						view.enableVertexHighlight(c);
-					} else if (event.getButton().equals(MouseButton.SECONDARY)) {
-						view.showVertexContext(event.getScreenX(), event.getScreenY());
-						view.setContextVertex(c);
-					}
-				} else if (dragged) {
-					dragged = false;
+				pressedVertex = view.pickVertex(view.getViewport().toModelX(event.getX()),
+						view.getViewport().toModelY(event.getY()));
+				if (pressedVertex >= 0) {
+					vertexGestures.pressed(event, pressedVertex);
+				} else {
+					canvasGestures.pressed(event);
 				}
 			}
 		};
 
-		EventHandler<MouseEvent> vertexOnMousePressedEventHandler = new EventHandler<MouseEvent>() {
+		EventHandler<MouseEvent> onMouseDraggedEventHandler = new EventHandler<MouseEvent>() {
 
 			@Override
 			public void handle(MouseEvent event) {
-
-				if (event.getSource() instanceof Circle && event.getButton().equals(MouseButton.PRIMARY)) {
-					if (canvasContextShown || vertexContextShown || edgeContextShown) {
-						hideContextMenus();
-						return;
-					}
-
-					orgSceneX = event.getSceneX();
-					orgSceneY = event.getSceneY();
-
-					Circle c = ((Circle) (event.getSource()));
-
-					orgTranslateX = c.getCenterX();
-					orgTranslateY = c.getCenterY();
-
-					lastCoords = new ArrayList<>();
-					lastCoords.add(orgTranslateX);
-					lastCoords.add(orgTranslateY);
-
-					view.disableVertexHighlight(c);
-
+				if (pressedVertex >= 0) {
+					vertexGestures.dragged(event);
+				} else {
+					canvasGestures.dragged(event);
 				}
 			}
 		};
 
-		EventHandler<MouseEvent> vertexOnMouseDraggedEventHandler = new EventHandler<MouseEvent>() {
+		EventHandler<MouseEvent> onMouseReleasedEventHandler = new EventHandler<MouseEvent>() {
 
 			@Override
 			public void handle(MouseEvent event) {
+				if (pressedVertex >= 0) {
+					vertexGestures.released(event, pressedVertex);
+				} else {
+					canvasGestures.released(event);
+				}
+			}
+		};
+	}
 
-				if (event.getSource() instanceof Circle && event.getButton().equals(MouseButton.PRIMARY)) {
+	/**
+	 * Used to contain the responses to mouse presses, releases and drags on graph
+	 * vertices.
+	 */
+	public class VertexGestures {
 
+		double orgSceneX, orgSceneY;
+		double orgTranslateX, orgTranslateY;
+		boolean dragged = false;
+		// True if the selected vertices are being dragged together
+		boolean groupDragged = false;
+		// Last scene coordinates of mouse while selected vertices are dragged
+		double lastSceneX, lastSceneY;
+
+		/**
+		 * Respond to a button being released over the vertex with the given id, on
+		 * which it was pressed, unless the vertex has been dragged.
+		 */
+		void released(MouseEvent event, int id) {
+			if (dragged) {
+				dragged = false;
+				return;
+			}
+			if (event.getButton().equals(MouseButton.PRIMARY)) {
+				if (canvasContextShown || vertexContextShown || edgeContextShown) {
+					hideContextMenus();
+					return;
+				}
+
+				if (Log.isDebugEnabled()) {
+					Log.debug(model.getVertexX(id) + ", " + model.getVertexY(id));
+				}
+
+				// Connect last added vertex to selected vertex if draw mode is enabled
+				if (drawMode) {
+					int lastAdded = model.getLastAddedId();
+					if (lastAdded >= 0) {
+						firstClick = false;
+						model.addEdge(lastAdded, id, "");
+					}
+					view.drawGraph();
+					model.clearLastAdded();
+					return;
+				}
+
+				if (firstClick && model.containsVertex(originVertex)) {
+					// Connect selected vertex to previously selected vertex
 					firstClick = false;
-					dragged = true;
+					model.addEdge(originVertex, id, "");
+					view.disableVertexHighlight();
+					view.drawGraph();
+				} else {
+					// Set initially selected vertex
+					firstClick = true;
+					originVertex = id;
+					view.enableVertexHighlight(id);
+				}
+			} else if (event.getButton().equals(MouseButton.SECONDARY)) {
+				view.showVertexContext(event.getScreenX(), event.getScreenY());
+				view.setContextVertex(id);
+			}
+		}
 
-					double offsetX = event.getSceneX() - orgSceneX;
-					double offsetY = event.getSceneY() - orgSceneY;
+		/**
+		 * Respond to a button being pressed over the vertex with the given id.
+		 */
+		void pressed(MouseEvent event, int id) {
+			// Vertex is dragged only if pressed with primary button while no menu is shown
+			draggedVertex = -1;
+			groupDragged = false;
+			if (event.getButton().equals(MouseButton.PRIMARY)) {
+				if (canvasContextShown || vertexContextShown || edgeContextShown) {
+					hideContextMenus();
+					return;
+				}
 
-					double newTranslateX = orgTranslateX + offsetX;
-					double newTranslateY = orgTranslateY + offsetY;
+				if (view.isSelected(id)) {
+					// Pressing a selected vertex drags all selected vertices
+					groupDragged = true;
+					lastSceneX = event.getSceneX();
+					lastSceneY = event.getSceneY();
+					// Vertices deleted since they were selected are dropped from the selection
+					view.setSelection(IntStream.of(view.getSelection()).filter(model::containsVertex).toArray());
+					view.disableVertexHighlight();
+					return;
+				}
 
-					Circle c = ((Circle) (event.getSource()));
+				orgSceneX = event.getSceneX();
+				orgSceneY = event.getSceneY();
 
-					c.setCenterX(newTranslateX);
-					c.setCenterY(newTranslateY);
+				orgTranslateX = model.getVertexX(id);
+				orgTranslateY = model.getVertexY(id);
 
-					model.moveVertex(lastCoords.get(0), lastCoords.get(1), newTranslateX, newTranslateY);
+				draggedVertex = id;
 
-					lastCoords = new ArrayList<>();
-					lastCoords.add(newTranslateX);
-					lastCoords.add(newTranslateY);
-					view.modified = true;
-					view.drawGraph(c);
-				}
+				view.disableVertexHighlight();
 			}
-		};
-	}
-	
-	public class EdgeGestures {
-		
-		public void addGestures(Node node) {
-			node.setOnMouseClicked(edgeOnMouseClickEventHandler);
 		}
-		
-		EventHandler<MouseEvent> edgeOnMouseClickEventHandler = new EventHandler<MouseEvent>() {
 
-			@Override
-			public void handle(MouseEvent event) {
-				if (event.getButton().equals(MouseButton.SECONDARY)) {
-					Line l = ((Line) (event.getSource()));
-					view.showEdgeContext(event.getScreenX(), event.getScreenY());
-					view.setContextEdge(l);
-				}
+		/**
+		 * Respond to the pointer being dragged from the vertex on which a button
+		 * was pressed, moving the vertex with it.
+		 */
+		void dragged(MouseEvent event) {
+			if (event.getButton().equals(MouseButton.PRIMARY) && groupDragged) {
+				firstClick = false;
+				dragged = true;
+
+				// All selected vertices and their edges are moved in one pass, then redrawn once
+				double scale = view.getViewport().getScale();
+				model.moveVertices(view.getSelection(), (event.getSceneX() - lastSceneX) / scale,
+						(event.getSceneY() - lastSceneY) / scale);
+				lastSceneX = event.getSceneX();
+				lastSceneY = event.getSceneY();
+				view.drawGraph();
+			} else if (event.getButton().equals(MouseButton.PRIMARY) && model.containsVertex(draggedVertex)) {
+
+				firstClick = false;
+				dragged = true;
+
+				// Scene distances are scaled by viewport to give model distances
+				double offsetX = (event.getSceneX() - orgSceneX) / view.getViewport().getScale();
+				double offsetY = (event.getSceneY() - orgSceneY) / view.getViewport().getScale();
+
+				model.moveVertex(draggedVertex, orgTranslateX + offsetX, orgTranslateY + offsetY);
+				view.drawGraph();
 			}
-			
-		};
+		}
 	}
 
 	/**
-	 * Used to contain and assign mouse click, release and drag event handlers to
-	 * the canvas.
+	 * Used to contain the response to a mouse click on a graph edge.
 	 */
-	public class CanvasGestures {
-
-		Canvas canvas;
+	public class EdgeGestures {
 
-		public void addGestures(Canvas canvas) {
-			this.canvas = canvas;
-			canvas.setOnMouseReleased(canvasOnMouseReleasedEventHandler);
+		/**
+		 * Respond to a secondary button being released over the edge with the given
+		 * coordinates by showing its context menu.
+		 */
+		void clicked(MouseEvent event, List<Double> coords) {
+			view.setContextEdge(coords);
+			view.showEdgeContext(event.getScreenX(), event.getScreenY());
 		}
+	}
 
-		EventHandler<MouseEvent> canvasOnMouseReleasedEventHandler = new EventHandler<MouseEvent>() {
+	/**
+	 * Used to contain the responses to mouse presses, releases and drags on the
+	 * canvas away from any vertex, and the scroll event handler of the graph area.
+	 * Dragging the canvas pans the view, while dragging with shift held selects
+	 * the vertices within a rectangle, and with control held those within a lasso.
+	 */
+	public class CanvasGestures {
+
+		// Last scene coordinates of mouse while canvas is dragged
+		double lastSceneX, lastSceneY;
+		// True if canvas has been dragged since mouse was pressed
+		boolean panned = false;
+		// Screen coordinates of corners of selection rectangle or lasso being
+		// dragged, or null if none is
+		List<Double> band;
+		// True if a lasso rather than a rectangle is being dragged
+		boolean lasso = false;
+		// Screen coordinates at which selection began
+		double bandX, bandY;
+
+		EventHandler<ScrollEvent> canvasOnScrollEventHandler = new EventHandler<ScrollEvent>() {
 
 			@Override
-			public void handle(MouseEvent event) {
-				if (event.getButton().equals(MouseButton.PRIMARY)) {
-					if (canvasContextShown || vertexContextShown || edgeContextShown) {
-						hideContextMenus();
-						return;
-					}
-					double x = event.getX();
-					double y = event.getY();
-					if (!firstClick) {
-						model.addVertex(Double.toString(x + y), x, y);
-						view.modified = true;
-						System.out.println(x + ", " + y);
-					} else {
-						firstClick = false;
-					}
-					if (drawMode) {
-						model.connectLastAdded();
+			public void handle(ScrollEvent event) {
+				// One notch of a mouse wheel scrolls 40 pixels, zooming by about 10%
+				view.zoom(Math.exp(event.getDeltaY() * ZOOM_RATE), event.getX(), event.getY());
+			}
+		};
+
+		void pressed(MouseEvent event) {
+			lastSceneX = event.getSceneX();
+			lastSceneY = event.getSceneY();
+			panned = false;
+			band = null;
+			if (event.getButton().equals(MouseButton.PRIMARY) && (event.isShiftDown() || event.isControlDown())) {
+				band = new ArrayList<>();
+				lasso = !event.isShiftDown();
+				bandX = event.getX();
+				bandY = event.getY();
+			}
+		}
+
+		void dragged(MouseEvent event) {
+			if (band != null) {
+				if (lasso) {
+					// Lasso follows the pointer, skipping moves of less than a pixel
+					int size = band.size();
+					if (size == 0 || Math.abs(event.getX() - band.get(size - 2)) >= 1
+							|| Math.abs(event.getY() - band.get(size - 1)) >= 1) {
+						band.add(event.getX());
+						band.add(event.getY());
 					}
-					hideContextMenus();
-					view.drawGraph(null);
 				} else {
+					band = Arrays.asList(bandX, bandY, event.getX(), bandY, event.getX(), event.getY(), bandX,
+							event.getY());
+				}
+				view.showSelectionBand(band);
+			} else if (event.getButton().equals(MouseButton.PRIMARY)) {
+				panned = true;
+				view.pan(event.getSceneX() - lastSceneX, event.getSceneY() - lastSceneY);
+				lastSceneX = event.getSceneX();
+				lastSceneY = event.getSceneY();
+			}
+		}
+
+		void released(MouseEvent event) {
+			if (band != null) {
+				select();
+				return;
+			}
+			if (event.getButton().equals(MouseButton.PRIMARY)) {
+				if (panned) {
+					// Dragging the canvas pans the view rather than adding a vertex
+					panned = false;
+					return;
+				}
+				if (canvasContextShown || vertexContextShown || edgeContextShown) {
 					hideContextMenus();
+					return;
+				}
+				if (view.getSelection().length > 0) {
+					// Clicking the canvas clears the selection rather than adding a vertex
+					view.clearSelection();
+					view.drawGraph();
+					return;
+				}
+				double x = view.getViewport().toModelX(event.getX());
+				double y = view.getViewport().toModelY(event.getY());
+				if (!firstClick) {
+					model.addVertex(x, y);
+					if (Log.isDebugEnabled()) {
+						Log.debug(x + ", " + y);
+					}
+				} else {
+					firstClick = false;
+					view.disableVertexHighlight();
+				}
+				if (drawMode) {
+					model.connectLastAdded();
+				}
+				hideContextMenus();
+				view.drawGraph();
+			} else {
+				hideContextMenus();
+				// Edges near the pointer are picked through the model, whether or not drawn as nodes
+				List<Double> edge = view.pickEdge(view.getViewport().toModelX(event.getX()),
+						view.getViewport().toModelY(event.getY()));
+				if (edge != null) {
+					edgeGestures.clicked(event, edge);
+				} else {
 					view.showCanvasContext(event.getScreenX(), event.getScreenY());
 				}
 			}
-		};
+		}
 
+		/**
+		 * Select the vertices within the dragged rectangle or lasso, found through
+		 * the vertex index, in place of those selected before. A selection dragged
+		 * over no area clears the selection.
+		 */
+		void select() {
+			Viewport viewport = view.getViewport();
+			// Corners in model coordinates
+			double[] polygon = new double[band.size()];
+			for (int i = 0; i < polygon.length; i += 2) {
+				polygon[i] = viewport.toModelX(band.get(i));
+				polygon[i + 1] = viewport.toModelY(band.get(i + 1));
+			}
+			band = null;
+			view.hideSelectionBand();
+			if (polygon.length < 6) {
+				view.clearSelection();
+			} else if (lasso) {
+				view.setSelection(model.getVertexIdsIn(polygon));
+			} else {
+				view.setSelection(model.getVertexIdsIn(Math.min(polygon[0], polygon[4]),
+						Math.min(polygon[1], polygon[5]), Math.max(polygon[0], polygon[4]),
+						Math.max(polygon[1], polygon[5])));
+			}
+			view.drawGraph();
+		}
 	}
 
 	public ContextMenu createCanvasContextMenu() {
 		ContextMenu contextMenu = new ContextMenu();
 		List<MenuItem> menuItems = new ArrayList<>();
+		RadioMenuItem directedItem = new RadioMenuItem("Directed");
+		RadioMenuItem weightsItem = new RadioMenuItem("Weights from lengths");
 
 		contextMenu.setOnShown(new EventHandler<WindowEvent>() {
 
 			@Override
 			public void handle(WindowEvent event) {
 				canvasContextShown = true;
+				// Loading a graph may have changed whether it is directed
+				directedItem.setSelected(model.isDirected());
+				weightsItem.setSelected(model.isAutoWeights());
 			}
 		});
 
@@ -288,8 +460,8 @@ public class GraphController {
 		menuItems.get(menuItems.size() - 1).setOnAction(new EventHandler<ActionEvent>() {
 			public void handle(ActionEvent event) {
 				model.clearGraph();
-				view.drawGraph(null);
-				view.modified = true;
+				view.clearSelection();
+				view.drawGraph();
 			}
 		});
 
@@ -297,8 +469,55 @@ public class GraphController {
 		menuItems.get(menuItems.size() - 1).setOnAction(new EventHandler<ActionEvent>() {
 			public void handle(ActionEvent event) {
 				model.connectAllVertices();
-				view.drawGraph(null);
-				view.modified = true;
+				view.drawGraph();
+			}
+		});
+
+		menuItems.add(new MenuItem("Connect nearest"));
+		menuItems.get(menuItems.size() - 1).setOnAction(new EventHandler<ActionEvent>() {
+			public void handle(ActionEvent event) {
+				int k = view.showNearestNeighboursDialog();
+				if (k == 0) {
+					return;
+				}
+				model.connectNearestNeighbours(k);
+				view.drawGraph();
+			}
+		});
+
+		menuItems.add(new MenuItem("Connect within distance"));
+		menuItems.get(menuItems.size() - 1).setOnAction(new EventHandler<ActionEvent>() {
+			public void handle(ActionEvent event) {
+				double radius = view.showConnectWithinDialog();
+				if (radius == 0) {
+					return;
+				}
+				model.connectWithinDistance(radius);
+				view.drawGraph();
+			}
+		});
+
+		menuItems.add(new MenuItem("Connect Delaunay triangulation"));
+		menuItems.get(menuItems.size() - 1).setOnAction(new EventHandler<ActionEvent>() {
+			public void handle(ActionEvent event) {
+				model.connectDelaunayTriangulation();
+				view.drawGraph();
+			}
+		});
+
+		menuItems.add(new MenuItem("Connect minimum spanning tree"));
+		menuItems.get(menuItems.size() - 1).setOnAction(new EventHandler<ActionEvent>() {
+			public void handle(ActionEvent event) {
+				model.connectMinimumSpanningTree();
+				view.drawGraph();
+			}
+		});
+
+		menuItems.add(new MenuItem("Connect relative neighbours"));
+		menuItems.get(menuItems.size() - 1).setOnAction(new EventHandler<ActionEvent>() {
+			public void handle(ActionEvent event) {
+				model.connectRelativeNeighbours();
+				view.drawGraph();
 			}
 		});
 
@@ -306,8 +525,7 @@ public class GraphController {
 		menuItems.get(menuItems.size() - 1).setOnAction(new EventHandler<ActionEvent>() {
 			public void handle(ActionEvent event) {
 				model.removeAllEdges();
-				view.drawGraph(null);
-				view.modified = true;
+				view.drawGraph();
 			}
 		});
 		
@@ -315,8 +533,15 @@ public class GraphController {
 		menuItems.get(menuItems.size() - 1).setOnAction(new EventHandler<ActionEvent>() {
 			public void handle(ActionEvent event) {
 				model.alignVerticesToGrid();
-				view.drawGraph(null);
-				view.modified = true;
+				view.drawGraph();
+			}
+		});
+
+		menuItems.add(new MenuItem("Reset zoom"));
+		menuItems.get(menuItems.size() - 1).setOnAction(new EventHandler<ActionEvent>() {
+			public void handle(ActionEvent event) {
+				view.getViewport().reset();
+				view.drawGraph();
 			}
 		});
 
@@ -330,6 +555,22 @@ public class GraphController {
 			}
 		});
 
+		menuItems.add(directedItem);
+		directedItem.setSelected(model.isDirected());
+		directedItem.setOnAction(new EventHandler<ActionEvent>() {
+			public void handle(ActionEvent event) {
+				model.setDirected(directedItem.isSelected());
+				view.drawGraph();
+			}
+		});
+
+		menuItems.add(weightsItem);
+		weightsItem.setOnAction(new EventHandler<ActionEvent>() {
+			public void handle(ActionEvent event) {
+				model.setAutoWeights(weightsItem.isSelected());
+			}
+		});
+
 		menuItems.add(new SeparatorMenuItem());
 
 		menuItems.add(new MenuItem("Save"));
@@ -373,6 +614,8 @@ public class GraphController {
 		menuItems.get(menuItems.size() - 1).setOnAction(new EventHandler<ActionEvent>() {
 			public void handle(ActionEvent event) {
 				File selectedFile = view.graphFileChooser("Load");
+				// Ids of loaded vertices may coincide with those of selected vertices
+				view.clearSelection();
 				try {
 					model.loadGraphFromFile(selectedFile);
 					currentFile = selectedFile;
@@ -381,7 +624,7 @@ public class GraphController {
 					model.clearGraph();
 				}
 				view.modified = false;
-				view.drawGraph(null);
+				view.drawGraph();
 			}
 		});
 
@@ -398,6 +641,22 @@ public class GraphController {
 			}
 		});
 
+		menuItems.add(new MenuItem("Export at scale"));
+		menuItems.get(menuItems.size() - 1).setOnAction(new EventHandler<ActionEvent>() {
+			public void handle(ActionEvent event) {
+				double scale = view.showExportScaleDialog();
+				if (scale == 0) {
+					return;
+				}
+				File selectedFile = view.graphFileChooser("Export");
+				try {
+					view.saveGraphAsImage(selectedFile, scale);
+				} catch (IOException | IllegalArgumentException e) {
+					view.showErrorDialog("Could not export image: " + e.getMessage());
+				}
+			}
+		});
+
 		menuItems.add(new SeparatorMenuItem());
 
 		menuItems.add(new RadioMenuItem("Hide statistics"));
@@ -408,6 +667,29 @@ public class GraphController {
 			}
 		});
 
+		menuItems.add(new RadioMenuItem("Show clustering heatmap"));
+		((RadioMenuItem) menuItems.get(menuItems.size() - 1)).setSelected(false);
+		menuItems.get(menuItems.size() - 1).setOnAction(new EventHandler<ActionEvent>() {
+			public void handle(ActionEvent event) {
+				view.toggleShowHeatmap();
+			}
+		});
+
+		menuItems.add(new RadioMenuItem("Show performance"));
+		((RadioMenuItem) menuItems.get(menuItems.size() - 1)).setSelected(false);
+		menuItems.get(menuItems.size() - 1).setOnAction(new EventHandler<ActionEvent>() {
+			public void handle(ActionEvent event) {
+				view.toggleShowMetrics();
+			}
+		});
+
+		menuItems.add(new MenuItem("Show memory footprint"));
+		menuItems.get(menuItems.size() - 1).setOnAction(new EventHandler<ActionEvent>() {
+			public void handle(ActionEvent event) {
+				view.showFootprintDialog(model.footprint());
+			}
+		});
+
 		menuItems.add(new SeparatorMenuItem());
 
 		menuItems.add(new MenuItem("Properties"));
@@ -445,10 +727,8 @@ public class GraphController {
 		menuItems.add(new MenuItem("Delete vertex"));
 		menuItems.get(menuItems.size() - 1).setOnAction(new EventHandler<ActionEvent>() {
 			public void handle(ActionEvent event) {
-				List<Double> coords = view.deleteContextVertex();
-				model.deleteVertex(coords.get(0), coords.get(1));
-				view.modified = true;
-				view.drawGraph(null);
+				model.deleteVertex(view.deleteContextVertex());
+				view.drawGraph();
 			}
 		});
 
@@ -456,8 +736,7 @@ public class GraphController {
 		menuItems.get(menuItems.size() - 1).setOnAction(new EventHandler<ActionEvent>() {
 			public void handle(ActionEvent event) {
 				model.connectVertex(view.getContextVertexCoords());
-				view.modified = true;
-				view.drawGraph(null);
+				view.drawGraph();
 			}
 		});
 
@@ -465,8 +744,7 @@ public class GraphController {
 		menuItems.get(menuItems.size() - 1).setOnAction(new EventHandler<ActionEvent>() {
 			public void handle(ActionEvent event) {
 				model.disconnectVertex(view.getContextVertexCoords());
-				view.modified = true;
-				view.drawGraph(null);
+				view.drawGraph();
 			}
 		});
 		
@@ -477,9 +755,8 @@ public class GraphController {
 				ArrayList<ArrayList<Double>> opposite = model.getOppositeVertices(view.getContextVertexCoords());
 				if (!opposite.isEmpty()) {
 					model.connectVerticesInSequence(model.getOppositeVertices(view.getContextVertexCoords()));
-					List<Double> coords = view.deleteContextVertex();
-					model.deleteVertex(coords.get(0), coords.get(1));
-					view.drawGraph(null);	
+					model.deleteVertex(view.deleteContextVertex());
+					view.drawGraph();	
 				}
 			}
 		});
@@ -489,8 +766,7 @@ public class GraphController {
 		menuItems.get(menuItems.size() - 1).setOnAction(new EventHandler<ActionEvent>() {
 			public void handle(ActionEvent event) {
 				model.connectToNearest(view.getContextVertexCoords());
-				view.drawGraph(null);	
-				view.modified = true;
+				view.drawGraph();	
 			}
 		});
 
@@ -525,8 +801,7 @@ public class GraphController {
 			public void handle(ActionEvent event) {
 				List<Double> coords = view.deleteContextEdge();
 				model.deleteEdge(coords);
-				view.modified = true;
-				view.drawGraph(null);
+				view.drawGraph();
 			}
 		});
 		
@@ -539,7 +814,7 @@ public class GraphController {
 		canvasContextShown = false;
 		vertexContextShown = false;
 		edgeContextShown = false;
-		view.setContextVertex(null);
+		view.setContextVertex(-1);
 		view.setContextEdge(null);
 	}
 
@@ -560,7 +835,7 @@ public class GraphController {
 		stage.heightProperty().addListener(new ChangeListener<Number>() {
 			@Override
 			public void changed(ObservableValue<? extends Number> observableValue, Number oldStageHeight, Number newStageHeight) {
-				view.setCanvasWidth(((Double) newStageHeight).intValue());
+				view.setCanvasHeight(((Double) newStageHeight).intValue());
 			}			
 		});
 	}
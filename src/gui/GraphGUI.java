@@ -15,7 +15,8 @@ public class GraphGUI extends Application {
 
     @Override
     public void start(Stage mainStage) throws Exception {
-        GraphModel model = new GraphModel();
+        // Edges are held compactly if started with --compact, fitting larger graphs
+        GraphModel model = new GraphModel(getParameters().getRaw().contains("--compact"));
         GraphView view = new GraphView(model);
         view.addMainStage(mainStage);
         new GraphController(model, view).addStage(mainStage);
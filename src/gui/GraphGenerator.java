@@ -0,0 +1,640 @@
+package gui;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import adts.Graph;
+import adts.Vertex;
+import metrics.Timer;
+
+/**
+ * Seeded generator of synthetic undirected graphs, for reproducible test and
+ * demonstration inputs of any size. A generator produces the coordinates of all
+ * vertices, numbered from 0 in order, followed by edges between them, and never
+ * produces self-loops or more than one edge between a pair of vertices.
+ *
+ * Generated graphs are passed to a sink as they are produced, never being held
+ * whole in memory. They may be added straight into a graph or a model, through
+ * its bulk batch path, or streamed to a file in the save format, so that graphs
+ * of millions of edges are built without going through the parser:
+ *
+ * <pre>
+ * java -cp bin gui.GraphGenerator --seed 7 gnp 1000000 0.00001 gnp.txt
+ * </pre>
+ */
+public class GraphGenerator {
+
+	/**
+	 * Receiver of the vertices and then the edges of a generated graph.
+	 */
+	public interface Sink {
+
+		/**
+		 * Called once before any vertex with the number of vertices and expected
+		 * number of edges of the graph, so that space may be reserved for them.
+		 */
+		void begin(int numVertices, long expectedEdges) throws IOException;
+
+		/**
+		 * Receive the next vertex, at the given coordinates.
+		 */
+		void vertex(double x, double y) throws IOException;
+
+		/**
+		 * Receive an edge between the vertices with the given numbers.
+		 */
+		void edge(int origin, int destination) throws IOException;
+	}
+
+	/**
+	 * Production of a graph, passing its vertices and edges to a sink.
+	 */
+	private interface Body {
+		void generate(Sink sink) throws IOException;
+	}
+
+	// Distance between neighbouring vertices of a grid, and mean distance
+	// between randomly placed vertices
+	public static final double SPACING = 100;
+	// Element stored by each generated edge
+	private static final String EDGE_ELEMENT = "NONE";
+	// Usage printed when the arguments are invalid
+	private static final String USAGE = "Usage: java gui.GraphGenerator [--seed s] kind parameters... file\n"
+			+ "  grid rows columns\n" + "  gnp n p\n" + "  ba n m\n" + "  geometric n radius\n" + "  complete n";
+
+	// Description of graph, naming its kind and parameters
+	private final String name;
+	// Number of vertices of graph
+	private final int numVertices;
+	// Number of edges of graph, expected if it is random
+	private final long expectedEdges;
+	// Production of vertices and edges
+	private final Body body;
+
+	private GraphGenerator(String name, int numVertices, long expectedEdges, Body body) {
+		this.name = name;
+		this.numVertices = numVertices;
+		this.expectedEdges = expectedEdges;
+		this.body = body;
+	}
+
+	public String name() {
+		return name;
+	}
+
+	public int numVertices() {
+		return numVertices;
+	}
+
+	/**
+	 * Returns the number of edges of the graph, or the expected number if the graph
+	 * is random.
+	 *
+	 * @return number of edges
+	 */
+	public long expectedEdges() {
+		return expectedEdges;
+	}
+
+	/**
+	 * Returns generator of a grid of the given numbers of rows and columns, each
+	 * vertex joined to its neighbours above, below, left and right.
+	 *
+	 * @param rows
+	 *            number of rows
+	 * @param columns
+	 *            number of columns
+	 * @return generator of grid graph
+	 */
+	public static GraphGenerator grid(int rows, int columns) {
+		checkArgument(rows >= 0 && columns >= 0 && (long) rows * columns <= Integer.MAX_VALUE,
+				"Invalid grid size: " + rows + " x " + columns);
+		long edges = Math.max(0, (long) rows * (columns - 1)) + Math.max(0, (long) (rows - 1) * columns);
+		return new GraphGenerator("grid " + rows + "x" + columns, rows * columns, edges, sink -> {
+			for (int row = 0; row < rows; row++) {
+				for (int column = 0; column < columns; column++) {
+					sink.vertex(column * SPACING, row * SPACING);
+				}
+			}
+			for (int row = 0; row < rows; row++) {
+				for (int column = 0; column < columns; column++) {
+					int vertex = row * columns + column;
+					if (column + 1 < columns) {
+						sink.edge(vertex, vertex + 1);
+					}
+					if (row + 1 < rows) {
+						sink.edge(vertex, vertex + columns);
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Returns generator of an Erdos-Renyi random graph G(n, p), in which each pair
+	 * of n vertices placed uniformly at random is joined with probability p. Rather
+	 * than drawing a number for every pair, the gap to the next joined pair is
+	 * drawn from the geometric distribution, so generation takes time linear in the
+	 * number of vertices and edges.
+	 *
+	 * @param n
+	 *            number of vertices
+	 * @param p
+	 *            probability of each edge
+	 * @param seed
+	 *            seed of random number generator
+	 * @return generator of random graph
+	 */
+	public static GraphGenerator gnp(int n, double p, long seed) {
+		checkArgument(n >= 0, "Number of vertices must not be negative: " + n);
+		checkArgument(p >= 0 && p <= 1, "Probability must be between 0 and 1: " + p);
+		long pairs = (long) n * (n - 1) / 2;
+		return new GraphGenerator(String.format("gnp n=%d p=%.3g", n, p), n, (long) Math.ceil(pairs * p), sink -> {
+			Random random = new Random(seed);
+			placeUniformly(sink, n, random);
+			if (p == 0) {
+				return;
+			}
+			double logQ = Math.log(1 - p);
+			// Pairs (w, v) with w < v enumerated in order of v then w, skipping a
+			// geometrically distributed number of pairs before each edge
+			int v = 1;
+			long w = -1;
+			while (v < n) {
+				w += 1 + (p == 1 ? 0 : (long) Math.min(pairs, Math.log(1 - random.nextDouble()) / logQ));
+				while (w >= v && v < n) {
+					w -= v;
+					v++;
+				}
+				if (v < n) {
+					sink.edge((int) w, v);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Returns generator of a Barabasi-Albert preferential attachment graph of n
+	 * vertices placed uniformly at random. Beginning with m unconnected vertices,
+	 * each further vertex is joined to m distinct earlier vertices chosen with
+	 * probability proportional to their degree.
+	 *
+	 * @param n
+	 *            number of vertices
+	 * @param m
+	 *            number of edges added with each vertex
+	 * @param seed
+	 *            seed of random number generator
+	 * @return generator of preferential attachment graph
+	 */
+	public static GraphGenerator barabasiAlbert(int n, int m, long seed) {
+		checkArgument(m >= 1 && n >= m, "Invalid preferential attachment parameters: n=" + n + " m=" + m);
+		long edges = (long) m * (n - m);
+		checkArgument(2 * edges <= Integer.MAX_VALUE - 8, "Too many edges: " + edges);
+		return new GraphGenerator("ba n=" + n + " m=" + m, n, edges, sink -> {
+			Random random = new Random(seed);
+			placeUniformly(sink, n, random);
+			// Both endpoints of every edge added so far, so that a vertex drawn from
+			// it is chosen with probability proportional to its degree
+			int[] endpoints = new int[(int) (2 * edges)];
+			int size = 0;
+			int[] targets = new int[m];
+			for (int v = m; v < n; v++) {
+				for (int i = 0; i < m; i++) {
+					if (size == 0) {
+						// First vertex joins every initial vertex
+						targets[i] = i;
+						continue;
+					}
+					int target;
+					do {
+						target = endpoints[random.nextInt(size)];
+					} while (contains(targets, i, target));
+					targets[i] = target;
+				}
+				for (int i = 0; i < m; i++) {
+					sink.edge(targets[i], v);
+					endpoints[size++] = targets[i];
+					endpoints[size++] = v;
+				}
+			}
+		});
+	}
+
+	/**
+	 * Returns generator of a random geometric graph of n vertices placed uniformly
+	 * at random in a square of side sqrt(n) * SPACING, each pair of vertices being
+	 * joined if they lie within the given distance of each other. Vertices are
+	 * bucketed into cells at least as wide as the distance, so that only vertices
+	 * in neighbouring cells are compared, and are numbered in order of cell, row by
+	 * row, so that the vertices compared lie together in memory.
+	 *
+	 * @param n
+	 *            number of vertices
+	 * @param radius
+	 *            greatest distance between joined vertices
+	 * @param seed
+	 *            seed of random number generator
+	 * @return generator of random geometric graph
+	 */
+	public static GraphGenerator randomGeometric(int n, double radius, long seed) {
+		checkArgument(n >= 0, "Number of vertices must not be negative: " + n);
+		checkArgument(radius > 0, "Radius must be positive: " + radius);
+		double side = Math.sqrt(n) * SPACING;
+		// Expected number of edges, ignoring the border of the square
+		long edges = (long) Math.ceil((double) n * (n - 1) / 2 * Math.min(1, Math.PI * radius * radius / (side * side)));
+		return new GraphGenerator(String.format("geometric n=%d r=%.1f", n, radius), n, edges, sink -> {
+			Random random = new Random(seed);
+			// Cells at least as wide as the radius, and no more of them than vertices
+			int cells = (int) Math.max(1, Math.min(Math.floor(side / radius), Math.ceil(Math.sqrt(n))));
+			double cellSize = side / cells;
+			double[] placedXs = new double[n];
+			double[] placedYs = new double[n];
+			int[] cellOf = new int[n];
+			// Vertices of cell c are numbered from cellStart[c] to cellStart[c + 1]
+			int[] cellStart = new int[cells * cells + 1];
+			for (int i = 0; i < n; i++) {
+				placedXs[i] = random.nextDouble() * side;
+				placedYs[i] = random.nextDouble() * side;
+				int column = Math.min(cells - 1, (int) (placedXs[i] / cellSize));
+				int row = Math.min(cells - 1, (int) (placedYs[i] / cellSize));
+				cellOf[i] = row * cells + column;
+				cellStart[cellOf[i] + 1]++;
+			}
+			for (int c = 0; c < cells * cells; c++) {
+				cellStart[c + 1] += cellStart[c];
+			}
+			double[] xs = new double[n];
+			double[] ys = new double[n];
+			int[] filled = Arrays.copyOf(cellStart, cells * cells);
+			for (int i = 0; i < n; i++) {
+				int vertex = filled[cellOf[i]]++;
+				xs[vertex] = placedXs[i];
+				ys[vertex] = placedYs[i];
+			}
+			placedXs = null;
+			placedYs = null;
+			cellOf = null;
+			for (int i = 0; i < n; i++) {
+				sink.vertex(xs[i], ys[i]);
+			}
+			double radiusSquared = radius * radius;
+			for (int row = 0; row < cells; row++) {
+				for (int column = 0; column < cells; column++) {
+					int cell = row * cells + column;
+					for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+						// Later vertices of the same cell, then those of the neighbouring cells
+						// to the right and below, so that each pair is compared once
+						joinWithin(sink, xs, ys, i, i + 1, cellStart[cell + 1], radiusSquared);
+						if (column + 1 < cells) {
+							joinWithin(sink, xs, ys, i, cellStart[cell + 1], cellStart[cell + 2], radiusSquared);
+						}
+						if (row + 1 < cells) {
+							int below = cell + cells;
+							joinWithin(sink, xs, ys, i, cellStart[Math.max(below - 1, (row + 1) * cells)],
+									cellStart[Math.min(below + 2, (row + 2) * cells)], radiusSquared);
+						}
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Pass to the given sink an edge from the given vertex to each vertex numbered
+	 * from the given start to the given end that lies within the radius whose
+	 * square is given.
+	 */
+	private static void joinWithin(Sink sink, double[] xs, double[] ys, int vertex, int start, int end,
+			double radiusSquared) throws IOException {
+		double x = xs[vertex];
+		double y = ys[vertex];
+		for (int j = start; j < end; j++) {
+			double dx = xs[j] - x;
+			double dy = ys[j] - y;
+			if (dx * dx + dy * dy <= radiusSquared) {
+				sink.edge(vertex, j);
+			}
+		}
+	}
+
+	/**
+	 * Returns generator of a complete graph of n vertices placed evenly around a
+	 * circle.
+	 *
+	 * @param n
+	 *            number of vertices
+	 * @return generator of complete graph
+	 */
+	public static GraphGenerator complete(int n) {
+		checkArgument(n >= 0, "Number of vertices must not be negative: " + n);
+		long edges = (long) n * (n - 1) / 2;
+		return new GraphGenerator("complete n=" + n, n, edges, sink -> {
+			// Circle long enough for neighbouring vertices to lie SPACING apart
+			double radius = Math.max(SPACING, n * SPACING / (2 * Math.PI));
+			for (int i = 0; i < n; i++) {
+				double angle = 2 * Math.PI * i / n;
+				sink.vertex(radius + radius * Math.cos(angle), radius + radius * Math.sin(angle));
+			}
+			for (int v = 1; v < n; v++) {
+				for (int w = 0; w < v; w++) {
+					sink.edge(w, v);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Pass the vertices and edges of the graph to the given sink.
+	 *
+	 * @param sink
+	 *            receiver of vertices and edges
+	 * @throws IOException
+	 *             if the sink fails to write
+	 */
+	public void generate(Sink sink) throws IOException {
+		sink.begin(numVertices, expectedEdges);
+		body.generate(sink);
+	}
+
+	/**
+	 * Add the graph to the given graph, each vertex storing its number and each
+	 * edge the default element.
+	 *
+	 * @param graph
+	 *            graph to which vertices and edges are added, holding no vertex
+	 *            storing the number of a generated vertex
+	 * @return added vertices, by number
+	 */
+	public List<Vertex<String, String>> addTo(Graph<String, String> graph) {
+		List<Vertex<String, String>> vertices = new ArrayList<>(numVertices);
+		generateUnchecked(new Sink() {
+			@Override
+			public void begin(int numVertices, long expectedEdges) {
+				graph.ensureEdgeCapacity((int) Math.min(Integer.MAX_VALUE - 8, graph.numEdges() + expectedEdges));
+			}
+
+			@Override
+			public void vertex(double x, double y) {
+				vertices.add(graph.insertVertex(Integer.toString(vertices.size())));
+			}
+
+			@Override
+			public void edge(int origin, int destination) {
+				graph.insertEdge(vertices.get(origin), vertices.get(destination), EDGE_ELEMENT);
+			}
+		});
+		return vertices;
+	}
+
+	/**
+	 * Add the graph to the given model in a single batch, notifying its listeners
+	 * once. Edges are added without checking for existing ones, as generated graphs
+	 * are simple.
+	 *
+	 * @param model
+	 *            model to which vertices and edges are added, having no vertex at
+	 *            the coordinates of a generated vertex
+	 */
+	public void addTo(GraphModel model) {
+		GraphModel.Batch batch = model.beginBatch();
+		try {
+			// Coordinates of each added vertex, by number
+			List<List<Double>> coords = new ArrayList<>(numVertices);
+			generateUnchecked(new Sink() {
+				@Override
+				public void begin(int numVertices, long expectedEdges) {
+					batch.ensureEdgeCapacity((int) Math.min(Integer.MAX_VALUE - 8, expectedEdges));
+				}
+
+				@Override
+				public void vertex(double x, double y) {
+					batch.addVertex(x, y);
+					coords.add(Arrays.asList(x, y));
+				}
+
+				@Override
+				public void edge(int origin, int destination) {
+					batch.addUniqueEdge(coords.get(origin), coords.get(destination), EDGE_ELEMENT);
+				}
+			});
+			batch.trimToSize();
+		} finally {
+			batch.commit();
+		}
+	}
+
+	/**
+	 * Write the graph to the given file in the format read by
+	 * GraphModel.loadGraphFromFile, as it is generated.
+	 *
+	 * @param file
+	 *            file to be written
+	 * @throws IOException
+	 */
+	public void write(File file) throws IOException {
+		try (SaveFileSink sink = new SaveFileSink(new FileOutputStream(file))) {
+			generate(sink);
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		long seed = 1;
+		int i = 0;
+		if (args.length > 1 && args[0].equals("--seed")) {
+			seed = Long.parseLong(args[1]);
+			i = 2;
+		}
+		GraphGenerator generator;
+		try {
+			String kind = args[i];
+			int parameters = args.length - i - 2;
+			switch (kind) {
+			case "grid":
+				checkArgument(parameters == 2, "grid takes rows and columns");
+				generator = grid(Integer.parseInt(args[i + 1]), Integer.parseInt(args[i + 2]));
+				break;
+			case "gnp":
+				checkArgument(parameters == 2, "gnp takes n and p");
+				generator = gnp(Integer.parseInt(args[i + 1]), Double.parseDouble(args[i + 2]), seed);
+				break;
+			case "ba":
+				checkArgument(parameters == 2, "ba takes n and m");
+				generator = barabasiAlbert(Integer.parseInt(args[i + 1]), Integer.parseInt(args[i + 2]), seed);
+				break;
+			case "geometric":
+				checkArgument(parameters == 2, "geometric takes n and radius");
+				generator = randomGeometric(Integer.parseInt(args[i + 1]), Double.parseDouble(args[i + 2]), seed);
+				break;
+			case "complete":
+				checkArgument(parameters == 1, "complete takes n");
+				generator = complete(Integer.parseInt(args[i + 1]));
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown kind of graph: " + kind);
+			}
+		} catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			System.exit(2);
+			return;
+		}
+		File file = new File(args[args.length - 1]);
+		long start = System.nanoTime();
+		generator.write(file);
+		System.out.println(String.format("Wrote %s (%d vertices, ~%d edges, %.1f MB) to %s in %.1f ms",
+				generator.name(), generator.numVertices(), generator.expectedEdges(), file.length() / 1e6, file,
+				Timer.toMillis(System.nanoTime() - start)));
+	}
+
+	/**
+	 * Pass the graph to the given sink, which throws no IOException.
+	 */
+	private void generateUnchecked(Sink sink) {
+		try {
+			generate(sink);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Pass the given number of vertices, placed uniformly at random in a square of
+	 * side sqrt(n) * SPACING, to the given sink.
+	 */
+	private static void placeUniformly(Sink sink, int n, Random random) throws IOException {
+		double side = Math.sqrt(n) * SPACING;
+		for (int i = 0; i < n; i++) {
+			sink.vertex(random.nextDouble() * side, random.nextDouble() * side);
+		}
+	}
+
+	/**
+	 * Returns true if the given value is among the first given number of values of
+	 * the given array.
+	 */
+	private static boolean contains(int[] values, int length, int value) {
+		for (int i = 0; i < length; i++) {
+			if (values[i] == value) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void checkArgument(boolean condition, String message) {
+		if (!condition) {
+			throw new IllegalArgumentException(message);
+		}
+	}
+
+	/**
+	 * Sink writing a graph in the save format, formatting numbers straight into a
+	 * byte buffer rather than through strings, as edges are far more numerous than
+	 * vertices and each is written as three short tokens.
+	 */
+	private static class SaveFileSink implements Sink, Closeable {
+
+		// Bytes of the element stored by each edge, followed by a space
+		private static final byte[] EDGE_PREFIX = (EDGE_ELEMENT + " ").getBytes(StandardCharsets.US_ASCII);
+
+		// Destination of buffered bytes
+		private final OutputStream out;
+		// Bytes not yet written, in the first size slots
+		private final byte[] buffer = new byte[1 << 16];
+		private int size;
+		// Number of vertices written, or -1 once the first edge is written
+		private int vertices;
+
+		SaveFileSink(OutputStream out) {
+			this.out = out;
+		}
+
+		@Override
+		public void begin(int numVertices, long expectedEdges) {
+		}
+
+		@Override
+		public void vertex(double x, double y) throws IOException {
+			writeInt(vertices++);
+			writeByte(' ');
+			writeAscii(Double.toString(x));
+			writeByte(' ');
+			writeAscii(Double.toString(y));
+			writeByte('\n');
+		}
+
+		@Override
+		public void edge(int origin, int destination) throws IOException {
+			if (vertices >= 0) {
+				// Blank line separates vertices from edges
+				writeByte('\n');
+				vertices = -1;
+			}
+			ensure(EDGE_PREFIX.length + 24);
+			System.arraycopy(EDGE_PREFIX, 0, buffer, size, EDGE_PREFIX.length);
+			size += EDGE_PREFIX.length;
+			writeInt(origin);
+			buffer[size++] = ' ';
+			writeInt(destination);
+			buffer[size++] = '\n';
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				out.write(buffer, 0, size);
+				size = 0;
+			} finally {
+				out.close();
+			}
+		}
+
+		/**
+		 * Write the decimal digits of the given non-negative integer.
+		 */
+		private void writeInt(int value) throws IOException {
+			ensure(11);
+			int digits = 1;
+			for (int rest = value / 10; rest > 0; rest /= 10) {
+				digits++;
+			}
+			for (int i = size + digits - 1; i >= size; i--) {
+				buffer[i] = (byte) ('0' + value % 10);
+				value /= 10;
+			}
+			size += digits;
+		}
+
+		private void writeAscii(String text) throws IOException {
+			ensure(text.length());
+			for (int i = 0; i < text.length(); i++) {
+				buffer[size++] = (byte) text.charAt(i);
+			}
+		}
+
+		private void writeByte(int b) throws IOException {
+			ensure(1);
+			buffer[size++] = (byte) b;
+		}
+
+		/**
+		 * Flush the buffer unless it has room for the given number of bytes.
+		 */
+		private void ensure(int bytes) throws IOException {
+			if (size + bytes > buffer.length) {
+				out.write(buffer, 0, size);
+				size = 0;
+			}
+		}
+	}
+}
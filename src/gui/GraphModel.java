@@ -6,36 +6,516 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
 import java.lang.Math;
 
 import adts.*;
+import metrics.Counter;
+import metrics.HeapSize;
+import metrics.Log;
+import metrics.Metrics;
+import metrics.Timer;
 
 public class GraphModel {
 
+	// True if edges are held without coordinates or an index of their own, an
+	// undirected graph being held as a compact graph
+	private final boolean compact;
 	// Graph being displayed
-	private UndirectedGraph<String, String> graph;
+	private Graph<String, String> graph;
 	// X, Y coordinates of vertices of graph
 	private Map<List<Double>, Vertex<String, String>> vertexCoords;
-	// X, Y coordinates of edges of graph
+	// X, Y coordinates of edges of graph; in a compact model, a read-only view
+	// reading them from the vertices of each edge
 	private Map<Edge<String, String>, List<Double>> edgeCoords;
+	// Vertex and x, y coordinates of each vertex by id, null once the vertex is
+	// deleted; ids are given in order of addition and are not reused until the
+	// graph is cleared, so a vertex keeps its id however it is moved
+	private List<Vertex<String, String>> vertexById;
+	private List<List<Double>> coordsById;
+	// Id of each vertex by position of vertex in graph
+	private int[] idByPosition;
+	// Vertex ids and edges indexed by location, for finding those within a
+	// region without visiting every vertex and edge; a compact model has no edge
+	// index, so its edge grid is null
+	private SpatialGrid<Integer> vertexGrid;
+	private SpatialGrid<Edge<String, String>> edgeGrid;
+	// Edges added by a bulk batch whose coordinates and index entries are yet to
+	// be made, which is done at once when the batch is committed or the
+	// coordinates are next read; null unless such a batch is open
+	private List<Edge<String, String>> pendingEdges;
+	// Persistent copy of vertex coordinates by vertex position, shared with
+	// snapshots; null until the first snapshot is taken
+	private CopyOnWriteVector<double[]> coordsCopy;
 	// Last vertex added to graph
 	private List<Vertex<String, String>> lastAdded;
+	// Listeners notified whenever the graph is modified
+	private List<GraphListener> listeners;
+	// Number of batches currently open, notifications are deferred while positive
+	private int openBatches = 0;
+	// True if the graph was modified while a batch was open
+	private boolean changedInBatch = false;
+	// Number of edges edgeCoords can hold before it is rehashed
+	private int edgeCapacity;
+	// True if the weight of each edge is kept equal to its length
+	private boolean autoWeights = false;
+	// Number from which the label of the next unlabelled vertex is made
+	private int nextLabel = 0;
+	// Incremented whenever a vertex or edge is added or removed, but not when a
+	// vertex is moved or an edge weight changed
+	private long structureVersion = 0;
 
 	private int GRID_SIZE = 100;
+	// First line of the save file of a directed graph; files of undirected graphs
+	// have no header
+	private static final String DIRECTED_HEADER = "directed";
+	// Initial number of edges edgeCoords can hold without being rehashed
+	private static final int DEFAULT_EDGE_CAPACITY = 12;
+	// Side length of cells of vertex and edge spatial indexes
+	private static final double INDEX_CELL_SIZE = 64;
+
+	// Counters and latency timers of model operations
+	private static final Counter VERTICES_ADDED = Metrics.counter("model.vertices.added");
+	private static final Counter EDGES_ADDED = Metrics.counter("model.edges.added");
+	private static final Counter CHANGE_EVENTS = Metrics.counter("model.changeEvents");
+	private static final Counter LOAD_BYTES = Metrics.counter("model.load.bytes");
+	private static final Counter SAVE_BYTES = Metrics.counter("model.save.bytes");
+	private static final Timer ADD_VERTEX_TIMER = Metrics.timer("model.addVertex");
+	private static final Timer ADD_EDGE_TIMER = Metrics.timer("model.addEdge");
+	private static final Timer MOVE_VERTEX_TIMER = Metrics.timer("model.moveVertex");
+	private static final Timer MOVE_VERTICES_TIMER = Metrics.timer("model.moveVertices");
+	private static final Timer DELETE_VERTEX_TIMER = Metrics.timer("model.deleteVertex");
+	private static final Timer DELETE_EDGE_TIMER = Metrics.timer("model.deleteEdge");
+	private static final Timer CONNECT_ALL_TIMER = Metrics.timer("model.connectAllVertices");
+	private static final Timer CONNECT_NEAREST_TIMER = Metrics.timer("model.connectNearestNeighbours");
+	private static final Timer CONNECT_WITHIN_TIMER = Metrics.timer("model.connectWithinDistance");
+	private static final Timer CONNECT_DELAUNAY_TIMER = Metrics.timer("model.connectDelaunayTriangulation");
+	private static final Timer CONNECT_TREE_TIMER = Metrics.timer("model.connectMinimumSpanningTree");
+	private static final Timer CONNECT_RELATIVE_TIMER = Metrics.timer("model.connectRelativeNeighbours");
+	private static final Timer COUNT_TRIANGLES_TIMER = Metrics.timer("model.countTriangles");
+	private static final Timer FOOTPRINT_TIMER = Metrics.timer("model.footprint");
+	private static final Timer ALIGN_TIMER = Metrics.timer("model.alignVerticesToGrid");
+	private static final Timer REMOVE_EDGES_TIMER = Metrics.timer("model.removeAllEdges");
+	private static final Timer LOAD_TIMER = Metrics.timer("model.load");
+	private static final Timer SAVE_TIMER = Metrics.timer("model.save");
 
 	public GraphModel() {
-		graph = new UndirectedGraph<>();
+		this(false);
+	}
+
+	/**
+	 * Creates a model displaying an empty graph, held compactly if so chosen.
+	 * 
+	 * A compact model keeps no coordinates or index entries for its edges. The
+	 * coordinates of each edge are read from its vertices when asked for, and
+	 * finding the edges within a region visits every edge. An undirected graph
+	 * is held as a {@link CompactGraph}, which stores edges in primitive arrays
+	 * rather than as objects; a directed graph keeps its edge objects. This cuts
+	 * the space taken by each edge several times over, so much larger graphs fit
+	 * in memory, at the cost of slower drawing and picking of edges.
+	 * 
+	 * @param compact
+	 *            true if edges are to be held compactly
+	 */
+	public GraphModel(boolean compact) {
+		this(compact, compact ? new CompactGraph<>() : new UndirectedGraph<>());
+	}
+
+	/**
+	 * Creates a model displaying the given empty graph, allowing the graph
+	 * representation to be chosen.
+	 * 
+	 * @param graph
+	 *            empty graph to be displayed
+	 */
+	public GraphModel(Graph<String, String> graph) {
+		this(false, graph);
+	}
+
+	private GraphModel(boolean compact, Graph<String, String> graph) {
+		this.compact = compact;
+		this.graph = graph;
 		vertexCoords = new HashMap<>();
-		edgeCoords = new HashMap<>();
+		edgeCoords = compact ? new EdgeCoordinates() : new HashMap<>();
+		clearIds();
+		vertexGrid = new SpatialGrid<>(INDEX_CELL_SIZE);
+		edgeGrid = compact ? null : new SpatialGrid<>(INDEX_CELL_SIZE);
+		edgeCapacity = DEFAULT_EDGE_CAPACITY;
 		lastAdded = new ArrayList<>();
+		listeners = new ArrayList<>();
+	}
+
+	/**
+	 * Listener notified whenever the vertices or edges of the graph change.
+	 */
+	public interface GraphListener {
+
+		/**
+		 * Called after the graph has been modified. A batch of modifications results
+		 * in a single call when the batch is committed.
+		 */
+		void graphChanged();
+	}
+
+	/**
+	 * Returns true if edges of the graph are directed from origin to destination.
+	 * 
+	 * @return true if graph is directed
+	 */
+	public boolean isDirected() {
+		return graph.isDirected();
+	}
+
+	/**
+	 * Returns true if edges are held compactly, without coordinates or index
+	 * entries of their own.
+	 * 
+	 * @return true if model is compact
+	 */
+	public boolean isCompact() {
+		return compact;
+	}
+
+	/**
+	 * Returns a number that changes whenever a vertex or edge is added to or
+	 * removed from the graph, but not when vertices are moved or edge weights
+	 * changed, so that results depending only on which vertices are joined, such
+	 * as triangle counts, can be kept while it stays the same.
+	 * 
+	 * @return version of the structure of the graph
+	 */
+	public long getStructureVersion() {
+		return structureVersion;
+	}
+
+	/**
+	 * Make the graph directed or undirected, keeping its vertices and edges. Edges
+	 * keep their origin and destination; when making a graph undirected, edges
+	 * joining vertices already joined in the other direction are dropped.
+	 * 
+	 * @param directed
+	 *            true if graph is to be directed
+	 */
+	public void setDirected(boolean directed) {
+		if (directed == graph.isDirected()) {
+			return;
+		}
+		indexPendingEdges();
+		Graph<String, String> converted = newGraph(directed);
+		// Vertex of converted graph by position of vertex in current graph
+		List<Vertex<String, String>> copies = new ArrayList<>(graph.numVertices());
+		for (Vertex<String, String> vertex : graph.vertices()) {
+			copies.add(converted.insertVertex(vertex.element()));
+		}
+		Map<List<Double>, Vertex<String, String>> convertedVertices = new HashMap<>();
+		for (Map.Entry<List<Double>, Vertex<String, String>> entry : vertexCoords.entrySet()) {
+			convertedVertices.put(entry.getKey(), copies.get(entry.getValue().position()));
+		}
+		Map<Edge<String, String>, List<Double>> convertedEdges = new HashMap<>();
+		for (Edge<String, String> edge : graph.edges()) {
+			Vertex<String, String> origin = copies.get(edge.endpoint(0).position());
+			Vertex<String, String> destination = copies.get(edge.endpoint(1).position());
+			if (directed || converted.getEdge(origin, destination) == null) {
+				Edge<String, String> copy = converted.insertEdge(origin, destination, edge.element(),
+						graph.weight(edge));
+				if (!compact) {
+					convertedEdges.put(copy, edgeCoords.get(edge));
+				}
+			}
+		}
+		for (int i = 0; i < lastAdded.size(); i++) {
+			lastAdded.set(i, copies.get(lastAdded.get(i).position()));
+		}
+		// Copies keep the positions, and so the ids, of the vertices they replace
+		for (int id = 0; id < vertexById.size(); id++) {
+			if (vertexById.get(id) != null) {
+				vertexById.set(id, copies.get(vertexById.get(id).position()));
+			}
+		}
+		graph = converted;
+		vertexCoords = convertedVertices;
+		structureVersion++;
+		if (!compact) {
+			edgeCoords = convertedEdges;
+			edgeGrid.clear();
+			for (Map.Entry<Edge<String, String>, List<Double>> entry : edgeCoords.entrySet()) {
+				indexEdge(entry.getKey(), entry.getValue());
+			}
+			edgeCapacity = Math.max(edgeCoords.size(), DEFAULT_EDGE_CAPACITY);
+		}
+		trimToSize();
+		coordsCopy = null;
+		fireGraphChanged();
+	}
+
+	/**
+	 * Returns true if the weight of each edge is kept equal to its length.
+	 * 
+	 * @return true if weights are derived from coordinates
+	 */
+	public boolean isAutoWeights() {
+		return autoWeights;
+	}
+
+	/**
+	 * Keep the weight of each edge equal to the distance between its endpoints,
+	 * or stop doing so. When turned on, the weights of all edges are recalculated
+	 * and are then updated whenever an edge is added or a vertex moved. When
+	 * turned off, edges keep their weights.
+	 * 
+	 * @param autoWeights
+	 *            true if weights are to be derived from coordinates
+	 */
+	public void setAutoWeights(boolean autoWeights) {
+		this.autoWeights = autoWeights;
+		if (autoWeights) {
+			indexPendingEdges();
+			for (Map.Entry<Edge<String, String>, List<Double>> entry : edgeCoords.entrySet()) {
+				graph.setWeight(entry.getKey(), length(entry.getValue()));
+			}
+			fireGraphChanged();
+		}
+	}
+
+	/**
+	 * Returns the weight of the given edge.
+	 * 
+	 * @param edge
+	 *            edge of graph
+	 * @return weight of edge
+	 */
+	public double getWeight(Edge<String, String> edge) {
+		return graph.weight(edge);
+	}
+
+	/**
+	 * Returns a new empty graph, directed or undirected, compact if the model is
+	 * compact and the graph undirected.
+	 */
+	private Graph<String, String> newGraph(boolean directed) {
+		if (directed) {
+			return new DirectedGraph<>();
+		}
+		return compact ? new CompactGraph<>() : new UndirectedGraph<>();
+	}
+
+	/**
+	 * Release the room a compact graph leaves for growth, once it has been built.
+	 */
+	private void trimToSize() {
+		if (graph instanceof CompactGraph) {
+			((CompactGraph<String, String>) graph).trimToSize();
+		}
+	}
+
+	/**
+	 * Add the given listener, notifying it of each subsequent change to the graph.
+	 * 
+	 * @param listener
+	 *            listener to be added
+	 */
+	public void addGraphListener(GraphListener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Remove the given listener.
+	 * 
+	 * @param listener
+	 *            listener to be removed
+	 */
+	public void removeGraphListener(GraphListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Notify listeners that the graph has been modified, or record the change if a
+	 * batch is open.
+	 */
+	private void fireGraphChanged() {
+		if (openBatches > 0) {
+			changedInBatch = true;
+			return;
+		}
+		CHANGE_EVENTS.increment();
+		for (GraphListener listener : listeners) {
+			listener.graphChanged();
+		}
+	}
+
+	/**
+	 * Open a batch of modifications. Listeners are notified once, when the
+	 * outermost open batch is committed, rather than after every modification.
+	 * 
+	 * @return newly opened batch
+	 */
+	public Batch beginBatch() {
+		openBatches++;
+		return new Batch();
+	}
+
+	/**
+	 * Group of bulk vertex and edge modifications resulting in a single change
+	 * notification. Every batch must be committed once all modifications have been
+	 * made.
+	 */
+	public class Batch {
+
+		// True if batch has been committed
+		private boolean committed = false;
+
+		/**
+		 * Reserve space for the given number of additional edges, avoiding repeated
+		 * rehashing of edge coordinates during bulk insertion. Coordinates and index
+		 * entries of edges added from then on are made together when the batch is
+		 * committed, rather than one edge at a time.
+		 * 
+		 * @param additional
+		 *            number of edges expected to be added
+		 */
+		public void ensureEdgeCapacity(int additional) {
+			checkOpen();
+			graph.ensureEdgeCapacity(graph.numEdges() + additional);
+			if (compact) {
+				return;
+			}
+			int pending = pendingEdges == null ? 0 : pendingEdges.size();
+			int required = edgeCoords.size() + pending + additional;
+			if (required > edgeCapacity) {
+				Map<Edge<String, String>, List<Double>> resized = new HashMap<>((int) (required / 0.75f) + 1);
+				resized.putAll(edgeCoords);
+				edgeCoords = resized;
+				edgeCapacity = required;
+			}
+			if (pendingEdges == null) {
+				pendingEdges = new ArrayList<>(additional);
+			}
+		}
+
+		/**
+		 * Add a vertex storing the given element and having the given x, y
+		 * coordinates.
+		 * 
+		 * @param element
+		 *            element to be stored
+		 * @param x
+		 *            x-coordinate of vertex
+		 * @param y
+		 *            y-coordinate of vertex
+		 * @return newly added vertex
+		 */
+		public Vertex<String, String> addVertex(String element, double x, double y) {
+			checkOpen();
+			return GraphModel.this.addVertex(element, x, y);
+		}
+
+		/**
+		 * Add a vertex having the given x, y coordinates and a label stored by no
+		 * other vertex.
+		 * 
+		 * @param x
+		 *            x-coordinate of vertex
+		 * @param y
+		 *            y-coordinate of vertex
+		 * @return newly added vertex
+		 */
+		public Vertex<String, String> addVertex(double x, double y) {
+			checkOpen();
+			return GraphModel.this.addVertex(x, y);
+		}
+
+		/**
+		 * Add an edge between the vertices with the given coordinates, unless they are
+		 * already connected.
+		 * 
+		 * @param originCoords
+		 *            coordinates of vertex of origin
+		 * @param destCoords
+		 *            coordinates of vertex of destination
+		 * @param element
+		 *            element to be stored
+		 */
+		public void addEdge(List<Double> originCoords, List<Double> destCoords, String element) {
+			checkOpen();
+			GraphModel.this.addEdge(originCoords, destCoords, element);
+		}
+
+		/**
+		 * Add an edge between the vertices with the given coordinates without checking
+		 * whether they are already connected. The caller must guarantee that no edge
+		 * joins the two vertices.
+		 * 
+		 * @param originCoords
+		 *            coordinates of vertex of origin
+		 * @param destCoords
+		 *            coordinates of vertex of destination
+		 * @param element
+		 *            element to be stored
+		 */
+		public void addUniqueEdge(List<Double> originCoords, List<Double> destCoords, String element) {
+			checkOpen();
+			insertEdge(vertexCoords.get(originCoords), vertexCoords.get(destCoords), originCoords, destCoords,
+					element, Graph.DEFAULT_WEIGHT);
+		}
+
+		/**
+		 * Remove all edges of the graph.
+		 */
+		public void removeAllEdges() {
+			checkOpen();
+			GraphModel.this.removeAllEdges();
+		}
+
+		/**
+		 * Release the room the graph leaves for growth, once the batch has built
+		 * the bulk of a graph and few further edges are expected. Only a compact
+		 * graph holds such room, and it grows again on the next insertion, so this
+		 * is not meant for batches made by interactive edits.
+		 */
+		public void trimToSize() {
+			checkOpen();
+			GraphModel.this.trimToSize();
+		}
+
+		/**
+		 * Close this batch, indexing the edges it added in bulk and notifying
+		 * listeners of any changes if no other batch remains open.
+		 */
+		public void commit() {
+			checkOpen();
+			committed = true;
+			openBatches--;
+			if (openBatches == 0) {
+				indexPendingEdges();
+				pendingEdges = null;
+				if (changedInBatch) {
+					changedInBatch = false;
+					fireGraphChanged();
+				}
+			}
+		}
+
+		private void checkOpen() {
+			if (committed) {
+				throw new IllegalStateException("Batch has already been committed");
+			}
+		}
 	}
 
 	/**
@@ -50,19 +530,57 @@ public class GraphModel {
 	 *            y-coordinate of vertex
 	 */
 	public Vertex<String, String> addVertex(String element, double x, double y) {
+		long start = ADD_VERTEX_TIMER.start();
 		Vertex<String, String> vertex = graph.insertVertex(element);
-		List<Double> coords = new ArrayList<>();
+		List<Double> coords = new ArrayList<>(2);
 		coords.add(x);
 		coords.add(y);
 		vertexCoords.put(coords, vertex);
+		vertexGrid.insertPoint(register(vertex, coords), x, y);
+		if (coordsCopy != null) {
+			coordsCopy.add(new double[] { x, y });
+		}
 		if (lastAdded.size() == 2) {
 			lastAdded.remove(0);
 		}
 		lastAdded.add(vertex);
-		System.out.println("New vertex at [" + x + ", " + y + "]");
+		VERTICES_ADDED.increment();
+		if (Log.isDebugEnabled()) {
+			Log.debug("New vertex at [" + x + ", " + y + "]");
+		}
+		ADD_VERTEX_TIMER.stop(start);
+		fireGraphChanged();
 		return vertex;
 	}
 
+	/**
+	 * Add a vertex to the graph having the given x, y coordinates and a label
+	 * stored by no other vertex of the graph.
+	 * 
+	 * @param x
+	 *            x-coordinate of vertex
+	 * @param y
+	 *            y-coordinate of vertex
+	 * @return newly added vertex
+	 */
+	public Vertex<String, String> addVertex(double x, double y) {
+		return addVertex(newLabel(), x, y);
+	}
+
+	/**
+	 * Returns a label stored by no vertex of the graph. Labels are consecutive
+	 * integers, skipping any already used, such as labels loaded from a file.
+	 * 
+	 * @return unused vertex label
+	 */
+	public String newLabel() {
+		String label = Integer.toString(nextLabel++);
+		while (graph.getVertex(label) != null) {
+			label = Integer.toString(nextLabel++);
+		}
+		return label;
+	}
+
 	/**
 	 * Move vertex at given initial coordinates to final coordinates.
 	 * 
@@ -76,29 +594,111 @@ public class GraphModel {
 	 *            y-coordinate to which vertex will be moved
 	 * @return edges incident on removed vertex
 	 */
-	public List<Edge<String, String>> moveVertex(double initialX, double initialY, double finalX, double finalY) {
-		List<Double> initialCoords = new ArrayList<>();
-		initialCoords.add(initialX);
-		initialCoords.add(initialY);
+	public Iterable<Edge<String, String>> moveVertex(double initialX, double initialY, double finalX, double finalY) {
+		return moveVertex(getVertexId(initialX, initialY), finalX, finalY);
+	}
+
+	/**
+	 * Move vertex with given id to the given coordinates.
+	 * 
+	 * @param id
+	 *            id of vertex to be moved
+	 * @param x
+	 *            x-coordinate to which vertex will be moved
+	 * @param y
+	 *            y-coordinate to which vertex will be moved
+	 * @return edges incident on moved vertex
+	 * @throws IllegalArgumentException
+	 *             if there is no vertex with the given id
+	 */
+	public Iterable<Edge<String, String>> moveVertex(int id, double x, double y) {
+		long start = MOVE_VERTEX_TIMER.start();
+		Iterable<Edge<String, String>> edges = relocate(vertex(id), id, x, y);
+		MOVE_VERTEX_TIMER.stop(start);
+		fireGraphChanged();
+		return edges;
+	}
+
+	/**
+	 * Move each vertex with one of the given ids by the given distances, updating
+	 * the vertices and their incident edges in one pass and notifying listeners
+	 * once, in time proportional to the number of vertices and incident edges
+	 * moved. Vertices may be moved onto the former positions of others moved with
+	 * them.
+	 * 
+	 * @param ids
+	 *            ids of vertices to be moved
+	 * @param dx
+	 *            distance along x-axis by which vertices will be moved
+	 * @param dy
+	 *            distance along y-axis by which vertices will be moved
+	 * @throws IllegalArgumentException
+	 *             if there is no vertex with one of the ids, in which case no
+	 *             vertex is moved
+	 */
+	public void moveVertices(int[] ids, double dx, double dy) {
+		for (int id : ids) {
+			vertex(id);
+		}
+		long start = MOVE_VERTICES_TIMER.start();
+		for (int id : ids) {
+			List<Double> coords = coordsById.get(id);
+			relocate(vertexById.get(id), id, coords.get(0) + dx, coords.get(1) + dy);
+		}
+		MOVE_VERTICES_TIMER.stop(start);
+		if (ids.length > 0) {
+			fireGraphChanged();
+		}
+	}
 
-		List<Double> finalCoords = new ArrayList<>();
-		finalCoords.add(finalX);
-		finalCoords.add(finalY);
+	/**
+	 * Move the given vertex, having the given id, and the ends of its incident
+	 * edges to the given coordinates, without notifying listeners. An edge joining
+	 * two moved vertices is updated when each is moved.
+	 */
+	private Iterable<Edge<String, String>> relocate(Vertex<String, String> vertex, int id, double x, double y) {
+		List<Double> initialCoords = coordsById.get(id);
+		List<Double> finalCoords = new ArrayList<>(2);
+		finalCoords.add(x);
+		finalCoords.add(y);
 
-		Vertex<String, String> vertex = vertexCoords.remove(initialCoords);
-		List<Edge<String, String>> edges = graph.incomingEdges(vertex);
+		if (vertexCoords.get(initialCoords) == vertex) {
+			vertexCoords.remove(initialCoords);
+		}
+		// Indexes change only for vertices and edges moved across cells
+		vertexGrid.movePoint(id, initialCoords.get(0), initialCoords.get(1), x, y);
+		indexPendingEdges();
+		coordsById.set(id, finalCoords);
+		Iterable<Edge<String, String>> edges = graph.incidentEdges(vertex);
 		// Change x, y coordinate of end of each edge incident on vertex being moved
 		for (Edge<String, String> edge : edges) {
+			if (compact) {
+				// Edge coordinates are read from the vertices, so only weights change
+				if (autoWeights) {
+					graph.setWeight(edge, length(edgeCoords.get(edge)));
+				}
+				continue;
+			}
 			List<Double> coords = edgeCoords.get(edge);
-			// Index corresponding to x-coordinate to be changed, first + 1 is y-coordinate
-			int first = 0;
-			if (coords.get(2) == initialX && coords.get(3) == initialY) {
-				first = 2;
+			double[] indexed = { coords.get(0), coords.get(1), coords.get(2), coords.get(3) };
+			// Both ends of a self-loop move, coordinates of origin first
+			if (edge.endpoint(0) == vertex) {
+				coords.set(0, x);
+				coords.set(1, y);
+			}
+			if (edge.endpoint(1) == vertex) {
+				coords.set(2, x);
+				coords.set(3, y);
+			}
+			edgeGrid.moveSegment(edge, indexed, coords.get(0), coords.get(1), coords.get(2), coords.get(3));
+			if (autoWeights) {
+				graph.setWeight(edge, length(coords));
 			}
-			coords.set(first, finalX);
-			coords.set(first + 1, finalY);
 		}
 		vertexCoords.put(finalCoords, vertex);
+		if (coordsCopy != null) {
+			coordsCopy.set(vertex.position(), new double[] { x, y });
+		}
 		return edges;
 	}
 
@@ -107,35 +707,42 @@ public class GraphModel {
 	 * defined grid size.
 	 */
 	public void alignVerticesToGrid() {
-		Map<List<Double>, Vertex<String, String>> vertexCopy = new HashMap<>(vertexCoords);
-		for (List<Double> coords : vertexCopy.keySet()) {
-			List<Double> g1 = new ArrayList<>();
-			List<Double> g2 = new ArrayList<>();
-			List<Double> g3 = new ArrayList<>();
-			List<Double> g4 = new ArrayList<>();
-			double lowerX = (double) (Math.floor(coords.get(0)/GRID_SIZE) * GRID_SIZE);
-			double upperX = (double) (Math.ceil(coords.get(0)/GRID_SIZE) * GRID_SIZE);
-			double lowerY = (double) (Math.floor(coords.get(1)/GRID_SIZE) * GRID_SIZE);
-			double upperY = (double) (Math.ceil(coords.get(1)/GRID_SIZE) * GRID_SIZE);
-			g1.add(lowerX);
-			g1.add(lowerY);
-			g2.add(upperX);
-			g2.add(lowerY);
-			g3.add(lowerX);
-			g3.add(upperY);
-			g4.add(upperX);
-			g4.add(upperY);
+		long start = ALIGN_TIMER.start();
+		Batch batch = beginBatch();
+		try {
+			Map<List<Double>, Vertex<String, String>> vertexCopy = new HashMap<>(vertexCoords);
+			for (List<Double> coords : vertexCopy.keySet()) {
+				List<Double> g1 = new ArrayList<>();
+				List<Double> g2 = new ArrayList<>();
+				List<Double> g3 = new ArrayList<>();
+				List<Double> g4 = new ArrayList<>();
+				double lowerX = (double) (Math.floor(coords.get(0)/GRID_SIZE) * GRID_SIZE);
+				double upperX = (double) (Math.ceil(coords.get(0)/GRID_SIZE) * GRID_SIZE);
+				double lowerY = (double) (Math.floor(coords.get(1)/GRID_SIZE) * GRID_SIZE);
+				double upperY = (double) (Math.ceil(coords.get(1)/GRID_SIZE) * GRID_SIZE);
+				g1.add(lowerX);
+				g1.add(lowerY);
+				g2.add(upperX);
+				g2.add(lowerY);
+				g3.add(lowerX);
+				g3.add(upperY);
+				g4.add(upperX);
+				g4.add(upperY);
 			
-			FixedProximityComparator p = new FixedProximityComparator(coords);
-			Map<Double, List<Double>> proximities = new HashMap<>();
+				FixedProximityComparator p = new FixedProximityComparator(coords);
+				Map<Double, List<Double>> proximities = new HashMap<>();
 			
-			proximities.put(p.distanceToFixed(g1), g1);
-			proximities.put(p.distanceToFixed(g2), g2);
-			proximities.put(p.distanceToFixed(g3), g3);
-			proximities.put(p.distanceToFixed(g4), g4);
+				proximities.put(p.distanceToFixed(g1), g1);
+				proximities.put(p.distanceToFixed(g2), g2);
+				proximities.put(p.distanceToFixed(g3), g3);
+				proximities.put(p.distanceToFixed(g4), g4);
 			
-			List<Double> newCoords = proximities.get(Collections.min(proximities.keySet()));
-			moveVertex(coords.get(0), coords.get(1), newCoords.get(0), newCoords.get(1));
+				List<Double> newCoords = proximities.get(Collections.min(proximities.keySet()));
+				moveVertex(coords.get(0), coords.get(1), newCoords.get(0), newCoords.get(1));
+			}
+			ALIGN_TIMER.stop(start);
+		} finally {
+			batch.commit();
 		}
 	}
 	
@@ -144,7 +751,9 @@ public class GraphModel {
 		while (vertexCoords.containsKey(newCoords) && vertexCoords.get(newCoords) != vertexCoords.get(oldCoords)) {
 			double xDistance = newCoords.get(0) - oldCoords.get(0);
 			double yDistance = newCoords.get(1) - oldCoords.get(1);
-			System.out.println(Math.signum(xDistance) + " " + Math.signum(yDistance));
+			if (Log.isDebugEnabled()) {
+				Log.debug(Math.signum(xDistance) + " " + Math.signum(yDistance));
+			}
 			if (xDistance > yDistance) {
 				coordsCopy.set(1, coordsCopy.get(1) + (GRID_SIZE * Math.signum(xDistance)));
 				newCoords.set(1, (double) (Math.round(coordsCopy.get(1) / GRID_SIZE) * GRID_SIZE));
@@ -171,7 +780,9 @@ public class GraphModel {
 			while (vertexCoords.containsKey(newCoords) && vertexCoords.get(newCoords) != vertexCoords.get(coords)) {
 				double xDistance = newCoords.get(0) - coords.get(0);
 				double yDistance = newCoords.get(1) - coords.get(1);
-				System.out.println(Math.signum(xDistance) + " " + Math.signum(yDistance));
+				if (Log.isDebugEnabled()) {
+					Log.debug(Math.signum(xDistance) + " " + Math.signum(yDistance));
+				}
 				if (xDistance > yDistance) {
 					coordsCopy.set(1, coordsCopy.get(1) + (GRID_SIZE * Math.signum(xDistance)));
 					newCoords.set(1, (double) (Math.round(coordsCopy.get(1) / GRID_SIZE) * GRID_SIZE));
@@ -211,15 +822,20 @@ public class GraphModel {
 	 * @return coords of the previously added vertex
 	 */
 	public List<Double> getLastAddedCoords() {
+		int id = getLastAddedId();
+		return id < 0 ? null : coordsById.get(id);
+	}
+
+	/**
+	 * Returns the id of the previously added vertex.
+	 * 
+	 * @return id of the previously added vertex, or -1 if there is none
+	 */
+	public int getLastAddedId() {
 		if (lastAdded.isEmpty()) {
-			return null;
-		}
-		for (List<Double> coords : vertexCoords.keySet()) {
-			if (vertexCoords.get(coords).equals(lastAdded.get(lastAdded.size() - 1))) {
-				return coords;
-			}
+			return -1;
 		}
-		return null;
+		return idOf(lastAdded.get(lastAdded.size() - 1));
 	}
 
 	/**
@@ -244,6 +860,7 @@ public class GraphModel {
 	 * @return mapping of edges to x, y coordinates
 	 */
 	public Map<Edge<String, String>, List<Double>> getEdges() {
+		indexPendingEdges();
 		return edgeCoords;
 	}
 
@@ -259,18 +876,107 @@ public class GraphModel {
 	 *            element to be stored
 	 */
 	public void addEdge(List<Double> originCoords, List<Double> destCoords, String element) {
+		addEdge(originCoords, destCoords, element, Graph.DEFAULT_WEIGHT);
+	}
+
+	/**
+	 * Add edge storing the given element and weight between the vertices with
+	 * the given coordinates, unless they are already connected. If weights are
+	 * derived from coordinates, the given weight is replaced by the length of the
+	 * edge.
+	 * 
+	 * @param originCoords
+	 *            coordinates of vertex of origin
+	 * @param destCoords
+	 *            coordinates of vertex of destination
+	 * @param element
+	 *            element to be stored
+	 * @param weight
+	 *            weight of edge
+	 */
+	public void addEdge(List<Double> originCoords, List<Double> destCoords, String element, double weight) {
 		// Prevent creation of edge between two already connected vertices
 		if ((originCoords == null || destCoords == null)
 				|| graph.getEdge(vertexCoords.get(originCoords), vertexCoords.get(destCoords)) != null) {
 			return;
 		}
-		System.out.println("New edge from " + originCoords + " to " + destCoords);
-		Edge<String, String> edge = graph.insertEdge(vertexCoords.get(originCoords), vertexCoords.get(destCoords),
-				element);
-		List<Double> coords = new ArrayList<>();
-		coords.addAll(originCoords);
-		coords.addAll(destCoords);
-		edgeCoords.put(edge, coords);
+		long start = ADD_EDGE_TIMER.start();
+		if (Log.isDebugEnabled()) {
+			Log.debug("New edge from " + originCoords + " to " + destCoords);
+		}
+		insertEdge(vertexCoords.get(originCoords), vertexCoords.get(destCoords), originCoords, destCoords, element,
+				weight);
+		ADD_EDGE_TIMER.stop(start);
+	}
+
+	/**
+	 * Add an edge storing the given element between the vertices with the given
+	 * ids, unless they are already connected.
+	 * 
+	 * @param originId
+	 *            id of vertex of origin
+	 * @param destId
+	 *            id of vertex of destination
+	 * @param element
+	 *            element to be stored
+	 * @throws IllegalArgumentException
+	 *             if there is no vertex with either id
+	 */
+	public void addEdge(int originId, int destId, String element) {
+		Vertex<String, String> origin = vertex(originId);
+		Vertex<String, String> destination = vertex(destId);
+		if (graph.getEdge(origin, destination) != null) {
+			return;
+		}
+		long start = ADD_EDGE_TIMER.start();
+		if (Log.isDebugEnabled()) {
+			Log.debug("New edge from vertex " + originId + " to vertex " + destId);
+		}
+		insertEdge(origin, destination, coordsById.get(originId), coordsById.get(destId), element,
+				Graph.DEFAULT_WEIGHT);
+		ADD_EDGE_TIMER.stop(start);
+	}
+
+	/**
+	 * Add an edge storing the given element and weight between the given
+	 * vertices, having the given coordinates, without checking for an existing
+	 * edge. If weights are derived from coordinates, the given weight is replaced
+	 * by the length of the edge.
+	 * 
+	 * @param origin
+	 *            vertex of origin
+	 * @param destination
+	 *            vertex of destination
+	 * @param originCoords
+	 *            coordinates of vertex of origin
+	 * @param destCoords
+	 *            coordinates of vertex of destination
+	 * @param element
+	 *            element to be stored
+	 * @param weight
+	 *            weight of edge
+	 */
+	private void insertEdge(Vertex<String, String> origin, Vertex<String, String> destination,
+			List<Double> originCoords, List<Double> destCoords, String element, double weight) {
+		if (compact) {
+			// Coordinates of edge are read from its vertices when needed
+			graph.insertEdge(origin, destination, element, autoWeights ? length(originCoords, destCoords) : weight);
+		} else if (pendingEdges != null) {
+			// Coordinates and index entries are made when the batch is committed
+			pendingEdges.add(graph.insertEdge(origin, destination, element,
+					autoWeights ? length(originCoords, destCoords) : weight));
+		} else {
+			List<Double> coords = new ArrayList<>(4);
+			coords.addAll(originCoords);
+			coords.addAll(destCoords);
+			Edge<String, String> edge = graph.insertEdge(origin, destination, element,
+					autoWeights ? length(coords) : weight);
+			edgeCoords.put(edge, coords);
+			indexEdge(edge, coords);
+		}
+		structureVersion++;
+		EDGES_ADDED.increment();
+		fireGraphChanged();
 	}
 
 	/**
@@ -282,16 +988,42 @@ public class GraphModel {
 	 *            y-coordinate of vertex to be deleted
 	 */
 	public void deleteVertex(double x, double y) {
-		List<Double> coords = new ArrayList<>();
-		coords.add(x);
-		coords.add(y);
-		Vertex<String, String> vertex = vertexCoords.remove(coords);
-		List<Edge<String, String>> edges = graph.incomingEdges(vertex);
+		deleteVertex(getVertexId(x, y));
+	}
+
+	/**
+	 * Delete vertex with given id, and the edges incident on it.
+	 * 
+	 * @param id
+	 *            id of vertex to be deleted
+	 * @throws IllegalArgumentException
+	 *             if there is no vertex with the given id
+	 */
+	public void deleteVertex(int id) {
+		long start = DELETE_VERTEX_TIMER.start();
+		Vertex<String, String> vertex = vertex(id);
+		List<Double> coords = coordsById.get(id);
+		if (vertexCoords.get(coords) == vertex) {
+			vertexCoords.remove(coords);
+		}
+		vertexGrid.removePoint(id, coords.get(0), coords.get(1));
+		Iterable<Edge<String, String>> edges = graph.incidentEdges(vertex);
 		for (Edge<String, String> edge : edges) {
-			edgeCoords.remove(edge);
+			forgetEdge(edge);
 		}
 		lastAdded.remove(vertex);
+		int position = vertex.position();
+		unregister(vertex);
 		graph.removeVertex(vertex);
+		if (coordsCopy != null) {
+			// Graph moved its last vertex into position of removed vertex
+			double[] last = coordsCopy.removeLast();
+			if (position < coordsCopy.size()) {
+				coordsCopy.set(position, last);
+			}
+		}
+		DELETE_VERTEX_TIMER.stop(start);
+		fireGraphChanged();
 	}
 
 	/**
@@ -307,49 +1039,324 @@ public class GraphModel {
 	 *            end y-coordinate of edge to be deleted
 	 */
 	public void deleteEdge(List<Double> coords) {
-		for (Edge<String, String> edge : edgeCoords.keySet()) {
-			if (edgeCoords.get(edge).equals(coords)) {
-				edgeCoords.remove(edge);
-				graph.removeEdge(edge);
-				break;
-			}
+		long start = DELETE_EDGE_TIMER.start();
+		Edge<String, String> edge = findEdge(coords);
+		if (edge != null) {
+			forgetEdge(edge);
+			graph.removeEdge(edge);
+			DELETE_EDGE_TIMER.stop(start);
+			fireGraphChanged();
 		}
 	}
 
 	/**
-	 * Returns true if the graph is connected, that is, every unordered pair of
-	 * vertices (x, y) has a path that leads from x to y.
-	 * 
-	 * @return true if graph is connected
+	 * Returns the edge with the given start and end coordinates, found among the
+	 * edges incident to the vertex at its start, or null if there is none.
 	 */
-	public boolean graphIsConnected() {
-		if (vertexCoords.isEmpty()) {
-			return false;
+	private Edge<String, String> findEdge(List<Double> coords) {
+		Vertex<String, String> vertex = vertexCoords.get(coords.subList(0, 2));
+		if (vertex == null) {
+			return null;
 		}
-		Map<Vertex<String, String>, Edge<String, String>> forest = new HashMap<>();
-		Map<Vertex<String, String>, List<Edge<String, String>>> back = new HashMap<>();
-		Set<Vertex<String, String>> known = new HashSet<>();
-		Vertex<String, String> vertex = vertexCoords.values().iterator().next();
-		graph.depthFirstTraversal(vertex, known, forest, back);
-		if (forest.size() == vertexCoords.size() - 1) {
-			return true;
-		} else {
-			return false;
+		indexPendingEdges();
+		for (Edge<String, String> edge : graph.incidentEdges(vertex)) {
+			if (edgeCoords.get(edge).equals(coords)) {
+				return edge;
+			}
 		}
+		return null;
 	}
 
 	/**
-	 * Connect each vertex of the graph to every other vertex, producing a connected
-	 * graph.
+	 * Returns the start and end coordinates of the edge nearest the given point,
+	 * found through the edge index, if it lies within the given distance of the
+	 * point; otherwise null.
+	 * 
+	 * @param x
+	 *            x-coordinate of point
+	 * @param y
+	 *            y-coordinate of point
+	 * @param tolerance
+	 *            greatest distance of edge from point
+	 * @return start and end x, y coordinates of nearest edge, or null
+	 */
+	public List<Double> getEdgeNear(double x, double y, double tolerance) {
+		// Coordinates of nearest edge found and its squared distance
+		List<List<Double>> nearest = new ArrayList<>(Collections.singletonList(null));
+		double[] least = { tolerance * tolerance };
+		queryEdges(x - tolerance, y - tolerance, x + tolerance, y + tolerance, edge -> {
+			List<Double> coords = edgeCoords.get(edge);
+			double distance = squaredDistance(x, y, coords);
+			if (distance <= least[0]) {
+				least[0] = distance;
+				nearest.set(0, coords);
+			}
+		});
+		return nearest.get(0) == null ? null : new ArrayList<>(nearest.get(0));
+	}
+
+	/**
+	 * Returns the id of the vertex nearest the given point, found through the
+	 * vertex index, if it lies within the given distance of the point.
+	 * 
+	 * @param x
+	 *            x-coordinate of point
+	 * @param y
+	 *            y-coordinate of point
+	 * @param tolerance
+	 *            greatest distance of vertex from point
+	 * @return id of nearest vertex, or -1 if there is none within distance
+	 */
+	public int getVertexNear(double x, double y, double tolerance) {
+		// Id of nearest vertex found and its squared distance
+		int[] nearest = { -1 };
+		double[] least = { tolerance * tolerance };
+		vertexGrid.query(x - tolerance, y - tolerance, x + tolerance, y + tolerance, id -> {
+			List<Double> coords = coordsById.get(id);
+			double dx = coords.get(0) - x;
+			double dy = coords.get(1) - y;
+			double distance = dx * dx + dy * dy;
+			if (distance <= least[0]) {
+				least[0] = distance;
+				nearest[0] = id;
+			}
+		});
+		return nearest[0];
+	}
+
+	/**
+	 * Returns the id of the vertex at the given coordinates.
+	 * 
+	 * @param x
+	 *            x-coordinate of vertex
+	 * @param y
+	 *            y-coordinate of vertex
+	 * @return id of vertex, or -1 if there is no vertex at the coordinates
+	 */
+	public int getVertexId(double x, double y) {
+		List<Double> coords = new ArrayList<>(2);
+		coords.add(x);
+		coords.add(y);
+		Vertex<String, String> vertex = vertexCoords.get(coords);
+		return vertex == null ? -1 : idOf(vertex);
+	}
+
+	/**
+	 * Returns the ids of all vertices of the graph, in increasing order.
+	 * 
+	 * @return ids of vertices
+	 */
+	public int[] getVertexIds() {
+		return vertexIds();
+	}
+
+	/**
+	 * Returns true if the graph has a vertex with the given id.
+	 * 
+	 * @param id
+	 *            id of vertex
+	 * @return true if vertex with id exists
+	 */
+	public boolean containsVertex(int id) {
+		return id >= 0 && id < vertexById.size() && vertexById.get(id) != null;
+	}
+
+	/**
+	 * Returns the x-coordinate of the vertex with the given id.
+	 * 
+	 * @param id
+	 *            id of vertex
+	 * @return x-coordinate of vertex
+	 */
+	public double getVertexX(int id) {
+		vertex(id);
+		return coordsById.get(id).get(0);
+	}
+
+	/**
+	 * Returns the y-coordinate of the vertex with the given id.
+	 * 
+	 * @param id
+	 *            id of vertex
+	 * @return y-coordinate of vertex
+	 */
+	public double getVertexY(int id) {
+		vertex(id);
+		return coordsById.get(id).get(1);
+	}
+
+	/**
+	 * Returns the x, y coordinates of the vertex with the given id.
+	 * 
+	 * @param id
+	 *            id of vertex
+	 * @return copy of x, y coordinates of vertex
+	 */
+	public List<Double> getVertexCoords(int id) {
+		vertex(id);
+		return new ArrayList<>(coordsById.get(id));
+	}
+
+	/**
+	 * Returns the vertex with the given id, failing if there is none.
+	 */
+	private Vertex<String, String> vertex(int id) {
+		if (!containsVertex(id)) {
+			throw new IllegalArgumentException("No vertex with id " + id);
+		}
+		return vertexById.get(id);
+	}
+
+	/**
+	 * Returns the id of the given vertex of the graph.
+	 */
+	private int idOf(Vertex<String, String> vertex) {
+		return idByPosition[vertex.position()];
+	}
+
+	/**
+	 * Give the given newly inserted vertex, having the given coordinates, the next
+	 * id, and return it.
+	 */
+	private int register(Vertex<String, String> vertex, List<Double> coords) {
+		structureVersion++;
+		int id = vertexById.size();
+		vertexById.add(vertex);
+		coordsById.add(coords);
+		if (vertex.position() >= idByPosition.length) {
+			idByPosition = Arrays.copyOf(idByPosition, Math.max(2 * idByPosition.length, vertex.position() + 1));
+		}
+		idByPosition[vertex.position()] = id;
+		return id;
+	}
+
+	/**
+	 * Release the id of the given vertex, about to be removed from the graph,
+	 * which moves its last vertex into the position of the removed vertex.
+	 */
+	private void unregister(Vertex<String, String> vertex) {
+		structureVersion++;
+		int id = idOf(vertex);
+		vertexById.set(id, null);
+		coordsById.set(id, null);
+		idByPosition[vertex.position()] = idByPosition[graph.numVertices() - 1];
+	}
+
+	/**
+	 * Forget the ids of all vertices, so ids are given again from zero.
+	 */
+	private void clearIds() {
+		structureVersion++;
+		vertexById = new ArrayList<>();
+		coordsById = new ArrayList<>();
+		idByPosition = new int[16];
+	}
+
+	/**
+	 * Returns the squared distance between the given point and the segment with
+	 * the given start and end coordinates.
+	 */
+	private static double squaredDistance(double x, double y, List<Double> coords) {
+		double startX = coords.get(0);
+		double startY = coords.get(1);
+		double dx = coords.get(2) - startX;
+		double dy = coords.get(3) - startY;
+		double lengthSquared = dx * dx + dy * dy;
+		// Fraction of segment at which point nearest given point lies
+		double t = 0;
+		if (lengthSquared > 0) {
+			t = Math.max(0, Math.min(1, ((x - startX) * dx + (y - startY) * dy) / lengthSquared));
+		}
+		double nearestX = startX + t * dx - x;
+		double nearestY = startY + t * dy - y;
+		return nearestX * nearestX + nearestY * nearestY;
+	}
+
+	/**
+	 * Returns true if the graph is connected, that is, every unordered pair of
+	 * vertices (x, y) has a path that leads from x to y. A directed graph is
+	 * connected if it is when the directions of its edges are ignored.
+	 * 
+	 * @return true if graph is connected
+	 */
+	public boolean graphIsConnected() {
+		if (vertexCoords.isEmpty()) {
+			return false;
+		}
+		// Traversal following edges in both directions, iterative rather than
+		// recursive so that long paths cannot overflow the stack
+		Set<Vertex<String, String>> known = new HashSet<>();
+		List<Vertex<String, String>> stack = new ArrayList<>();
+		stack.add(vertexCoords.values().iterator().next());
+		known.add(stack.get(0));
+		while (!stack.isEmpty()) {
+			Vertex<String, String> vertex = stack.remove(stack.size() - 1);
+			for (Edge<String, String> edge : graph.incidentEdges(vertex)) {
+				Vertex<String, String> opposite = graph.opposite(vertex, edge);
+				if (known.add(opposite)) {
+					stack.add(opposite);
+				}
+			}
+		}
+		return known.size() == vertexCoords.size();
+	}
+
+	/**
+	 * Connect each vertex of the graph to every other vertex, producing a connected
+	 * graph. In a directed graph, vertices are connected in both directions.
+	 * 
+	 * Each edge added to a standard model is still given its own coordinate list,
+	 * map entry and index entries, though these are made together when the edges
+	 * are all added, so completing a graph of 2,000 vertices, adding two million
+	 * edges, takes about 3 to 4 seconds on a single core, much of it in garbage
+	 * collection. A compact model keeps none of these and completes the same
+	 * graph in under half a second.
 	 */
 	public void connectAllVertices() {
-		for (List<Double> c1 : vertexCoords.keySet()) {
-			for (List<Double> c2 : vertexCoords.keySet()) {
-				if (c1 != c2) {
-					this.addEdge(c1, c2, "NONE");
+		long start = CONNECT_ALL_TIMER.start();
+		int n = vertexCoords.size();
+		List<List<Double>> coords = new ArrayList<>(n);
+		List<Vertex<String, String>> vertices = new ArrayList<>(n);
+		for (Map.Entry<List<Double>, Vertex<String, String>> entry : vertexCoords.entrySet()) {
+			coords.add(entry.getKey());
+			vertices.add(entry.getValue());
+		}
+		boolean directed = graph.isDirected();
+		long pairs = (long) n * (n - 1) / 2;
+		long missing = (directed ? 2 * pairs : pairs) - graph.numEdges();
+		// Vertices joined by an existing edge, only these pairs require an edge check
+		Map<Vertex<String, String>, Set<Vertex<String, String>>> adjacent = new HashMap<>();
+		for (Edge<String, String> edge : graph.edges()) {
+			// A directed edge only joins its origin to its destination
+			for (int k = 0; k < (directed ? 1 : 2); k++) {
+				Set<Vertex<String, String>> neighbours = adjacent.get(edge.endpoint(k));
+				if (neighbours == null) {
+					neighbours = new HashSet<>();
+					adjacent.put(edge.endpoint(k), neighbours);
 				}
+				neighbours.add(edge.endpoint(k ^ 1));
 			}
 		}
+		Batch batch = beginBatch();
+		try {
+			batch.ensureEdgeCapacity((int) Math.min(missing, Integer.MAX_VALUE));
+			for (int i = 0; i < n; i++) {
+				Vertex<String, String> vertex = vertices.get(i);
+				vertex.ensureCapacity(n - 1);
+				Set<Vertex<String, String>> neighbours = adjacent.get(vertex);
+				// Each pair is visited once, or once in each direction if directed, so every
+				// edge added here is unique
+				for (int j = directed ? 0 : i + 1; j < n; j++) {
+					if (j != i && (neighbours == null || !neighbours.contains(vertices.get(j)))) {
+						insertEdge(vertex, vertices.get(j), coords.get(i), coords.get(j), "NONE",
+								Graph.DEFAULT_WEIGHT);
+					}
+				}
+			}
+			CONNECT_ALL_TIMER.stop(start);
+		} finally {
+			batch.commit();
+		}
 	}
 
 	/**
@@ -359,74 +1366,41 @@ public class GraphModel {
 	 *            vertices to be connected
 	 */
 	public void connectVertices(ArrayList<ArrayList<Double>> vertices) {
-		for (List<Double> c1 : vertexCoords.keySet()) {
-			for (List<Double> c2 : vertexCoords.keySet()) {
-				if (c1 != c2) {
-					this.addEdge(c1, c2, "NONE");
+		Batch batch = beginBatch();
+		try {
+			for (List<Double> c1 : vertexCoords.keySet()) {
+				for (List<Double> c2 : vertexCoords.keySet()) {
+					if (c1 != c2) {
+						this.addEdge(c1, c2, "NONE");
+					}
 				}
 			}
+		} finally {
+			batch.commit();
 		}
 	}
 
 	/**
-	 * Connect each of the given in a line, where each vertex has, at most, a degree
-	 * of two (excluding connections to any vertices not included in the given
-	 * list), and is connected to the two closest vertices.
+	 * Connect each of the given vertices to the given vertices nearest it, along
+	 * the Euclidean minimum spanning tree of the given vertices, so vertices lying
+	 * roughly along a line are connected in sequence along it. The tree is found
+	 * through the Delaunay triangulation of the vertices in O(n log n) time, and
+	 * its edges are added in a single batch.
 	 * 
 	 * @param vertices
 	 *            vertices to be connected
 	 */
 	public void connectVerticesInSequence(ArrayList<ArrayList<Double>> vertices) {
-		ArrayList<Double> minX = vertices.get(0);
-		ArrayList<Double> minY = minX;
-		ArrayList<Double> maxX = minX;
-		ArrayList<Double> maxY = minX;
-
-		ArrayList<Double> first = null;
-
-		for (ArrayList<Double> c : vertices) {
-			if (c.get(0) < minX.get(0)) {
-				minX = c;
-			}
-			if (c.get(1) < minY.get(1)) {
-				minY = c;
-			}
-			if (c.get(0) > maxX.get(0)) {
-				maxX = c;
-			}
-			if (c.get(1) > maxY.get(1)) {
-				maxY = c;
-			}
-		}
-		if ((maxX.get(0) - minX.get(0)) > (maxY.get(1) - minY.get(1))) {
-			first = minX;
-		} else {
-			first = minY;
-		}
-
-		ArrayList<ArrayList<Double>> vCopy = (ArrayList<ArrayList<Double>>) vertices.clone();
-		for (List<Double> c1 : vertices) {
-			if (vertices.indexOf(c1) == (vertices.size() - 1)) {
-				break;
-			}
-			vCopy.sort(new FixedProximityComparator(c1));
-			System.out.println("Vertices: " + c1 + " " + vCopy.get(1));
-			for (ArrayList<Double> c2 : vCopy) {
-				if (c1 != c2 && graph.getEdge(vertexCoords.get(c1), vertexCoords.get(c2)) == null) {
-					this.addEdge(c1, c2, "NONE");
-					break;
-				}
-			}
+		int n = vertices.size();
+		int[] ids = new int[n];
+		double[] xs = new double[n];
+		double[] ys = new double[n];
+		for (int i = 0; i < n; i++) {
+			ids[i] = idOf(vertexCoords.get(vertices.get(i)));
+			xs[i] = vertices.get(i).get(0);
+			ys[i] = vertices.get(i).get(1);
 		}
-
-		/*
-		 * vertices.sort(new FixedProximityComparator(first)); Map<List<Double>, Double>
-		 * proximity = new HashMap<>(); FixedProximityComparator p = new
-		 * FixedProximityComparator(first); for (ArrayList<Double> v : vertices) {
-		 * proximity.put(v, p.distanceToFixed(v)); } System.out.println("Proximities: "
-		 * + proximity); List<Double> previous = null; for (List<Double> c : vertices) {
-		 * if (previous != null) { this.addEdge(previous, c, "NONE"); } previous = c; }
-		 */
+		connectPairs(ids, new DelaunayTriangulation(xs, ys).minimumSpanningTree());
 	}
 
 	/**
@@ -453,14 +1427,252 @@ public class GraphModel {
 		}
 	}
 
+	/**
+	 * Connect each vertex to the given number of other vertices nearest it, unless
+	 * they are already connected. In a directed graph, edges lead from each vertex
+	 * to its nearest vertices. The nearest vertices of all vertices are found in
+	 * parallel through a grid of the vertex coordinates, in near-linear time, and
+	 * the edges are then added in a single batch.
+	 * 
+	 * @param k
+	 *            number of nearest vertices to which each vertex is connected
+	 * @return number of edges added
+	 */
+	public int connectNearestNeighbours(int k) {
+		if (k <= 0) {
+			throw new IllegalArgumentException("Number of neighbours must be positive: " + k);
+		}
+		long start = CONNECT_NEAREST_TIMER.start();
+		int[] ids = vertexIds();
+		int n = ids.length;
+		double[] xs = new double[n];
+		double[] ys = new double[n];
+		double area = coordinates(ids, xs, ys);
+		// Cells holding about k vertices each, so few rings are searched
+		PointGrid grid = new PointGrid(xs, ys, Math.sqrt(area * k / Math.max(n, 1)));
+		int[][] neighbours = new int[n][];
+		IntStream.range(0, n).parallel().forEach(i -> neighbours[i] = grid.nearest(i, k));
+		int added = connectNeighbours(ids, neighbours);
+		CONNECT_NEAREST_TIMER.stop(start);
+		return added;
+	}
+
+	/**
+	 * Connect each pair of vertices lying within the given distance of each other,
+	 * unless they are already connected. In a directed graph, such vertices are
+	 * connected in both directions. The vertices near each vertex are found in
+	 * parallel through a grid of the vertex coordinates, in time linear in the
+	 * number of vertices and pairs found, and the edges are then added in a single
+	 * batch.
+	 * 
+	 * @param radius
+	 *            greatest distance between connected vertices
+	 * @return number of edges added
+	 */
+	public int connectWithinDistance(double radius) {
+		if (!(radius >= 0)) {
+			throw new IllegalArgumentException("Distance must not be negative: " + radius);
+		}
+		long start = CONNECT_WITHIN_TIMER.start();
+		int[] ids = vertexIds();
+		int n = ids.length;
+		double[] xs = new double[n];
+		double[] ys = new double[n];
+		coordinates(ids, xs, ys);
+		PointGrid grid = new PointGrid(xs, ys, Math.max(radius, Double.MIN_NORMAL));
+		boolean directed = graph.isDirected();
+		int[][] neighbours = new int[n][];
+		IntStream.range(0, n).parallel().forEach(i -> {
+			IntStream.Builder near = IntStream.builder();
+			// Each pair found once, from its first vertex, unless edges are directed
+			grid.forEachWithin(xs[i], ys[i], radius, j -> {
+				if (directed ? j != i : j > i) {
+					near.add(j);
+				}
+			});
+			neighbours[i] = near.build().toArray();
+		});
+		int added = connectNeighbours(ids, neighbours);
+		CONNECT_WITHIN_TIMER.stop(start);
+		return added;
+	}
+
+	/**
+	 * Connect each pair of vertices joined by an edge of the Delaunay triangulation
+	 * of the vertex coordinates, unless they are already connected. In a directed
+	 * graph, such vertices are connected in both directions. The triangulation is
+	 * found in O(n log n) time, and its edges are added in a single batch.
+	 * 
+	 * @return number of edges added
+	 */
+	public int connectDelaunayTriangulation() {
+		return connectTriangulated(CONNECT_DELAUNAY_TIMER, DelaunayTriangulation::edges);
+	}
+
+	/**
+	 * Connect each pair of vertices joined by an edge of the Euclidean minimum
+	 * spanning tree of the vertex coordinates, unless they are already connected.
+	 * In a directed graph, such vertices are connected in both directions. The
+	 * tree is found from the Delaunay triangulation of the vertices in O(n log n)
+	 * time, and its edges are added in a single batch.
+	 * 
+	 * @return number of edges added
+	 */
+	public int connectMinimumSpanningTree() {
+		return connectTriangulated(CONNECT_TREE_TIMER, DelaunayTriangulation::minimumSpanningTree);
+	}
+
+	/**
+	 * Connect each pair of vertices that are relative neighbours, no other vertex
+	 * being nearer to both of them than they are to each other, unless they are
+	 * already connected. In a directed graph, such vertices are connected in both
+	 * directions. The pairs are found among the edges of the Delaunay
+	 * triangulation of the vertices, and are added in a single batch.
+	 * 
+	 * @return number of edges added
+	 */
+	public int connectRelativeNeighbours() {
+		return connectTriangulated(CONNECT_RELATIVE_TIMER, DelaunayTriangulation::relativeNeighbourhoodGraph);
+	}
+
+	/**
+	 * Triangulate all vertices and connect the pairs of them given by the given
+	 * function of the triangulation, timed by the given timer. Returns the number
+	 * of edges added.
+	 */
+	private int connectTriangulated(Timer timer, Function<DelaunayTriangulation, int[]> pairs) {
+		long start = timer.start();
+		int[] ids = vertexIds();
+		double[] xs = new double[ids.length];
+		double[] ys = new double[ids.length];
+		coordinates(ids, xs, ys);
+		int added = connectPairs(ids, pairs.apply(new DelaunayTriangulation(xs, ys)));
+		timer.stop(start);
+		return added;
+	}
+
+	/**
+	 * Returns the ids of all vertices, in increasing order.
+	 */
+	private int[] vertexIds() {
+		int[] ids = new int[graph.numVertices()];
+		int n = 0;
+		for (int id = 0; id < vertexById.size(); id++) {
+			if (vertexById.get(id) != null) {
+				ids[n++] = id;
+			}
+		}
+		return ids;
+	}
+
+	/**
+	 * Fill the given arrays with the x- and y-coordinates of the vertices with the
+	 * given ids, returning the area of their bounding box, or of a unit square if
+	 * they have none.
+	 */
+	private double coordinates(int[] ids, double[] xs, double[] ys) {
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < ids.length; i++) {
+			List<Double> coords = coordsById.get(ids[i]);
+			xs[i] = coords.get(0);
+			ys[i] = coords.get(1);
+			minX = Math.min(minX, xs[i]);
+			minY = Math.min(minY, ys[i]);
+			maxX = Math.max(maxX, xs[i]);
+			maxY = Math.max(maxY, ys[i]);
+		}
+		return ids.length == 0 ? 1 : Math.max(maxX - minX, 1) * Math.max(maxY - minY, 1);
+	}
+
+	/**
+	 * Connect the vertex with each given id to the vertices whose indices in the
+	 * ids are given for it, unless they are already connected, in a single batch.
+	 * Returns the number of edges added.
+	 */
+	private int connectNeighbours(int[] ids, int[][] neighbours) {
+		long total = 0;
+		for (int[] near : neighbours) {
+			total += near.length;
+		}
+		int added = 0;
+		Batch batch = beginBatch();
+		try {
+			batch.ensureEdgeCapacity((int) Math.min(total, Integer.MAX_VALUE - 8));
+			for (int i = 0; i < ids.length; i++) {
+				Vertex<String, String> vertex = vertexById.get(ids[i]);
+				for (int j : neighbours[i]) {
+					Vertex<String, String> neighbour = vertexById.get(ids[j]);
+					if (graph.getEdge(vertex, neighbour) == null) {
+						insertEdge(vertex, neighbour, coordsById.get(ids[i]), coordsById.get(ids[j]), "NONE",
+								Graph.DEFAULT_WEIGHT);
+						added++;
+					}
+				}
+			}
+		} finally {
+			batch.commit();
+		}
+		return added;
+	}
+
+	/**
+	 * Connect the vertices with the given ids whose indices in the ids are given in
+	 * pairs, unless they are already connected, in both directions if the graph is
+	 * directed, in a single batch. Returns the number of edges added.
+	 */
+	private int connectPairs(int[] ids, int[] pairs) {
+		boolean directed = graph.isDirected();
+		int added = 0;
+		Batch batch = beginBatch();
+		try {
+			batch.ensureEdgeCapacity(directed ? pairs.length : pairs.length / 2);
+			for (int k = 0; k < pairs.length; k += 2) {
+				int i = pairs[k];
+				int j = pairs[k + 1];
+				added += connectPair(ids[i], ids[j]);
+				if (directed) {
+					added += connectPair(ids[j], ids[i]);
+				}
+			}
+		} finally {
+			batch.commit();
+		}
+		return added;
+	}
+
+	/**
+	 * Connect the vertex with the first given id to that with the second, unless
+	 * they are already connected, returning the number of edges added.
+	 */
+	private int connectPair(int originId, int destId) {
+		Vertex<String, String> origin = vertexById.get(originId);
+		Vertex<String, String> dest = vertexById.get(destId);
+		if (graph.getEdge(origin, dest) != null) {
+			return 0;
+		}
+		insertEdge(origin, dest, coordsById.get(originId), coordsById.get(destId), "NONE", Graph.DEFAULT_WEIGHT);
+		return 1;
+	}
+
 	/**
 	 * Remove all edges of graph.
 	 */
 	public void removeAllEdges() {
-		for (Edge<String, String> edge : edgeCoords.keySet()) {
-			graph.removeEdge(edge);
+		long start = REMOVE_EDGES_TIMER.start();
+		graph.clearEdges();
+		structureVersion++;
+		if (!compact) {
+			edgeCoords.clear();
+			edgeGrid.clear();
+		}
+		if (pendingEdges != null) {
+			pendingEdges.clear();
 		}
-		edgeCoords.clear();
+		REMOVE_EDGES_TIMER.stop(start);
+		fireGraphChanged();
 	}
 
 	/**
@@ -469,10 +1681,16 @@ public class GraphModel {
 	 * @param coords
 	 */
 	public void connectVertex(List<Double> coords) {
-		for (List<Double> c : vertexCoords.keySet()) {
-			if (!c.equals(coords)) {
-				this.addEdge(coords, c, "NONE");
+		Batch batch = beginBatch();
+		try {
+			batch.ensureEdgeCapacity(vertexCoords.size() - 1);
+			for (List<Double> c : vertexCoords.keySet()) {
+				if (!c.equals(coords)) {
+					batch.addEdge(coords, c, "NONE");
+				}
 			}
+		} finally {
+			batch.commit();
 		}
 	}
 
@@ -484,16 +1702,21 @@ public class GraphModel {
 	 */
 	public void disconnectVertex(List<Double> coords) {
 		Vertex<String, String> vertex = vertexCoords.get(coords);
-		List<Edge<String, String>> incidentEdges = graph.incomingEdges(vertex);
+		// Copy incident edges, as removal modifies the incidence sequence
+		List<Edge<String, String>> incidentEdges = new ArrayList<>();
+		for (Edge<String, String> edge : graph.incidentEdges(vertex)) {
+			incidentEdges.add(edge);
+		}
 		for (Edge<String, String> edge : incidentEdges) {
+			forgetEdge(edge);
 			graph.removeEdge(edge);
-			edgeCoords.remove(edge);
 		}
+		fireGraphChanged();
 	}
 
 	public ArrayList<ArrayList<Double>> getOppositeVertices(List<Double> startCoords) {
 		Vertex<String, String> vertex = vertexCoords.get(startCoords);
-		List<Edge<String, String>> incident = graph.incomingEdges(vertex);
+		Iterable<Edge<String, String>> incident = graph.incidentEdges(vertex);
 		List<Vertex<String, String>> opposite = new ArrayList<>();
 		for (Edge<String, String> edge : incident) {
 			opposite.add(graph.opposite(vertex, edge));
@@ -512,13 +1735,26 @@ public class GraphModel {
 	 */
 	public void clearGraph() {
 		graph.clear();
+		if (coordsCopy != null) {
+			coordsCopy.clear();
+		}
 		vertexCoords.clear();
-		edgeCoords.clear();
+		clearIds();
+		vertexGrid.clear();
+		if (!compact) {
+			edgeCoords.clear();
+			edgeGrid.clear();
+		}
+		if (pendingEdges != null) {
+			pendingEdges.clear();
+		}
+		fireGraphChanged();
 	}
 
 	/**
 	 * Returns true if the graph is complete, that is, each pair of vertices of the
-	 * graph is joined by an edge.
+	 * graph is joined by an edge. In a directed graph, each ordered pair must be
+	 * joined by an edge from the first vertex to the second.
 	 * 
 	 * @return true if graph is complete
 	 */
@@ -526,16 +1762,167 @@ public class GraphModel {
 		if (vertexCoords.isEmpty()) {
 			return false;
 		}
-		for (Vertex<String, String> v1 : vertexCoords.values()) {
-			for (Vertex<String, String> v2 : vertexCoords.values()) {
-				if (v1 != v2 && graph.getEdge(v1, v2) == null) {
-					return false;
+		// Graph is complete if every vertex has an edge to every other vertex
+		for (Vertex<String, String> vertex : vertexCoords.values()) {
+			if (graph.outDegree(vertex) < vertexCoords.size() - 1) {
+				return false;
+			}
+			Set<Vertex<String, String>> adjacent = new HashSet<>();
+			for (Edge<String, String> edge : graph.outgoingEdges(vertex)) {
+				Vertex<String, String> opposite = graph.opposite(vertex, edge);
+				if (opposite != vertex) {
+					adjacent.add(opposite);
 				}
 			}
+			if (adjacent.size() < vertexCoords.size() - 1) {
+				return false;
+			}
 		}
 		return true;
 	}
 
+	/**
+	 * Count the triangles of the graph, each three vertices joined to each other,
+	 * in total and through each vertex, giving the local and global clustering
+	 * coefficients of the graph. Edge directions are ignored. Vertex i of the
+	 * count is the vertex with the i-th smallest id, as returned by
+	 * getVertexIds(). Vertices are counted in parallel, in O(m^1.5) time, and
+	 * dense graphs such as complete graphs without visiting each triangle.
+	 * 
+	 * @return triangles and clustering coefficients of graph
+	 */
+	public TriangleCount countTriangles() {
+		long start = COUNT_TRIANGLES_TIMER.start();
+		int[] ids = vertexIds();
+		// Index of each vertex in ids, by id
+		int[] indices = new int[vertexById.size()];
+		for (int i = 0; i < ids.length; i++) {
+			indices[ids[i]] = i;
+		}
+		int[] origins = new int[graph.numEdges()];
+		int[] destinations = new int[graph.numEdges()];
+		int e = 0;
+		for (Edge<String, String> edge : graph.edges()) {
+			origins[e] = indices[idOf(edge.endpoint(0))];
+			destinations[e++] = indices[idOf(edge.endpoint(1))];
+		}
+		TriangleCount count = new TriangleCount(ids.length, origins, destinations);
+		COUNT_TRIANGLES_TIMER.stop(start);
+		return count;
+	}
+
+	/**
+	 * Returns the estimated heap space taken by the graph and the coordinates and
+	 * indexes of its vertices and edges, split between vertices and edges. The
+	 * vertices are measured on a copy of the model holding the same vertices and
+	 * no edges, and the rest is put down to the edges. Persistent copies kept for
+	 * snapshots are not counted. Every object of the model is visited, so this
+	 * takes time linear in the size of the model, and temporary space of about 8
+	 * bytes per object.
+	 * 
+	 * @return estimated space taken by vertices and edges of model
+	 */
+	public ModelFootprint footprint() {
+		long start = FOOTPRINT_TIMER.start();
+		indexPendingEdges();
+		long total = HeapSize.deepSize(footprintRoots());
+		GraphModel vertices = new GraphModel(compact, newGraph(graph.isDirected()));
+		Batch batch = vertices.beginBatch();
+		for (int id : vertexIds()) {
+			List<Double> coords = coordsById.get(id);
+			batch.addVertex(vertexById.get(id).element(), coords.get(0), coords.get(1));
+		}
+		batch.trimToSize();
+		batch.commit();
+		long vertexBytes = HeapSize.deepSize(vertices.footprintRoots());
+		FOOTPRINT_TIMER.stop(start);
+		return new ModelFootprint(compact, graph.numVertices(), graph.numEdges(), vertexBytes, total - vertexBytes);
+	}
+
+	/**
+	 * Returns the objects holding the graph and the coordinates and indexes of its
+	 * vertices and edges. The edge view of a compact model holds nothing, and
+	 * would lead back to the model and its listeners, so is left out.
+	 */
+	private Object[] footprintRoots() {
+		return new Object[] { graph, vertexCoords, compact ? null : edgeCoords, vertexById, coordsById, idByPosition,
+				vertexGrid, edgeGrid };
+	}
+
+	/**
+	 * Returns the length of a shortest path from the vertex with the given origin
+	 * id to the vertex with the given destination id, the length of a path being
+	 * the sum of the weights of its edges. In a directed graph, paths follow the
+	 * directions of edges. Weights are assumed to be non-negative.
+	 * 
+	 * @param originId
+	 *            id of first vertex of path
+	 * @param destId
+	 *            id of last vertex of path
+	 * @return length of shortest path, or positive infinity if there is no path
+	 * @throws IllegalArgumentException
+	 *             if there is no vertex with either id
+	 */
+	public double shortestDistance(int originId, int destId) {
+		Vertex<String, String> origin = vertex(originId);
+		Vertex<String, String> dest = vertex(destId);
+		// Length of shortest path found so far to each vertex, by vertex position
+		double[] distances = new double[graph.numVertices()];
+		Arrays.fill(distances, Double.POSITIVE_INFINITY);
+		distances[origin.position()] = 0;
+		// Vertices reached, by length of path; a vertex reached again by a shorter
+		// path is added again and its stale entries skipped
+		PriorityQueue<Map.Entry<Double, Vertex<String, String>>> queue = new PriorityQueue<>(
+				Map.Entry.comparingByKey());
+		queue.add(new AbstractMap.SimpleImmutableEntry<>(0.0, origin));
+		while (!queue.isEmpty()) {
+			Map.Entry<Double, Vertex<String, String>> entry = queue.poll();
+			double distance = entry.getKey();
+			Vertex<String, String> vertex = entry.getValue();
+			if (vertex == dest) {
+				return distance;
+			}
+			if (distance > distances[vertex.position()]) {
+				continue;
+			}
+			for (Edge<String, String> edge : graph.outgoingEdges(vertex)) {
+				Vertex<String, String> opposite = graph.opposite(vertex, edge);
+				double length = distance + graph.weight(edge);
+				if (length < distances[opposite.position()]) {
+					distances[opposite.position()] = length;
+					queue.add(new AbstractMap.SimpleImmutableEntry<>(length, opposite));
+				}
+			}
+		}
+		return Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * Returns an immutable snapshot of the graph and its vertex coordinates in
+	 * constant time, for background workers to read while the model changes. The
+	 * first snapshot starts keeping persistent copies, taking time linear in the
+	 * size of the graph; thereafter each change costs O(log n) extra. The graph
+	 * of a compact model keeps no persistent copy, so each snapshot copies its
+	 * edges, taking time linear in their number.
+	 * 
+	 * @return snapshot of model
+	 * @throws UnsupportedOperationException
+	 *             if the graph representation does not support snapshots
+	 */
+	public ModelSnapshot snapshot() {
+		GraphSnapshot<String, String> graphSnapshot = graph.snapshot();
+		if (coordsCopy == null) {
+			// Vertices sharing coordinates share a key of vertexCoords, so copy
+			// the coordinates of each position from its vertex id instead
+			coordsCopy = new CopyOnWriteVector<>();
+			for (int position = 0; position < graph.numVertices(); position++) {
+				List<Double> coords = coordsById.get(idByPosition[position]);
+				coordsCopy.add(new double[] { coords.get(0), coords.get(1) });
+			}
+		}
+		return new ModelSnapshot(graphSnapshot, coordsCopy.snapshot());
+	}
+
 	/**
 	 * Load vertices and edge from text file.
 	 * 
@@ -547,15 +1934,38 @@ public class GraphModel {
 		if (file == null) {
 			return;
 		}
-		graph = new UndirectedGraph<>();
+		graph.clear();
+		if (coordsCopy != null) {
+			coordsCopy.clear();
+		}
 		vertexCoords = new HashMap<>();
-		edgeCoords = new HashMap<>();
+		clearIds();
+		vertexGrid.clear();
+		if (!compact) {
+			edgeCoords = new HashMap<>();
+			edgeGrid.clear();
+			edgeCapacity = DEFAULT_EDGE_CAPACITY;
+		}
+		if (pendingEdges != null) {
+			pendingEdges.clear();
+		}
 
 		int stage = 0;
+		long start = LOAD_TIMER.start();
+		Batch batch = beginBatch();
 		List<Double> newCoords = new ArrayList<>();
+		// Edges mostly store the same few elements, so each is kept only once
+		Map<String, String> edgeElements = new HashMap<>();
 
 		try (BufferedReader br = new BufferedReader(new FileReader(file))) {
-			for (String line; (line = br.readLine()) != null;) {
+			// Graph is directed if file begins with header, otherwise first line is a vertex
+			String header = br.readLine();
+			boolean directed = DIRECTED_HEADER.equals(header);
+			if (directed != graph.isDirected()) {
+				graph = newGraph(directed);
+				coordsCopy = null;
+			}
+			for (String line = directed ? br.readLine() : header; line != null; line = br.readLine()) {
 				if (line.equals("")) {
 					stage++;
 					continue;
@@ -572,12 +1982,21 @@ public class GraphModel {
 				} else {
 					int originIndex = values.get(0).intValue();
 					int destIndex = values.get(1).intValue();
+					// Weight is omitted if it is the default
+					double weight = components.length > 3 ? Double.parseDouble(components[3])
+							: Graph.DEFAULT_WEIGHT;
 					addEdge(newCoords.subList(originIndex * 2, (originIndex * 2) + 2),
-							newCoords.subList(destIndex * 2, (destIndex * 2) + 2), element);
+							newCoords.subList(destIndex * 2, (destIndex * 2) + 2),
+							edgeElements.computeIfAbsent(element, e -> e), weight);
 				}
 			}
+			trimToSize();
+			LOAD_TIMER.stop(start);
+			LOAD_BYTES.add(file.length());
 		} catch (IOException | NumberFormatException e) {
 			throw new IOException("Error reading file " + file.getName());
+		} finally {
+			batch.commit();
 		}
 	}
 
@@ -589,34 +2008,462 @@ public class GraphModel {
 	 * @throws IOException
 	 */
 	public void saveGraphToFile(File file) throws IOException {
-		List<Vertex<String, String>> vertices = new ArrayList<>();
+		long start = SAVE_TIMER.start();
+		// Line index of each vertex in file, by position of vertex in graph
+		int[] indices = new int[graph.numVertices()];
 		try (BufferedWriter bw = new BufferedWriter(new FileWriter(file))) {
-			for (List<Double> coords : vertexCoords.keySet()) {
-				Vertex<String, String> vertex = vertexCoords.get(coords);
-				vertices.add(vertex);
+			if (graph.isDirected()) {
+				bw.write(DIRECTED_HEADER);
+				bw.newLine();
+			}
+			int index = 0;
+			for (Map.Entry<List<Double>, Vertex<String, String>> entry : vertexCoords.entrySet()) {
+				List<Double> coords = entry.getKey();
+				Vertex<String, String> vertex = entry.getValue();
+				indices[vertex.position()] = index++;
 				String line = vertex.element() + " " + coords.get(0) + " " + coords.get(1);
 				bw.write(line);
 				bw.newLine();
 			}
 			bw.newLine();
-			List<Edge<String, String>> edges = graph.edges();
-			for (Edge<String, String> edge : edges) {
-				List<Vertex<String, String>> endpoints = edge.endpoints();
-				String line = edge.element() + " " + vertices.indexOf(endpoints.get(0)) + " "
-						+ vertices.indexOf(endpoints.get(1));
+			for (Edge<String, String> edge : graph.edges()) {
+				String line = edge.element() + " " + indices[edge.endpoint(0).position()] + " "
+						+ indices[edge.endpoint(1).position()];
+				double weight = graph.weight(edge);
+				if (weight != Graph.DEFAULT_WEIGHT) {
+					line += " " + weight;
+				}
 				bw.write(line);
 				bw.newLine();
 			}
 		} catch (IOException e) {
 			throw new IOException("Error writing to file " + file.getName());
 		}
+		SAVE_TIMER.stop(start);
+		SAVE_BYTES.add(file.length());
+	}
+
+	/**
+	 * Performs the given action for the coordinates of each vertex within the
+	 * given rectangle.
+	 * 
+	 * @param minX
+	 *            least x-coordinate of rectangle
+	 * @param minY
+	 *            least y-coordinate of rectangle
+	 * @param maxX
+	 *            greatest x-coordinate of rectangle
+	 * @param maxY
+	 *            greatest y-coordinate of rectangle
+	 * @param action
+	 *            action performed for x, y coordinates of each vertex
+	 */
+	public void forEachVertexIn(double minX, double minY, double maxX, double maxY, Consumer<List<Double>> action) {
+		forEachVertexIdIn(minX, minY, maxX, maxY, id -> action.accept(coordsById.get(id)));
+	}
+
+	/**
+	 * Performs the given action for the id of each vertex within the given
+	 * rectangle.
+	 * 
+	 * @param minX
+	 *            least x-coordinate of rectangle
+	 * @param minY
+	 *            least y-coordinate of rectangle
+	 * @param maxX
+	 *            greatest x-coordinate of rectangle
+	 * @param maxY
+	 *            greatest y-coordinate of rectangle
+	 * @param action
+	 *            action performed for id of each vertex
+	 */
+	public void forEachVertexIdIn(double minX, double minY, double maxX, double maxY, IntConsumer action) {
+		vertexGrid.query(minX, minY, maxX, maxY, id -> {
+			List<Double> coords = coordsById.get(id);
+			double x = coords.get(0);
+			double y = coords.get(1);
+			if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+				action.accept(id);
+			}
+		});
+	}
+
+	/**
+	 * Returns the ids of the vertices within the given rectangle, found through
+	 * the vertex index.
+	 * 
+	 * @param minX
+	 *            least x-coordinate of rectangle
+	 * @param minY
+	 *            least y-coordinate of rectangle
+	 * @param maxX
+	 *            greatest x-coordinate of rectangle
+	 * @param maxY
+	 *            greatest y-coordinate of rectangle
+	 * @return ids of vertices within rectangle
+	 */
+	public int[] getVertexIdsIn(double minX, double minY, double maxX, double maxY) {
+		IntStream.Builder ids = IntStream.builder();
+		forEachVertexIdIn(minX, minY, maxX, maxY, ids);
+		return ids.build().toArray();
+	}
+
+	/**
+	 * Returns the ids of the vertices within the given polygon, found through the
+	 * vertex index among those within its bounding box. A point is within the
+	 * polygon if a ray from it crosses the edges of the polygon an odd number of
+	 * times, so the polygon need not be simple.
+	 * 
+	 * @param polygon
+	 *            x- and y-coordinates of each corner of polygon in turn, the last
+	 *            corner being joined to the first
+	 * @return ids of vertices within polygon
+	 */
+	public int[] getVertexIdsIn(double[] polygon) {
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i + 1 < polygon.length; i += 2) {
+			minX = Math.min(minX, polygon[i]);
+			minY = Math.min(minY, polygon[i + 1]);
+			maxX = Math.max(maxX, polygon[i]);
+			maxY = Math.max(maxY, polygon[i + 1]);
+		}
+		IntStream.Builder ids = IntStream.builder();
+		forEachVertexIdIn(minX, minY, maxX, maxY, id -> {
+			List<Double> coords = coordsById.get(id);
+			if (encloses(polygon, coords.get(0), coords.get(1))) {
+				ids.add(id);
+			}
+		});
+		return ids.build().toArray();
+	}
+
+	/**
+	 * Returns true if the given point is within the given polygon by the even-odd
+	 * rule, casting a ray from the point in the direction of increasing x.
+	 */
+	private static boolean encloses(double[] polygon, double x, double y) {
+		boolean inside = false;
+		int corners = polygon.length / 2;
+		for (int i = 0, j = corners - 1; i < corners; j = i++) {
+			double xi = polygon[2 * i];
+			double yi = polygon[2 * i + 1];
+			double xj = polygon[2 * j];
+			double yj = polygon[2 * j + 1];
+			if ((yi > y) != (yj > y) && x < xi + (y - yi) * (xj - xi) / (yj - yi)) {
+				inside = !inside;
+			}
+		}
+		return inside;
+	}
+
+	/**
+	 * Performs the given action once for each edge whose bounding box overlaps the
+	 * given rectangle.
+	 * 
+	 * @param minX
+	 *            least x-coordinate of rectangle
+	 * @param minY
+	 *            least y-coordinate of rectangle
+	 * @param maxX
+	 *            greatest x-coordinate of rectangle
+	 * @param maxY
+	 *            greatest y-coordinate of rectangle
+	 * @param action
+	 *            action performed for each edge
+	 */
+	public void forEachEdgeIn(double minX, double minY, double maxX, double maxY,
+			Consumer<Edge<String, String>> action) {
+		// An edge is held by every cell it crosses, so may be found more than once,
+		// unless the model is compact and every edge is visited once
+		Set<Edge<String, String>> found = compact ? null : new HashSet<>();
+		queryEdges(minX, minY, maxX, maxY, edge -> {
+			List<Double> coords = edgeCoords.get(edge);
+			if (Math.max(coords.get(0), coords.get(2)) >= minX && Math.min(coords.get(0), coords.get(2)) <= maxX
+					&& Math.max(coords.get(1), coords.get(3)) >= minY
+					&& Math.min(coords.get(1), coords.get(3)) <= maxY && (found == null || found.add(edge))) {
+				action.accept(edge);
+			}
+		});
+	}
+
+	/**
+	 * Performs the given action for each cell of the vertex index overlapping the
+	 * given rectangle that holds at least one vertex, giving the number of
+	 * vertices it holds. Cells are squares of side {@link #getIndexCellSize()},
+	 * cell (i, j) spanning x-coordinates from i times the side.
+	 * 
+	 * @param minX
+	 *            least x-coordinate of rectangle
+	 * @param minY
+	 *            least y-coordinate of rectangle
+	 * @param maxX
+	 *            greatest x-coordinate of rectangle
+	 * @param maxY
+	 *            greatest y-coordinate of rectangle
+	 * @param action
+	 *            action performed for each occupied cell
+	 */
+	public void forEachVertexCellIn(double minX, double minY, double maxX, double maxY,
+			SpatialGrid.CellAction action) {
+		vertexGrid.queryCells(minX, minY, maxX, maxY, action);
+	}
+
+	/**
+	 * Performs the given action for each cell of the edge index overlapping the
+	 * given rectangle that at least one edge crosses, giving the number of edges
+	 * crossing it. Long edges are held by coarser cells than
+	 * {@link #getIndexCellSize()}, the side of each cell being given. A compact
+	 * model has no edge index, so instead counts each edge in the cells of side
+	 * {@link #getIndexCellSize()} holding its ends, visiting every edge.
+	 * 
+	 * @param minX
+	 *            least x-coordinate of rectangle
+	 * @param minY
+	 *            least y-coordinate of rectangle
+	 * @param maxX
+	 *            greatest x-coordinate of rectangle
+	 * @param maxY
+	 *            greatest y-coordinate of rectangle
+	 * @param action
+	 *            action performed for each occupied cell
+	 */
+	public void forEachEdgeCellIn(double minX, double minY, double maxX, double maxY,
+			SpatialGrid.CellAction action) {
+		if (!compact) {
+			indexPendingEdges();
+			edgeGrid.queryCells(minX, minY, maxX, maxY, action);
+			return;
+		}
+		// Number of edges with an end in each cell, by column and row of cell
+		Map<Long, int[]> counts = new HashMap<>();
+		for (Edge<String, String> edge : graph.edges()) {
+			long origin = cellOf(coordsById.get(idOf(edge.endpoint(0))));
+			long destination = cellOf(coordsById.get(idOf(edge.endpoint(1))));
+			counts.computeIfAbsent(origin, cell -> new int[1])[0]++;
+			if (destination != origin) {
+				counts.computeIfAbsent(destination, cell -> new int[1])[0]++;
+			}
+		}
+		for (Map.Entry<Long, int[]> entry : counts.entrySet()) {
+			int cellX = (int) (entry.getKey() >> 32);
+			int cellY = (int) (long) entry.getKey();
+			if ((cellX + 1) * INDEX_CELL_SIZE >= minX && cellX * INDEX_CELL_SIZE <= maxX
+					&& (cellY + 1) * INDEX_CELL_SIZE >= minY && cellY * INDEX_CELL_SIZE <= maxY) {
+				action.accept(cellX, cellY, INDEX_CELL_SIZE, entry.getValue()[0]);
+			}
+		}
+	}
+
+	/**
+	 * Returns the column and row of the index cell holding the given coordinates,
+	 * packed into a single number.
+	 */
+	private static long cellOf(List<Double> coords) {
+		long cellX = (long) Math.floor(coords.get(0) / INDEX_CELL_SIZE);
+		long cellY = (long) Math.floor(coords.get(1) / INDEX_CELL_SIZE);
+		return cellX << 32 | (cellY & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Returns the least and greatest coordinates of the vertices, which enclose
+	 * every edge as well, or null if the graph has no vertices.
+	 * 
+	 * @return least x, least y, greatest x and greatest y, in that order
+	 */
+	public double[] getBounds() {
+		if (vertexCoords.isEmpty()) {
+			return null;
+		}
+		double[] bounds = { Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+				Double.NEGATIVE_INFINITY };
+		for (List<Double> coords : vertexCoords.keySet()) {
+			bounds[0] = Math.min(bounds[0], coords.get(0));
+			bounds[1] = Math.min(bounds[1], coords.get(1));
+			bounds[2] = Math.max(bounds[2], coords.get(0));
+			bounds[3] = Math.max(bounds[3], coords.get(1));
+		}
+		return bounds;
+	}
 
+	/**
+	 * Returns the side length of the cells of the vertex and edge indexes.
+	 * 
+	 * @return side length of index cells
+	 */
+	public double getIndexCellSize() {
+		return INDEX_CELL_SIZE;
+	}
+
+	/**
+	 * Performs the given action for each edge that may overlap the given
+	 * rectangle: those found through the edge index, an edge crossing several of
+	 * its cells being found more than once, or every edge of a compact model.
+	 */
+	private void queryEdges(double minX, double minY, double maxX, double maxY,
+			Consumer<Edge<String, String>> action) {
+		if (compact) {
+			graph.edges().forEach(action);
+		} else {
+			indexPendingEdges();
+			edgeGrid.query(minX, minY, maxX, maxY, action);
+		}
+	}
+
+	/**
+	 * Remove the coordinates and index entries of the given edge, which is being
+	 * removed from the graph. A compact model holds neither.
+	 */
+	private void forgetEdge(Edge<String, String> edge) {
+		structureVersion++;
+		if (!compact) {
+			indexPendingEdges();
+			unindexEdge(edge, edgeCoords.remove(edge));
+		}
+	}
+
+	/**
+	 * Make the coordinates and index entries of the edges added by an open bulk
+	 * batch, all at once. Their vertices are where they were when the edges were
+	 * added, as moving a vertex indexes them first.
+	 */
+	private void indexPendingEdges() {
+		if (pendingEdges == null || pendingEdges.isEmpty()) {
+			return;
+		}
+		double[] segments = new double[4 * pendingEdges.size()];
+		for (int i = 0; i < pendingEdges.size(); i++) {
+			Edge<String, String> edge = pendingEdges.get(i);
+			List<Double> coords = coordsOf(edge);
+			edgeCoords.put(edge, coords);
+			for (int k = 0; k < 4; k++) {
+				segments[4 * i + k] = coords.get(k);
+			}
+		}
+		edgeGrid.insertSegments(pendingEdges, segments);
+		pendingEdges.clear();
+	}
+
+	private void indexEdge(Edge<String, String> edge, List<Double> coords) {
+		edgeGrid.insertSegment(edge, coords.get(0), coords.get(1), coords.get(2), coords.get(3));
+	}
+
+	private void unindexEdge(Edge<String, String> edge, List<Double> coords) {
+		// A self-loop is incident twice on its vertex, so may already be removed
+		if (coords == null) {
+			return;
+		}
+		edgeGrid.removeSegment(edge, coords.get(0), coords.get(1), coords.get(2), coords.get(3));
+	}
+
+	/**
+	 * Returns the length of the edge with the given coordinates.
+	 */
+	private static double length(List<Double> edgeCoords) {
+		return Math.hypot(edgeCoords.get(2) - edgeCoords.get(0), edgeCoords.get(3) - edgeCoords.get(1));
+	}
+
+	/**
+	 * Returns the length of the edge with the given start and end coordinates.
+	 */
+	private static double length(List<Double> originCoords, List<Double> destCoords) {
+		return Math.hypot(destCoords.get(0) - originCoords.get(0), destCoords.get(1) - originCoords.get(1));
 	}
 
 	private double distanceBetweenPoints(List<Double> p1, List<Double> p2) {
 		return Math.sqrt(Math.pow((p1.get(0) - p2.get(0)), 2) + Math.pow((p1.get(1) - p2.get(1)), 2));
 	}
 
+	/**
+	 * Returns the start and end x, y coordinates of the given edge, read from its
+	 * vertices.
+	 */
+	private List<Double> coordsOf(Edge<String, String> edge) {
+		List<Double> coords = new ArrayList<>(4);
+		coords.addAll(coordsById.get(idOf(edge.endpoint(0))));
+		coords.addAll(coordsById.get(idOf(edge.endpoint(1))));
+		return coords;
+	}
+
+	/**
+	 * Returns true if the given edge is an edge of the graph.
+	 */
+	private boolean containsEdge(Edge<String, String> edge) {
+		if (graph instanceof CompactGraph) {
+			return ((CompactGraph<String, String>) graph).edgeId(edge) >= 0;
+		}
+		Vertex<String, String> origin = edge.endpoint(0);
+		Vertex<String, String> destination = edge.endpoint(1);
+		return containsVertex(origin) && containsVertex(destination)
+				&& edge.equals(graph.getEdge(origin, destination));
+	}
+
+	/**
+	 * Returns true if the given vertex is a vertex of the graph.
+	 */
+	private boolean containsVertex(Vertex<String, String> vertex) {
+		return vertex != null && vertex.position() >= 0 && vertex.position() < graph.numVertices()
+				&& vertexById.get(idOf(vertex)) == vertex;
+	}
+
+	/**
+	 * Read-only map of the edges of a compact model to their start and end x, y
+	 * coordinates, read from their vertices on each lookup rather than stored.
+	 * Each lookup returns a new list.
+	 */
+	private class EdgeCoordinates extends AbstractMap<Edge<String, String>, List<Double>> {
+
+		@Override
+		public int size() {
+			return graph.numEdges();
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public List<Double> get(Object key) {
+			if (!(key instanceof Edge) || !containsEdge((Edge<String, String>) key)) {
+				return null;
+			}
+			return coordsOf((Edge<String, String>) key);
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return get(key) != null;
+		}
+
+		@Override
+		public Set<Map.Entry<Edge<String, String>, List<Double>>> entrySet() {
+			return new AbstractSet<Map.Entry<Edge<String, String>, List<Double>>>() {
+
+				@Override
+				public int size() {
+					return graph.numEdges();
+				}
+
+				@Override
+				public Iterator<Map.Entry<Edge<String, String>, List<Double>>> iterator() {
+					Iterator<Edge<String, String>> edges = graph.edges().iterator();
+					return new Iterator<Map.Entry<Edge<String, String>, List<Double>>>() {
+
+						@Override
+						public boolean hasNext() {
+							return edges.hasNext();
+						}
+
+						@Override
+						public Map.Entry<Edge<String, String>, List<Double>> next() {
+							Edge<String, String> edge = edges.next();
+							return new AbstractMap.SimpleImmutableEntry<>(edge, coordsOf(edge));
+						}
+					};
+				}
+			};
+		}
+	}
+
 	private class FixedProximityComparator implements Comparator<List<Double>> {
 
 		// Fixed point to which points will be compared according to proximity
@@ -1,14 +1,15 @@
 package gui;
 
 import gui.GraphController.*;
-import javafx.embed.swing.SwingFXUtils;
 import javafx.scene.*;
 import javafx.scene.paint.*;
 import javafx.scene.canvas.*;
 import javafx.scene.shape.Circle;
 import javafx.scene.shape.Line;
+import javafx.scene.shape.Polygon;
 import javafx.scene.text.Font;
 import javafx.scene.text.Text;
+import javafx.scene.transform.Affine;
 import javafx.stage.FileChooser;
 import javafx.stage.FileChooser.ExtensionFilter;
 import javafx.stage.Stage;
@@ -16,20 +17,23 @@ import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.ButtonType;
 import javafx.scene.control.ContextMenu;
-import javafx.scene.image.WritableImage;
+import javafx.scene.control.TextInputDialog;
+import javafx.scene.image.PixelFormat;
 import javafx.scene.layout.Pane;
 
-import java.awt.image.RenderedImage;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
-
-import javax.imageio.ImageIO;
+import java.util.Set;
 
 import adts.*;
+import metrics.Histogram;
+import metrics.Metrics;
+import metrics.Timer;
 
 public class GraphView {
 	/**
@@ -49,13 +53,13 @@ public class GraphView {
 	 * 
 	 * - (Done) Draw mode (new vertex connects to last added vertex)
 	 * 
-	 * - Select and move multiple vertices at once
+	 * - (Done) Select and move multiple vertices at once
 	 * 
 	 * - (Done) Remove vertices
 	 * 
 	 * - (Done) Remove selected edge
 	 * 
-	 * - Zoom in/out graph area
+	 * - (Done) Zoom in/out graph area
 	 * 
 	 * - (Done) Show graph statistics
 	 * 
@@ -106,16 +110,43 @@ public class GraphView {
 	private Text statsText;
 	// Display graph statistics if true, toggled with menu
 	private boolean showStats = true;
+	// Triangles and clustering coefficients of graph, and the ids of the vertices
+	// they number, or null until first needed
+	private TriangleCount clustering;
+	private int[] clusteringIds;
+	// Structure version of model when triangles were counted; moves leave it
+	// unchanged, so dragging does not count them again
+	private long clusteringVersion;
+	// Fill vertices by their local clustering coefficients if true, toggled with
+	// menu
+	private boolean showHeatmap = false;
+	// Text displaying performance metrics
+	private Text metricsText;
+	// Display performance metrics if true, toggled with menu
+	private boolean showMetrics = false;
+
+	// Transform from model coordinates to screen coordinates
+	private Viewport viewport;
+	// Transform of overlay, kept equal to viewport
+	private Affine overlayTransform;
+	// Pixels of canvas, used to draw an overview of the graph
+	private int[] pixels;
+	// Column, row, side and number of items, in fours, of the occupied cells of
+	// the edge and vertex indexes, or null until needed since the graph last changed
+	private double[] edgeCells;
+	private double[] vertexCells;
 
-	// Mouse gestures associated with vertices
-	private VertexGestures vertexGestures;
-	// Mouse gestures associated with edges
-	private EdgeGestures edgeGestures;
+	// Duration of each full redraw of the graph
+	private static final Timer DRAW_TIMER = Metrics.timer("view.drawGraph");
+	// Number of vertex and edge nodes created by each redraw
+	private static final Histogram NODES_PER_FRAME = Metrics.histogram("view.nodesPerFrame");
 
 	// Vertex circles of graph
 	private List<Circle> vertices;
 	// Edge lines of graph
 	private List<Line> edges;
+	// Arrowheads of edges of directed graph
+	private List<Polygon> arrows;
 
 	// Height of canvas
 	private int CANVAS_HEIGHT = 600;
@@ -125,11 +156,45 @@ public class GraphView {
 	private int EDGE_WIDTH = 3;
 	// Radius of each vertex circle
 	private int VERTEX_RADIUS = 15;
+	// Width of each vertex circle outline
+	private int VERTEX_STROKE = 2;
+	// Length and width of each arrowhead of a directed edge
+	private int ARROW_LENGTH = 14;
+	private int ARROW_WIDTH = 10;
 
-	// Vertex for which context menu was created
-	private Circle contextVertex;
-	// Edge for which context menu was created
-	private Line contextEdge;
+	// Least scale at which vertices and edges are drawn as individual nodes
+	private static final double DETAIL_SCALE = 0.5;
+	// Greatest numbers of visible vertices and edge cell crossings drawn as nodes
+	private static final int MAX_DETAIL_VERTICES = 2000;
+	private static final int MAX_DETAIL_EDGES = 4000;
+	// Greatest number of visible vertices and edge cell crossings drawn one by
+	// one on the canvas, beyond which only occupied index cells are drawn
+	private static final int MAX_SIMPLIFIED_ITEMS = 25000;
+	// Greatest number of index cells in view looked up one by one, beyond which
+	// the occupied cells collected since the graph last changed are scanned
+	private static final int MAX_LOOKUP_CELLS = 4096;
+	// Greatest distance in pixels beyond the stroke of an edge at which a click picks it
+	private static final int EDGE_PICK_PIXELS = 4;
+	// Least side in pixels of the screen cells within which vertices are merged
+	private static final int MERGE_PIXELS = 4;
+	// Colours of vertices, edges and background of an overview, as ARGB; edges
+	// are dark grey as when drawn one by one
+	private static final int VERTEX_ARGB = 0xFF000000;
+	private static final int EDGE_ARGB = 0xFFA9A9A9;
+	private static final int BACKGROUND_ARGB = 0xFFFFFFFF;
+
+	// Id of vertex for which context menu was created, or -1 if there is none
+	private int contextVertex = -1;
+	// Id of highlighted vertex, or -1 if none is highlighted
+	private int highlightedVertex = -1;
+	// Ids of selected vertices, as an array and as a set
+	private int[] selection;
+	private Set<Integer> selected;
+	// Outline of the rectangle or lasso being dragged to select vertices, drawn
+	// in screen coordinates over the graph while shown
+	private Polygon selectionBand;
+	// Start and end coordinates of edge for which context menu was created
+	private List<Double> contextEdge;
 	
 	public boolean modified = false;
 
@@ -144,14 +209,27 @@ public class GraphView {
 		root = new Group();
 		canvas = new Canvas(CANVAS_WIDTH, CANVAS_HEIGHT);
 		overlay = new Pane();
-		overlay.setPickOnBounds(false);
+		// Mouse events pass through vertex and edge nodes to the canvas, where one
+		// dispatcher finds their targets through the model
+		overlay.setMouseTransparent(true);
+		viewport = new Viewport();
+		overlayTransform = new Affine();
+		overlay.getTransforms().add(overlayTransform);
 		gc = canvas.getGraphicsContext2D();
+		// Occupied cells are collected again for the next overview after any change
+		model.addGraphListener(new GraphModel.GraphListener() {
+			@Override
+			public void graphChanged() {
+				edgeCells = null;
+				vertexCells = null;
+			}
+		});
 
 		vertices = new ArrayList<>();
 		edges = new ArrayList<>();
+		arrows = new ArrayList<>();
 
-		contextVertex = new Circle();
-		contextEdge = new Line();
+		contextEdge = new ArrayList<>();
 
 		Font font = new Font("Calibri", 15);
 		gc.setFill(Color.WHITE);
@@ -160,10 +238,23 @@ public class GraphView {
 		statsText = new Text();
 		statsText.setFont(font);
 		statsText.setX(CANVAS_WIDTH - 115);
-		statsText.setY(CANVAS_HEIGHT - 55);
+		statsText.setY(CANVAS_HEIGHT - 110);
 		statsText.setMouseTransparent(true);
 		updateStatisticsText();
 
+		metricsText = new Text();
+		metricsText.setFont(font);
+		metricsText.setX(CANVAS_WIDTH - 340);
+		metricsText.setY(CANVAS_HEIGHT - 55);
+		metricsText.setMouseTransparent(true);
+
+		selection = new int[0];
+		selected = new HashSet<>();
+		selectionBand = new Polygon();
+		selectionBand.setStroke(Color.DODGERBLUE);
+		selectionBand.setFill(Color.rgb(30, 144, 255, 0.15));
+		selectionBand.setMouseTransparent(true);
+
 		root.getChildren().add(canvas);
 		root.getChildren().add(overlay);
 	}
@@ -174,66 +265,104 @@ public class GraphView {
 	 * @return returns the scene for the application
 	 */
 	public Scene getScene() {
-		return new Scene(root, CANVAS_HEIGHT, CANVAS_WIDTH);
+		return new Scene(root, CANVAS_WIDTH, CANVAS_HEIGHT);
 	}
 
 	/**
-	 * Remove and draw all vertices and edges of graph.
+	 * Remove and draw the vertices and edges of graph within view. Visible
+	 * vertices and edges are found through the spatial indexes of the model and
+	 * drawn at a level of detail depending on the scale and on how many are in
+	 * view: as interactive nodes when few enough; otherwise on the canvas,
+	 * without outlines or arrowheads, with overlapping vertices merged and edges
+	 * thinned; and when too many to draw one by one, as the occupied cells of
+	 * the indexes.
 	 */
-	public void drawGraph(Circle exclude) {
-		drawEdges();
-		drawVertices(exclude);
+	public void drawGraph() {
+		long start = DRAW_TIMER.start();
+		double scale = viewport.getScale();
+		overlayTransform.setToTransform(scale, 0, viewport.getTranslateX(), 0, scale, viewport.getTranslateY());
+		gc.setFill(Color.WHITE);
+		gc.fillRect(0, 0, CANVAS_WIDTH, CANVAS_HEIGHT);
+
+		// Visible region in model coordinates, widened to include vertices partly in view
+		double minX = viewport.toModelX(0) - VERTEX_RADIUS;
+		double minY = viewport.toModelY(0) - VERTEX_RADIUS;
+		double maxX = viewport.toModelX(CANVAS_WIDTH) + VERTEX_RADIUS;
+		double maxY = viewport.toModelY(CANVAS_HEIGHT) + VERTEX_RADIUS;
+		// Numbers of visible vertices and of visible cells crossed by edges
+		int[] visible = new int[2];
+		double size = model.getIndexCellSize();
+		double spanned = (Math.floor(maxX / size) - Math.floor(minX / size) + 1)
+				* (Math.floor(maxY / size) - Math.floor(minY / size) + 1);
+		if (spanned > MAX_LOOKUP_CELLS) {
+			collectOccupiedCells();
+			forEachCell(vertexCells, minX, minY, maxX, maxY, (cellX, cellY, side, items) -> visible[0] += items);
+			forEachCell(edgeCells, minX, minY, maxX, maxY, (cellX, cellY, side, items) -> visible[1] += items);
+		} else {
+			model.forEachVertexCellIn(minX, minY, maxX, maxY, (cellX, cellY, side, items) -> visible[0] += items);
+			model.forEachEdgeCellIn(minX, minY, maxX, maxY, (cellX, cellY, side, items) -> visible[1] += items);
+		}
+
+		int nodes = 0;
+		if (scale >= DETAIL_SCALE && visible[0] <= MAX_DETAIL_VERTICES && visible[1] <= MAX_DETAIL_EDGES) {
+			nodes = drawEdges(minX, minY, maxX, maxY);
+			nodes += drawVertices(minX, minY, maxX, maxY);
+		} else {
+			removeNodes();
+			if (visible[0] + visible[1] <= MAX_SIMPLIFIED_ITEMS) {
+				drawSimplified(minX, minY, maxX, maxY);
+			} else {
+				drawOverview(minX, minY, maxX, maxY);
+			}
+		}
 		updateStatisticsText();
+		DRAW_TIMER.stop(start);
+		NODES_PER_FRAME.record(nodes);
+		updateMetricsText();
 	}
 
 	/**
-	 * Draw all vertices lines in graph. All vertices in graph are removed and then
-	 * redrawn using model coordinates.
+	 * Draw vertices within the given region. All vertex circles are removed and
+	 * then those in the region are redrawn using model coordinates.
+	 * 
+	 * @return number of vertex circles created
 	 */
-	private void drawVertices(Circle exclude) {
-		// Mapping of vertices to their corresponding x, y coordinates
-		Map<List<Double>, Vertex<String, String>> vertexCoords = model.getVertices();
-
-		vertices.remove(exclude);
+	private int drawVertices(double minX, double minY, double maxX, double maxY) {
 		overlay.getChildren().removeAll(vertices);
 		vertices.clear();
 
-		// Create and set properties of vertices
-		for (List<Double> coords : vertexCoords.keySet()) {
-			// Prevent creation of excluded circle
-			if (exclude != null && coords.get(0) == exclude.getCenterX() && coords.get(1) == exclude.getCenterY()) {
-				continue;
-			}
+		// Create and set properties of vertices, each circle holding the id of its vertex
+		model.forEachVertexIdIn(minX, minY, maxX, maxY, id -> {
 			Circle circle = new Circle(VERTEX_RADIUS);
-			circle.setStroke(Color.BLACK);
-			circle.setStrokeWidth(2);
-			circle.setFill(Color.WHITE);
-			circle.setCenterX(coords.get(0));
-			circle.setCenterY(coords.get(1));
+			circle.setStroke(vertexStroke(id));
+			circle.setStrokeWidth(VERTEX_STROKE);
+			circle.setFill(showHeatmap ? heatColour(id, Color.WHITE) : Color.WHITE);
+			circle.setCenterX(model.getVertexX(id));
+			circle.setCenterY(model.getVertexY(id));
+			circle.setUserData(id);
 			vertices.add(circle);
-			vertexGestures.addGestures(circle);
-		}
+		});
 		overlay.getChildren().addAll(vertices);
-		if (exclude != null) {
-			exclude.toFront();
-			vertices.add(exclude);
-		}
+		return vertices.size();
 	}
 
 	/**
-	 * Draw all edge lines in graph. All edges in graph are removed and then redrawn
-	 * using model coordinates.
+	 * Draw edges within the given region, with arrowheads if the graph is
+	 * directed. All edge lines are removed and then those in the region are
+	 * redrawn using model coordinates.
+	 * 
+	 * @return number of edge lines and arrowheads created
 	 */
-	private void drawEdges() {
-		// Mapping of edges to their corresponding start and end x, y coordinates
-		Map<Edge<String, String>, List<Double>> edgeCoords = model.getEdges();
-
+	private int drawEdges(double minX, double minY, double maxX, double maxY) {
 		overlay.getChildren().removeAll(edges);
+		overlay.getChildren().removeAll(arrows);
 		edges.clear();
+		arrows.clear();
+		boolean directed = model.isDirected();
 
 		// Create and set properties of edges
-		for (Edge<String, String> edge : edgeCoords.keySet()) {
-			List<Double> coords = edgeCoords.get(edge);
+		model.forEachEdgeIn(minX, minY, maxX, maxY, edge -> {
+			List<Double> coords = model.getEdges().get(edge);
 			Line line = new Line();
 			line.setStartX(coords.get(0));
 			line.setStartY(coords.get(1));
@@ -241,35 +370,415 @@ public class GraphView {
 			line.setEndY(coords.get(3));
 			line.setStrokeWidth(EDGE_WIDTH);
 			edges.add(line);
-			edgeGestures.addGestures(line);
-		}
+			if (directed) {
+				addArrow(coords.get(0), coords.get(1), coords.get(2), coords.get(3));
+			}
+		});
 		overlay.getChildren().addAll(edges);
+		overlay.getChildren().addAll(arrows);
+		return edges.size() + arrows.size();
+	}
+
+	/**
+	 * Remove all vertex, edge and arrowhead nodes.
+	 */
+	private void removeNodes() {
+		overlay.getChildren().removeAll(vertices);
+		overlay.getChildren().removeAll(edges);
+		overlay.getChildren().removeAll(arrows);
+		vertices.clear();
+		edges.clear();
+		arrows.clear();
+	}
+
+	/**
+	 * Draw the vertices and edges within the given region on the canvas, one by
+	 * one. Vertices are drawn without outlines as dots filling square screen
+	 * cells, vertices sharing a cell being merged into one dot. Edges are drawn one
+	 * pixel wide, without arrowheads; an edge within a single cell is hidden by its
+	 * dot, and of edges joining the same two cells only one is drawn.
+	 */
+	private void drawSimplified(double minX, double minY, double maxX, double maxY) {
+		// Side of screen cells, at least the diameter of a vertex so that overlapping vertices merge
+		double cell = Math.max(MERGE_PIXELS, 2 * VERTEX_RADIUS * viewport.getScale());
+		int columns = (int) Math.ceil(CANVAS_WIDTH / cell) + 1;
+		int rows = (int) Math.ceil(CANVAS_HEIGHT / cell) + 1;
+
+		gc.setStroke(Color.DARKGRAY);
+		gc.setLineWidth(1);
+		// Pairs of screen cells already joined by an edge
+		Set<Long> joined = new HashSet<>();
+		model.forEachEdgeIn(minX, minY, maxX, maxY, edge -> {
+			List<Double> coords = model.getEdges().get(edge);
+			double startX = viewport.toScreenX(coords.get(0));
+			double startY = viewport.toScreenY(coords.get(1));
+			double endX = viewport.toScreenX(coords.get(2));
+			double endY = viewport.toScreenY(coords.get(3));
+			int start = screenCell(startX, startY, cell, columns, rows);
+			int end = screenCell(endX, endY, cell, columns, rows);
+			if (start >= 0 && end >= 0) {
+				if (start == end || !joined.add(Math.min(start, end) * (long) columns * rows + Math.max(start, end))) {
+					return;
+				}
+			}
+			gc.strokeLine(startX, startY, endX, endY);
+		});
+
+		gc.setFill(Color.BLACK);
+		boolean[] occupied = new boolean[columns * rows];
+		if (showHeatmap) {
+			// Dots filled one by one, each by the first vertex drawn in its cell
+			model.forEachVertexIdIn(minX, minY, maxX, maxY, id -> {
+				int index = screenCell(viewport.toScreenX(model.getVertexX(id)),
+						viewport.toScreenY(model.getVertexY(id)), cell, columns, rows);
+				if (index >= 0 && !occupied[index]) {
+					gc.setFill(heatColour(id, Color.BLACK));
+					fillDot(index, cell, columns, occupied);
+				}
+			});
+			return;
+		}
+		model.forEachVertexIn(minX, minY, maxX, maxY, coords -> {
+			double x = viewport.toScreenX(coords.get(0));
+			double y = viewport.toScreenY(coords.get(1));
+			int index = screenCell(x, y, cell, columns, rows);
+			if (index < 0 || occupied[index]) {
+				return;
+			}
+			fillDot(index, cell, columns, occupied);
+		});
+	}
+
+	/**
+	 * Fill the dot of the screen cell with the given index, marking the cell as
+	 * occupied.
+	 */
+	private void fillDot(int index, double cell, int columns, boolean[] occupied) {
+		occupied[index] = true;
+		gc.fillOval((index % columns) * cell - cell / 2, (index / columns) * cell - cell / 2, cell, cell);
+	}
+
+	/**
+	 * Returns the colour of the vertex with the given id in the clustering
+	 * heatmap, from blue for a local clustering coefficient of 0 to red for 1, or
+	 * the given colour if the vertex has fewer than two neighbours.
+	 */
+	private Color heatColour(int id, Color none) {
+		int index = Arrays.binarySearch(clusteringIds(), id);
+		if (index < 0 || clustering.degree(index) < 2) {
+			return none;
+		}
+		return Color.hsb(240 * (1 - clustering.localClustering(index)), 0.85, 0.95);
+	}
+
+	/**
+	 * Returns the ids of the vertices numbered by the triangle count of the graph,
+	 * counting the triangles if not done since vertices or edges were last added
+	 * or removed. Moving vertices leaves the count unchanged.
+	 */
+	private int[] clusteringIds() {
+		if (clustering == null || clusteringVersion != model.getStructureVersion()) {
+			clusteringVersion = model.getStructureVersion();
+			clusteringIds = model.getVertexIds();
+			clustering = model.countTriangles();
+		}
+		return clusteringIds;
+	}
+
+	/**
+	 * Returns the index of the screen cell of the given side containing the given
+	 * screen point, numbering cells row by row, or -1 if the point is off the
+	 * canvas. Cells are centred on multiples of the side.
+	 */
+	private static int screenCell(double x, double y, double cell, int columns, int rows) {
+		int column = (int) Math.floor(x / cell + 0.5);
+		int row = (int) Math.floor(y / cell + 0.5);
+		if (column < 0 || column >= columns || row < 0 || row >= rows) {
+			return -1;
+		}
+		return row * columns + column;
+	}
+
+	/**
+	 * Draw an overview of the vertices and edges within the given region by
+	 * filling, in the pixels of the canvas, each cell of the model's spatial
+	 * indexes crossed by an edge and then each cell holding a vertex, at a cost
+	 * depending on the number of occupied cells rather than of vertices and
+	 * edges.
+	 */
+	private void drawOverview(double minX, double minY, double maxX, double maxY) {
+		if (pixels == null || pixels.length != CANVAS_WIDTH * CANVAS_HEIGHT) {
+			pixels = new int[CANVAS_WIDTH * CANVAS_HEIGHT];
+		}
+		collectOccupiedCells();
+		Arrays.fill(pixels, BACKGROUND_ARGB);
+		forEachCell(edgeCells, minX, minY, maxX, maxY,
+				(cellX, cellY, side, items) -> fillCell(cellX, cellY, side, EDGE_ARGB));
+		forEachCell(vertexCells, minX, minY, maxX, maxY,
+				(cellX, cellY, side, items) -> fillCell(cellX, cellY, side, VERTEX_ARGB));
+		gc.getPixelWriter().setPixels(0, 0, CANVAS_WIDTH, CANVAS_HEIGHT, PixelFormat.getIntArgbInstance(), pixels, 0,
+				CANVAS_WIDTH);
+	}
+
+	/**
+	 * Collect the occupied cells of the edge and vertex indexes of the model into
+	 * arrays, unless collected since the graph last changed, so that views
+	 * spanning many cells walk arrays rather than the indexes.
+	 */
+	private void collectOccupiedCells() {
+		if (edgeCells != null) {
+			return;
+		}
+		double infinity = Double.POSITIVE_INFINITY;
+		CellCollector edges = new CellCollector();
+		model.forEachEdgeCellIn(-infinity, -infinity, infinity, infinity, edges);
+		edgeCells = edges.toArray();
+		CellCollector vertices = new CellCollector();
+		model.forEachVertexCellIn(-infinity, -infinity, infinity, infinity, vertices);
+		vertexCells = vertices.toArray();
+	}
+
+	/**
+	 * Performs the given action for each of the given collected cells overlapping
+	 * the given region.
+	 */
+	private static void forEachCell(double[] cells, double minX, double minY, double maxX, double maxY,
+			SpatialGrid.CellAction action) {
+		for (int i = 0; i < cells.length; i += 4) {
+			double side = cells[i + 2];
+			double left = cells[i] * side;
+			double top = cells[i + 1] * side;
+			if (left <= maxX && left + side > minX && top <= maxY && top + side > minY) {
+				action.accept((int) cells[i], (int) cells[i + 1], side, (int) cells[i + 3]);
+			}
+		}
+	}
+
+	/**
+	 * Collects the column, row, side and number of items of each cell it is given.
+	 */
+	private static class CellCollector implements SpatialGrid.CellAction {
+
+		// Column, row, side and number of items of each cell, in the first size slots
+		private double[] cells = new double[64];
+		private int size;
+
+		@Override
+		public void accept(int cellX, int cellY, double side, int items) {
+			if (size + 4 > cells.length) {
+				cells = Arrays.copyOf(cells, cells.length * 2);
+			}
+			cells[size++] = cellX;
+			cells[size++] = cellY;
+			cells[size++] = side;
+			cells[size++] = items;
+		}
+
+		double[] toArray() {
+			return Arrays.copyOf(cells, size);
+		}
+	}
+
+	/**
+	 * Fill the pixels showing the index cell with the given column, row and side
+	 * with the given colour, filling at least one pixel.
+	 */
+	private void fillCell(int cellX, int cellY, double size, int argb) {
+		int left = (int) Math.floor(viewport.toScreenX(cellX * size));
+		int top = (int) Math.floor(viewport.toScreenY(cellY * size));
+		int right = Math.max(left + 1, (int) Math.floor(viewport.toScreenX((cellX + 1) * size)));
+		int bottom = Math.max(top + 1, (int) Math.floor(viewport.toScreenY((cellY + 1) * size)));
+		left = Math.max(left, 0);
+		top = Math.max(top, 0);
+		right = Math.min(right, CANVAS_WIDTH);
+		bottom = Math.min(bottom, CANVAS_HEIGHT);
+		if (left >= right) {
+			return;
+		}
+		for (int y = top; y < bottom; y++) {
+			Arrays.fill(pixels, y * CANVAS_WIDTH + left, y * CANVAS_WIDTH + right, argb);
+		}
+	}
+
+	/**
+	 * Add an arrowhead pointing at the end of the edge with the given start and
+	 * end coordinates, its tip touching the outline of the destination vertex.
+	 */
+	private void addArrow(double startX, double startY, double endX, double endY) {
+		double length = Math.hypot(endX - startX, endY - startY);
+		if (length <= VERTEX_RADIUS + ARROW_LENGTH) {
+			// Vertices overlap or edge is a self-loop, leaving no room for an arrowhead
+			return;
+		}
+		// Unit vector along edge
+		double ux = (endX - startX) / length;
+		double uy = (endY - startY) / length;
+		double tipX = endX - ux * VERTEX_RADIUS;
+		double tipY = endY - uy * VERTEX_RADIUS;
+		double baseX = tipX - ux * ARROW_LENGTH;
+		double baseY = tipY - uy * ARROW_LENGTH;
+		double halfWidth = ARROW_WIDTH / 2.0;
+		Polygon arrow = new Polygon(tipX, tipY, baseX - uy * halfWidth, baseY + ux * halfWidth,
+				baseX + uy * halfWidth, baseY - ux * halfWidth);
+		arrow.setFill(Color.BLACK);
+		arrow.setMouseTransparent(true);
+		arrows.add(arrow);
+	}
+
+	/**
+	 * Returns the transform between model coordinates and screen coordinates of
+	 * the canvas.
+	 * 
+	 * @return viewport of view
+	 */
+	public Viewport getViewport() {
+		return viewport;
+	}
+
+	/**
+	 * Zoom by the given factor about the given screen point and redraw the graph.
+	 * 
+	 * @param factor
+	 *            factor by which scale is multiplied
+	 * @param screenX
+	 *            screen x-coordinate of point kept in place
+	 * @param screenY
+	 *            screen y-coordinate of point kept in place
+	 */
+	public void zoom(double factor, double screenX, double screenY) {
+		viewport.zoom(factor, screenX, screenY);
+		drawGraph();
 	}
 
 	/**
-	 * Highlight given vertex by changing stroke color from black to blue.
+	 * Move the view by the given screen distances and redraw the graph.
 	 * 
-	 * @param vertex
-	 *            vertex circle for which stroke colour will be changed
+	 * @param dx
+	 *            horizontal distance in screen pixels
+	 * @param dy
+	 *            vertical distance in screen pixels
 	 */
-	public void enableVertexHighlight(Circle vertex) {
-		vertex.setStroke(Color.RED);
+	public void pan(double dx, double dy) {
+		viewport.pan(dx, dy);
+		drawGraph();
 	}
 
 	/**
-	 * Disable highlight for given vertex by changing stroke color from blue to
-	 * black.
+	 * Highlight the vertex with the given id by changing its stroke colour from
+	 * black to red, now if it is drawn as a node and whenever it is redrawn, until
+	 * the highlight is disabled.
 	 * 
-	 * @param vertex
-	 *            vertex circle for which stroke colour will be changed
+	 * @param id
+	 *            id of vertex to be highlighted
 	 */
-	public void disableVertexHighlight(Circle vertex) {
-		vertex.setStroke(Color.BLACK);
+	public void enableVertexHighlight(int id) {
+		disableVertexHighlight();
+		highlightedVertex = id;
+		setVertexStroke(id, Color.RED);
 	}
 
 	/**
-	 * Update statistics text, displaying the number of vertices and edges and
-	 * whether or not the graph is complete and connected.
+	 * Disable the highlight of the highlighted vertex, if any, changing its stroke
+	 * colour from red back to black.
+	 */
+	public void disableVertexHighlight() {
+		if (highlightedVertex >= 0) {
+			int id = highlightedVertex;
+			highlightedVertex = -1;
+			setVertexStroke(id, vertexStroke(id));
+		}
+	}
+
+	/**
+	 * Returns the stroke colour of the vertex with the given id: red if it is
+	 * highlighted, blue if it is selected, and otherwise black.
+	 */
+	private Color vertexStroke(int id) {
+		if (id == highlightedVertex) {
+			return Color.RED;
+		}
+		return selected.contains(id) ? Color.DODGERBLUE : Color.BLACK;
+	}
+
+	/**
+	 * Select the vertices with the given ids, in place of those selected before,
+	 * outlining them in blue when they are next drawn.
+	 * 
+	 * @param ids
+	 *            ids of vertices to be selected
+	 */
+	public void setSelection(int[] ids) {
+		selection = ids.clone();
+		selected = new HashSet<>(ids.length * 2);
+		for (int id : ids) {
+			selected.add(id);
+		}
+	}
+
+	/**
+	 * Clear the selection of vertices.
+	 */
+	public void clearSelection() {
+		setSelection(new int[0]);
+	}
+
+	/**
+	 * Returns the ids of the selected vertices, which must not be modified.
+	 * 
+	 * @return ids of selected vertices
+	 */
+	public int[] getSelection() {
+		return selection;
+	}
+
+	/**
+	 * Returns true if the vertex with the given id is selected.
+	 * 
+	 * @param id
+	 *            id of vertex
+	 * @return true if vertex is selected
+	 */
+	public boolean isSelected(int id) {
+		return selected.contains(id);
+	}
+
+	/**
+	 * Show the outline of a selection rectangle or lasso with the given corners
+	 * over the graph.
+	 * 
+	 * @param corners
+	 *            screen x- and y-coordinates of each corner in turn
+	 */
+	public void showSelectionBand(List<Double> corners) {
+		selectionBand.getPoints().setAll(corners);
+		if (!root.getChildren().contains(selectionBand)) {
+			root.getChildren().add(selectionBand);
+		}
+	}
+
+	/**
+	 * Hide the outline of the selection rectangle or lasso.
+	 */
+	public void hideSelectionBand() {
+		root.getChildren().remove(selectionBand);
+	}
+
+	/**
+	 * Set the stroke colour of the circle drawn for the vertex with the given id,
+	 * if there is one.
+	 */
+	private void setVertexStroke(int id, Color colour) {
+		for (Circle circle : vertices) {
+			if (((Integer) circle.getUserData()) == id) {
+				circle.setStroke(colour);
+			}
+		}
+	}
+
+	/**
+	 * Update statistics text, displaying the number of vertices and edges,
+	 * whether or not the graph is complete and connected, and its number of
+	 * triangles, average clustering coefficient and transitivity.
 	 */
 	public void updateStatisticsText() {
 		root.getChildren().remove(statsText);
@@ -279,50 +788,97 @@ public class GraphView {
 			isConnected = isConnected.substring(0, 1).toUpperCase() + isConnected.substring(1);
 			String isComplete = Boolean.toString(model.graphIsComplete());
 			isComplete = isComplete.substring(0, 1).toUpperCase() + isComplete.substring(1);
-			statsText.setText("Vertices: " + vertices.size() + "\nEdges: " + edges.size() + "\nConnected: "
-					+ isConnected + "\nComplete: " + isComplete);
+			clusteringIds();
+			statsText.setText("Vertices: " + model.getVertices().size() + "\nEdges: " + model.getEdges().size()
+					+ "\nConnected: " + isConnected + "\nComplete: " + isComplete + "\nTriangles: "
+					+ clustering.triangles() + String.format("\nClustering: %.3f\nTransitivity: %.3f",
+							clustering.averageClustering(), clustering.globalClustering()));
 
 			root.getChildren().add(statsText);
 		}
 	}
 
 	/**
-	 * Set context vertex to the given vertex.
-	 * 
-	 * @param vertex
-	 *            vertex to which context vertex will be set
+	 * Update performance text, displaying redraw latency, nodes created per redraw,
+	 * model operation counts and load and save throughput.
 	 */
-	public void setContextVertex(Circle vertex) {
-		if (vertex != null) {
-			contextVertex = vertex;
-		} else {
-			contextVertex = new Circle();
+	public void updateMetricsText() {
+		root.getChildren().remove(metricsText);
+		if (showMetrics) {
+			metricsText.setText(String.format(
+					"Draw: %.1f ms (p99 %.1f ms)%nNodes/frame: %d%nModel ops: %d%nLoad: %.1f MB/s%nSave: %.1f MB/s",
+					Timer.toMillis(DRAW_TIMER.last()), Timer.toMillis(DRAW_TIMER.percentile(0.99)),
+					NODES_PER_FRAME.last(), Metrics.counter("model.changeEvents").count(),
+					Metrics.megabytesPerSecond(Metrics.counter("model.load.bytes"), Metrics.timer("model.load")),
+					Metrics.megabytesPerSecond(Metrics.counter("model.save.bytes"), Metrics.timer("model.save"))));
+			root.getChildren().add(metricsText);
 		}
 	}
 
 	/**
-	 * Set context edge to the given edge.
+	 * Set context vertex to the vertex with the given id.
+	 * 
+	 * @param id
+	 *            id of vertex to which context vertex will be set, or -1 for none
+	 */
+	public void setContextVertex(int id) {
+		contextVertex = id;
+	}
+
+	/**
+	 * Set context edge to the edge with the given coordinates.
 	 * 
-	 * @param edge
-	 *            edge to which context edge will be set
+	 * @param coords
+	 *            start and end x, y coordinates of edge to which context edge
+	 *            will be set
 	 */
-	public void setContextEdge(Line edge) {
-		if (edge != null) {
-			contextEdge = edge;
+	public void setContextEdge(List<Double> coords) {
+		if (coords != null) {
+			contextEdge = coords;
 		} else {
-			contextEdge = new Line();
+			contextEdge = new ArrayList<>();
 		}
 	}
 
+	/**
+	 * Returns the coordinates of the edge nearest the given point, if it is within
+	 * a few pixels of the point at the current scale, as found by the model's
+	 * edge index; otherwise null.
+	 * 
+	 * @param x
+	 *            model x-coordinate of point
+	 * @param y
+	 *            model y-coordinate of point
+	 * @return start and end x, y coordinates of edge, or null
+	 */
+	public List<Double> pickEdge(double x, double y) {
+		double tolerance = EDGE_WIDTH / 2.0 + EDGE_PICK_PIXELS / viewport.getScale();
+		return model.getEdgeNear(x, y, tolerance);
+	}
+
+	/**
+	 * Returns the id of the vertex nearest the given point, if the point lies
+	 * within its circle and outline, as found by the model's vertex index.
+	 * 
+	 * @param x
+	 *            model x-coordinate of point
+	 * @param y
+	 *            model y-coordinate of point
+	 * @return id of vertex, or -1 if there is none under the point
+	 */
+	public int pickVertex(double x, double y) {
+		return model.getVertexNear(x, y, VERTEX_RADIUS + VERTEX_STROKE / 2.0);
+	}
+
 	/**
 	 * Delete the stored context vertex.
 	 * 
-	 * @return x, y coordinates of deleted context vertex
+	 * @return id of deleted context vertex
 	 */
-	public List<Double> deleteContextVertex() {
-		List<Double> coords = getContextVertexCoords();
-		overlay.getChildren().remove(contextVertex);
-		return coords;
+	public int deleteContextVertex() {
+		int id = contextVertex;
+		contextVertex = -1;
+		return id;
 	}
 
 	/**
@@ -332,7 +888,7 @@ public class GraphView {
 	 */
 	public List<Double> deleteContextEdge() {
 		List<Double> coords = getContextEdgeCoords();
-		overlay.getChildren().remove(contextEdge);
+		contextEdge = new ArrayList<>();
 		return coords;
 	}
 
@@ -342,10 +898,7 @@ public class GraphView {
 	 * @return x, y coordinates of context vertex
 	 */
 	public List<Double> getContextVertexCoords() {
-		List<Double> coords = new ArrayList<>();
-		coords.add(contextVertex.getCenterX());
-		coords.add(contextVertex.getCenterY());
-		return coords;
+		return model.getVertexCoords(contextVertex);
 	}
 
 	/**
@@ -354,12 +907,7 @@ public class GraphView {
 	 * @return start and end x, y coordinates of context edge
 	 */
 	public List<Double> getContextEdgeCoords() {
-		List<Double> coords = new ArrayList<>();
-		coords.add(contextEdge.getStartX());
-		coords.add(contextEdge.getStartY());
-		coords.add(contextEdge.getEndX());
-		coords.add(contextEdge.getEndY());
-		return coords;
+		return new ArrayList<>(contextEdge);
 	}
 
 	/**
@@ -370,6 +918,22 @@ public class GraphView {
 		updateStatisticsText();
 	}
 
+	/**
+	 * Toggle whether vertices are filled by their local clustering coefficients.
+	 */
+	public void toggleShowHeatmap() {
+		showHeatmap = !showHeatmap;
+		drawGraph();
+	}
+
+	/**
+	 * Toggle whether the performance metrics are being displayed.
+	 */
+	public void toggleShowMetrics() {
+		showMetrics = !showMetrics;
+		updateMetricsText();
+	}
+
 	/**
 	 * Hide all context menus.
 	 */
@@ -436,8 +1000,10 @@ public class GraphView {
 		CANVAS_WIDTH = width;
 		canvas.setWidth(CANVAS_WIDTH);
 		statsText.setX(CANVAS_WIDTH - 150);
+		metricsText.setX(CANVAS_WIDTH - 375);
 		gc.fillRect(0, 0, CANVAS_WIDTH, CANVAS_HEIGHT);
 		updateStatisticsText();
+		updateMetricsText();
 	}
 
 	/**
@@ -450,9 +1016,11 @@ public class GraphView {
 		gc.clearRect(0, 0, CANVAS_WIDTH, CANVAS_HEIGHT);
 		CANVAS_HEIGHT = height;
 		canvas.setHeight(CANVAS_HEIGHT);
-		statsText.setY(CANVAS_HEIGHT - 65);
+		statsText.setY(CANVAS_HEIGHT - 120);
+		metricsText.setY(CANVAS_HEIGHT - 65);
 		gc.fillRect(0, 0, CANVAS_WIDTH, CANVAS_HEIGHT);
 		updateStatisticsText();
+		updateMetricsText();
 	}
 
 	/**
@@ -474,6 +1042,8 @@ public class GraphView {
 
 		if (title.equals("Export")) {
 			fileChooser.getExtensionFilters().add(new ExtensionFilter("Image Files", "*.PNG"));
+			fileChooser.getExtensionFilters().add(new ExtensionFilter("SVG Files", "*.svg"));
+			fileChooser.getExtensionFilters().add(new ExtensionFilter("PDF Files", "*.pdf"));
 		} else {
 			fileChooser.getExtensionFilters().add(new ExtensionFilter("Text Files", "*.txt"));
 		}
@@ -487,19 +1057,108 @@ public class GraphView {
 	}
 
 	/**
-	 * Write the graph vertices and edges to a .PNG image file.
+	 * Write the graph vertices and edges to a .PNG image file, at the scale of
+	 * the model.
 	 * 
 	 * @param file
 	 * @throws IOException
 	 */
 	public void saveGraphAsImage(File file) throws IOException {
+		saveGraphAsImage(file, 1);
+	}
+
+	/**
+	 * Write the graph vertices and edges to a .PNG image file at the given scale,
+	 * rendering and encoding the image in bands so that large images need not
+	 * be held in memory. Files named with an .svg or .pdf extension are written
+	 * as vector images instead, at the scale of the model.
+	 * 
+	 * @param file
+	 *            file to which image is written
+	 * @param scale
+	 *            pixels per model unit
+	 * @throws IOException
+	 */
+	public void saveGraphAsImage(File file, double scale) throws IOException {
 		if (file == null) {
 			return;
 		}
-		WritableImage writableImage = new WritableImage(CANVAS_HEIGHT, CANVAS_WIDTH);
-		overlay.snapshot(null, writableImage);
-		RenderedImage renderedImage = SwingFXUtils.fromFXImage(writableImage, null);
-		ImageIO.write(renderedImage, "png", file);
+		String name = file.getName().toLowerCase();
+		if (name.endsWith(".svg")) {
+			new VectorExporter(model).exportSvg(file);
+		} else if (name.endsWith(".pdf")) {
+			new VectorExporter(model).exportPdf(file);
+		} else {
+			new ImageExporter(model).exportPng(file, scale);
+		}
+	}
+
+	/**
+	 * Returns the scale entered in a dialog asking for the scale of an exported
+	 * image, or 0 if the dialog was cancelled or the entry is not a positive
+	 * number.
+	 * 
+	 * @return pixels per model unit of exported image
+	 */
+	public double showExportScaleDialog() {
+		return showNumberDialog("Export", "Pixels per unit:", "4");
+	}
+
+	/**
+	 * Show dialog asking for the number of nearest vertices to which each vertex is
+	 * to be connected.
+	 * 
+	 * @return number of nearest vertices, or 0 if cancelled or invalid
+	 */
+	public int showNearestNeighboursDialog() {
+		double k = showNumberDialog("Connect nearest", "Nearest vertices:", "3");
+		return k == Math.floor(k) && k <= Integer.MAX_VALUE ? (int) k : 0;
+	}
+
+	/**
+	 * Show dialog asking for the distance within which vertices are to be
+	 * connected.
+	 * 
+	 * @return distance in model units, or 0 if cancelled or invalid
+	 */
+	public double showConnectWithinDialog() {
+		return showNumberDialog("Connect within distance", "Distance:", "150");
+	}
+
+	/**
+	 * Show dialog with the given title and prompt asking for a positive number,
+	 * returning 0 if the dialog is cancelled or the number is invalid.
+	 */
+	private double showNumberDialog(String title, String prompt, String initial) {
+		TextInputDialog dialog = new TextInputDialog(initial);
+		dialog.setTitle(title);
+		dialog.setHeaderText("GraphGUI");
+		dialog.setContentText(prompt);
+		Optional<String> result = dialog.showAndWait();
+		if (!result.isPresent()) {
+			return 0;
+		}
+		try {
+			double value = Double.parseDouble(result.get().trim());
+			return value > 0 && value < Double.POSITIVE_INFINITY ? value : 0;
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+	/**
+	 * Show the estimated heap space taken by the vertices and edges of the model.
+	 * 
+	 * @param footprint
+	 *            space taken by model
+	 */
+	public void showFootprintDialog(ModelFootprint footprint) {
+		Alert alert = new Alert(AlertType.INFORMATION, String.format(
+				"%s representation\n%d vertices: %.1f bytes each\n%d edges: %.1f bytes each\n%.1f MB in all",
+				footprint.isCompact() ? "Compact" : "Standard", footprint.vertices(), footprint.bytesPerVertex(),
+				footprint.edges(), footprint.bytesPerEdge(), footprint.totalBytes() / 1e6));
+		alert.setHeaderText("Memory footprint");
+		alert.showAndWait();
 	}
 
 	public void showErrorDialog(String errorMessage) {
@@ -518,13 +1177,15 @@ public class GraphView {
 	}
 
 	/**
-	 * Add mouse event handlers to the canvas.
+	 * Add the mouse event handlers of the given dispatcher to the canvas, through
+	 * which all mouse events on the graph are handled.
 	 * 
-	 * @param gestures
-	 *            canvas gestures object
+	 * @param dispatcher
+	 *            mouse dispatcher object
 	 */
-	public void addCanvasGestures(CanvasGestures gestures) {
-		gestures.addGestures(canvas);
+	public void addMouseDispatcher(MouseDispatcher dispatcher) {
+		dispatcher.addHandlers(canvas);
+		dispatcher.addZoomHandler(root);
 	}
 
 	/**
@@ -539,18 +1200,6 @@ public class GraphView {
 		this.edgeContext = edgeContext;
 	}
 
-	/**
-	 * Store vertex gestures object, permitting the binding of vertex objects to
-	 * mouse events.
-	 * 
-	 * @param gestures
-	 *            vertex gestures object
-	 */
-	public void addGraphGestures(VertexGestures vertexGestures, EdgeGestures edgeGestures) {
-		this.vertexGestures = vertexGestures;
-		this.edgeGestures = edgeGestures;
-	}
-
 	public void addMainStage(Stage mainStage) {
 		this.mainStage = mainStage;
 	}
@@ -0,0 +1,265 @@
+package gui;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import metrics.Log;
+import metrics.Metrics;
+import metrics.Timer;
+
+/**
+ * Exports the graph of a model as a PNG image at any scale, drawn as by the
+ * graph view. The image is rendered in horizontal bands spanning its width,
+ * each holding at most MAX_BAND_PIXELS pixels, and each band is encoded as soon
+ * as it is drawn, so memory use does not grow with the height of the image and
+ * only in proportion to its width. Only the vertices and edges near a band,
+ * found through the spatial indexes of the model, are drawn into it.
+ *
+ * Rendering uses Java 2D rather than JavaFX, so export needs no display and may
+ * be run without the application. The sizes and shapes of vertices, edges and
+ * arrowheads are shared with VectorExporter.
+ */
+public class ImageExporter {
+
+	// Radius of each vertex circle and width of its outline
+	static final double VERTEX_RADIUS = 15;
+	static final double VERTEX_STROKE = 2;
+	// Width of each edge line
+	static final double EDGE_WIDTH = 3;
+	// Length and width of each arrowhead of a directed edge
+	static final double ARROW_LENGTH = 14;
+	static final double ARROW_WIDTH = 10;
+	// Blank border around the vertices, and distance beyond a band within which
+	// vertices and edges may reach into it, in model units
+	static final double MARGIN = VERTEX_RADIUS + ARROW_WIDTH;
+	// Greatest number of pixels in each band, unless a single row is wider
+	private static final int MAX_BAND_PIXELS = 1 << 22;
+	// Greatest width and height of an image
+	private static final int MAX_SIZE = (Integer.MAX_VALUE - 1) / 3;
+
+	// Duration of each export
+	private static final Timer EXPORT_TIMER = Metrics.timer("export.png");
+
+	// Model of which the graph is exported
+	private final GraphModel model;
+
+	/**
+	 * Creates exporter of the graph of the given model.
+	 *
+	 * @param model
+	 *            model of graph to be exported
+	 */
+	public ImageExporter(GraphModel model) {
+		this.model = model;
+	}
+
+	/**
+	 * Returns the width in pixels of the image of the graph at the given scale.
+	 *
+	 * @param scale
+	 *            pixels per model unit
+	 * @return width of image
+	 */
+	public int imageWidth(double scale) {
+		double[] bounds = bounds(model);
+		return size(bounds[2] - bounds[0], scale);
+	}
+
+	/**
+	 * Returns the height in pixels of the image of the graph at the given scale.
+	 *
+	 * @param scale
+	 *            pixels per model unit
+	 * @return height of image
+	 */
+	public int imageHeight(double scale) {
+		double[] bounds = bounds(model);
+		return size(bounds[3] - bounds[1], scale);
+	}
+
+	/**
+	 * Write an image of the graph at the given scale to the given PNG file. The
+	 * image covers all vertices and edges, with a blank border.
+	 *
+	 * @param file
+	 *            file to which image is written
+	 * @param scale
+	 *            pixels per model unit
+	 * @throws IOException
+	 */
+	public void exportPng(File file, double scale) throws IOException {
+		// Reject an invalid scale before creating the file
+		imageWidth(scale);
+		imageHeight(scale);
+		exportPng(new BufferedOutputStream(new FileOutputStream(file)), scale);
+	}
+
+	/**
+	 * Write an image of the graph at the given scale to the given stream as a PNG
+	 * image, closing the stream.
+	 *
+	 * @param out
+	 *            stream to which image is written
+	 * @param scale
+	 *            pixels per model unit
+	 * @throws IOException
+	 */
+	public void exportPng(OutputStream out, double scale) throws IOException {
+		long start = EXPORT_TIMER.start();
+		double[] bounds = bounds(model);
+		int width;
+		int height;
+		try {
+			width = size(bounds[2] - bounds[0], scale);
+			height = size(bounds[3] - bounds[1], scale);
+		} catch (IllegalArgumentException e) {
+			out.close();
+			throw e;
+		}
+		int bandHeight = Math.max(1, Math.min(height, MAX_BAND_PIXELS / width));
+		if (Log.isDebugEnabled()) {
+			Log.debug("Exporting " + width + " x " + height + " image in bands of " + bandHeight + " rows");
+		}
+
+		BufferedImage band = new BufferedImage(width, bandHeight, BufferedImage.TYPE_INT_RGB);
+		int[] pixels = ((DataBufferInt) band.getRaster().getDataBuffer()).getData();
+		Graphics2D g = band.createGraphics();
+		try (PngWriter png = new PngWriter(out, width, height)) {
+			g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+			g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+			for (int top = 0; top < height; top += bandHeight) {
+				int rows = Math.min(bandHeight, height - top);
+				// Band spans rows top to top + rows of the image
+				g.setTransform(new AffineTransform());
+				g.setColor(Color.WHITE);
+				g.fillRect(0, 0, width, bandHeight);
+				g.setTransform(new AffineTransform(scale, 0, 0, scale, -bounds[0] * scale, -bounds[1] * scale - top));
+				drawBand(g, bounds[0], bounds[1] + top / scale, bounds[2], bounds[1] + (top + rows) / scale);
+				for (int row = 0; row < rows; row++) {
+					png.writeRow(pixels, row * width);
+				}
+			}
+		} finally {
+			g.dispose();
+		}
+		EXPORT_TIMER.stop(start);
+	}
+
+	/**
+	 * Draw the edges, with arrowheads if the graph is directed, and then the
+	 * vertices reaching into the given region.
+	 */
+	private void drawBand(Graphics2D g, double minX, double minY, double maxX, double maxY) {
+		boolean directed = model.isDirected();
+		List<List<Double>> lines = new ArrayList<>();
+		model.forEachEdgeIn(minX - MARGIN, minY - MARGIN, maxX + MARGIN, maxY + MARGIN,
+				edge -> lines.add(model.getEdges().get(edge)));
+		g.setColor(Color.BLACK);
+		g.setStroke(new BasicStroke((float) EDGE_WIDTH, BasicStroke.CAP_SQUARE, BasicStroke.JOIN_MITER));
+		Line2D.Double line = new Line2D.Double();
+		for (List<Double> coords : lines) {
+			line.setLine(coords.get(0), coords.get(1), coords.get(2), coords.get(3));
+			g.draw(line);
+			if (directed) {
+				drawArrow(g, coords.get(0), coords.get(1), coords.get(2), coords.get(3));
+			}
+		}
+
+		g.setStroke(new BasicStroke((float) VERTEX_STROKE));
+		Ellipse2D.Double circle = new Ellipse2D.Double();
+		model.forEachVertexIn(minX - MARGIN, minY - MARGIN, maxX + MARGIN, maxY + MARGIN, coords -> {
+			circle.setFrame(coords.get(0) - VERTEX_RADIUS, coords.get(1) - VERTEX_RADIUS, 2 * VERTEX_RADIUS,
+					2 * VERTEX_RADIUS);
+			g.setColor(Color.WHITE);
+			g.fill(circle);
+			g.setColor(Color.BLACK);
+			g.draw(circle);
+		});
+	}
+
+	/**
+	 * Draw an arrowhead pointing at the end of the edge with the given start and
+	 * end coordinates.
+	 */
+	private static void drawArrow(Graphics2D g, double startX, double startY, double endX, double endY) {
+		double[] points = arrowhead(startX, startY, endX, endY);
+		if (points == null) {
+			return;
+		}
+		Path2D.Double arrow = new Path2D.Double();
+		arrow.moveTo(points[0], points[1]);
+		arrow.lineTo(points[2], points[3]);
+		arrow.lineTo(points[4], points[5]);
+		arrow.closePath();
+		g.fill(arrow);
+	}
+
+	/**
+	 * Returns the x- and y-coordinates of the tip and two base corners of the
+	 * arrowhead pointing at the end of the edge with the given start and end
+	 * coordinates, its tip touching the outline of the destination vertex, or null
+	 * if there is no room for one.
+	 */
+	static double[] arrowhead(double startX, double startY, double endX, double endY) {
+		double length = Math.hypot(endX - startX, endY - startY);
+		if (length <= VERTEX_RADIUS + ARROW_LENGTH) {
+			// Vertices overlap or edge is a self-loop, leaving no room for an arrowhead
+			return null;
+		}
+		double ux = (endX - startX) / length;
+		double uy = (endY - startY) / length;
+		double tipX = endX - ux * VERTEX_RADIUS;
+		double tipY = endY - uy * VERTEX_RADIUS;
+		double baseX = tipX - ux * ARROW_LENGTH;
+		double baseY = tipY - uy * ARROW_LENGTH;
+		double halfWidth = ARROW_WIDTH / 2;
+		return new double[] { tipX, tipY, baseX - uy * halfWidth, baseY + ux * halfWidth, baseX + uy * halfWidth,
+				baseY - ux * halfWidth };
+	}
+
+	/**
+	 * Returns the bounds of the vertices of the given model widened by the margin,
+	 * or only the margin around the origin if there are none, as least x, least
+	 * y, greatest x and greatest y.
+	 */
+	static double[] bounds(GraphModel model) {
+		double[] bounds = model.getBounds();
+		if (bounds == null) {
+			bounds = new double[4];
+		}
+		bounds[0] -= MARGIN;
+		bounds[1] -= MARGIN;
+		bounds[2] += MARGIN;
+		bounds[3] += MARGIN;
+		return bounds;
+	}
+
+	/**
+	 * Returns the number of pixels spanning the given extent at the given scale.
+	 */
+	private static int size(double extent, double scale) {
+		if (!(scale > 0)) {
+			throw new IllegalArgumentException("Scale must be positive: " + scale);
+		}
+		double pixels = Math.ceil(extent * scale);
+		if (!(pixels <= MAX_SIZE)) {
+			throw new IllegalArgumentException("Image too large at scale " + scale + ": " + pixels + " pixels across");
+		}
+		return Math.max(1, (int) pixels);
+	}
+}
@@ -0,0 +1,74 @@
+package gui;
+
+/**
+ * Estimated heap space taken by a graph model, split between its vertices and
+ * its edges, as measured by {@link GraphModel#footprint()}.
+ */
+public class ModelFootprint {
+
+	// True if the model holds its edges compactly
+	private final boolean compact;
+	// Numbers of vertices and edges of model
+	private final int vertices;
+	private final int edges;
+	// Bytes taken by vertices and by edges
+	private final long vertexBytes;
+	private final long edgeBytes;
+
+	ModelFootprint(boolean compact, int vertices, int edges, long vertexBytes, long edgeBytes) {
+		this.compact = compact;
+		this.vertices = vertices;
+		this.edges = edges;
+		this.vertexBytes = vertexBytes;
+		this.edgeBytes = edgeBytes;
+	}
+
+	public boolean isCompact() {
+		return compact;
+	}
+
+	public int vertices() {
+		return vertices;
+	}
+
+	public int edges() {
+		return edges;
+	}
+
+	public long vertexBytes() {
+		return vertexBytes;
+	}
+
+	public long edgeBytes() {
+		return edgeBytes;
+	}
+
+	public long totalBytes() {
+		return vertexBytes + edgeBytes;
+	}
+
+	/**
+	 * Returns the mean number of bytes taken by each vertex.
+	 *
+	 * @return bytes per vertex, or 0 if there are no vertices
+	 */
+	public double bytesPerVertex() {
+		return vertices == 0 ? 0 : (double) vertexBytes / vertices;
+	}
+
+	/**
+	 * Returns the mean number of bytes taken by each edge.
+	 *
+	 * @return bytes per edge, or 0 if there are no edges
+	 */
+	public double bytesPerEdge() {
+		return edges == 0 ? 0 : (double) edgeBytes / edges;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s model: %d vertices at %.1f B/vertex, %d edges at %.1f B/edge, %.1f MB in all",
+				compact ? "Compact" : "Standard", vertices, bytesPerVertex(), edges, bytesPerEdge(),
+				totalBytes() / 1e6);
+	}
+}
@@ -0,0 +1,50 @@
+package gui;
+
+import java.util.List;
+
+import adts.GraphSnapshot;
+
+/**
+ * Immutable view of a graph model as it stood when the snapshot was taken,
+ * for layout, statistics and export to read on a background thread while the
+ * user keeps editing. Vertices and edges are identified by their positions in
+ * the graph snapshot.
+ */
+public class ModelSnapshot {
+
+	// Vertices and edges of graph
+	private final GraphSnapshot<String, String> graph;
+	// X, Y coordinates of each vertex, by vertex position
+	private final List<double[]> coords;
+
+	ModelSnapshot(GraphSnapshot<String, String> graph, List<double[]> coords) {
+		this.graph = graph;
+		this.coords = coords;
+	}
+
+	public GraphSnapshot<String, String> graph() {
+		return graph;
+	}
+
+	/**
+	 * Returns x-coordinate of the vertex at the given position.
+	 *
+	 * @param vertex
+	 *            position of vertex
+	 * @return x-coordinate of vertex
+	 */
+	public double x(int vertex) {
+		return coords.get(vertex)[0];
+	}
+
+	/**
+	 * Returns y-coordinate of the vertex at the given position.
+	 *
+	 * @param vertex
+	 *            position of vertex
+	 * @return y-coordinate of vertex
+	 */
+	public double y(int vertex) {
+		return coords.get(vertex)[1];
+	}
+}
@@ -0,0 +1,193 @@
+package gui;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Streaming encoder of opaque 8-bit RGB PNG images. Rows are written one at a
+ * time, top to bottom, and compressed as they arrive into fixed-size IDAT
+ * chunks, so memory use does not depend on the size of the image.
+ */
+public class PngWriter implements Closeable {
+
+	// Signature beginning every PNG file
+	private static final byte[] SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+	// Greatest number of compressed bytes held before an IDAT chunk is written
+	private static final int CHUNK_SIZE = 1 << 16;
+	// Colour type of 8-bit RGB pixels and filter type of each row
+	private static final int COLOUR_TYPE_RGB = 2;
+	private static final int FILTER_SUB = 1;
+
+	// Destination of chunks
+	private final DataOutputStream out;
+	// Width and height of image in pixels
+	private final int width;
+	private final int height;
+	// Compressor of filtered rows, writing to a stream of IDAT chunks
+	private final Deflater deflater;
+	private final DeflaterOutputStream image;
+	private final ChunkStream chunks;
+	// Filter type byte followed by filtered bytes of current row
+	private final byte[] row;
+	// Number of rows written
+	private int rows;
+	private boolean closed;
+
+	/**
+	 * Begin an image of the given size on the given stream, writing its header.
+	 *
+	 * @param out
+	 *            stream to which image is written, closed with this writer
+	 * @param width
+	 *            width of image in pixels
+	 * @param height
+	 *            height of image in pixels
+	 * @throws IOException
+	 */
+	public PngWriter(OutputStream out, int width, int height) throws IOException {
+		if (width <= 0 || height <= 0 || width > (Integer.MAX_VALUE - 1) / 3) {
+			throw new IllegalArgumentException("Invalid image size: " + width + " x " + height);
+		}
+		this.out = new DataOutputStream(out);
+		this.width = width;
+		this.height = height;
+		row = new byte[1 + 3 * width];
+		row[0] = FILTER_SUB;
+		deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+		chunks = new ChunkStream();
+		image = new DeflaterOutputStream(chunks, deflater, CHUNK_SIZE);
+
+		this.out.write(SIGNATURE);
+		byte[] header = new byte[13];
+		putInt(header, 0, width);
+		putInt(header, 4, height);
+		header[8] = 8;
+		header[9] = COLOUR_TYPE_RGB;
+		writeChunk("IHDR", header, header.length);
+	}
+
+	/**
+	 * Write the next row of the image.
+	 *
+	 * @param pixels
+	 *            array holding row as RGB values, the highest byte being ignored
+	 * @param offset
+	 *            index in array of leftmost pixel of row
+	 * @throws IOException
+	 */
+	public void writeRow(int[] pixels, int offset) throws IOException {
+		if (rows == height) {
+			throw new IllegalStateException("All " + height + " rows already written");
+		}
+		// Sub filter: each byte less the corresponding byte of the pixel to its left
+		int previous = 0;
+		for (int x = 0, i = 1; x < width; x++, i += 3) {
+			int rgb = pixels[offset + x];
+			row[i] = (byte) ((rgb >> 16) - (previous >> 16));
+			row[i + 1] = (byte) ((rgb >> 8) - (previous >> 8));
+			row[i + 2] = (byte) (rgb - previous);
+			previous = rgb;
+		}
+		image.write(row);
+		rows++;
+	}
+
+	/**
+	 * Finish the image and close the stream. Fails if fewer rows were written
+	 * than the height of the image, leaving an incomplete file.
+	 *
+	 * @throws IOException
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			if (rows < height) {
+				throw new IOException("Image incomplete: " + rows + " of " + height + " rows written");
+			}
+			image.finish();
+			chunks.flush();
+			writeChunk("IEND", new byte[0], 0);
+		} finally {
+			deflater.end();
+			out.close();
+		}
+	}
+
+	/**
+	 * Write a chunk of the given type holding the first given number of bytes of
+	 * the given data.
+	 */
+	private void writeChunk(String type, byte[] data, int length) throws IOException {
+		byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+		CRC32 crc = new CRC32();
+		crc.update(typeBytes);
+		crc.update(data, 0, length);
+		out.writeInt(length);
+		out.write(typeBytes);
+		out.write(data, 0, length);
+		out.writeInt((int) crc.getValue());
+	}
+
+	private static void putInt(byte[] bytes, int index, int value) {
+		bytes[index] = (byte) (value >>> 24);
+		bytes[index + 1] = (byte) (value >>> 16);
+		bytes[index + 2] = (byte) (value >>> 8);
+		bytes[index + 3] = (byte) value;
+	}
+
+	/**
+	 * Stream of compressed image data, written out as IDAT chunks whenever its
+	 * buffer fills and when flushed.
+	 */
+	private class ChunkStream extends OutputStream {
+
+		// Compressed bytes not yet written, in the first size slots
+		private final byte[] buffer = new byte[CHUNK_SIZE];
+		private int size;
+
+		@Override
+		public void write(int b) throws IOException {
+			if (size == buffer.length) {
+				flush();
+			}
+			buffer[size++] = (byte) b;
+		}
+
+		@Override
+		public void write(byte[] bytes, int offset, int length) throws IOException {
+			while (length > 0) {
+				if (size == buffer.length) {
+					flush();
+				}
+				int copied = Math.min(length, buffer.length - size);
+				System.arraycopy(bytes, offset, buffer, size, copied);
+				size += copied;
+				offset += copied;
+				length -= copied;
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			if (size > 0) {
+				writeChunk("IDAT", buffer, size);
+				size = 0;
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			flush();
+		}
+	}
+}
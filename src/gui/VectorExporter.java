@@ -0,0 +1,411 @@
+package gui;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import metrics.Metrics;
+import metrics.Timer;
+
+/**
+ * Exports the graph of a model as an SVG or PDF vector image, drawn as by the
+ * graph view. Coordinates are read directly from the model and written as
+ * they are visited through a small text buffer, so export takes time linear in
+ * the size of the graph and memory independent of it. Edges are grouped into
+ * paths of up to EDGES_PER_PATH lines each, rather than one element each, to
+ * keep files small.
+ */
+public class VectorExporter {
+
+	// Greatest number of edges or arrowheads drawn by each path
+	private static final int EDGES_PER_PATH = 10000;
+	// Greatest width and height of a PDF page in points, beyond which the graph
+	// is scaled down to fit
+	private static final double MAX_PAGE_SIZE = 14400;
+	// Distance of Bezier control points from the ends of each quarter of a circle,
+	// as a fraction of the radius
+	private static final double CIRCLE_KAPPA = 0.5522847498;
+	// Decimal places of the scale of a PDF page, coordinates having two
+	private static final int SCALE_DECIMALS = 6;
+	// Number of characters buffered before they are written
+	private static final int BUFFER_SIZE = 1 << 14;
+
+	// Duration of each export
+	private static final Timer SVG_TIMER = Metrics.timer("export.svg");
+	private static final Timer PDF_TIMER = Metrics.timer("export.pdf");
+
+	// Model of which the graph is exported
+	private final GraphModel model;
+
+	/**
+	 * Creates exporter of the graph of the given model.
+	 *
+	 * @param model
+	 *            model of graph to be exported
+	 */
+	public VectorExporter(GraphModel model) {
+		this.model = model;
+	}
+
+	/**
+	 * Write the graph to the given SVG file, with one unit for each unit of the
+	 * model.
+	 *
+	 * @param file
+	 *            file to which graph is written
+	 * @throws IOException
+	 */
+	public void exportSvg(File file) throws IOException {
+		exportSvg(new FileOutputStream(file));
+	}
+
+	/**
+	 * Write the graph to the given stream as an SVG document, closing the stream.
+	 *
+	 * @param out
+	 *            stream to which graph is written
+	 * @throws IOException
+	 */
+	public void exportSvg(OutputStream out) throws IOException {
+		long start = SVG_TIMER.start();
+		double[] bounds = ImageExporter.bounds(model);
+		double width = bounds[2] - bounds[0];
+		double height = bounds[3] - bounds[1];
+		double radius = ImageExporter.VERTEX_RADIUS;
+		try (TextWriter svg = new TextWriter(out)) {
+			svg.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+			svg.append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"").append(width).append("\" height=\"")
+					.append(height).append("\" viewBox=\"").append(bounds[0]).append(' ').append(bounds[1])
+					.append(' ').append(width).append(' ').append(height).append("\">\n");
+			svg.append("<rect x=\"").append(bounds[0]).append("\" y=\"").append(bounds[1]).append("\" width=\"")
+					.append(width).append("\" height=\"").append(height).append("\" fill=\"white\"/>\n");
+
+			svg.append("<g fill=\"none\" stroke=\"black\" stroke-width=\"").append(ImageExporter.EDGE_WIDTH)
+					.append("\" stroke-linecap=\"square\">\n");
+			int count = 0;
+			for (List<Double> coords : model.getEdges().values()) {
+				svg.append(count % EDGES_PER_PATH == 0 ? "<path d=\"" : "");
+				svg.append('M').append(coords.get(0)).append(' ').append(coords.get(1)).append('L')
+						.append(coords.get(2)).append(' ').append(coords.get(3));
+				if (++count % EDGES_PER_PATH == 0) {
+					svg.append("\"/>\n");
+				}
+			}
+			svg.append(count % EDGES_PER_PATH != 0 ? "\"/>\n" : "").append("</g>\n");
+
+			if (model.isDirected()) {
+				svg.append("<g fill=\"black\">\n");
+				count = 0;
+				for (List<Double> coords : model.getEdges().values()) {
+					double[] points = ImageExporter.arrowhead(coords.get(0), coords.get(1), coords.get(2),
+							coords.get(3));
+					if (points == null) {
+						continue;
+					}
+					svg.append(count % EDGES_PER_PATH == 0 ? "<path d=\"" : "");
+					svg.append('M').append(points[0]).append(' ').append(points[1]).append('L').append(points[2])
+							.append(' ').append(points[3]).append(' ').append(points[4]).append(' ')
+							.append(points[5]).append('Z');
+					if (++count % EDGES_PER_PATH == 0) {
+						svg.append("\"/>\n");
+					}
+				}
+				svg.append(count % EDGES_PER_PATH != 0 ? "\"/>\n" : "").append("</g>\n");
+			}
+
+			// Circles are separate elements so that each is filled before the next is outlined
+			svg.append("<g fill=\"white\" stroke=\"black\" stroke-width=\"").append(ImageExporter.VERTEX_STROKE)
+					.append("\">\n");
+			for (List<Double> coords : model.getVertices().keySet()) {
+				svg.append("<circle cx=\"").append(coords.get(0)).append("\" cy=\"").append(coords.get(1))
+						.append("\" r=\"").append(radius).append("\"/>\n");
+			}
+			svg.append("</g>\n</svg>\n");
+		}
+		SVG_TIMER.stop(start);
+	}
+
+	/**
+	 * Write the graph to the given PDF file as a single page, with one point for
+	 * each unit of the model unless the page would be too large.
+	 *
+	 * @param file
+	 *            file to which graph is written
+	 * @throws IOException
+	 */
+	public void exportPdf(File file) throws IOException {
+		exportPdf(new FileOutputStream(file));
+	}
+
+	/**
+	 * Write the graph to the given stream as a single page PDF document, closing
+	 * the stream. The page content is compressed as it is written, its length
+	 * being given by an object following it, and draws each vertex with a form
+	 * holding one circle.
+	 *
+	 * @param out
+	 *            stream to which graph is written
+	 * @throws IOException
+	 */
+	public void exportPdf(OutputStream out) throws IOException {
+		long start = PDF_TIMER.start();
+		double[] bounds = ImageExporter.bounds(model);
+		double scale = Math.min(1, MAX_PAGE_SIZE / Math.max(bounds[2] - bounds[0], bounds[3] - bounds[1]));
+		double radius = ImageExporter.VERTEX_RADIUS;
+		CountingStream document = new CountingStream(new BufferedOutputStream(out));
+		// Byte offset of each object, by object number less one
+		long[] offsets = new long[6];
+		try (TextWriter pdf = new TextWriter(document)) {
+			// Comment of bytes above 127 marks the file as binary
+			pdf.append("%PDF-1.4\n%\u00e2\u00e3\u00cf\u00d3\n");
+			offsets[0] = offset(pdf, document);
+			pdf.append("1 0 obj\n<< /Type /Catalog /Pages 2 0 R >>\nendobj\n");
+			offsets[1] = offset(pdf, document);
+			pdf.append("2 0 obj\n<< /Type /Pages /Kids [3 0 R] /Count 1 >>\nendobj\n");
+			offsets[2] = offset(pdf, document);
+			pdf.append("3 0 obj\n<< /Type /Page /Parent 2 0 R /MediaBox [0 0 ")
+					.append((bounds[2] - bounds[0]) * scale).append(' ').append((bounds[3] - bounds[1]) * scale)
+					.append("] /Resources << /XObject << /V 6 0 R >> >> /Contents 4 0 R >>\nendobj\n");
+			offsets[3] = offset(pdf, document);
+			pdf.append("4 0 obj\n<< /Length 5 0 R /Filter /FlateDecode >>\nstream\n");
+			long contentStart = offset(pdf, document);
+
+			// Fastest compression, as repetitive drawing operators shrink well at any level
+			Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+			DeflaterOutputStream deflated = new DeflaterOutputStream(new FilterOutputStream(document) {
+				@Override
+				public void write(byte[] bytes, int offset, int length) throws IOException {
+					out.write(bytes, offset, length);
+				}
+
+				@Override
+				public void close() {
+					// Leave document open for the objects following the content
+				}
+			}, deflater, BUFFER_SIZE);
+			try (TextWriter content = new TextWriter(deflated)) {
+				// Flip y-axis, which points up in PDF, and move graph onto page
+				content.append(scale, SCALE_DECIMALS).append(" 0 0 ").append(-scale, SCALE_DECIMALS).append(' ')
+						.append(-bounds[0] * scale).append(' ').append(bounds[3] * scale).append(" cm\n");
+				content.append("1 g ").append(bounds[0]).append(' ').append(bounds[1]).append(' ')
+						.append(bounds[2] - bounds[0]).append(' ').append(bounds[3] - bounds[1]).append(" re f\n");
+				content.append("0 g 0 G 2 J ").append(ImageExporter.EDGE_WIDTH).append(" w\n");
+				int count = 0;
+				for (List<Double> coords : model.getEdges().values()) {
+					content.append(coords.get(0)).append(' ').append(coords.get(1)).append(" m ")
+							.append(coords.get(2)).append(' ').append(coords.get(3)).append(" l\n");
+					if (++count % EDGES_PER_PATH == 0) {
+						content.append("S\n");
+					}
+				}
+				content.append(count % EDGES_PER_PATH != 0 ? "S\n" : "");
+
+				if (model.isDirected()) {
+					count = 0;
+					for (List<Double> coords : model.getEdges().values()) {
+						double[] points = ImageExporter.arrowhead(coords.get(0), coords.get(1), coords.get(2),
+								coords.get(3));
+						if (points == null) {
+							continue;
+						}
+						content.append(points[0]).append(' ').append(points[1]).append(" m ").append(points[2])
+								.append(' ').append(points[3]).append(" l ").append(points[4]).append(' ')
+								.append(points[5]).append(" l h\n");
+						if (++count % EDGES_PER_PATH == 0) {
+							content.append("f\n");
+						}
+					}
+					content.append(count % EDGES_PER_PATH != 0 ? "f\n" : "");
+				}
+
+				// Vertex circle is drawn by the form, translated to each vertex
+				content.append("1 g ").append(ImageExporter.VERTEX_STROKE).append(" w\n");
+				for (List<Double> coords : model.getVertices().keySet()) {
+					content.append("q 1 0 0 1 ").append(coords.get(0)).append(' ').append(coords.get(1))
+							.append(" cm /V Do Q\n");
+				}
+			} finally {
+				deflater.end();
+			}
+			long contentLength = document.count() - contentStart;
+
+			pdf.append("\nendstream\nendobj\n");
+			offsets[4] = offset(pdf, document);
+			pdf.append("5 0 obj\n").append(contentLength).append("\nendobj\n");
+			offsets[5] = offset(pdf, document);
+			byte[] circle = circle(radius);
+			pdf.append("6 0 obj\n<< /Type /XObject /Subtype /Form /BBox [").append(-radius - 1).append(' ')
+					.append(-radius - 1).append(' ').append(radius + 1).append(' ').append(radius + 1)
+					.append("] /Length ").append(circle.length).append(" >>\nstream\n");
+			for (byte b : circle) {
+				pdf.append((char) b);
+			}
+			pdf.append("\nendstream\nendobj\n");
+			long xref = offset(pdf, document);
+			pdf.append("xref\n0 7\n0000000000 65535 f \n");
+			for (long offset : offsets) {
+				String digits = Long.toString(offset);
+				pdf.append("0000000000".substring(digits.length())).append(digits).append(" 00000 n \n");
+			}
+			pdf.append("trailer\n<< /Size 7 /Root 1 0 R >>\nstartxref\n").append(xref).append("\n%%EOF\n");
+		}
+		PDF_TIMER.stop(start);
+	}
+
+	/**
+	 * Returns the content of a form filling and outlining a circle of the given
+	 * radius centred on the origin, made of four Bezier curves.
+	 */
+	private static byte[] circle(double radius) throws IOException {
+		double control = radius * CIRCLE_KAPPA;
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (TextWriter form = new TextWriter(bytes)) {
+			form.append(radius).append(" 0 m ");
+			form.append(radius).append(' ').append(control).append(' ').append(control).append(' ').append(radius)
+					.append(" 0 ").append(radius).append(" c ");
+			form.append(-control).append(' ').append(radius).append(' ').append(-radius).append(' ').append(control)
+					.append(' ').append(-radius).append(" 0 c ");
+			form.append(-radius).append(' ').append(-control).append(' ').append(-control).append(' ')
+					.append(-radius).append(" 0 ").append(-radius).append(" c ");
+			form.append(control).append(' ').append(-radius).append(' ').append(radius).append(' ').append(-control)
+					.append(' ').append(radius).append(" 0 c B");
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Returns the byte offset in the given document of the next text appended to
+	 * the given writer of the document, writing out any text buffered.
+	 */
+	private static long offset(TextWriter pdf, CountingStream document) throws IOException {
+		pdf.flush();
+		return document.count();
+	}
+
+	/**
+	 * Writer of text holding only characters below 256, one byte each, buffering
+	 * it and formatting numbers without creating strings.
+	 */
+	private static final class TextWriter implements AutoCloseable {
+
+		// Stream to which text is written
+		private final OutputStream out;
+		// Text not yet written, in the first size slots
+		private final byte[] buffer = new byte[BUFFER_SIZE];
+		private int size;
+
+		TextWriter(OutputStream out) {
+			this.out = out;
+		}
+
+		TextWriter append(char c) throws IOException {
+			if (size == buffer.length) {
+				flush();
+			}
+			buffer[size++] = (byte) c;
+			return this;
+		}
+
+		TextWriter append(String text) throws IOException {
+			for (int i = 0; i < text.length(); i++) {
+				append(text.charAt(i));
+			}
+			return this;
+		}
+
+		TextWriter append(long value) throws IOException {
+			if (value < 0) {
+				append('-');
+				value = -value;
+			}
+			if (value >= 10) {
+				append(value / 10);
+			}
+			return append((char) ('0' + value % 10));
+		}
+
+		/**
+		 * Append the given number rounded to two decimal places, without trailing
+		 * zeros.
+		 */
+		TextWriter append(double value) throws IOException {
+			return append(value, 2);
+		}
+
+		/**
+		 * Append the given number rounded to the given number of decimal places,
+		 * without trailing zeros.
+		 */
+		TextWriter append(double value, int decimals) throws IOException {
+			long unit = 1;
+			for (int i = 0; i < decimals; i++) {
+				unit *= 10;
+			}
+			long rounded = Math.round(value * unit);
+			if (rounded < 0) {
+				append('-');
+				rounded = -rounded;
+			}
+			append(rounded / unit);
+			long fraction = rounded % unit;
+			if (fraction != 0) {
+				append('.');
+				for (unit /= 10; fraction != 0; unit /= 10) {
+					append((char) ('0' + fraction / unit));
+					fraction %= unit;
+				}
+			}
+			return this;
+		}
+
+		void flush() throws IOException {
+			out.write(buffer, 0, size);
+			size = 0;
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				flush();
+			} finally {
+				out.close();
+			}
+		}
+	}
+
+	/**
+	 * Stream counting the bytes written through it.
+	 */
+	private static final class CountingStream extends FilterOutputStream {
+
+		// Number of bytes written
+		private long count;
+
+		CountingStream(OutputStream out) {
+			super(out);
+		}
+
+		long count() {
+			return count;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(byte[] bytes, int offset, int length) throws IOException {
+			out.write(bytes, offset, length);
+			count += length;
+		}
+	}
+}
@@ -0,0 +1,118 @@
+package gui;
+
+/**
+ * Transform between model coordinates and screen coordinates of the canvas, by
+ * a uniform scale followed by a translation, changed by zooming about a point
+ * and panning.
+ */
+public class Viewport {
+
+	// Least and greatest scale permitted
+	private static final double MIN_SCALE = 0.001;
+	private static final double MAX_SCALE = 20;
+
+	// Screen pixels per model unit
+	private double scale = 1;
+	// Screen coordinates of model origin
+	private double translateX = 0;
+	private double translateY = 0;
+
+	public double getScale() {
+		return scale;
+	}
+
+	public double getTranslateX() {
+		return translateX;
+	}
+
+	public double getTranslateY() {
+		return translateY;
+	}
+
+	/**
+	 * Returns the model x-coordinate shown at the given screen x-coordinate.
+	 * 
+	 * @param screenX
+	 *            screen x-coordinate
+	 * @return model x-coordinate
+	 */
+	public double toModelX(double screenX) {
+		return (screenX - translateX) / scale;
+	}
+
+	/**
+	 * Returns the model y-coordinate shown at the given screen y-coordinate.
+	 * 
+	 * @param screenY
+	 *            screen y-coordinate
+	 * @return model y-coordinate
+	 */
+	public double toModelY(double screenY) {
+		return (screenY - translateY) / scale;
+	}
+
+	/**
+	 * Returns the screen x-coordinate at which the given model x-coordinate is
+	 * shown.
+	 * 
+	 * @param modelX
+	 *            model x-coordinate
+	 * @return screen x-coordinate
+	 */
+	public double toScreenX(double modelX) {
+		return modelX * scale + translateX;
+	}
+
+	/**
+	 * Returns the screen y-coordinate at which the given model y-coordinate is
+	 * shown.
+	 * 
+	 * @param modelY
+	 *            model y-coordinate
+	 * @return screen y-coordinate
+	 */
+	public double toScreenY(double modelY) {
+		return modelY * scale + translateY;
+	}
+
+	/**
+	 * Multiply the scale by the given factor, within the permitted range, keeping
+	 * the model point shown at the given screen coordinates in place.
+	 * 
+	 * @param factor
+	 *            factor by which scale is multiplied
+	 * @param screenX
+	 *            screen x-coordinate of fixed point
+	 * @param screenY
+	 *            screen y-coordinate of fixed point
+	 */
+	public void zoom(double factor, double screenX, double screenY) {
+		double modelX = toModelX(screenX);
+		double modelY = toModelY(screenY);
+		scale = Math.max(MIN_SCALE, Math.min(MAX_SCALE, scale * factor));
+		translateX = screenX - modelX * scale;
+		translateY = screenY - modelY * scale;
+	}
+
+	/**
+	 * Move the view by the given screen distances.
+	 * 
+	 * @param dx
+	 *            horizontal distance in screen pixels
+	 * @param dy
+	 *            vertical distance in screen pixels
+	 */
+	public void pan(double dx, double dy) {
+		translateX += dx;
+		translateY += dy;
+	}
+
+	/**
+	 * Restore the initial view, in which model and screen coordinates coincide.
+	 */
+	public void reset() {
+		scale = 1;
+		translateX = 0;
+		translateY = 0;
+	}
+}
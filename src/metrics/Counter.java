@@ -0,0 +1,51 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public class Counter {
+
+	// Name under which counter is registered
+	private final String name;
+	// Running total of counter
+	private final LongAdder count;
+
+	/**
+	 * Creates counter with the given name and a count of zero.
+	 * 
+	 * @param name
+	 *            name of counter
+	 */
+	Counter(String name) {
+		this.name = name;
+		count = new LongAdder();
+	}
+
+	public String name() {
+		return name;
+	}
+
+	/**
+	 * Increment count by one.
+	 */
+	public void increment() {
+		count.increment();
+	}
+
+	/**
+	 * Increment count by the given amount.
+	 * 
+	 * @param amount
+	 *            amount to be added to count
+	 */
+	public void add(long amount) {
+		count.add(amount);
+	}
+
+	public long count() {
+		return count.sum();
+	}
+
+	void reset() {
+		count.reset();
+	}
+}
@@ -0,0 +1,333 @@
+package metrics;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Estimates of the heap space taken by objects, for reporting what data
+ * structures cost. Sizes follow the layout of a 64-bit HotSpot JVM: each
+ * object has a header of 12 bytes, or 16 without compressed references, fields
+ * are packed after it, and every object is padded to a multiple of 8 bytes.
+ * References are taken to be compressed, 4 bytes each, when the maximum heap
+ * is below 32 GB, as the JVM does by default.
+ *
+ * Objects of this program are walked field by field. Fields of JDK classes
+ * cannot be read by reflection, so maps and collections of the JDK are walked
+ * through their elements instead, their tables and entries being estimated
+ * from their sizes, and strings and other JDK objects are sized from their
+ * declared fields.
+ */
+public final class HeapSize {
+
+	// Size of a reference, 4 bytes if compressed
+	private static final int REFERENCE = Runtime.getRuntime().maxMemory() < (32L << 30) ? 4 : 8;
+	// Size of an object header, and of an array header including its length
+	private static final int HEADER = REFERENCE == 4 ? 12 : 16;
+	private static final int ARRAY_HEADER = HEADER + 4;
+	// Objects are padded to a multiple of this many bytes
+	private static final int ALIGNMENT = 8;
+	// Least number of buckets of a hash table holding any entries
+	private static final int MIN_TABLE = 16;
+
+	// Shallow size and reference fields of each class walked so far
+	private static final Map<Class<?>, Layout> layouts = new ConcurrentHashMap<>();
+
+	private HeapSize() {
+	}
+
+	/**
+	 * Returns the number of bytes taken by the given objects and every object
+	 * reachable from them, counting objects reachable more than once, or from
+	 * more than one of the given objects, only once. Classes, and objects
+	 * reachable only through static fields, are not counted.
+	 *
+	 * Walking the objects takes time linear in their number, and space of about
+	 * 8 bytes for each, so this is meant for diagnosis rather than routine use.
+	 * The objects must not be modified while they are walked.
+	 *
+	 * @param roots
+	 *            objects to be measured, any of which may be null
+	 * @return estimated number of bytes taken by objects
+	 */
+	public static long deepSize(Object... roots) {
+		IdentitySet visited = new IdentitySet();
+		ArrayDeque<Object> pending = new ArrayDeque<>();
+		for (Object root : roots) {
+			if (root != null && visited.add(root)) {
+				pending.push(root);
+			}
+		}
+		long total = 0;
+		while (!pending.isEmpty()) {
+			Object object = pending.pop();
+			Class<?> type = object.getClass();
+			if (object instanceof Class) {
+				continue;
+			}
+			if (type.isArray()) {
+				int length = Array.getLength(object);
+				total += arraySize(length, type.getComponentType());
+				if (!type.getComponentType().isPrimitive()) {
+					for (Object element : (Object[]) object) {
+						push(element, visited, pending);
+					}
+				}
+				continue;
+			}
+			Layout layout = layout(type);
+			total += layout.size;
+			if (layout.references != null) {
+				for (Field field : layout.references) {
+					try {
+						push(field.get(object), visited, pending);
+					} catch (IllegalAccessException e) {
+						throw new IllegalStateException("Cannot read " + field, e);
+					}
+				}
+			} else if (object instanceof Map) {
+				Map<?, ?> map = (Map<?, ?>) object;
+				total += tableSize(map) + map.size() * entrySize(map);
+				for (Map.Entry<?, ?> entry : map.entrySet()) {
+					push(entry.getKey(), visited, pending);
+					push(entry.getValue(), visited, pending);
+				}
+			} else if (object instanceof Collection) {
+				Collection<?> collection = (Collection<?>) object;
+				total += backingSize(collection);
+				for (Object element : collection) {
+					push(element, visited, pending);
+				}
+			} else if (object instanceof String) {
+				String string = (String) object;
+				total += arraySize(isLatin1(string) ? string.length() : 2 * string.length(), byte.class);
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * Returns the number of bytes taken by the given object itself, not counting
+	 * the objects it refers to.
+	 *
+	 * @param object
+	 *            object to be measured
+	 * @return estimated number of bytes taken by object
+	 */
+	public static long shallowSize(Object object) {
+		Class<?> type = object.getClass();
+		if (type.isArray()) {
+			return arraySize(Array.getLength(object), type.getComponentType());
+		}
+		return layout(type).size;
+	}
+
+	/**
+	 * Returns the size of a reference, 4 bytes if references are compressed.
+	 *
+	 * @return bytes taken by a reference
+	 */
+	public static int referenceSize() {
+		return REFERENCE;
+	}
+
+	private static void push(Object object, IdentitySet visited, ArrayDeque<Object> pending) {
+		if (object != null && visited.add(object)) {
+			pending.push(object);
+		}
+	}
+
+	/**
+	 * Returns the size of an array of the given length and component type.
+	 */
+	private static long arraySize(long length, Class<?> component) {
+		int size = fieldSize(component);
+		// Elements of 8 bytes start on an 8-byte boundary
+		long header = size == 8 ? align(ARRAY_HEADER) : ARRAY_HEADER;
+		return align(header + length * size);
+	}
+
+	/**
+	 * Returns the size of the bucket table of the given map if it is a hash table
+	 * of the JDK, or 0 otherwise.
+	 */
+	private static long tableSize(Map<?, ?> map) {
+		boolean hashed = map instanceof HashMap || map instanceof Hashtable || map instanceof ConcurrentHashMap;
+		return hashed ? tableSize(map.size()) : 0;
+	}
+
+	/**
+	 * Returns the size of the bucket table of a hash table holding the given
+	 * number of entries, grown to keep it at most three quarters full.
+	 */
+	private static long tableSize(int entries) {
+		if (entries == 0) {
+			return 0;
+		}
+		long buckets = MIN_TABLE;
+		while (buckets * 3 / 4 < entries) {
+			buckets *= 2;
+		}
+		return arraySize(buckets, Object.class);
+	}
+
+	/**
+	 * Returns the size of an entry of the given map: a node holding the hash,
+	 * key, value and next node of a hash table, linked both ways as well in a
+	 * linked hash map, or a node of a tree otherwise.
+	 */
+	private static long entrySize(Map<?, ?> map) {
+		if (map instanceof LinkedHashMap) {
+			return align(HEADER + 4 + 5 * REFERENCE);
+		} else if (map instanceof HashMap || map instanceof Hashtable || map instanceof ConcurrentHashMap) {
+			return align(HEADER + 4 + 3 * REFERENCE);
+		}
+		return align(HEADER + 1 + 5 * REFERENCE);
+	}
+
+	/**
+	 * Returns the size of the objects backing the given collection of the JDK: the
+	 * map of a hash set, or the element array of an array list, taken to be no
+	 * larger than its size. Views and wrappers of other collections are backed by
+	 * those collections, which are counted where they are reached directly.
+	 */
+	private static long backingSize(Collection<?> collection) {
+		Class<?> type = collection.getClass();
+		if (type == HashSet.class || type == LinkedHashSet.class) {
+			// A hash set holds its elements as the keys of a hash map
+			Map<?, ?> map = type == HashSet.class ? new HashMap<>() : new LinkedHashMap<>();
+			return layout(map.getClass()).size + tableSize(collection.size())
+					+ collection.size() * entrySize(map);
+		} else if (type == ArrayList.class || type == ArrayDeque.class) {
+			return arraySize(collection.size(), Object.class);
+		}
+		return 0;
+	}
+
+	private static boolean isLatin1(String string) {
+		for (int i = 0; i < string.length(); i++) {
+			if (string.charAt(i) > 0xFF) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the layout of the given class, working it out when first needed.
+	 */
+	private static Layout layout(Class<?> type) {
+		return layouts.computeIfAbsent(type, Layout::new);
+	}
+
+	private static int fieldSize(Class<?> type) {
+		if (type == long.class || type == double.class) {
+			return 8;
+		} else if (type == int.class || type == float.class) {
+			return 4;
+		} else if (type == short.class || type == char.class) {
+			return 2;
+		} else if (type == byte.class || type == boolean.class) {
+			return 1;
+		}
+		return REFERENCE;
+	}
+
+	private static long align(long size) {
+		return (size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+	}
+
+	/**
+	 * Shallow size of the instances of a class, and the reference fields through
+	 * which they are walked.
+	 */
+	private static final class Layout {
+
+		// Bytes taken by each instance, header and padding included
+		private final long size;
+		// Instance fields holding references, or null for a JDK class
+		private final Field[] references;
+
+		Layout(Class<?> type) {
+			long fields = 0;
+			List<Field> references = new ArrayList<>();
+			// Fields of JDK classes are closed to reflection
+			boolean readable = !type.getModule().isNamed();
+			for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+				for (Field field : c.getDeclaredFields()) {
+					if (Modifier.isStatic(field.getModifiers())) {
+						continue;
+					}
+					fields += fieldSize(field.getType());
+					// Fields inherited from JDK classes are sized but not followed
+					if (readable && !field.getType().isPrimitive() && field.trySetAccessible()) {
+						references.add(field);
+					}
+				}
+			}
+			size = align(HEADER + fields);
+			this.references = readable ? references.toArray(new Field[0]) : null;
+		}
+	}
+
+	/**
+	 * Set of objects compared by identity, held in a single open-addressed table.
+	 */
+	private static final class IdentitySet {
+
+		// Objects of set, null in free slots; at most half the slots are used
+		private Object[] table = new Object[1024];
+		// Number of objects in set
+		private int size;
+
+		/**
+		 * Adds the given object, returning false if it was already in the set.
+		 */
+		boolean add(Object object) {
+			int mask = table.length - 1;
+			int slot = hash(object) & mask;
+			for (Object held = table[slot]; held != null; held = table[slot]) {
+				if (held == object) {
+					return false;
+				}
+				slot = (slot + 1) & mask;
+			}
+			table[slot] = object;
+			if (++size > table.length / 2) {
+				grow();
+			}
+			return true;
+		}
+
+		private void grow() {
+			Object[] old = table;
+			table = new Object[old.length * 2];
+			int mask = table.length - 1;
+			for (Object object : old) {
+				if (object != null) {
+					int slot = hash(object) & mask;
+					while (table[slot] != null) {
+						slot = (slot + 1) & mask;
+					}
+					table[slot] = object;
+				}
+			}
+		}
+
+		private static int hash(Object object) {
+			// Spread identity hashes, which may be sequential, over the table
+			return System.identityHashCode(object) * 0x9E3779B9;
+		}
+	}
+}
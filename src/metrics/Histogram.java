@@ -0,0 +1,143 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class Histogram {
+
+	// Number of linear sub-buckets per power of two, bounding relative error to
+	// 1 / SUB_BUCKETS
+	private static final int SUB_BUCKETS = 16;
+	private static final int SUB_BITS = 4;
+	// Values below this are recorded exactly
+	private static final int LINEAR_LIMIT = SUB_BUCKETS * 2;
+
+	// Name under which histogram is registered
+	private final String name;
+	// Number of values recorded in each bucket
+	private final AtomicLongArray buckets;
+	// Number of recorded values
+	private final AtomicLong count;
+	// Sum of recorded values
+	private final AtomicLong sum;
+	// Largest recorded value
+	private final AtomicLong max;
+	// Most recently recorded value
+	private volatile long last;
+
+	/**
+	 * Creates empty histogram with the given name.
+	 * 
+	 * @param name
+	 *            name of histogram
+	 */
+	Histogram(String name) {
+		this.name = name;
+		buckets = new AtomicLongArray(LINEAR_LIMIT + (64 - SUB_BITS - 1) * SUB_BUCKETS);
+		count = new AtomicLong();
+		sum = new AtomicLong();
+		max = new AtomicLong();
+	}
+
+	public String name() {
+		return name;
+	}
+
+	/**
+	 * Record the given non-negative value.
+	 * 
+	 * @param value
+	 *            value to be recorded
+	 */
+	public void record(long value) {
+		if (value < 0) {
+			value = 0;
+		}
+		buckets.incrementAndGet(bucketOf(value));
+		count.incrementAndGet();
+		sum.addAndGet(value);
+		last = value;
+		long currentMax;
+		while (value > (currentMax = max.get()) && !max.compareAndSet(currentMax, value)) {
+		}
+	}
+
+	public long count() {
+		return count.get();
+	}
+
+	public long sum() {
+		return sum.get();
+	}
+
+	public long max() {
+		return max.get();
+	}
+
+	public long last() {
+		return last;
+	}
+
+	/**
+	 * Returns the mean of all recorded values, or zero if none have been recorded.
+	 * 
+	 * @return mean of recorded values
+	 */
+	public double mean() {
+		long n = count.get();
+		return n == 0 ? 0 : (double) sum.get() / n;
+	}
+
+	/**
+	 * Returns an upper bound of the value below which the given fraction of
+	 * recorded values fall, accurate to within one bucket.
+	 * 
+	 * @param quantile
+	 *            fraction of values, between 0 and 1
+	 * @return value at given quantile, or zero if no values have been recorded
+	 */
+	public long percentile(double quantile) {
+		long n = count.get();
+		if (n == 0) {
+			return 0;
+		}
+		long rank = (long) Math.ceil(quantile * n);
+		long seen = 0;
+		for (int i = 0; i < buckets.length(); i++) {
+			seen += buckets.get(i);
+			if (seen >= rank && seen > 0) {
+				return Math.min(upperBoundOf(i), max.get());
+			}
+		}
+		return max.get();
+	}
+
+	void reset() {
+		for (int i = 0; i < buckets.length(); i++) {
+			buckets.set(i, 0);
+		}
+		count.set(0);
+		sum.set(0);
+		max.set(0);
+		last = 0;
+	}
+
+	private static int bucketOf(long value) {
+		if (value < LINEAR_LIMIT) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return LINEAR_LIMIT + (exponent - SUB_BITS - 1) * SUB_BUCKETS + sub;
+	}
+
+	private static long upperBoundOf(int bucket) {
+		if (bucket < LINEAR_LIMIT) {
+			return bucket;
+		}
+		int exponent = (bucket - LINEAR_LIMIT) / SUB_BUCKETS + SUB_BITS + 1;
+		int sub = (bucket - LINEAR_LIMIT) % SUB_BUCKETS;
+		long lower = (1L << exponent) + ((long) sub << (exponent - SUB_BITS));
+		return lower + (1L << (exponent - SUB_BITS)) - 1;
+	}
+}
@@ -0,0 +1,84 @@
+package metrics;
+
+public final class Log {
+
+	/**
+	 * Severity of a log message, in increasing order of verbosity.
+	 */
+	public enum Level {
+		OFF, ERROR, WARN, INFO, DEBUG
+	}
+
+	// Most verbose level written to the console, read once from the
+	// graphgui.log system property so disabled checks fold to constants
+	private static final Level LEVEL = parseLevel(System.getProperty("graphgui.log", "WARN"));
+
+	private Log() {
+	}
+
+	/**
+	 * Returns true if messages of the given level are written to the console.
+	 * Callers should check this before building a message so that disabled
+	 * logging costs nothing.
+	 * 
+	 * @param level
+	 *            level of message
+	 * @return true if messages of given level are enabled
+	 */
+	public static boolean isEnabled(Level level) {
+		return level != Level.OFF && level.ordinal() <= LEVEL.ordinal();
+	}
+
+	/**
+	 * Returns true if debug messages are written to the console.
+	 * 
+	 * @return true if debug messages are enabled
+	 */
+	public static boolean isDebugEnabled() {
+		return LEVEL == Level.DEBUG;
+	}
+
+	/**
+	 * Write the given debug message to the console if debug messages are enabled.
+	 * 
+	 * @param message
+	 *            message to be written
+	 */
+	public static void debug(String message) {
+		log(Level.DEBUG, message);
+	}
+
+	/**
+	 * Write the given informational message to the console if enabled.
+	 * 
+	 * @param message
+	 *            message to be written
+	 */
+	public static void info(String message) {
+		log(Level.INFO, message);
+	}
+
+	/**
+	 * Write the given warning to the console if enabled.
+	 * 
+	 * @param message
+	 *            message to be written
+	 */
+	public static void warn(String message) {
+		log(Level.WARN, message);
+	}
+
+	private static void log(Level level, String message) {
+		if (isEnabled(level)) {
+			System.out.println("[" + level + "] " + message);
+		}
+	}
+
+	private static Level parseLevel(String name) {
+		try {
+			return Level.valueOf(name.trim().toUpperCase());
+		} catch (IllegalArgumentException e) {
+			return Level.WARN;
+		}
+	}
+}
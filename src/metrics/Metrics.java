@@ -0,0 +1,114 @@
+package metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+public final class Metrics {
+
+	// Registered counters by name
+	private static final Map<String, Counter> counters = new ConcurrentHashMap<>();
+	// Registered histograms and timers by name
+	private static final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+	private Metrics() {
+	}
+
+	/**
+	 * Returns the counter registered under the given name, registering a new
+	 * counter if none exists. Callers on hot paths should hold on to the returned
+	 * counter rather than looking it up repeatedly.
+	 * 
+	 * @param name
+	 *            name of counter
+	 * @return counter registered under given name
+	 */
+	public static Counter counter(String name) {
+		return counters.computeIfAbsent(name, Counter::new);
+	}
+
+	/**
+	 * Returns the histogram registered under the given name, registering a new
+	 * histogram if none exists.
+	 * 
+	 * @param name
+	 *            name of histogram
+	 * @return histogram registered under given name
+	 */
+	public static Histogram histogram(String name) {
+		return histograms.computeIfAbsent(name, Histogram::new);
+	}
+
+	/**
+	 * Returns the timer registered under the given name, registering a new timer
+	 * if none exists.
+	 * 
+	 * @param name
+	 *            name of timer
+	 * @return timer registered under given name
+	 * @throws IllegalArgumentException
+	 *             if a histogram that is not a timer has the given name
+	 */
+	public static Timer timer(String name) {
+		Histogram histogram = histograms.computeIfAbsent(name, Timer::new);
+		if (!(histogram instanceof Timer)) {
+			throw new IllegalArgumentException(name + " is not a timer");
+		}
+		return (Timer) histogram;
+	}
+
+	/**
+	 * Returns the throughput in megabytes per second of the bytes recorded by the
+	 * given counter over the time recorded by the given timer.
+	 * 
+	 * @param bytes
+	 *            counter of bytes processed
+	 * @param timer
+	 *            timer of processing
+	 * @return throughput in MB/s, or zero if no time has been recorded
+	 */
+	public static double megabytesPerSecond(Counter bytes, Timer timer) {
+		long nanos = timer.sum();
+		return nanos == 0 ? 0 : (bytes.count() / 1e6) / (nanos / 1e9);
+	}
+
+	/**
+	 * Reset all registered counters, histograms and timers.
+	 */
+	public static void reset() {
+		for (Counter counter : counters.values()) {
+			counter.reset();
+		}
+		for (Histogram histogram : histograms.values()) {
+			histogram.reset();
+		}
+	}
+
+	/**
+	 * Returns a report of all registered counters, histograms and timers, one per
+	 * line in name order.
+	 * 
+	 * @return report of all metrics
+	 */
+	public static String report() {
+		Map<String, String> lines = new ConcurrentSkipListMap<>();
+		for (Counter counter : counters.values()) {
+			lines.put(counter.name(), counter.name() + " = " + counter.count());
+		}
+		for (Histogram histogram : histograms.values()) {
+			if (histogram instanceof Timer) {
+				lines.put(histogram.name(),
+						String.format("%s: n=%d mean=%.3fms p50=%.3fms p99=%.3fms max=%.3fms", histogram.name(),
+								histogram.count(), Timer.toMillis((long) histogram.mean()),
+								Timer.toMillis(histogram.percentile(0.5)), Timer.toMillis(histogram.percentile(0.99)),
+								Timer.toMillis(histogram.max())));
+			} else {
+				lines.put(histogram.name(),
+						String.format("%s: n=%d mean=%.1f p50=%d p99=%d max=%d", histogram.name(), histogram.count(),
+								histogram.mean(), histogram.percentile(0.5), histogram.percentile(0.99),
+								histogram.max()));
+			}
+		}
+		return String.join(System.lineSeparator(), lines.values());
+	}
+}
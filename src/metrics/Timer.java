@@ -0,0 +1,49 @@
+package metrics;
+
+public class Timer extends Histogram {
+
+	/**
+	 * Creates empty timer with the given name, recording durations in
+	 * nanoseconds.
+	 * 
+	 * @param name
+	 *            name of timer
+	 */
+	Timer(String name) {
+		super(name);
+	}
+
+	/**
+	 * Returns the current time, to be passed to {@link #stop(long)} once the timed
+	 * operation completes.
+	 * 
+	 * @return current value of the system timer in nanoseconds
+	 */
+	public long start() {
+		return System.nanoTime();
+	}
+
+	/**
+	 * Record the time elapsed since the given start time.
+	 * 
+	 * @param start
+	 *            time returned by {@link #start()}
+	 * @return elapsed time in nanoseconds
+	 */
+	public long stop(long start) {
+		long elapsed = System.nanoTime() - start;
+		record(elapsed);
+		return elapsed;
+	}
+
+	/**
+	 * Returns the given duration in milliseconds.
+	 * 
+	 * @param nanos
+	 *            duration in nanoseconds
+	 * @return duration in milliseconds
+	 */
+	public static double toMillis(long nanos) {
+		return nanos / 1e6;
+	}
+}